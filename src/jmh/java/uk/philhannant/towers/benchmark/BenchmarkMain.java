@@ -0,0 +1,22 @@
+package uk.philhannant.towers.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmark jar. Hands the command line to the JMH launcher, so every JMH option works as usual
+ * (including -l, -lp and -h), and adds the GC profiler unless one is given, so that the allocation rate is reported
+ * next to throughput and average time.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-prof")) {
+            options.add("-prof");
+            options.add("gc");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
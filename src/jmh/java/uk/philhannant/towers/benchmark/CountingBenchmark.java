@@ -0,0 +1,80 @@
+package uk.philhannant.towers.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.philhannant.towers.index.CoverageTracker;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.optimisers.LazyGreedyOptimiser;
+import uk.philhannant.towers.optimisers.OptimiserListener;
+import uk.philhannant.towers.optimisers.OptimiserStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark measuring what counting operations costs, running the index structures and an optimiser uncounted, as
+ * they are with the {@link OptimiserListener#NOOP} listener, and counted, as they are with a real listener attached.
+ * The uncounted runs are the baseline the counted ones are compared with.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CountingBenchmark {
+
+    @Param({"false", "true"})
+    public boolean counted;
+
+    @Param({"10000", "100000"})
+    public int towers;
+
+    private Scenario scenario;
+    private CompactScenario compact;
+    private TransmitterIndex index;
+    private CoverageTracker tracker;
+    private LazyGreedyOptimiser optimiser;
+    private volatile OptimiserStats lastStats;
+
+    @Setup
+    public void setUp() {
+        scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 42).generate(towers);
+        compact = CompactScenario.of(scenario);
+        index = TransmitterIndex.of(compact, counted);
+        tracker = new CoverageTracker(compact, counted);
+        OptimiserListener listener = (optimised, stats) -> lastStats = stats;
+        optimiser = new LazyGreedyOptimiser(counted ? listener : OptimiserListener.NOOP);
+    }
+
+    @Benchmark
+    public int[] unreached() {
+        return index.unreached(compact.receiverX, compact.receiverY);
+    }
+
+    @Benchmark
+    public long uncoveredAfter() {
+        long total = 0;
+        for(int t = 0; t < compact.transmitterCount(); t++){
+            total += tracker.uncoveredAfter(t, tracker.power(t) + 10);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Result lazyGreedy() {
+        return optimiser.optimise(scenario);
+    }
+}
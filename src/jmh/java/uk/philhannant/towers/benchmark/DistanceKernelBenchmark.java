@@ -0,0 +1,60 @@
+package uk.philhannant.towers.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.philhannant.towers.index.DistanceKernel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark filling transmitter by receiver increase matrices with the distance kernel, sequentially and in
+ * parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistanceKernelBenchmark {
+
+    @Param({"500", "5000", "50000"})
+    public int transmitters;
+
+    @Param({"50", "500"})
+    public int receivers;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private int[] transmitterX;
+    private int[] transmitterY;
+    private int[] transmitterPower;
+    private int[] receiverX;
+    private int[] receiverY;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        transmitterX = random.ints(transmitters, 0, 10_000).toArray();
+        transmitterY = random.ints(transmitters, 0, 10_000).toArray();
+        transmitterPower = random.ints(transmitters, 0, 100).toArray();
+        receiverX = random.ints(receivers, 0, 10_000).toArray();
+        receiverY = random.ints(receivers, 0, 10_000).toArray();
+    }
+
+    @Benchmark
+    public int[] increases() {
+        return DistanceKernel.increases(transmitterX, transmitterY, transmitterPower, receiverX, receiverY, parallel);
+    }
+}
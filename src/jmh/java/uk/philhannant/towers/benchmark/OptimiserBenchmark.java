@@ -0,0 +1,72 @@
+package uk.philhannant.towers.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.optimisers.PowerOptimiser;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark running every power optimiser over generated scenarios of varying size, layout and density.
+ *
+ * Combinations larger than an optimiser can handle fail in setup, which JMH reports and moves past. The densities
+ * other than the default are only swept up to {@link #DENSITY_SWEEP_TOWERS} towers, which keeps a full run to a
+ * reasonable length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OptimiserBenchmark {
+    static final int DENSITY_SWEEP_TOWERS = 10_000;
+    private static final double DEFAULT_DENSITY = 0.01;
+
+    @Param({"ADD_TEN", "POWER_OPTIMISER_IMPL", "POWER_OPTIMISER_IMPL_PARALLEL", "BRANCH_AND_BOUND",
+            "DECOMPOSING_BRANCH_AND_BOUND", "REDUCING_BRANCH_AND_BOUND", "LOCAL_SEARCH", "LAZY_GREEDY",
+            "PORTFOLIO"})
+    public OptimiserKind optimiser;
+
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int towers;
+
+    @Param({"UNIFORM", "CLUSTERED", "CORRIDOR"})
+    public ScenarioGenerator.Layout layout;
+
+    @Param({"0.001", "0.01", "0.1"})
+    public double density;
+
+    private PowerOptimiser subject;
+    private Scenario scenario;
+
+    @Setup
+    public void setUp() {
+        if (towers > optimiser.maxTowers()) {
+            throw new IllegalStateException(optimiser + " is not run above " + optimiser.maxTowers() + " towers");
+        }
+        if (density != DEFAULT_DENSITY && towers > DENSITY_SWEEP_TOWERS) {
+            throw new IllegalStateException("Density " + density + " is not run above " + DENSITY_SWEEP_TOWERS
+                    + " towers");
+        }
+        subject = optimiser.create();
+        scenario = new ScenarioGenerator(layout, density, 42).generate(towers);
+    }
+
+    @Benchmark
+    public Result optimise() {
+        return subject.optimise(scenario);
+    }
+}
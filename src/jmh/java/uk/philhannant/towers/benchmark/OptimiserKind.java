@@ -0,0 +1,48 @@
+package uk.philhannant.towers.benchmark;
+
+import uk.philhannant.towers.optimisers.AddTenOptimiser;
+import uk.philhannant.towers.optimisers.BranchAndBoundOptimiser;
+import uk.philhannant.towers.optimisers.DecomposingOptimiser;
+import uk.philhannant.towers.optimisers.LazyGreedyOptimiser;
+import uk.philhannant.towers.optimisers.LocalSearchOptimiser;
+import uk.philhannant.towers.optimisers.PortfolioOptimiser;
+import uk.philhannant.towers.optimisers.PowerOptimiser;
+import uk.philhannant.towers.optimisers.PowerOptimiserImpl;
+import uk.philhannant.towers.optimisers.ReducingOptimiser;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The power optimisers under benchmark, each with the largest scenario it can be expected to finish in reasonable
+ * time. Larger scenarios are skipped rather than left running.
+ */
+public enum OptimiserKind {
+    ADD_TEN(AddTenOptimiser::new, Integer.MAX_VALUE),
+    POWER_OPTIMISER_IMPL(PowerOptimiserImpl::new, 1_000),
+    POWER_OPTIMISER_IMPL_PARALLEL(() -> new PowerOptimiserImpl(true), 1_000),
+    BRANCH_AND_BOUND(BranchAndBoundOptimiser::new, 1_000),
+    DECOMPOSING_BRANCH_AND_BOUND(() -> new DecomposingOptimiser(new BranchAndBoundOptimiser(), true), 1_000),
+    REDUCING_BRANCH_AND_BOUND(() -> new ReducingOptimiser(new BranchAndBoundOptimiser()), 1_000),
+    LOCAL_SEARCH(() -> new LocalSearchOptimiser(1, 100_000), Integer.MAX_VALUE),
+    LAZY_GREEDY(LazyGreedyOptimiser::new, Integer.MAX_VALUE),
+    PORTFOLIO(() -> new PortfolioOptimiser(Arrays.asList(new BranchAndBoundOptimiser(), new PowerOptimiserImpl(),
+            new LazyGreedyOptimiser(), new LocalSearchOptimiser(1, 100_000)), 10, TimeUnit.SECONDS), 1_000);
+
+    private final Supplier<PowerOptimiser> factory;
+    private final int maxTowers;
+
+    OptimiserKind(Supplier<PowerOptimiser> factory, int maxTowers) {
+        this.factory = factory;
+        this.maxTowers = maxTowers;
+    }
+
+    public PowerOptimiser create() {
+        return factory.get();
+    }
+
+    public int maxTowers() {
+        return maxTowers;
+    }
+}
@@ -1,8 +1,262 @@
 package uk.philhannant.towers;
 
+import uk.philhannant.towers.io.ResultWriter;
+import uk.philhannant.towers.io.ScenarioReader;
+import uk.philhannant.towers.io.ScenarioWriter;
+import uk.philhannant.towers.io.SolutionStore;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.optimisers.AddTenOptimiser;
+import uk.philhannant.towers.optimisers.BatchOptimiser;
+import uk.philhannant.towers.optimisers.BatchOutcome;
+import uk.philhannant.towers.optimisers.BranchAndBoundOptimiser;
+import uk.philhannant.towers.optimisers.CachingOptimiser;
+import uk.philhannant.towers.optimisers.DecomposingOptimiser;
+import uk.philhannant.towers.optimisers.DistributedOptimiser;
+import uk.philhannant.towers.optimisers.LazyGreedyOptimiser;
+import uk.philhannant.towers.optimisers.LocalSearchOptimiser;
+import uk.philhannant.towers.optimisers.PortfolioOptimiser;
+import uk.philhannant.towers.optimisers.PowerOptimiser;
+import uk.philhannant.towers.optimisers.PowerOptimiserImpl;
+import uk.philhannant.towers.optimisers.ReducingOptimiser;
+import uk.philhannant.towers.optimisers.SetCoverBound;
+import uk.philhannant.towers.optimisers.StoringOptimiser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Command line entry point, reading and writing the binary scenario and result files.
+ *
+ * <pre>
+ * optimise [--optimiser NAME] [--threads N] [--workers N] [--store DIR] [--bound true] SCENARIO_FILE RESULT_FILE
+ * generate [--towers N] [--layout UNIFORM|CLUSTERED|CORRIDOR] [--density D] [--seed S] [--count N] SCENARIO_FILE
+ * worker [--optimiser NAME]
+ * </pre>
+ *
+ * With {@code --workers} the scenarios are split and solved by that many worker processes, each started with the
+ * {@code worker} command, which reads scenarios from its standard input and writes a result for each to its standard
+ * output. With {@code --store} solutions are kept in a {@link SolutionStore} in a subdirectory of the given directory
+ * named after the optimiser, and scenarios solved by an earlier run of the same optimiser are answered from it.
+ */
 public class Main {
 
+    static final Map<String, Supplier<PowerOptimiser>> OPTIMISERS = new LinkedHashMap<>();
+    private static final long STORE_BYTES = 256L << 20;
+
+    static {
+        OPTIMISERS.put("branch-and-bound", BranchAndBoundOptimiser::new);
+        OPTIMISERS.put("impl", PowerOptimiserImpl::new);
+        OPTIMISERS.put("impl-parallel", () -> new PowerOptimiserImpl(true));
+        OPTIMISERS.put("add-ten", AddTenOptimiser::new);
+        OPTIMISERS.put("local-search", () -> new LocalSearchOptimiser(0, 1_000_000));
+        OPTIMISERS.put("branch-and-bound-decomposed",
+                () -> new DecomposingOptimiser(new BranchAndBoundOptimiser(), true));
+        OPTIMISERS.put("branch-and-bound-cached", () -> new CachingOptimiser(new BranchAndBoundOptimiser(), 4096));
+        OPTIMISERS.put("branch-and-bound-reduced", () -> new ReducingOptimiser(new BranchAndBoundOptimiser()));
+        OPTIMISERS.put("lazy-greedy", LazyGreedyOptimiser::new);
+        OPTIMISERS.put("portfolio", () -> new PortfolioOptimiser(Arrays.asList(new BranchAndBoundOptimiser(),
+                new PowerOptimiserImpl(), new LazyGreedyOptimiser(), new LocalSearchOptimiser(0, 1_000_000)),
+                10, TimeUnit.SECONDS));
+    }
+
     public static void main(String[] args) {
-	// write your code here
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args the command and its arguments
+     * @param out  where progress and summaries are written
+     * @param err  where errors are written
+     * @return the exit code: 0 on success, 1 if any scenario failed, 2 for bad usage or unreadable files
+     */
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length == 0) {
+            return usage(err, "No command given");
+        }
+        Map<String, String> options = new HashMap<>();
+        List<String> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 == args.length) {
+                    return usage(err, "Missing value for " + args[i]);
+                }
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        try {
+            switch (args[0]) {
+                case "optimise":
+                    return files.size() == 2 ? optimise(options, Paths.get(files.get(0)), Paths.get(files.get(1)), out, err)
+                            : usage(err, "optimise needs a scenario file and a result file");
+                case "generate":
+                    return files.size() == 1 ? generate(options, Paths.get(files.get(0)), out)
+                            : usage(err, "generate needs a scenario file");
+                case "worker":
+                    return files.isEmpty() ? worker(options, System.in, out, err)
+                            : usage(err, "worker reads standard input and takes no files");
+                default:
+                    return usage(err, "Unknown command " + args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            return usage(err, e.getMessage());
+        } catch (IOException e) {
+            err.println("I/O error: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    private static int optimise(Map<String, String> options, Path scenarioFile, Path resultFile, PrintStream out,
+                                PrintStream err) throws IOException {
+        String name = options.getOrDefault("optimiser", "branch-and-bound");
+        Supplier<PowerOptimiser> optimiser = optimiser(name);
+        int workers = Integer.parseInt(options.getOrDefault("workers", "0"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        boolean bound = Boolean.parseBoolean(options.getOrDefault("bound", "false"));
+        Path store = options.containsKey("store") ? Paths.get(options.get("store")).resolve(name) : null;
+
+        long start = System.nanoTime();
+        List<Scenario> scenarios = new ArrayList<>();
+        try (ScenarioReader reader = ScenarioReader.open(scenarioFile)) {
+            while (reader.hasNext()) {
+                scenarios.add(reader.next());
+            }
+        }
+        long read = System.nanoTime();
+        List<BatchOutcome> outcomes;
+        if (workers > 0) {
+            try (DistributedOptimiser distributed = new DistributedOptimiser(name, workers)) {
+                outcomes = optimiseAll(distributed, store, threads, scenarios);
+            }
+        } else {
+            outcomes = optimiseAll(optimiser.get(), store, threads, scenarios);
+        }
+        long optimised = System.nanoTime();
+        int failures = 0;
+        long totalPower = 0;
+        try (ResultWriter writer = ResultWriter.open(resultFile)) {
+            for (int i = 0; i < outcomes.size(); i++) {
+                BatchOutcome outcome = outcomes.get(i);
+                if (!outcome.isSuccess()) {
+                    failures++;
+                    err.println("Scenario " + i + " failed: " + outcome.error);
+                    writer.write(null);
+                } else {
+                    totalPower += outcome.result.getTotalPower();
+                    writer.write(outcome.result);
+                }
+            }
+        }
+        out.printf("Optimised %d scenarios (%d failed), total power %d; read %d ms, optimised %d ms, wrote %d ms%n",
+                outcomes.size(), failures, totalPower, (read - start) / 1_000_000, (optimised - read) / 1_000_000,
+                (System.nanoTime() - optimised) / 1_000_000);
+        if (bound) {
+            long bounded = System.nanoTime();
+            long lowerBound = 0;
+            for (int i = 0; i < outcomes.size(); i++) {
+                if (outcomes.get(i).isSuccess()) {
+                    lowerBound += SetCoverBound.lowerBound(scenarios.get(i));
+                }
+            }
+            out.printf("Lower bound %d, gap at most %.2f%%; bounded %d ms%n", lowerBound,
+                    totalPower == 0 ? 0 : 100.0 * (totalPower - lowerBound) / totalPower,
+                    (System.nanoTime() - bounded) / 1_000_000);
+        }
+        return failures == 0 ? 0 : 1;
+    }
+
+    private static List<BatchOutcome> optimiseAll(PowerOptimiser optimiser, Path store, int threads,
+                                                  List<Scenario> scenarios) throws IOException {
+        if (store == null) {
+            try (BatchOptimiser batch = new BatchOptimiser(optimiser, threads)) {
+                return batch.optimiseAll(scenarios);
+            }
+        }
+        try (SolutionStore solutions = SolutionStore.open(store, STORE_BYTES);
+             BatchOptimiser batch = new BatchOptimiser(new StoringOptimiser(optimiser, solutions), threads)) {
+            return batch.optimiseAll(scenarios);
+        }
+    }
+
+    private static int generate(Map<String, String> options, Path scenarioFile, PrintStream out) throws IOException {
+        int towers = Integer.parseInt(options.getOrDefault("towers", "1000"));
+        int count = Integer.parseInt(options.getOrDefault("count", "1"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "0"));
+        double density = Double.parseDouble(options.getOrDefault("density", "0.01"));
+        ScenarioGenerator.Layout layout = ScenarioGenerator.Layout.valueOf(options.getOrDefault("layout", "UNIFORM"));
+        try (ScenarioWriter writer = ScenarioWriter.open(scenarioFile)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(new ScenarioGenerator(layout, density, seed + i).generate(towers));
+            }
+        }
+        out.printf("Generated %d scenarios of %d towers%n", count, towers);
+        return 0;
+    }
+
+    /**
+     * Runs as a worker process: reads scenarios until the input ends and writes a result, or a failure marker, for
+     * each, flushing after every one so that the coordinator gets it straight away.
+     *
+     * @param options the options, naming the optimiser
+     * @param in      where scenarios are read from
+     * @param out     where results are written
+     * @param err     where failures are logged
+     * @return the exit code
+     * @throws IOException if the streams cannot be read or written
+     */
+    static int worker(Map<String, String> options, InputStream in, OutputStream out, PrintStream err)
+            throws IOException {
+        PowerOptimiser optimiser = optimiser(options.getOrDefault("optimiser", "branch-and-bound")).get();
+        try (ScenarioReader reader = ScenarioReader.of(in); ResultWriter writer = ResultWriter.of(out)) {
+            writer.flush();
+            while (reader.hasNext()) {
+                Scenario scenario = reader.next();
+                Result result = null;
+                try {
+                    result = optimiser.optimise(scenario);
+                } catch (RuntimeException e) {
+                    err.println("Worker failed on a scenario: " + e);
+                }
+                writer.write(result);
+                writer.flush();
+            }
+        }
+        return 0;
+    }
+
+    private static Supplier<PowerOptimiser> optimiser(String name) {
+        Supplier<PowerOptimiser> optimiser = OPTIMISERS.get(name);
+        if (optimiser == null) {
+            throw new IllegalArgumentException("Unknown optimiser, expected one of " + OPTIMISERS.keySet());
+        }
+        return optimiser;
+    }
+
+    private static int usage(PrintStream err, String message) {
+        err.println(message);
+        err.println("usage: optimise [--optimiser " + String.join("|", OPTIMISERS.keySet()) + "] [--threads N]"
+                + " [--workers N] [--store DIR] [--bound true] SCENARIO_FILE RESULT_FILE");
+        err.println("       generate [--towers N] [--layout UNIFORM|CLUSTERED|CORRIDOR] [--density D] [--seed S]"
+                + " [--count N] SCENARIO_FILE");
+        err.println("       worker [--optimiser NAME]");
+        return 2;
     }
 }
@@ -0,0 +1,148 @@
+package uk.philhannant.towers.index;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Counts of a fixed set of points over the cells of a uniform grid, answering "at most how many points lie inside
+ * this Chebyshev square" in constant time.
+ *
+ * Points are referred to by their index in the arrays the counts were built from, and only the points passing the
+ * filter of the last recount are counted. The counts are kept as prefix sums over the cells, so a query adds up the
+ * cells overlapping the square from four entries. Points in cells only partly inside the square are counted as well,
+ * so the answer is an upper bound, over by at most the points in the ring of cells along the edge of the square. There
+ * are roughly sixteen cells per point, which keeps that ring thin next to any square much larger than a cell.
+ */
+public final class CellCounts {
+    private static final int CELLS_PER_POINT = 16;
+
+    private final int minX;
+    private final int minY;
+    private final int maxX;
+    private final int maxY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellOf;
+    private final int[] prefix;
+    private int total;
+
+    private CellCounts(int[] xs, int[] ys){
+        int count = xs.length;
+        int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+        for(int i = 0; i < count; i++){
+            loX = Math.min(loX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiX = Math.max(hiX, xs[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        if(count == 0){
+            loX = loY = hiX = hiY = 0;
+        }
+        minX = loX;
+        minY = loY;
+        maxX = hiX;
+        maxY = hiY;
+        long width = (long) hiX - loX + 1;
+        long height = (long) hiY - loY + 1;
+        long cells = (long) CELLS_PER_POINT * count + 16;
+        long cell = Math.max((long) Math.ceil(Math.sqrt((double) width * height / cells)), 1);
+        // long thin islands would otherwise get far more cells than asked for
+        while(((width - 1) / cell + 1) * ((height - 1) / cell + 1) > 2 * cells){
+            cell *= 2;
+        }
+        cellSize = (int) Math.min(Integer.MAX_VALUE, cell);
+        columns = (int) ((width - 1) / cellSize + 1);
+        rows = (int) ((height - 1) / cellSize + 1);
+        cellOf = new int[count];
+        for(int i = 0; i < count; i++){
+            cellOf[i] = (row(ys[i]) + 1) * (columns + 1) + column(xs[i]) + 1;
+        }
+        prefix = new int[(columns + 1) * (rows + 1)];
+    }
+
+    /**
+     * Builds the counts of the given points, all of them counted.
+     *
+     * @param xs the x coordinates
+     * @param ys the y coordinates, in the same order
+     * @return the counts
+     */
+    public static CellCounts of(int[] xs, int[] ys){
+        if(xs.length != ys.length){
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
+        }
+        CellCounts counts = new CellCounts(xs, ys);
+        counts.recount(i -> true);
+        return counts;
+    }
+
+    /**
+     * Method used to count again, this time only the points passing the filter.
+     *
+     * @param filter the filter applied to the index of every point
+     */
+    public void recount(IntPredicate filter){
+        Arrays.fill(prefix, 0);
+        total = 0;
+        for(int i = 0; i < cellOf.length; i++){
+            if(filter.test(i)){
+                prefix[cellOf[i]]++;
+                total++;
+            }
+        }
+        int stride = columns + 1;
+        for(int row = 1; row <= rows; row++){
+            for(int column = 1; column <= columns; column++){
+                int cell = row * stride + column;
+                prefix[cell] += prefix[cell - 1] + prefix[cell - stride] - prefix[cell - stride - 1];
+            }
+        }
+    }
+
+    /**
+     * Number of points counted.
+     *
+     * @return the total
+     */
+    public int total(){
+        return total;
+    }
+
+    /**
+     * Side of the cells, the distance beyond which a square starts to count more points than lie inside it.
+     *
+     * @return the cell size
+     */
+    public int cellSize(){
+        return cellSize;
+    }
+
+    /**
+     * Upper bound on the number of counted points whose Chebyshev distance to (x, y) is at most the radius.
+     *
+     * @param x      the x coordinate of the centre
+     * @param y      the y coordinate of the centre
+     * @param radius the radius
+     * @return the number of counted points in the cells overlapping the square
+     */
+    public int atMostWithin(int x, int y, long radius){
+        if(radius < 0 || (long) x + radius < minX || (long) x - radius > maxX || (long) y + radius < minY
+                || (long) y - radius > maxY){
+            return 0;
+        }
+        int c0 = column(x - radius), c1 = column(x + radius);
+        int r0 = row(y - radius), r1 = row(y + radius);
+        int stride = columns + 1;
+        return prefix[(r1 + 1) * stride + c1 + 1] - prefix[r0 * stride + c1 + 1] - prefix[(r1 + 1) * stride + c0]
+                + prefix[r0 * stride + c0];
+    }
+
+    private int column(long x){
+        return (int) Math.max(0, Math.min(columns - 1, (x - minX) / cellSize));
+    }
+
+    private int row(long y){
+        return (int) Math.max(0, Math.min(rows - 1, (y - minY) / cellSize));
+    }
+}
@@ -0,0 +1,208 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.CompactScenario;
+
+import java.util.Arrays;
+
+/**
+ * For each of a set of receivers, the transmitter needing the smallest raise to reach it and the size of that raise,
+ * worked out for all receivers together in O((T + R) log(T + R)) time rather than by comparing every pair.
+ *
+ * Rotating the plane by 45 degrees, with u = x + y and v = x - y, turns Chebyshev squares into L1 diamonds: twice the
+ * Chebyshev distance is |du| + |dv|. Twice the raise from a transmitter is then |du| + |dv| - 2p, and for the
+ * transmitters lying below and to the left of a receiver in (u, v) this is the receiver's u + v minus the
+ * transmitter's u + v + 2p. A sweep in increasing u with a Fenwick tree over v therefore finds the best of those
+ * transmitters as a prefix maximum. Four sweeps, mirroring u and v, cover every quadrant. Ties go to the lowest
+ * transmitter index.
+ */
+public final class CheapestRaise {
+    private final int[] raise;
+    private final int[] transmitter;
+
+    private CheapestRaise(int[] raise, int[] transmitter){
+        this.raise = raise;
+        this.transmitter = transmitter;
+    }
+
+    /**
+     * Finds the cheapest raise for some of the receivers of a scenario, from the original transmitter powers.
+     *
+     * @param scenario  the scenario
+     * @param receivers the indexes in the scenario of the receivers
+     * @return the cheapest raises, with receivers referred to by their position in the given array
+     */
+    public static CheapestRaise of(CompactScenario scenario, int[] receivers){
+        int[] receiverX = new int[receivers.length];
+        int[] receiverY = new int[receivers.length];
+        for(int i = 0; i < receivers.length; i++){
+            receiverX[i] = scenario.receiverX[receivers[i]];
+            receiverY[i] = scenario.receiverY[receivers[i]];
+        }
+        return of(scenario.transmitterX, scenario.transmitterY, scenario.transmitterPower, receiverX, receiverY);
+    }
+
+    /**
+     * Finds the cheapest raise for every receiver.
+     *
+     * @param transmitterX     the x coordinates of the transmitters
+     * @param transmitterY     the y coordinates of the transmitters
+     * @param transmitterPower the powers of the transmitters
+     * @param receiverX        the x coordinates of the receivers
+     * @param receiverY        the y coordinates of the receivers
+     * @return the cheapest raises, negative for receivers already in range with power to spare
+     */
+    public static CheapestRaise of(int[] transmitterX, int[] transmitterY, int[] transmitterPower, int[] receiverX,
+                                   int[] receiverY){
+        int transmitters = transmitterX.length;
+        int receivers = receiverX.length;
+        long[] u = new long[transmitters + receivers];
+        long[] v = new long[transmitters + receivers];
+        for(int t = 0; t < transmitters; t++){
+            u[t] = (long) transmitterX[t] + transmitterY[t];
+            v[t] = (long) transmitterX[t] - transmitterY[t];
+        }
+        for(int r = 0; r < receivers; r++){
+            u[transmitters + r] = (long) receiverX[r] + receiverY[r];
+            v[transmitters + r] = (long) receiverX[r] - receiverY[r];
+        }
+        int[] uRank = ranks(u);
+        int[] vRank = ranks(v);
+        int uCount = max(uRank) + 1;
+        int vCount = max(vRank) + 1;
+
+        long[] twiceRaise = new long[receivers];
+        int[] transmitter = new int[receivers];
+        Arrays.fill(twiceRaise, Long.MAX_VALUE);
+        Arrays.fill(transmitter, -1);
+        long[] events = new long[transmitters + receivers];
+        PrefixMax tree = new PrefixMax(vCount);
+        for(int uSign = -1; uSign <= 1; uSign += 2){
+            for(int vSign = -1; vSign <= 1; vSign += 2){
+                // transmitters sort before receivers with the same u, so that they count as below them
+                for(int i = 0; i < events.length; i++){
+                    long position = uSign > 0 ? uRank[i] : uCount - 1 - uRank[i];
+                    events[i] = position << 32 | (i < transmitters ? 0 : 1L << 31) | i;
+                }
+                Arrays.sort(events);
+                tree.clear();
+                for(long event: events){
+                    int i = (int) (event & Integer.MAX_VALUE);
+                    int position = vSign > 0 ? vRank[i] : vCount - 1 - vRank[i];
+                    if(i < transmitters){
+                        tree.update(position, uSign * u[i] + vSign * v[i] + 2L * transmitterPower[i], i);
+                    } else if(tree.query(position)){
+                        int r = i - transmitters;
+                        long cost = uSign * u[i] + vSign * v[i] - tree.best;
+                        if(cost < twiceRaise[r] || (cost == twiceRaise[r] && tree.bestIndex < transmitter[r])){
+                            twiceRaise[r] = cost;
+                            transmitter[r] = tree.bestIndex;
+                        }
+                    }
+                }
+            }
+        }
+        int[] raise = new int[receivers];
+        for(int r = 0; r < receivers; r++){
+            raise[r] = transmitter[r] < 0 ? Integer.MAX_VALUE : (int) (twiceRaise[r] / 2);
+        }
+        return new CheapestRaise(raise, transmitter);
+    }
+
+    public int receiverCount(){
+        return raise.length;
+    }
+
+    /**
+     * The smallest raise with which some transmitter reaches a receiver.
+     *
+     * @param receiver the receiver position
+     * @return the raise, negative if a transmitter reaches it with power to spare, or Integer.MAX_VALUE if there are
+     * no transmitters
+     */
+    public int raise(int receiver){
+        return raise[receiver];
+    }
+
+    /**
+     * The transmitter needing the smallest raise to reach a receiver, the lowest index among equally cheap ones.
+     *
+     * @param receiver the receiver position
+     * @return the transmitter index, or -1 if there are no transmitters
+     */
+    public int transmitter(int receiver){
+        return transmitter[receiver];
+    }
+
+    /**
+     * Method used to replace values by their rank among the distinct values.
+     */
+    private static int[] ranks(long[] values){
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for(int i = 0; i < sorted.length; i++){
+            if(distinct == 0 || sorted[distinct - 1] != sorted[i]){
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        int[] ranks = new int[values.length];
+        for(int i = 0; i < values.length; i++){
+            ranks[i] = Arrays.binarySearch(sorted, 0, distinct, values[i]);
+        }
+        return ranks;
+    }
+
+    private static int max(int[] values){
+        int max = -1;
+        for(int value: values){
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * Fenwick tree of the largest key, and its lowest index, over every prefix of positions.
+     */
+    private static final class PrefixMax {
+        private final long[] key;
+        private final int[] index;
+        long best;
+        int bestIndex;
+
+        PrefixMax(int size){
+            key = new long[size + 1];
+            index = new int[size + 1];
+        }
+
+        void clear(){
+            Arrays.fill(key, Long.MIN_VALUE);
+            Arrays.fill(index, -1);
+        }
+
+        void update(int position, long value, int valueIndex){
+            for(int i = position + 1; i < key.length; i += i & -i){
+                if(value > key[i] || (value == key[i] && valueIndex < index[i])){
+                    key[i] = value;
+                    index[i] = valueIndex;
+                }
+            }
+        }
+
+        /**
+         * Finds the best key at or below a position, leaving it in best and bestIndex.
+         *
+         * @return false if there is none
+         */
+        boolean query(int position){
+            best = Long.MIN_VALUE;
+            bestIndex = -1;
+            for(int i = position + 1; i > 0; i -= i & -i){
+                if(index[i] >= 0 && (key[i] > best || (key[i] == best && index[i] < bestIndex))){
+                    best = key[i];
+                    bestIndex = index[i];
+                }
+            }
+            return bestIndex >= 0;
+        }
+    }
+}
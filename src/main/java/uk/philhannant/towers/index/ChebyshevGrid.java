@@ -0,0 +1,349 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.Tower;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniform grid over a fixed set of points, answering "which points lie inside this Chebyshev square" queries.
+ *
+ * Points are referred to by their index in the arrays (or list) the grid was built from. The cells are square and
+ * their size is picked so that there are roughly as many cells as points, unless a larger minimum cell size is
+ * requested. Points are stored cell by cell in flat arrays, so a query only touches the cells overlapping the square
+ * and its cost is proportional to the number of points near the square rather than to the size of the island.
+ *
+ * A counted grid tallies the Chebyshev distances its queries work out, so optimisers can report the real amount of
+ * work done. Each query counts in a local and adds it once, when it ends, and queries may run from several threads at
+ * once. Optimisers with nobody listening build uncounted grids, whose queries touch no shared state at all.
+ */
+public final class ChebyshevGrid {
+    private final int size;
+    private final int minX;
+    private final int minY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] pointX;
+    private final int[] pointY;
+    private final int[] pointIndex;
+    private final LongAdder distanceEvaluations;
+
+    private ChebyshevGrid(int[] xs, int[] ys, int count, int minCellSize, boolean counted){
+        size = count;
+        distanceEvaluations = counted ? new LongAdder() : null;
+        int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+        for(int i = 0; i < count; i++){
+            loX = Math.min(loX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiX = Math.max(hiX, xs[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        if(count == 0){
+            loX = loY = hiX = hiY = 0;
+        }
+        minX = loX;
+        minY = loY;
+        long width = (long) hiX - loX + 1;
+        long height = (long) hiY - loY + 1;
+        long cell = Math.max(Math.max((long) Math.ceil(Math.sqrt((double) width * height / Math.max(count, 1))),
+                minCellSize), 1);
+        // long thin islands would otherwise get far more cells than points
+        while(((width - 1) / cell + 1) * ((height - 1) / cell + 1) > 2L * count + 16){
+            cell *= 2;
+        }
+        cellSize = (int) Math.min(Integer.MAX_VALUE, cell);
+        columns = (int) ((width - 1) / cellSize + 1);
+        rows = (int) ((height - 1) / cellSize + 1);
+
+        cellStart = new int[columns * rows + 1];
+        int[] cellOf = new int[count];
+        for(int i = 0; i < count; i++){
+            cellOf[i] = cell(column(xs[i]), row(ys[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for(int c = 0; c < columns * rows; c++){
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = new int[columns * rows];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+        pointX = new int[count];
+        pointY = new int[count];
+        pointIndex = new int[count];
+        for(int i = 0; i < count; i++){
+            int slot = next[cellOf[i]]++;
+            pointX[slot] = xs[i];
+            pointY[slot] = ys[i];
+            pointIndex[slot] = i;
+        }
+    }
+
+    /**
+     * Builds a counted grid over the given points.
+     *
+     * @param xs          the x coordinates
+     * @param ys          the y coordinates, in the same order
+     * @param minCellSize the smallest cell size to use, typically the radius of the queries expected
+     * @return the grid
+     */
+    public static ChebyshevGrid of(int[] xs, int[] ys, int minCellSize){
+        return of(xs, ys, minCellSize, true);
+    }
+
+    /**
+     * Builds a grid over the given points.
+     *
+     * @param xs          the x coordinates
+     * @param ys          the y coordinates, in the same order
+     * @param minCellSize the smallest cell size to use, typically the radius of the queries expected
+     * @param counted     whether to count the distances the queries work out
+     * @return the grid
+     */
+    public static ChebyshevGrid of(int[] xs, int[] ys, int minCellSize, boolean counted){
+        if(xs.length != ys.length){
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
+        }
+        return new ChebyshevGrid(xs, ys, xs.length, minCellSize, counted);
+    }
+
+    /**
+     * Builds a counted grid over the locations of the given towers.
+     *
+     * @param towers the towers
+     * @return the grid, with points indexed in list order
+     */
+    public static ChebyshevGrid of(List<? extends Tower> towers){
+        int[] xs = new int[towers.size()];
+        int[] ys = new int[towers.size()];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = towers.get(i).location.x;
+            ys[i] = towers.get(i).location.y;
+        }
+        return new ChebyshevGrid(xs, ys, xs.length, 1, true);
+    }
+
+    /**
+     * Number of points in the grid.
+     *
+     * @return the size
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Number of Chebyshev distances worked out by the queries so far, one for every point in a cell a query looked
+     * at.
+     *
+     * @return the count, always zero for an uncounted grid
+     */
+    public long distanceEvaluations(){
+        return distanceEvaluations == null ? 0 : distanceEvaluations.sum();
+    }
+
+    /**
+     * Expected number of points in an annulus of the given radii, assuming the points are spread evenly over the
+     * grid. Used to choose between a grid query and a scan of some smaller list of candidates.
+     *
+     * @param inner the exclusive inner radius
+     * @param outer the inclusive outer radius
+     * @return the expected number of points
+     */
+    public double expectedBetween(int inner, int outer){
+        double outerSide = 2.0 * Math.max(outer, -1) + 1;
+        double innerSide = 2.0 * Math.max(inner, -1) + 1;
+        double area = (double) columns * rows * cellSize * cellSize;
+        return size * Math.max(0, outerSide * outerSide - innerSide * innerSide) / area;
+    }
+
+    /**
+     * Visits every point whose Chebyshev distance to (x, y) is at most the radius.
+     *
+     * @param x      the x coordinate of the centre
+     * @param y      the y coordinate of the centre
+     * @param radius the radius
+     * @param action called with the index of each point found
+     * @return the number of points found
+     */
+    public int forEachWithin(int x, int y, int radius, IntConsumer action){
+        return forEachBetween(x, y, -1, radius, action);
+    }
+
+    /**
+     * Visits every point whose Chebyshev distance d to (x, y) satisfies inner &lt; d &lt;= outer, i.e. the points
+     * in the annulus gained when a transmitter at (x, y) is raised from the inner to the outer power. Cells lying
+     * wholly inside the inner square are skipped.
+     *
+     * @param x      the x coordinate of the centre
+     * @param y      the y coordinate of the centre
+     * @param inner  the exclusive inner radius, negative to include the centre
+     * @param outer  the inclusive outer radius
+     * @param action called with the index of each point found
+     * @return the number of points found
+     */
+    public int forEachBetween(int x, int y, int inner, int outer, IntConsumer action){
+        if(outer < 0 || outer <= inner || size == 0){
+            return 0;
+        }
+        int evaluated = 0;
+        int found = 0;
+        int c0 = column(clamp((long) x - outer)), c1 = column(clamp((long) x + outer));
+        int r0 = row(clamp((long) y - outer)), r1 = row(clamp((long) y + outer));
+        // the cells wholly inside the inner square form a block, jumped over in each row it spans
+        long innerC0 = inner < 0 ? 1 : Math.floorDiv((long) x - inner - minX + cellSize - 1, cellSize);
+        long innerC1 = inner < 0 ? 0 : Math.floorDiv((long) x + inner - minX + 1, cellSize) - 1;
+        long innerR0 = inner < 0 ? 1 : Math.floorDiv((long) y - inner - minY + cellSize - 1, cellSize);
+        long innerR1 = inner < 0 ? 0 : Math.floorDiv((long) y + inner - minY + 1, cellSize) - 1;
+        for(int row = r0; row <= r1; row++){
+            boolean across = row >= innerR0 && row <= innerR1 && innerC0 <= innerC1;
+            for(int column = c0; column <= c1; column++){
+                if(across && column >= innerC0 && column <= innerC1){
+                    column = (int) innerC1;
+                    continue;
+                }
+                int cell = cell(column, row);
+                evaluated += cellStart[cell + 1] - cellStart[cell];
+                for(int slot = cellStart[cell], end = cellStart[cell + 1]; slot < end; slot++){
+                    int d = Math.max(Math.abs(pointX[slot] - x), Math.abs(pointY[slot] - y));
+                    if(d <= outer && d > inner){
+                        action.accept(pointIndex[slot]);
+                        found++;
+                    }
+                }
+            }
+        }
+        count(evaluated);
+        return found;
+    }
+
+    /**
+     * Checks whether any point within the radius of (x, y) matches the filter, stopping at the first one found.
+     *
+     * @param x      the x coordinate of the centre
+     * @param y      the y coordinate of the centre
+     * @param radius the radius
+     * @param filter the filter applied to the index of each point within the radius
+     * @return true if a matching point was found
+     */
+    public boolean anyWithin(int x, int y, int radius, IntPredicate filter){
+        if(radius < 0 || size == 0){
+            return false;
+        }
+        int c0 = column(clamp((long) x - radius)), c1 = column(clamp((long) x + radius));
+        int r0 = row(clamp((long) y - radius)), r1 = row(clamp((long) y + radius));
+        int evaluated = 0;
+        for(int row = r0; row <= r1; row++){
+            for(int column = c0; column <= c1; column++){
+                int cell = cell(column, row);
+                for(int slot = cellStart[cell], end = cellStart[cell + 1]; slot < end; slot++){
+                    evaluated++;
+                    if(Math.max(Math.abs(pointX[slot] - x), Math.abs(pointY[slot] - y)) <= radius
+                            && filter.test(pointIndex[slot])){
+                        count(evaluated);
+                        return true;
+                    }
+                }
+            }
+        }
+        count(evaluated);
+        return false;
+    }
+
+    /**
+     * Checks whether any point reaches (x, y), where each point reaches as far as its own entry of the reach array,
+     * stopping at the first one found. One distance is worked out per point looked at, with no filter to call.
+     *
+     * @param x      the x coordinate
+     * @param y      the y coordinate
+     * @param radius the largest entry of the reach array, which bounds the cells looked at
+     * @param reach  the reach of every point, indexed as the points
+     * @return true if a point reaching (x, y) was found
+     */
+    public boolean anyReaching(int x, int y, int radius, int[] reach){
+        if(radius < 0 || size == 0){
+            return false;
+        }
+        int c0 = column(clamp((long) x - radius)), c1 = column(clamp((long) x + radius));
+        int r0 = row(clamp((long) y - radius)), r1 = row(clamp((long) y + radius));
+        int evaluated = 0;
+        for(int row = r0; row <= r1; row++){
+            for(int column = c0; column <= c1; column++){
+                int cell = cell(column, row);
+                for(int slot = cellStart[cell], end = cellStart[cell + 1]; slot < end; slot++){
+                    evaluated++;
+                    if(Math.max(Math.abs(pointX[slot] - x), Math.abs(pointY[slot] - y)) <= reach[pointIndex[slot]]){
+                        count(evaluated);
+                        return true;
+                    }
+                }
+            }
+        }
+        count(evaluated);
+        return false;
+    }
+
+    /**
+     * Visits every point that reaches (x, y), where each point reaches as far as its own entry of the reach array
+     * plus a raise common to all of them.
+     *
+     * @param x      the x coordinate
+     * @param y      the y coordinate
+     * @param radius the largest entry of the reach array, which with the raise bounds the cells looked at
+     * @param reach  the reach of every point, indexed as the points
+     * @param raise  the raise added to every reach, zero for the reach as it is
+     * @param action called with the index of each point found
+     * @return the number of points found
+     */
+    public int forEachReaching(int x, int y, int radius, int[] reach, int raise, IntConsumer action){
+        radius = clamp((long) radius + raise);
+        if(radius < 0 || size == 0){
+            return 0;
+        }
+        int c0 = column(clamp((long) x - radius)), c1 = column(clamp((long) x + radius));
+        int r0 = row(clamp((long) y - radius)), r1 = row(clamp((long) y + radius));
+        int evaluated = 0;
+        int found = 0;
+        for(int row = r0; row <= r1; row++){
+            for(int column = c0; column <= c1; column++){
+                int cell = cell(column, row);
+                evaluated += cellStart[cell + 1] - cellStart[cell];
+                for(int slot = cellStart[cell], end = cellStart[cell + 1]; slot < end; slot++){
+                    if(Math.max(Math.abs(pointX[slot] - x), Math.abs(pointY[slot] - y))
+                            <= (long) reach[pointIndex[slot]] + raise){
+                        action.accept(pointIndex[slot]);
+                        found++;
+                    }
+                }
+            }
+        }
+        count(evaluated);
+        return found;
+    }
+
+    private void count(int evaluated){
+        if(distanceEvaluations != null){
+            distanceEvaluations.add(evaluated);
+        }
+    }
+
+    private int clamp(long value){
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    private int column(int x){
+        long column = ((long) x - minX) / cellSize;
+        return (int) Math.max(0, Math.min(columns - 1, column));
+    }
+
+    private int row(int y){
+        long row = ((long) y - minY) / cellSize;
+        return (int) Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private int cell(int column, int row){
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,346 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.CompactScenario;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed coverage model of a scenario: for every transmitter the power levels worth raising it to, and the
+ * receivers it covers at each of them as a bitset.
+ *
+ * Only receivers out of range at the original powers are modelled, since powers never go down and the others stay
+ * covered whatever happens. They are numbered by x then y, so that the receivers in a transmitter's square share
+ * words. The levels of a transmitter are its distinct distances to these receivers, read from a
+ * {@link ReceiverDistanceIndex}, which are the only powers an optimal assignment gives it. A level is useful only if
+ * its raise is no more than the sum, over the receivers it covers, of the cheapest single raise reaching each, as
+ * otherwise covering those receivers one at a time is cheaper; levels above the last useful one are dropped.
+ *
+ * The bitsets are compressed by storing, for each level, only the non zero words of the receivers it adds over the
+ * level below. The receivers covered at a level are then the OR of the words stored up to it, so the coverage of a
+ * whole assignment is worked out with word wide ORs into one bitset. Memory grows with the number of transmitters
+ * times the out of range receivers near them, which suits scenarios of the size the exact optimisers handle.
+ */
+public final class CoverageBitsets {
+    private final int[] receivers;
+    private final int words;
+    private final int[] transmitterPower;
+    private final int[] reach;
+
+    // levels of transmitter t are levelStart[t] to levelStart[t + 1]; entries of level k end at entryEnd[k]
+    private final int[] levelStart;
+    private final int[] level;
+    private final int[] entryEnd;
+    private final int[] entryWord;
+    private final long[] entryBits;
+
+    private final int[] receiverX;
+    private final int[] receiverY;
+    private final int[] transmitterX;
+    private final int[] transmitterY;
+    private final long distanceEvaluations;
+
+    private CoverageBitsets(int[] receivers, int[] receiverX, int[] receiverY, int[] transmitterX,
+                            int[] transmitterY, int[] transmitterPower, int[] reach, int[] levelStart, int[] level,
+                            int[] entryEnd, int[] entryWord, long[] entryBits, long distanceEvaluations){
+        this.receivers = receivers;
+        this.words = (receivers.length + Long.SIZE - 1) / Long.SIZE;
+        this.receiverX = receiverX;
+        this.receiverY = receiverY;
+        this.transmitterX = transmitterX;
+        this.transmitterY = transmitterY;
+        this.transmitterPower = transmitterPower;
+        this.reach = reach;
+        this.levelStart = levelStart;
+        this.level = level;
+        this.entryEnd = entryEnd;
+        this.entryWord = entryWord;
+        this.entryBits = entryBits;
+        this.distanceEvaluations = distanceEvaluations;
+    }
+
+    /**
+     * Builds the coverage model of a scenario, comparing every transmitter with every out of range receiver.
+     *
+     * @param scenario the scenario
+     * @return the coverage model
+     */
+    public static CoverageBitsets of(CompactScenario scenario){
+        TransmitterIndex transmitterIndex = TransmitterIndex.of(scenario);
+        int[] outOfRange = transmitterIndex.unreached(scenario.receiverX, scenario.receiverY);
+        Integer[] order = new Integer[outOfRange.length];
+        for(int i = 0; i < order.length; i++){
+            order[i] = outOfRange[i];
+        }
+        Arrays.sort(order, (a, b) -> scenario.receiverX[a] != scenario.receiverX[b]
+                ? Integer.compare(scenario.receiverX[a], scenario.receiverX[b])
+                : Integer.compare(scenario.receiverY[a], scenario.receiverY[b]));
+        int[] receivers = new int[outOfRange.length];
+        int[] receiverX = new int[outOfRange.length];
+        int[] receiverY = new int[outOfRange.length];
+        for(int i = 0; i < receivers.length; i++){
+            receivers[i] = order[i];
+            receiverX[i] = scenario.receiverX[receivers[i]];
+            receiverY[i] = scenario.receiverY[receivers[i]];
+        }
+
+        int transmitters = scenario.transmitterCount();
+        CheapestRaise cheapest = CheapestRaise.of(scenario, receivers);
+
+        ReceiverDistanceIndex index = ReceiverDistanceIndex.of(scenario, receivers);
+        Builder builder = new Builder(transmitters);
+        int[] reach = new int[transmitters];
+        for(int t = 0; t < transmitters; t++){
+            reach[t] = receivers.length == 0 ? 0 : index.distance(t, receivers.length - 1);
+            // the last useful level, below which every distinct distance is kept so that any power maps to a level
+            long sum = 0;
+            int last = 0;
+            for(int rank = 0; rank < receivers.length; rank++){
+                sum += cheapest.raise(index.receiver(t, rank));
+                if((long) index.distance(t, rank) - scenario.transmitterPower[t] <= sum){
+                    last = rank + 1;
+                }
+            }
+            for(int rank = 0; rank < last; ){
+                int distance = index.distance(t, rank);
+                int end = rank;
+                while(end < last && index.distance(t, end) == distance){
+                    end++;
+                }
+                builder.addLevel(distance, index, t, rank, end);
+                rank = end;
+            }
+            builder.endTransmitter(t);
+        }
+        // the distance index fills a full matrix through the kernel
+        long distanceEvaluations = transmitterIndex.distanceEvaluations() + (long) transmitters * receivers.length;
+        return builder.build(receivers, receiverX, receiverY, scenario.transmitterX.clone(),
+                scenario.transmitterY.clone(), scenario.transmitterPower.clone(), reach, distanceEvaluations);
+    }
+
+    /**
+     * Number of receivers in the model, which are the bits of the bitsets.
+     *
+     * @return the number of out of range receivers
+     */
+    public int receiverCount(){
+        return receivers.length;
+    }
+
+    /**
+     * Number of words in a bitset over the receivers.
+     *
+     * @return the number of words
+     */
+    public int wordCount(){
+        return words;
+    }
+
+    /**
+     * The receiver a bit stands for.
+     *
+     * @param bit the bit
+     * @return the index of the receiver in the scenario
+     */
+    public int receiver(int bit){
+        return receivers[bit];
+    }
+
+    /**
+     * Number of Chebyshev distances worked out while building the model.
+     *
+     * @return the count
+     */
+    public long distanceEvaluations(){
+        return distanceEvaluations;
+    }
+
+    /**
+     * Checks whether the receiver a bit stands for is set in a bitset.
+     *
+     * @param bitset the bitset, of {@link #wordCount()} words
+     * @param bit    the bit
+     * @return true if the bit is set
+     */
+    public static boolean isSet(long[] bitset, int bit){
+        return (bitset[bit >>> 6] & 1L << bit) != 0;
+    }
+
+    public int levelCount(int transmitter){
+        return levelStart[transmitter + 1] - levelStart[transmitter];
+    }
+
+    /**
+     * The power of one of the levels of a transmitter, which go up with the level index.
+     *
+     * @param transmitter the transmitter index
+     * @param index       the level index
+     * @return the power
+     */
+    public int level(int transmitter, int index){
+        return level[levelStart[transmitter] + index];
+    }
+
+    /**
+     * Finds the highest level of a transmitter at or below a power.
+     *
+     * @param transmitter the transmitter index
+     * @param power       the power
+     * @return the level index, or -1 if the power is below every level
+     */
+    public int levelIndex(int transmitter, int power){
+        int found = Arrays.binarySearch(level, levelStart[transmitter], levelStart[transmitter + 1], power);
+        return (found >= 0 ? found : -found - 2) - levelStart[transmitter];
+    }
+
+    /**
+     * Method used to OR the receivers a transmitter covers at one of its levels into a bitset.
+     *
+     * @param transmitter the transmitter index
+     * @param index       the level index, or -1 for none
+     * @param bitset      the bitset, of {@link #wordCount()} words
+     */
+    public void orLevelInto(int transmitter, int index, long[] bitset){
+        if(index < 0){
+            return;
+        }
+        int first = levelStart[transmitter];
+        int start = first == 0 ? 0 : entryEnd[first - 1];
+        int end = entryEnd[first + index];
+        for(int e = start; e < end; e++){
+            bitset[entryWord[e]] |= entryBits[e];
+        }
+    }
+
+    /**
+     * Method used to OR the receivers a transmitter covers at a power into a bitset. Powers above the last useful
+     * level are never optimal, but are still handled exactly by checking the remaining receivers one by one.
+     *
+     * @param transmitter the transmitter index
+     * @param power       the power
+     * @param bitset      the bitset, of {@link #wordCount()} words
+     */
+    public void orInto(int transmitter, int power, long[] bitset){
+        int count = levelCount(transmitter);
+        if(power >= reach[transmitter] && receivers.length > 0){
+            Arrays.fill(bitset, -1L);
+            clearTail(bitset);
+        } else if(count == 0 || power > level(transmitter, count - 1)){
+            for(int i = 0; i < receivers.length; i++){
+                if(CompactScenario.chebyshev(transmitterX[transmitter], transmitterY[transmitter], receiverX[i],
+                        receiverY[i]) <= power){
+                    bitset[i >>> 6] |= 1L << i;
+                }
+            }
+        } else {
+            orLevelInto(transmitter, levelIndex(transmitter, power), bitset);
+        }
+    }
+
+    /**
+     * Works out the receivers covered by an assignment of powers.
+     *
+     * @param powers the power of every transmitter, in scenario order
+     * @return the bitset of covered receivers
+     */
+    public long[] covered(int[] powers){
+        long[] bitset = new long[words];
+        for(int t = 0; t < powers.length; t++){
+            if(powers[t] > transmitterPower[t]){
+                orInto(t, powers[t], bitset);
+            }
+        }
+        return bitset;
+    }
+
+    /**
+     * Checks whether an assignment of powers brings every receiver into range.
+     *
+     * @param powers the power of every transmitter, in scenario order
+     * @return true if every receiver is covered
+     */
+    public boolean coversAll(int[] powers){
+        return uncoveredCount(covered(powers)) == 0;
+    }
+
+    /**
+     * Counts the receivers missing from a bitset.
+     *
+     * @param bitset the bitset
+     * @return the number of receivers not covered
+     */
+    public int uncoveredCount(long[] bitset){
+        int covered = 0;
+        for(long word: bitset){
+            covered += Long.bitCount(word);
+        }
+        return receivers.length - covered;
+    }
+
+    private void clearTail(long[] bitset){
+        if(receivers.length % Long.SIZE != 0){
+            bitset[words - 1] &= (1L << receivers.length) - 1;
+        }
+    }
+
+    /**
+     * Collects the levels and entries into growing flat arrays.
+     */
+    private static final class Builder {
+        private final int[] levelStart;
+        private int[] level = new int[16];
+        private int[] entryEnd = new int[16];
+        private int levels;
+        private int[] entryWord = new int[16];
+        private long[] entryBits = new long[16];
+        private int entries;
+
+        Builder(int transmitters){
+            levelStart = new int[transmitters + 1];
+        }
+
+        /**
+         * Adds a level whose new receivers are a run of ranks in a transmitter's list, sorting them by bit so that
+         * those sharing a word become one entry.
+         */
+        void addLevel(int power, ReceiverDistanceIndex index, int transmitter, int from, int to){
+            int[] bits = new int[to - from];
+            for(int rank = from; rank < to; rank++){
+                bits[rank - from] = index.receiver(transmitter, rank);
+            }
+            Arrays.sort(bits);
+            if(levels == level.length){
+                level = Arrays.copyOf(level, levels * 2);
+                entryEnd = Arrays.copyOf(entryEnd, levels * 2);
+            }
+            for(int bit: bits){
+                int word = bit >>> 6;
+                if(entries == 0 || entryWord[entries - 1] != word || entries == entryEnd(levels - 1)){
+                    if(entries == entryWord.length){
+                        entryWord = Arrays.copyOf(entryWord, entries * 2);
+                        entryBits = Arrays.copyOf(entryBits, entries * 2);
+                    }
+                    entryWord[entries] = word;
+                    entryBits[entries++] = 0;
+                }
+                entryBits[entries - 1] |= 1L << bit;
+            }
+            level[levels] = power;
+            entryEnd[levels++] = entries;
+        }
+
+        private int entryEnd(int index){
+            return index < 0 ? 0 : entryEnd[index];
+        }
+
+        void endTransmitter(int transmitter){
+            levelStart[transmitter + 1] = levels;
+        }
+
+        CoverageBitsets build(int[] receivers, int[] receiverX, int[] receiverY, int[] transmitterX,
+                              int[] transmitterY, int[] transmitterPower, int[] reach, long distanceEvaluations){
+            return new CoverageBitsets(receivers, receiverX, receiverY, transmitterX, transmitterY, transmitterPower,
+                    reach, levelStart, Arrays.copyOf(level, levels), Arrays.copyOf(entryEnd, levels),
+                    Arrays.copyOf(entryWord, entries), Arrays.copyOf(entryBits, entries), distanceEvaluations);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.CompactScenario;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Mutable coverage state of a scenario, holding the current power of every transmitter and, for every receiver, the
+ * number of transmitters that currently reach it.
+ *
+ * Changing the power of one transmitter only touches the receivers in the annulus between its old and new range,
+ * found through a {@link ChebyshevGrid} over the receivers. Whether every receiver is covered is answered in
+ * constant time, and the effect of a candidate power change can be worked out without applying it, in time
+ * proportional to the size of the annulus. The receivers currently out of range are also kept in a set, so a raise
+ * that would sweep a large annulus is checked against them instead when there are fewer of them.
+ *
+ * A counted tracker tallies the coverage checks it makes, one for every receiver whose cover count it reads or
+ * changes, and the Chebyshev distances it works out, so optimisers can report the real amount of work done. Each call
+ * counts in locals and adds them once, when it ends; an uncounted tracker, built when nobody is listening, skips even
+ * that.
+ */
+public final class CoverageTracker {
+    private final CompactScenario scenario;
+    private final ChebyshevGrid receivers;
+    private final int[] power;
+    private final int[] coverCount;
+    private final int[] uncoveredList;
+    private final int[] uncoveredPosition;
+    private int uncovered;
+    private long totalPower;
+    private final LongAdder coverageChecks;
+    private final LongAdder distanceEvaluations;
+
+    private int tally;
+    private final IntConsumer increment;
+    private final IntConsumer decrement;
+    private final IntConsumer countUncovered;
+    private final IntConsumer countSolelyCovered;
+
+    /**
+     * Builds a counted tracker with every transmitter at its original power.
+     *
+     * @param scenario the scenario
+     */
+    public CoverageTracker(CompactScenario scenario){
+        this(scenario, true);
+    }
+
+    /**
+     * Builds the tracker with every transmitter at its original power.
+     *
+     * @param scenario the scenario
+     * @param counted  whether to count the coverage checks and distances worked out
+     */
+    public CoverageTracker(CompactScenario scenario, boolean counted){
+        this(scenario, ChebyshevGrid.of(scenario.receiverX, scenario.receiverY, 1, counted), counted);
+    }
+
+    /**
+     * Builds the tracker with every transmitter at its original power, reusing a grid already built over the
+     * receivers of the scenario. The distances the grid works out are counted if the grid is.
+     *
+     * @param scenario  the scenario
+     * @param receivers the grid over the receivers, indexed as in the scenario
+     * @param counted   whether to count the coverage checks and distances worked out by the tracker itself
+     */
+    public CoverageTracker(CompactScenario scenario, ChebyshevGrid receivers, boolean counted){
+        this.scenario = scenario;
+        this.receivers = receivers;
+        coverageChecks = counted ? new LongAdder() : null;
+        distanceEvaluations = counted ? new LongAdder() : null;
+        power = new int[scenario.transmitterCount()];
+        coverCount = new int[scenario.receiverCount()];
+        uncovered = scenario.receiverCount();
+        uncoveredList = new int[uncovered];
+        uncoveredPosition = new int[uncovered];
+        for(int r = 0; r < uncovered; r++){
+            uncoveredList[r] = r;
+            uncoveredPosition[r] = r;
+        }
+        // visitors are created once so that power changes do not allocate
+        increment = r -> {
+            if(coverCount[r]++ == 0){
+                int last = uncoveredList[--uncovered];
+                uncoveredList[uncoveredPosition[r]] = last;
+                uncoveredPosition[last] = uncoveredPosition[r];
+            }
+        };
+        decrement = r -> {
+            if(--coverCount[r] == 0){
+                uncoveredPosition[r] = uncovered;
+                uncoveredList[uncovered++] = r;
+            }
+        };
+        countUncovered = r -> {
+            if(coverCount[r] == 0){
+                tally++;
+            }
+        };
+        countSolelyCovered = r -> {
+            if(coverCount[r] == 1){
+                tally++;
+            }
+        };
+        for(int t = 0; t < power.length; t++){
+            power[t] = Integer.MIN_VALUE;
+            setPower(t, scenario.transmitterPower[t]);
+        }
+    }
+
+    /**
+     * Sets the power of a transmitter, updating the coverage of the receivers between its old and new range.
+     *
+     * @param transmitter the transmitter index
+     * @param newPower    the new power
+     */
+    public void setPower(int transmitter, int newPower){
+        int oldPower = power[transmitter];
+        int x = scenario.transmitterX[transmitter];
+        int y = scenario.transmitterY[transmitter];
+        if(newPower > oldPower){
+            count(receivers.forEachBetween(x, y, Math.max(oldPower, -1), newPower, increment), 0);
+        } else if(newPower < oldPower){
+            count(receivers.forEachBetween(x, y, Math.max(newPower, -1), oldPower, decrement), 0);
+        }
+        if(oldPower != Integer.MIN_VALUE){
+            totalPower -= oldPower;
+        }
+        totalPower += newPower;
+        power[transmitter] = newPower;
+    }
+
+    /**
+     * Works out how many receivers would be out of range if the transmitter were set to the new power, without
+     * changing anything.
+     *
+     * @param transmitter the transmitter index
+     * @param newPower    the candidate power
+     * @return the number of receivers out of range after the change
+     */
+    public int uncoveredAfter(int transmitter, int newPower){
+        int oldPower = power[transmitter];
+        int x = scenario.transmitterX[transmitter];
+        int y = scenario.transmitterY[transmitter];
+        tally = 0;
+        if(newPower > oldPower){
+            if(uncovered == 0){
+                return 0;
+            }
+            if(uncovered < receivers.expectedBetween(oldPower, newPower)){
+                for(int i = 0; i < uncovered; i++){
+                    int r = uncoveredList[i];
+                    if(scenario.distance(transmitter, r) <= newPower){
+                        tally++;
+                    }
+                }
+                count(uncovered, uncovered);
+            } else {
+                count(receivers.forEachBetween(x, y, oldPower, newPower, countUncovered), 0);
+            }
+            return uncovered - tally;
+        } else if(newPower < oldPower){
+            count(receivers.forEachBetween(x, y, Math.max(newPower, -1), oldPower, countSolelyCovered), 0);
+            return uncovered + tally;
+        }
+        return uncovered;
+    }
+
+    /**
+     * Checks whether the transmitter at the given power would reach every receiver currently out of range. This only
+     * reads the tracker, so many candidates may be checked from different threads at once as long as nothing changes
+     * the tracker meanwhile.
+     *
+     * @param transmitter the transmitter index
+     * @param power       the candidate power
+     * @return true if all uncovered receivers are within the candidate range
+     */
+    public boolean reachesAllUncovered(int transmitter, int power){
+        for(int i = 0; i < uncovered; i++){
+            if(scenario.distance(transmitter, uncoveredList[i]) > power){
+                count(i + 1, i + 1);
+                return false;
+            }
+        }
+        count(uncovered, uncovered);
+        return true;
+    }
+
+    /**
+     * Visits every receiver that would go out of range if the transmitter were lowered to the new power, without
+     * changing anything.
+     *
+     * @param transmitter the transmitter index
+     * @param newPower    the candidate power, below the current one
+     * @param action      called with the index of each receiver only this transmitter covers in the lost annulus
+     */
+    public void forEachSolelyCovered(int transmitter, int newPower, IntConsumer action){
+        count(receivers.forEachBetween(scenario.transmitterX[transmitter], scenario.transmitterY[transmitter],
+                Math.max(newPower, -1), power[transmitter], r -> {
+                    if(coverCount[r] == 1){
+                        action.accept(r);
+                    }
+                }), 0);
+    }
+
+    /**
+     * Checks whether every receiver is within range of at least one transmitter.
+     *
+     * @return true if all receivers are covered
+     */
+    public boolean allCovered(){
+        return uncovered == 0;
+    }
+
+    public int uncoveredCount(){
+        return uncovered;
+    }
+
+    /**
+     * Visits every receiver currently out of range, in no particular order.
+     *
+     * @param action called with the index of each receiver
+     */
+    public void forEachUncovered(IntConsumer action){
+        for(int i = uncovered - 1; i >= 0; i--){
+            action.accept(uncoveredList[i]);
+        }
+    }
+
+    /**
+     * Number of coverage checks made so far, including those made while building the tracker.
+     *
+     * @return the count, always zero for an uncounted tracker
+     */
+    public long coverageChecks(){
+        return coverageChecks == null ? 0 : coverageChecks.sum();
+    }
+
+    /**
+     * Number of Chebyshev distances worked out so far, including those worked out by the grid over the receivers.
+     *
+     * @return the count, zero for an uncounted tracker over an uncounted grid
+     */
+    public long distanceEvaluations(){
+        return (distanceEvaluations == null ? 0 : distanceEvaluations.sum()) + receivers.distanceEvaluations();
+    }
+
+    private void count(int checks, int distances){
+        if(coverageChecks != null){
+            coverageChecks.add(checks);
+            if(distances > 0){
+                distanceEvaluations.add(distances);
+            }
+        }
+    }
+
+    public int coverCount(int receiver){
+        return coverCount[receiver];
+    }
+
+    public int power(int transmitter){
+        return power[transmitter];
+    }
+
+    public long totalPower(){
+        return totalPower;
+    }
+
+    /**
+     * Copies the current power of every transmitter.
+     *
+     * @return the powers, in transmitter order
+     */
+    public int[] powers(){
+        return power.clone();
+    }
+}
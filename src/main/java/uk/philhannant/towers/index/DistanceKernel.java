@@ -0,0 +1,105 @@
+package uk.philhannant.towers.index;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk kernel filling matrices of Chebyshev distances, or of the power increases needed to reach each receiver,
+ * between a block of transmitters and a block of receivers given as primitive arrays.
+ *
+ * Matrices are stored row by row, one row per receiver, so entry (r, t) is at {@code r * transmitters + t}. The work
+ * is done in tiles of transmitters small enough for their coordinates to stay in the L1 cache while a tile of
+ * receivers is run against them. The inner loop over a tile is a plain loop over int arrays with no branches, which
+ * the JIT compiles to SIMD instructions where the CPU has them. The parallel variants split the receiver tiles over
+ * the common fork join pool and give exactly the same matrices.
+ */
+public final class DistanceKernel {
+    static final int TRANSMITTER_TILE = 1024;
+    static final int RECEIVER_TILE = 64;
+
+    private DistanceKernel(){
+    }
+
+    /**
+     * Fills a matrix of Chebyshev distances.
+     *
+     * @param transmitterX the x coordinates of the transmitters
+     * @param transmitterY the y coordinates of the transmitters
+     * @param receiverX    the x coordinates of the receivers
+     * @param receiverY    the y coordinates of the receivers
+     * @param parallel     true to split the work across threads
+     * @return the distances, one row per receiver
+     */
+    public static int[] distances(int[] transmitterX, int[] transmitterY, int[] receiverX, int[] receiverY,
+                                  boolean parallel){
+        int[] matrix = new int[checkedSize(transmitterX.length, receiverX.length)];
+        run(receiverX.length, parallel, tile -> distanceTile(transmitterX, transmitterY, receiverX, receiverY,
+                tile, matrix));
+        return matrix;
+    }
+
+    /**
+     * Fills a matrix of the power increases needed for each transmitter to reach each receiver, zero where it
+     * already does.
+     *
+     * @param transmitterX     the x coordinates of the transmitters
+     * @param transmitterY     the y coordinates of the transmitters
+     * @param transmitterPower the powers of the transmitters
+     * @param receiverX        the x coordinates of the receivers
+     * @param receiverY        the y coordinates of the receivers
+     * @param parallel         true to split the work across threads
+     * @return the increases, one row per receiver
+     */
+    public static int[] increases(int[] transmitterX, int[] transmitterY, int[] transmitterPower, int[] receiverX,
+                                  int[] receiverY, boolean parallel){
+        int[] matrix = new int[checkedSize(transmitterX.length, receiverX.length)];
+        run(receiverX.length, parallel, tile -> increaseTile(transmitterX, transmitterY, transmitterPower,
+                receiverX, receiverY, tile, matrix));
+        return matrix;
+    }
+
+    private static void run(int receivers, boolean parallel, IntConsumer tile){
+        IntStream tiles = IntStream.range(0, (receivers + RECEIVER_TILE - 1) / RECEIVER_TILE);
+        (parallel ? tiles.parallel() : tiles).forEach(tile);
+    }
+
+    private static void distanceTile(int[] tx, int[] ty, int[] rx, int[] ry, int tile, int[] matrix){
+        int transmitters = tx.length;
+        int rEnd = Math.min(rx.length, (tile + 1) * RECEIVER_TILE);
+        for(int tStart = 0; tStart < transmitters; tStart += TRANSMITTER_TILE){
+            int tEnd = Math.min(transmitters, tStart + TRANSMITTER_TILE);
+            for(int r = tile * RECEIVER_TILE; r < rEnd; r++){
+                int x = rx[r];
+                int y = ry[r];
+                int row = r * transmitters;
+                for(int t = tStart; t < tEnd; t++){
+                    matrix[row + t] = Math.max(Math.abs(tx[t] - x), Math.abs(ty[t] - y));
+                }
+            }
+        }
+    }
+
+    private static void increaseTile(int[] tx, int[] ty, int[] tp, int[] rx, int[] ry, int tile, int[] matrix){
+        int transmitters = tx.length;
+        int rEnd = Math.min(rx.length, (tile + 1) * RECEIVER_TILE);
+        for(int tStart = 0; tStart < transmitters; tStart += TRANSMITTER_TILE){
+            int tEnd = Math.min(transmitters, tStart + TRANSMITTER_TILE);
+            for(int r = tile * RECEIVER_TILE; r < rEnd; r++){
+                int x = rx[r];
+                int y = ry[r];
+                int row = r * transmitters;
+                for(int t = tStart; t < tEnd; t++){
+                    matrix[row + t] = Math.max(0, Math.max(Math.abs(tx[t] - x), Math.abs(ty[t] - y)) - tp[t]);
+                }
+            }
+        }
+    }
+
+    private static int checkedSize(int transmitters, int receivers){
+        long size = (long) transmitters * receivers;
+        if(size > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Matrix of " + transmitters + " by " + receivers + " is too large");
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,171 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.CompactScenario;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Index holding, for every transmitter, a set of receivers sorted by their Chebyshev distance to it.
+ *
+ * The receivers a transmitter covers at a power are a prefix of its list, so the receivers gained or lost when its
+ * power changes from p to q are found by two binary searches and visited as one contiguous run, without looking at
+ * any other receiver. The distinct distances in a list are exactly the power levels worth trying for the transmitter.
+ *
+ * All lists are held in two flat arrays, taking two ints per transmitter and receiver pair, so the index suits
+ * scenarios where a full transmitter by receiver matrix is affordable, typically over the out of range receivers
+ * only. Receivers are referred to by their position in the array the index was built from.
+ */
+public final class ReceiverDistanceIndex {
+    private final int receiverCount;
+    private final int[] distance;
+    private final int[] receiver;
+
+    private ReceiverDistanceIndex(int receiverCount, int[] distance, int[] receiver){
+        this.receiverCount = receiverCount;
+        this.distance = distance;
+        this.receiver = receiver;
+    }
+
+    /**
+     * Builds the index over every receiver of a scenario.
+     *
+     * @param scenario the scenario
+     * @return the index, with receivers indexed as in the scenario
+     */
+    public static ReceiverDistanceIndex of(CompactScenario scenario){
+        int[] receivers = new int[scenario.receiverCount()];
+        for(int r = 0; r < receivers.length; r++){
+            receivers[r] = r;
+        }
+        return of(scenario, receivers);
+    }
+
+    /**
+     * Builds the index over some of the receivers of a scenario, working out the distances with the
+     * {@link DistanceKernel}.
+     *
+     * @param scenario  the scenario
+     * @param receivers the indexes in the scenario of the receivers to include
+     * @return the index, with receivers referred to by their position in the given array
+     */
+    public static ReceiverDistanceIndex of(CompactScenario scenario, int[] receivers){
+        int[] receiverX = new int[receivers.length];
+        int[] receiverY = new int[receivers.length];
+        for(int i = 0; i < receivers.length; i++){
+            receiverX[i] = scenario.receiverX[receivers[i]];
+            receiverY[i] = scenario.receiverY[receivers[i]];
+        }
+        // distance is symmetric, so passing the receivers as the kernel's columns gives one row per transmitter
+        int[] distance = DistanceKernel.distances(receiverX, receiverY, scenario.transmitterX, scenario.transmitterY,
+                false);
+        int[] receiver = new int[distance.length];
+        long[] keys = new long[receivers.length];
+        for(int t = 0; t < scenario.transmitterCount(); t++){
+            int row = t * receivers.length;
+            for(int i = 0; i < receivers.length; i++){
+                keys[i] = (long) distance[row + i] << 32 | i;
+            }
+            Arrays.sort(keys);
+            for(int i = 0; i < receivers.length; i++){
+                distance[row + i] = (int) (keys[i] >>> 32);
+                receiver[row + i] = (int) keys[i];
+            }
+        }
+        return new ReceiverDistanceIndex(receivers.length, distance, receiver);
+    }
+
+    public int receiverCount(){
+        return receiverCount;
+    }
+
+    /**
+     * The receiver at a rank in a transmitter's list.
+     *
+     * @param transmitter the transmitter index
+     * @param rank        the rank, nearest first
+     * @return the receiver position
+     */
+    public int receiver(int transmitter, int rank){
+        return receiver[transmitter * receiverCount + rank];
+    }
+
+    /**
+     * The distance of the receiver at a rank in a transmitter's list.
+     *
+     * @param transmitter the transmitter index
+     * @param rank        the rank, nearest first
+     * @return the distance
+     */
+    public int distance(int transmitter, int rank){
+        return distance[transmitter * receiverCount + rank];
+    }
+
+    /**
+     * Counts the receivers a transmitter reaches at a power, which are the ranks below the returned count.
+     *
+     * @param transmitter the transmitter index
+     * @param power       the power
+     * @return the number of receivers within the power
+     */
+    public int countWithin(int transmitter, int power){
+        int row = transmitter * receiverCount;
+        int lo = 0;
+        int hi = receiverCount;
+        while(lo < hi){
+            int mid = (lo + hi) >>> 1;
+            if(distance[row + mid] <= power){
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Visits every receiver whose distance d to a transmitter satisfies inner &lt; d &lt;= outer, i.e. the receivers
+     * gained when it is raised from the inner to the outer power, nearest first.
+     *
+     * @param transmitter the transmitter index
+     * @param inner       the exclusive inner power
+     * @param outer       the inclusive outer power
+     * @param action      called with the position of each receiver found
+     */
+    public void forEachBetween(int transmitter, int inner, int outer, IntConsumer action){
+        int row = transmitter * receiverCount;
+        for(int rank = countWithin(transmitter, inner), end = countWithin(transmitter, outer); rank < end; rank++){
+            action.accept(receiver[row + rank]);
+        }
+    }
+
+    /**
+     * Finds the smallest power above the given one at which a transmitter reaches another receiver.
+     *
+     * @param transmitter the transmitter index
+     * @param power       the power
+     * @return the next power level, or -1 if the transmitter already reaches every receiver
+     */
+    public int nextLevel(int transmitter, int power){
+        int rank = countWithin(transmitter, power);
+        return rank < receiverCount ? distance(transmitter, rank) : -1;
+    }
+
+    /**
+     * Lists the distinct distances from a transmitter to the receivers, which are its power levels worth trying.
+     *
+     * @param transmitter the transmitter index
+     * @return the distinct distances in increasing order
+     */
+    public int[] levels(int transmitter){
+        int row = transmitter * receiverCount;
+        int[] levels = new int[receiverCount];
+        int count = 0;
+        for(int rank = 0; rank < receiverCount; rank++){
+            if(count == 0 || levels[count - 1] != distance[row + rank]){
+                levels[count++] = distance[row + rank];
+            }
+        }
+        return Arrays.copyOf(levels, count);
+    }
+}
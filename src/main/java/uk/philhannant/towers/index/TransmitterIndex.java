@@ -0,0 +1,216 @@
+package uk.philhannant.towers.index;
+
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Index answering "which transmitters can reach this point" for a fixed set of transmitter powers.
+ *
+ * Transmitters are split into classes by power, each class holding powers within a factor of two of each other, and
+ * each class gets its own {@link ChebyshevGrid} with cells as large as the biggest power in the class. A query looks
+ * at each class with that class's largest power as the radius, so a handful of long range transmitters does not
+ * force every query to scan a huge square.
+ *
+ * Each grid compares a point against the power of every transmitter in it, so a query works out one Chebyshev
+ * distance per transmitter it looks at. A counted index tallies them through its grids, from any number of threads;
+ * an uncounted one, built when nobody is listening, keeps no tally at all.
+ */
+public final class TransmitterIndex {
+    private final ChebyshevGrid[] grids;
+    private final int[][] members;
+    private final int[][] reach;
+    private final int[] radius;
+
+    private TransmitterIndex(int[] xs, int[] ys, int[] powers, boolean counted){
+        int[] classSize = new int[33];
+        for(int power: powers){
+            classSize[powerClass(power)]++;
+        }
+        grids = new ChebyshevGrid[33];
+        members = new int[33][];
+        reach = new int[33][];
+        radius = new int[33];
+        for(int c = 0; c < 33; c++){
+            if(classSize[c] == 0){
+                continue;
+            }
+            members[c] = new int[classSize[c]];
+            reach[c] = new int[classSize[c]];
+            int[] classX = new int[classSize[c]];
+            int[] classY = new int[classSize[c]];
+            int n = 0;
+            for(int i = 0; i < powers.length; i++){
+                if(powerClass(powers[i]) == c){
+                    members[c][n] = i;
+                    classX[n] = xs[i];
+                    classY[n] = ys[i];
+                    reach[c][n] = powers[i];
+                    radius[c] = Math.max(radius[c], powers[i]);
+                    n++;
+                }
+            }
+            grids[c] = ChebyshevGrid.of(classX, classY, Math.max(radius[c], 1), counted);
+        }
+    }
+
+    /**
+     * Builds a counted index over transmitters given as coordinate and power arrays.
+     *
+     * @param xs     the x coordinates
+     * @param ys     the y coordinates
+     * @param powers the powers
+     * @return the index
+     */
+    public static TransmitterIndex of(int[] xs, int[] ys, int[] powers){
+        if(xs.length != ys.length || xs.length != powers.length){
+            throw new IllegalArgumentException("Transmitter arrays differ in length");
+        }
+        return new TransmitterIndex(xs, ys, powers, true);
+    }
+
+    /**
+     * Builds a counted index over the given transmitters at their current powers.
+     *
+     * @param transmitters the transmitters
+     * @return the index, with transmitters indexed in list order
+     */
+    public static TransmitterIndex of(List<Transmitter> transmitters){
+        return of(transmitters, true);
+    }
+
+    /**
+     * Builds an index over the given transmitters at their current powers.
+     *
+     * @param transmitters the transmitters
+     * @param counted      whether to count the distances the queries work out
+     * @return the index, with transmitters indexed in list order
+     */
+    public static TransmitterIndex of(List<Transmitter> transmitters, boolean counted){
+        int[] xs = new int[transmitters.size()];
+        int[] ys = new int[transmitters.size()];
+        int[] powers = new int[transmitters.size()];
+        for(int i = 0; i < xs.length; i++){
+            Transmitter t = transmitters.get(i);
+            xs[i] = t.location.x;
+            ys[i] = t.location.y;
+            powers[i] = t.power;
+        }
+        return new TransmitterIndex(xs, ys, powers, counted);
+    }
+
+    /**
+     * Builds a counted index over the transmitters of a compact scenario at their original powers.
+     *
+     * @param scenario the scenario
+     * @return the index, with transmitters indexed as in the scenario
+     */
+    public static TransmitterIndex of(CompactScenario scenario){
+        return of(scenario, true);
+    }
+
+    /**
+     * Builds an index over the transmitters of a compact scenario at their original powers.
+     *
+     * @param scenario the scenario
+     * @param counted  whether to count the distances the queries work out
+     * @return the index, with transmitters indexed as in the scenario
+     */
+    public static TransmitterIndex of(CompactScenario scenario, boolean counted){
+        return new TransmitterIndex(scenario.transmitterX, scenario.transmitterY, scenario.transmitterPower, counted);
+    }
+
+    /**
+     * Finds the receivers of a compact scenario that no transmitter reaches at its original power.
+     *
+     * @param scenario the scenario
+     * @return the indexes of the out of range receivers, in increasing order
+     */
+    public static int[] outOfRange(CompactScenario scenario){
+        return of(scenario, false).unreached(scenario.receiverX, scenario.receiverY);
+    }
+
+    /**
+     * Finds the points that no transmitter reaches, one query per point.
+     *
+     * @param pointX the x coordinates of the points
+     * @param pointY the y coordinates of the points
+     * @return the indexes of the points out of range, in increasing order
+     */
+    public int[] unreached(int[] pointX, int[] pointY){
+        int[] unreached = new int[pointX.length];
+        int count = 0;
+        for(int i = 0; i < unreached.length; i++){
+            if(!reaches(pointX[i], pointY[i])){
+                unreached[count++] = i;
+            }
+        }
+        return Arrays.copyOf(unreached, count);
+    }
+
+    /**
+     * Checks whether any transmitter reaches the point, stopping at the first one found.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the point is within the range of at least one transmitter
+     */
+    public boolean reaches(int x, int y){
+        for(int c = 0; c < 33; c++){
+            if(grids[c] != null && grids[c].anyReaching(x, y, radius[c], reach[c])){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits every transmitter that reaches the point.
+     *
+     * @param x      the x coordinate
+     * @param y      the y coordinate
+     * @param action called with the index of each transmitter found
+     */
+    public void forEachReaching(int x, int y, IntConsumer action){
+        forEachReaching(x, y, 0, action);
+    }
+
+    /**
+     * Visits every transmitter that would reach the point if its power were raised by the given amount.
+     *
+     * @param x      the x coordinate
+     * @param y      the y coordinate
+     * @param raise  the raise, added to the power of every transmitter
+     * @param action called with the index of each transmitter found
+     */
+    public void forEachReaching(int x, int y, int raise, IntConsumer action){
+        for(int c = 0; c < 33; c++){
+            if(grids[c] != null){
+                int[] classMembers = members[c];
+                grids[c].forEachReaching(x, y, radius[c], reach[c], raise, i -> action.accept(classMembers[i]));
+            }
+        }
+    }
+
+    /**
+     * Number of Chebyshev distances worked out by the queries so far, one for every transmitter a grid looked at.
+     *
+     * @return the count, always zero for an uncounted index
+     */
+    public long distanceEvaluations(){
+        long count = 0;
+        for(ChebyshevGrid grid: grids){
+            if(grid != null){
+                count += grid.distanceEvaluations();
+            }
+        }
+        return count;
+    }
+
+    private static int powerClass(int power){
+        return power <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(power);
+    }
+}
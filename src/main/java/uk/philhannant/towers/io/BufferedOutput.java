@@ -0,0 +1,73 @@
+package uk.philhannant.towers.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a file or stream through a direct buffer, encoding the varints used by the binary tower formats.
+ */
+final class BufferedOutput implements Closeable {
+    private final WritableByteChannel channel;
+    private final OutputStream stream;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+    BufferedOutput(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        stream = null;
+    }
+
+    BufferedOutput(OutputStream stream){
+        channel = Channels.newChannel(stream);
+        this.stream = stream;
+    }
+
+    void writeByte(int b) throws IOException {
+        if(!buffer.hasRemaining()){
+            flush();
+        }
+        buffer.put((byte) b);
+    }
+
+    void writeVarInt(int value) throws IOException {
+        while((value & ~0x7f) != 0){
+            writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        writeByte(value);
+    }
+
+    void writeSignedVarInt(int value) throws IOException {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    void flush() throws IOException {
+        // cast keeps the Java 8 signature of flip and clear when built on a newer JDK
+        ((Buffer) buffer).flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        ((Buffer) buffer).clear();
+        // a stream may buffer what it is given, as standard output does when piped to another process
+        if(stream != null){
+            stream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
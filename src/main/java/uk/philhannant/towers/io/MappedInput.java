@@ -0,0 +1,53 @@
+package uk.philhannant.towers.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file through a memory mapped window, decoding the varints used by the binary tower formats. Files larger
+ * than one window are read by moving the window along as it is used up.
+ */
+final class MappedInput extends VarIntInput {
+    private static final long WINDOW = 1L << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+
+    MappedInput(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0);
+    }
+
+    private void map(long start) throws IOException {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, size - start));
+    }
+
+    @Override
+    boolean hasRemaining(){
+        return bufferStart + buffer.position() < size;
+    }
+
+    @Override
+    int readByte() throws IOException {
+        if(!buffer.hasRemaining()){
+            if(!hasRemaining()){
+                throw new EOFException("Unexpected end of file");
+            }
+            map(bufferStart + buffer.position());
+        }
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,92 @@
+package uk.philhannant.towers.io;
+
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams results out of a memory mapped binary result file, one record at a time. See {@link ScenarioFormat} for
+ * the layout.
+ */
+public final class ResultReader implements Closeable {
+    private final VarIntInput in;
+
+    private ResultReader(VarIntInput in){
+        this.in = in;
+    }
+
+    /**
+     * Opens a result file and checks its header.
+     *
+     * @param path the file
+     * @return the reader
+     * @throws IOException if the file cannot be read or is not a result file
+     */
+    public static ResultReader open(Path path) throws IOException {
+        MappedInput in = new MappedInput(path);
+        try {
+            ScenarioFormat.readHeader(in, ScenarioFormat.RESULT_MAGIC, "result");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new ResultReader(in);
+    }
+
+    /**
+     * Reads results from a stream, such as a pipe from another process, and checks its header. Checking for the next
+     * result then waits until it starts arriving or the stream ends.
+     *
+     * @param stream the stream, which is closed with the reader
+     * @return the reader
+     * @throws IOException if the stream cannot be read or does not hold results
+     */
+    public static ResultReader of(InputStream stream) throws IOException {
+        StreamInput in = new StreamInput(stream);
+        ScenarioFormat.readHeader(in, ScenarioFormat.RESULT_MAGIC, "result");
+        return new ResultReader(in);
+    }
+
+    /**
+     * Checks whether another result follows.
+     *
+     * @return true if there is another result
+     */
+    public boolean hasNext(){
+        return in.hasRemaining();
+    }
+
+    /**
+     * Reads the next result.
+     *
+     * @return the result, or null if its scenario could not be optimised
+     * @throws IOException if the file is truncated or malformed
+     */
+    public Result next() throws IOException {
+        if(in.readByte() == 0){
+            return null;
+        }
+        int transmitters = in.readVarInt();
+        List<Transmitter> list = new ArrayList<>(transmitters);
+        int id = 0, x = 0, y = 0;
+        for(int t = 0; t < transmitters; t++){
+            id += in.readSignedVarInt();
+            x += in.readSignedVarInt();
+            y += in.readSignedVarInt();
+            list.add(new Transmitter(id, new Point(x, y), in.readSignedVarInt()));
+        }
+        return new Result(list);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,114 @@
+package uk.philhannant.towers.io;
+
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.SparseResult;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Writes results to a binary result file, one record per scenario. See {@link ScenarioFormat} for the layout.
+ */
+public final class ResultWriter implements Closeable {
+    private final BufferedOutput out;
+
+    private ResultWriter(BufferedOutput out){
+        this.out = out;
+    }
+
+    /**
+     * Creates (or truncates) a result file and writes its header.
+     *
+     * @param path the file
+     * @return the writer
+     * @throws IOException if the file cannot be written
+     */
+    public static ResultWriter open(Path path) throws IOException {
+        BufferedOutput out = new BufferedOutput(path);
+        ScenarioFormat.writeHeader(out, ScenarioFormat.RESULT_MAGIC);
+        return new ResultWriter(out);
+    }
+
+    /**
+     * Writes results to a stream, such as a pipe to another process, starting with the header. Nothing reaches the
+     * stream until the buffer fills up or {@link #flush()} is called.
+     *
+     * @param stream the stream, which is closed with the writer
+     * @return the writer
+     * @throws IOException if the stream cannot be written
+     */
+    public static ResultWriter of(OutputStream stream) throws IOException {
+        BufferedOutput out = new BufferedOutput(stream);
+        ScenarioFormat.writeHeader(out, ScenarioFormat.RESULT_MAGIC);
+        return new ResultWriter(out);
+    }
+
+    /**
+     * Appends a result, or a marker for a scenario that could not be optimised.
+     *
+     * @param result the result, or null for a failed scenario
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Result result) throws IOException {
+        if(result == null){
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeVarInt(result.transmitters.size());
+        int id = 0, x = 0, y = 0;
+        for(Transmitter t: result.transmitters){
+            out.writeSignedVarInt(t.id - id);
+            out.writeSignedVarInt(t.location.x - x);
+            out.writeSignedVarInt(t.location.y - y);
+            out.writeSignedVarInt(t.power);
+            id = t.id;
+            x = t.location.x;
+            y = t.location.y;
+        }
+    }
+
+    /**
+     * Appends a sparse result, writing the same record as the equivalent full result without building it.
+     *
+     * @param result the result
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSparse(SparseResult result) throws IOException {
+        out.writeByte(1);
+        out.writeVarInt(result.baseline.transmitters.size());
+        int id = 0, x = 0, y = 0;
+        int next = 0;
+        for(int i = 0; i < result.baseline.transmitters.size(); i++){
+            Transmitter t = result.baseline.transmitters.get(i);
+            int power = t.power;
+            if(next < result.changedCount() && result.changedIndex(next) == i){
+                power = result.changedPower(next++);
+            }
+            out.writeSignedVarInt(t.id - id);
+            out.writeSignedVarInt(t.location.x - x);
+            out.writeSignedVarInt(t.location.y - y);
+            out.writeSignedVarInt(power);
+            id = t.id;
+            x = t.location.x;
+            y = t.location.y;
+        }
+    }
+
+    /**
+     * Writes out everything appended so far.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,45 @@
+package uk.philhannant.towers.io;
+
+import java.io.IOException;
+
+/**
+ * Constants of the binary scenario and result file formats.
+ *
+ * Both files start with a four byte magic number and a version byte, followed by any number of records up to the
+ * end of the file. All numbers are varints, seven bits per byte with the low bits first; signed numbers are zigzag
+ * encoded first. Ids and coordinates are stored as the difference from the previous tower of the same kind in the
+ * record, so towers listed in spatial or id order take one or two bytes per number.
+ *
+ * A scenario record is the transmitter count, then id, x, y and power per transmitter, then the receiver count and
+ * id, x and y per receiver. A result record is a flag byte, 0 if the scenario could not be optimised and 1 otherwise,
+ * followed in the latter case by the transmitter count and id, x, y and power per transmitter.
+ */
+final class ScenarioFormat {
+    static final int SCENARIO_MAGIC = 0x54575253;
+    static final int RESULT_MAGIC = 0x54575252;
+    static final int VERSION = 1;
+
+    private ScenarioFormat(){
+    }
+
+    static void writeHeader(BufferedOutput out, int magic) throws IOException {
+        for(int shift = 24; shift >= 0; shift -= 8){
+            out.writeByte(magic >>> shift);
+        }
+        out.writeByte(VERSION);
+    }
+
+    static void readHeader(VarIntInput in, int magic, String kind) throws IOException {
+        int found = 0;
+        for(int i = 0; i < 4; i++){
+            found = (found << 8) | in.readByte();
+        }
+        if(found != magic){
+            throw new IOException("Not a " + kind + " file");
+        }
+        int version = in.readByte();
+        if(version != VERSION){
+            throw new IOException("Unsupported " + kind + " file version " + version);
+        }
+    }
+}
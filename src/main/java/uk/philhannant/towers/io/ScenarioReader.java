@@ -0,0 +1,106 @@
+package uk.philhannant.towers.io;
+
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Scenario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Streams scenarios out of a memory mapped binary scenario file, one record at a time. See {@link ScenarioFormat}
+ * for the layout. Scenarios can be read straight into their compact form, which skips creating a model object per
+ * tower.
+ */
+public final class ScenarioReader implements Closeable {
+    private final VarIntInput in;
+
+    private ScenarioReader(VarIntInput in){
+        this.in = in;
+    }
+
+    /**
+     * Opens a scenario file and checks its header.
+     *
+     * @param path the file
+     * @return the reader
+     * @throws IOException if the file cannot be read or is not a scenario file
+     */
+    public static ScenarioReader open(Path path) throws IOException {
+        MappedInput in = new MappedInput(path);
+        try {
+            ScenarioFormat.readHeader(in, ScenarioFormat.SCENARIO_MAGIC, "scenario");
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new ScenarioReader(in);
+    }
+
+    /**
+     * Reads scenarios from a stream, such as a pipe from another process, and checks its header. Checking for the next
+     * scenario then waits until it starts arriving or the stream ends.
+     *
+     * @param stream the stream, which is closed with the reader
+     * @return the reader
+     * @throws IOException if the stream cannot be read or does not hold scenarios
+     */
+    public static ScenarioReader of(InputStream stream) throws IOException {
+        StreamInput in = new StreamInput(stream);
+        ScenarioFormat.readHeader(in, ScenarioFormat.SCENARIO_MAGIC, "scenario");
+        return new ScenarioReader(in);
+    }
+
+    /**
+     * Checks whether another scenario follows.
+     *
+     * @return true if there is another scenario
+     */
+    public boolean hasNext(){
+        return in.hasRemaining();
+    }
+
+    /**
+     * Reads the next scenario.
+     *
+     * @return the scenario
+     * @throws IOException if the file is truncated or malformed
+     */
+    public Scenario next() throws IOException {
+        return nextCompact().toScenario();
+    }
+
+    /**
+     * Reads the next scenario in compact form.
+     *
+     * @return the scenario
+     * @throws IOException if the file is truncated or malformed
+     */
+    public CompactScenario nextCompact() throws IOException {
+        int transmitters = in.readVarInt();
+        int[] tId = new int[transmitters], tX = new int[transmitters], tY = new int[transmitters],
+                tPower = new int[transmitters];
+        int id = 0, x = 0, y = 0;
+        for(int t = 0; t < transmitters; t++){
+            tId[t] = id += in.readSignedVarInt();
+            tX[t] = x += in.readSignedVarInt();
+            tY[t] = y += in.readSignedVarInt();
+            tPower[t] = in.readSignedVarInt();
+        }
+        int receivers = in.readVarInt();
+        int[] rId = new int[receivers], rX = new int[receivers], rY = new int[receivers];
+        id = x = y = 0;
+        for(int r = 0; r < receivers; r++){
+            rId[r] = id += in.readSignedVarInt();
+            rX[r] = x += in.readSignedVarInt();
+            rY[r] = y += in.readSignedVarInt();
+        }
+        return new CompactScenario(tId, tX, tY, tPower, rId, rX, rY);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,101 @@
+package uk.philhannant.towers.io;
+
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Scenario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Writes scenarios to a binary scenario file, one record per scenario. See {@link ScenarioFormat} for the layout.
+ */
+public final class ScenarioWriter implements Closeable {
+    private final BufferedOutput out;
+
+    private ScenarioWriter(BufferedOutput out){
+        this.out = out;
+    }
+
+    /**
+     * Creates (or truncates) a scenario file and writes its header.
+     *
+     * @param path the file
+     * @return the writer
+     * @throws IOException if the file cannot be written
+     */
+    public static ScenarioWriter open(Path path) throws IOException {
+        BufferedOutput out = new BufferedOutput(path);
+        ScenarioFormat.writeHeader(out, ScenarioFormat.SCENARIO_MAGIC);
+        return new ScenarioWriter(out);
+    }
+
+    /**
+     * Writes scenarios to a stream, such as a pipe to another process, starting with the header. Nothing reaches the
+     * stream until the buffer fills up or {@link #flush()} is called.
+     *
+     * @param stream the stream, which is closed with the writer
+     * @return the writer
+     * @throws IOException if the stream cannot be written
+     */
+    public static ScenarioWriter of(OutputStream stream) throws IOException {
+        BufferedOutput out = new BufferedOutput(stream);
+        ScenarioFormat.writeHeader(out, ScenarioFormat.SCENARIO_MAGIC);
+        return new ScenarioWriter(out);
+    }
+
+    /**
+     * Appends a scenario.
+     *
+     * @param scenario the scenario
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Scenario scenario) throws IOException {
+        write(CompactScenario.of(scenario));
+    }
+
+    /**
+     * Appends a scenario given in compact form.
+     *
+     * @param scenario the scenario
+     * @throws IOException if the file cannot be written
+     */
+    public void write(CompactScenario scenario) throws IOException {
+        out.writeVarInt(scenario.transmitterCount());
+        int id = 0, x = 0, y = 0;
+        for(int t = 0; t < scenario.transmitterCount(); t++){
+            out.writeSignedVarInt(scenario.transmitterId[t] - id);
+            out.writeSignedVarInt(scenario.transmitterX[t] - x);
+            out.writeSignedVarInt(scenario.transmitterY[t] - y);
+            out.writeSignedVarInt(scenario.transmitterPower[t]);
+            id = scenario.transmitterId[t];
+            x = scenario.transmitterX[t];
+            y = scenario.transmitterY[t];
+        }
+        out.writeVarInt(scenario.receiverCount());
+        id = x = y = 0;
+        for(int r = 0; r < scenario.receiverCount(); r++){
+            out.writeSignedVarInt(scenario.receiverId[r] - id);
+            out.writeSignedVarInt(scenario.receiverX[r] - x);
+            out.writeSignedVarInt(scenario.receiverY[r] - y);
+            id = scenario.receiverId[r];
+            x = scenario.receiverX[r];
+            y = scenario.receiverY[r];
+        }
+    }
+
+    /**
+     * Writes out everything appended so far.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
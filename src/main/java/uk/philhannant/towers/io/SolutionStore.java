@@ -0,0 +1,456 @@
+package uk.philhannant.towers.io;
+
+import uk.philhannant.towers.model.CanonicalScenario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk store of solved scenarios, mapping the {@link CanonicalScenario} of each to its powers in canonical order,
+ * kept in a directory so that it survives restarts.
+ *
+ * The solutions live in an append-only data file, read through a memory mapping; each record holds the canonical
+ * scenario, so a lookup checks the scenario itself and not only its hash, and a CRC-32 of the rest of the record,
+ * checked on every lookup and on recovery so that a damaged record is never handed out. An index of the live
+ * records, keyed by the canonical hash and holding when each was last used, is kept in memory and written to an
+ * index file on close. On open the index file is read back and any records appended after it was written are
+ * recovered from the data file, dropping a record cut short or left damaged by a crash along with everything after
+ * it. A record found damaged by a lookup is dropped from the index.
+ *
+ * The live records are bounded in size: storing a solution that would go over the bound first evicts the least
+ * recently used records. Evicted and replaced records stay in the data file until it is compacted, which rewrites
+ * the live records to a fresh file and happens by itself once the file reaches twice the bound. All methods are
+ * synchronized, so a store can be shared between threads.
+ *
+ * A store holds the solutions of one optimiser, as a scenario is only looked up by what it is and not by what solved
+ * it; give each optimiser a directory of its own.
+ */
+public final class SolutionStore implements Closeable {
+    static final String DATA_FILE = "solutions.dat";
+    static final String INDEX_FILE = "solutions.idx";
+    private static final int DATA_MAGIC = 0x54575344;
+    private static final int INDEX_MAGIC = 0x54575349;
+    private static final int VERSION = 2;
+    private static final int DATA_HEADER = 16;
+    private static final int CHECKSUM = 20;
+    private static final int RECORD_HEADER = 24;
+    private static final int INDEX_ENTRY = 28;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final Map<Long, Entry> index = new HashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long generation;
+    private long fileBytes;
+    private long liveBytes;
+    private long clock;
+
+    private SolutionStore(Path directory, long maxBytes){
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Opens the store in a directory, creating it if needed.
+     *
+     * @param directory the directory holding the data and index files
+     * @param maxBytes  the most bytes of live records kept, below 512 MiB so the data file can be mapped whole
+     * @return the store
+     * @throws IOException if the files cannot be read or written, or the data file is not a store
+     */
+    public static SolutionStore open(Path directory, long maxBytes) throws IOException {
+        if(maxBytes <= 0 || maxBytes >= 1L << 29){
+            throw new IllegalArgumentException("Store size must be between 1 byte and 512 MiB but was " + maxBytes);
+        }
+        Files.createDirectories(directory);
+        SolutionStore store = new SolutionStore(directory, maxBytes);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Looks up the solution of a scenario, marking it as recently used.
+     *
+     * @param scenario the canonical scenario
+     * @return the powers in canonical order, or null if the store does not hold the scenario or its record is
+     * damaged
+     * @throws IOException if the data file cannot be mapped
+     */
+    public synchronized int[] get(CanonicalScenario scenario) throws IOException {
+        Entry entry = index.get(scenario.hash);
+        if(entry == null){
+            return null;
+        }
+        if(entry.offset + entry.length > mapped.capacity()){
+            remap();
+        }
+        if(!intact(entry.offset, entry.length)){
+            remove(entry.hash);
+            return null;
+        }
+        if(!matches(entry.offset, scenario)){
+            return null;
+        }
+        entry.stamp = ++clock;
+        int transmitters = scenario.transmitterX.length;
+        int position = (int) entry.offset + RECORD_HEADER + 4 * (3 * transmitters + 2 * scenario.receiverX.length);
+        int[] powers = new int[transmitters];
+        for(int t = 0; t < transmitters; t++){
+            powers[t] = mapped.getInt(position + 4 * t);
+        }
+        return powers;
+    }
+
+    /**
+     * Stores the solution of a scenario, replacing any held for it. Least recently used solutions are evicted first
+     * if the store would otherwise go over its bound, and a solution larger than the bound is not stored at all.
+     *
+     * @param scenario the canonical scenario
+     * @param powers   the powers in canonical order
+     * @throws IOException if the data file cannot be written
+     */
+    public synchronized void put(CanonicalScenario scenario, int[] powers) throws IOException {
+        int transmitters = scenario.transmitterX.length;
+        int receivers = scenario.receiverX.length;
+        if(powers.length != transmitters){
+            throw new IllegalArgumentException("Expected " + transmitters + " powers but got " + powers.length);
+        }
+        long length = RECORD_HEADER + 16L * transmitters + 8L * receivers;
+        if(length > maxBytes){
+            return;
+        }
+        remove(scenario.hash);
+        if(liveBytes + length > maxBytes){
+            evict(maxBytes * 3 / 4 - length);
+        }
+        if(fileBytes + length > 2 * maxBytes){
+            compact();
+        }
+
+        ByteBuffer record = ByteBuffer.allocate((int) length);
+        record.putInt((int) length).putLong(scenario.hash).putInt(transmitters).putInt(receivers).putInt(0);
+        for(int t = 0; t < transmitters; t++){
+            record.putInt(scenario.transmitterX[t]).putInt(scenario.transmitterY[t])
+                    .putInt(scenario.transmitterPower[t]);
+        }
+        for(int r = 0; r < receivers; r++){
+            record.putInt(scenario.receiverX[r]).putInt(scenario.receiverY[r]);
+        }
+        for(int power: powers){
+            record.putInt(power);
+        }
+        record.putInt(CHECKSUM, checksum(record.array()));
+        ((Buffer) record).flip();
+        write(channel, record, fileBytes);
+        index.put(scenario.hash, new Entry(scenario.hash, fileBytes, (int) length, ++clock));
+        fileBytes += length;
+        liveBytes += length;
+    }
+
+    /**
+     * Rewrites the live records to a fresh data file, most recently used last, dropping evicted and replaced ones.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        if(fileBytes == DATA_HEADER + liveBytes){
+            return;
+        }
+        if(mapped.capacity() < fileBytes){
+            remap();
+        }
+        Path temporary = directory.resolve(DATA_FILE + ".tmp");
+        long newGeneration = new Random().nextLong();
+        try(FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            write(out, header(newGeneration), 0);
+            long position = DATA_HEADER;
+            for(Entry entry: entries()){
+                ByteBuffer record = mapped.duplicate();
+                ((Buffer) record).position((int) entry.offset).limit((int) entry.offset + entry.length);
+                write(out, record, position);
+                entry.offset = position;
+                position += entry.length;
+            }
+            out.force(true);
+        }
+        channel.close();
+        mapped = null;
+        Files.move(temporary, directory.resolve(DATA_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(directory.resolve(DATA_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        generation = newGeneration;
+        fileBytes = channel.size();
+        remap();
+        writeIndex();
+    }
+
+    public synchronized int size(){
+        return index.size();
+    }
+
+    /**
+     * The size of the live records, which the store keeps within its bound.
+     *
+     * @return the bytes held by live records
+     */
+    public synchronized long getLiveBytes(){
+        return liveBytes;
+    }
+
+    /**
+     * The size of the data file, including records evicted or replaced since the last compaction.
+     *
+     * @return the bytes in the data file
+     */
+    public synchronized long getFileBytes(){
+        return fileBytes;
+    }
+
+    /**
+     * Writes the index file and closes the data file.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(channel == null){
+            return;
+        }
+        try {
+            channel.force(false);
+            writeIndex();
+        } finally {
+            channel.close();
+            channel = null;
+            mapped = null;
+        }
+    }
+
+    /**
+     * Opens the data file, creating it if needed, then reads the index file if it belongs to this data file and
+     * recovers the records appended after it.
+     */
+    private void load() throws IOException {
+        Path data = directory.resolve(DATA_FILE);
+        channel = FileChannel.open(data, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if(channel.size() < DATA_HEADER){
+            generation = new Random().nextLong();
+            channel.truncate(0);
+            write(channel, header(generation), 0);
+        }
+        fileBytes = channel.size();
+        remap();
+        if(mapped.getInt(0) != DATA_MAGIC || mapped.getInt(4) != VERSION){
+            channel.close();
+            throw new IOException("Not a solution store: " + data);
+        }
+        generation = mapped.getLong(8);
+        long scanFrom = readIndex();
+        scan(scanFrom);
+    }
+
+    /**
+     * Reads the index file into memory if it was written for the current data file.
+     *
+     * @return where in the data file the records not covered by the index start
+     */
+    private long readIndex() throws IOException {
+        Path file = directory.resolve(INDEX_FILE);
+        if(!Files.exists(file)){
+            return DATA_HEADER;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if(in.remaining() < 36 || in.getInt() != INDEX_MAGIC || in.getInt() != VERSION
+                || in.getLong() != generation){
+            return DATA_HEADER;
+        }
+        long covered = in.getLong();
+        clock = in.getLong();
+        int count = in.getInt();
+        if(covered > fileBytes || in.remaining() != (long) count * INDEX_ENTRY){
+            clock = 0;
+            return DATA_HEADER;
+        }
+        for(int i = 0; i < count; i++){
+            Entry entry = new Entry(in.getLong(), in.getLong(), in.getInt(), in.getLong());
+            index.put(entry.hash, entry);
+            liveBytes += entry.length;
+        }
+        return covered;
+    }
+
+    /**
+     * Adds the records from a position to the end of the data file to the index, truncating from the first record
+     * cut short or failing its checksum.
+     */
+    private void scan(long from) throws IOException {
+        long position = from;
+        while(position + RECORD_HEADER <= fileBytes){
+            int length = mapped.getInt((int) position);
+            int transmitters = mapped.getInt((int) position + 12);
+            int receivers = mapped.getInt((int) position + 16);
+            if(transmitters < 0 || receivers < 0 || length != RECORD_HEADER + 16L * transmitters + 8L * receivers
+                    || position + length > fileBytes || !intact(position, length)){
+                break;
+            }
+            long hash = mapped.getLong((int) position + 4);
+            remove(hash);
+            index.put(hash, new Entry(hash, position, length, ++clock));
+            liveBytes += length;
+            position += length;
+        }
+        if(position < fileBytes){
+            channel.truncate(position);
+            fileBytes = position;
+            remap();
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(36 + index.size() * INDEX_ENTRY);
+        out.putInt(INDEX_MAGIC).putInt(VERSION).putLong(generation).putLong(fileBytes).putLong(clock)
+                .putInt(index.size());
+        for(Entry entry: index.values()){
+            out.putLong(entry.hash).putLong(entry.offset).putInt(entry.length).putLong(entry.stamp);
+        }
+        ((Buffer) out).flip();
+        Path temporary = directory.resolve(INDEX_FILE + ".tmp");
+        try(FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)){
+            write(file, out, 0);
+            file.force(true);
+        }
+        Files.move(temporary, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Evicts the least recently used records until the live records take no more than the target.
+     */
+    private void evict(long target){
+        for(Entry entry: entries()){
+            if(liveBytes <= target){
+                return;
+            }
+            index.remove(entry.hash);
+            liveBytes -= entry.length;
+        }
+    }
+
+    private void remove(long hash){
+        Entry old = index.remove(hash);
+        if(old != null){
+            liveBytes -= old.length;
+        }
+    }
+
+    /**
+     * Method used to list the live records, least recently used first.
+     *
+     * @return the entries
+     */
+    private List<Entry> entries(){
+        List<Entry> entries = new ArrayList<>(index.values());
+        entries.sort((a, b) -> Long.compare(a.stamp, b.stamp));
+        return entries;
+    }
+
+    /**
+     * Method used to check a record in the data file against its checksum.
+     *
+     * @return true if the checksum matches
+     */
+    private boolean intact(long offset, int length){
+        byte[] record = new byte[length];
+        ByteBuffer source = mapped.duplicate();
+        ((Buffer) source).position((int) offset);
+        source.get(record);
+        return ByteBuffer.wrap(record).getInt(CHECKSUM) == checksum(record);
+    }
+
+    /**
+     * Method used to work out the checksum of a record, covering every byte but the checksum itself.
+     */
+    private static int checksum(byte[] record){
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, CHECKSUM);
+        crc.update(record, RECORD_HEADER, record.length - RECORD_HEADER);
+        return (int) crc.getValue();
+    }
+
+    private boolean matches(long offset, CanonicalScenario scenario){
+        int position = (int) offset + 12;
+        int transmitters = scenario.transmitterX.length;
+        int receivers = scenario.receiverX.length;
+        if(mapped.getInt(position) != transmitters || mapped.getInt(position + 4) != receivers){
+            return false;
+        }
+        position = (int) offset + RECORD_HEADER;
+        for(int t = 0; t < transmitters; t++, position += 12){
+            if(mapped.getInt(position) != scenario.transmitterX[t]
+                    || mapped.getInt(position + 4) != scenario.transmitterY[t]
+                    || mapped.getInt(position + 8) != scenario.transmitterPower[t]){
+                return false;
+            }
+        }
+        for(int r = 0; r < receivers; r++, position += 8){
+            if(mapped.getInt(position) != scenario.receiverX[r]
+                    || mapped.getInt(position + 4) != scenario.receiverY[r]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remap() throws IOException {
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+    }
+
+    private static ByteBuffer header(long generation){
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        header.putInt(DATA_MAGIC).putInt(VERSION).putLong(generation);
+        ((Buffer) header).flip();
+        return header;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()){
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Where a live record is in the data file, and when it was last used.
+     */
+    private static final class Entry {
+        final long hash;
+        long offset;
+        final int length;
+        long stamp;
+
+        Entry(long hash, long offset, int length, long stamp){
+            this.hash = hash;
+            this.offset = offset;
+            this.length = length;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uk.philhannant.towers.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reads a stream, such as a pipe to another process, through a buffer. Unlike a file the length of a stream is not
+ * known up front, so checking for more input waits until a byte arrives or the stream ends.
+ */
+final class StreamInput extends VarIntInput {
+    private final InputStream stream;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+
+    StreamInput(InputStream stream){
+        this.stream = stream;
+    }
+
+    /**
+     * Refills the buffer once it is used up.
+     *
+     * @return false if the stream has ended
+     */
+    private boolean fill() throws IOException {
+        while(position == limit){
+            int read = stream.read(buffer);
+            if(read < 0){
+                return false;
+            }
+            position = 0;
+            limit = read;
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UncheckedIOException if the stream cannot be read
+     */
+    @Override
+    boolean hasRemaining(){
+        try {
+            return fill();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    int readByte() throws IOException {
+        if(!fill()){
+            throw new EOFException("Unexpected end of stream");
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
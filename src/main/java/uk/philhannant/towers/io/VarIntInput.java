@@ -0,0 +1,40 @@
+package uk.philhannant.towers.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of the bytes of a binary tower file or stream, decoding the varints used by the formats.
+ */
+abstract class VarIntInput implements Closeable {
+
+    /**
+     * Checks whether another byte follows, waiting for it if the source is a stream.
+     */
+    abstract boolean hasRemaining();
+
+    abstract int readByte() throws IOException;
+
+    /**
+     * Reads an unsigned varint of up to 32 bits, seven bits per byte with the low bits first.
+     */
+    int readVarInt() throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7){
+            int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if((b & 0x80) == 0){
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads a zigzag encoded signed varint.
+     */
+    int readSignedVarInt() throws IOException {
+        int value = readVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,160 @@
+package uk.philhannant.towers.model;
+
+import java.util.Arrays;
+
+/**
+ * Canonical form of a scenario, equal for any two scenarios that differ only by a translation of all coordinates,
+ * the order of the towers or the tower ids, none of which change the optimal powers.
+ *
+ * The towers are shifted so that the smallest x and y over all towers are zero, transmitters are sorted by x, y and
+ * power and receivers by x and y. A 64 bit hash of the canonical arrays is computed once up front; it only depends
+ * on the canonical content, so it is stable across runs and JVMs. The permutation from the original transmitter
+ * order is kept so powers can be moved between the two orders.
+ */
+public class CanonicalScenario {
+    public final int[] transmitterX;
+    public final int[] transmitterY;
+    public final int[] transmitterPower;
+    public final int[] receiverX;
+    public final int[] receiverY;
+    public final long hash;
+
+    private final int[] canonicalIndex;
+
+    private CanonicalScenario(int[] transmitterX, int[] transmitterY, int[] transmitterPower, int[] receiverX,
+                              int[] receiverY, int[] canonicalIndex) {
+        this.transmitterX = transmitterX;
+        this.transmitterY = transmitterY;
+        this.transmitterPower = transmitterPower;
+        this.receiverX = receiverX;
+        this.receiverY = receiverY;
+        this.canonicalIndex = canonicalIndex;
+        long h = 0x9E3779B97F4A7C15L;
+        h = mix(h, transmitterX.length);
+        for (int t = 0; t < transmitterX.length; t++) {
+            h = mix(mix(mix(h, transmitterX[t]), transmitterY[t]), transmitterPower[t]);
+        }
+        h = mix(h, receiverX.length);
+        for (int r = 0; r < receiverX.length; r++) {
+            h = mix(mix(h, receiverX[r]), receiverY[r]);
+        }
+        this.hash = h;
+    }
+
+    public static CanonicalScenario of(Scenario scenario) {
+        return of(CompactScenario.of(scenario));
+    }
+
+    public static CanonicalScenario of(CompactScenario scenario) {
+        int transmitters = scenario.transmitterCount();
+        int receivers = scenario.receiverCount();
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+        for (int t = 0; t < transmitters; t++) {
+            minX = Math.min(minX, scenario.transmitterX[t]);
+            minY = Math.min(minY, scenario.transmitterY[t]);
+        }
+        for (int r = 0; r < receivers; r++) {
+            minX = Math.min(minX, scenario.receiverX[r]);
+            minY = Math.min(minY, scenario.receiverY[r]);
+        }
+
+        // sort keys pack the shifted coordinates, which fit in 32 unsigned bits, with the original index
+        long[][] keys = new long[transmitters][];
+        for (int t = 0; t < transmitters; t++) {
+            keys[t] = new long[]{scenario.transmitterX[t] - minX, scenario.transmitterY[t] - minY,
+                    scenario.transmitterPower[t], t};
+        }
+        Arrays.sort(keys, (a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                int c = Long.compare(a[i], b[i]);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return 0;
+        });
+        int[] tX = new int[transmitters], tY = new int[transmitters], tPower = new int[transmitters];
+        int[] canonicalIndex = new int[transmitters];
+        for (int i = 0; i < transmitters; i++) {
+            tX[i] = (int) keys[i][0];
+            tY[i] = (int) keys[i][1];
+            tPower[i] = (int) keys[i][2];
+            canonicalIndex[(int) keys[i][3]] = i;
+        }
+
+        long[] receiverKeys = new long[receivers];
+        for (int r = 0; r < receivers; r++) {
+            receiverKeys[r] = ((scenario.receiverX[r] - minX) << 32) | (scenario.receiverY[r] - minY);
+        }
+        Arrays.sort(receiverKeys);
+        int[] rX = new int[receivers], rY = new int[receivers];
+        for (int r = 0; r < receivers; r++) {
+            rX[r] = (int) (receiverKeys[r] >>> 32);
+            rY[r] = (int) receiverKeys[r];
+        }
+        return new CanonicalScenario(tX, tY, tPower, rX, rY, canonicalIndex);
+    }
+
+    /**
+     * Reorders per transmitter values from the original transmitter order into canonical order.
+     *
+     * @param values the values in original order
+     * @return the values in canonical order
+     */
+    public int[] toCanonicalOrder(int[] values) {
+        int[] canonical = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            canonical[canonicalIndex[i]] = values[i];
+        }
+        return canonical;
+    }
+
+    /**
+     * Reorders per transmitter values from canonical order back into the original transmitter order.
+     *
+     * @param values the values in canonical order
+     * @return the values in original order
+     */
+    public int[] toOriginalOrder(int[] values) {
+        int[] original = new int[values.length];
+        for (int i = 0; i < original.length; i++) {
+            original[i] = values[canonicalIndex[i]];
+        }
+        return original;
+    }
+
+    private static long mix(long h, int value) {
+        h ^= value;
+        h *= 0x100000001B3L;
+        return h ^ (h >>> 29);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CanonicalScenario that = (CanonicalScenario) o;
+
+        return hash == that.hash
+                && Arrays.equals(transmitterX, that.transmitterX)
+                && Arrays.equals(transmitterY, that.transmitterY)
+                && Arrays.equals(transmitterPower, that.transmitterPower)
+                && Arrays.equals(receiverX, that.receiverX)
+                && Arrays.equals(receiverY, that.receiverY);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "CanonicalScenario{" +
+                "transmitters=" + transmitterX.length +
+                ", receivers=" + receiverX.length +
+                ", hash=" + Long.toHexString(hash) +
+                '}';
+    }
+}
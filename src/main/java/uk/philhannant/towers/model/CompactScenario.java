@@ -0,0 +1,217 @@
+package uk.philhannant.towers.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Struct of arrays form of a {@link Scenario}, holding the towers as primitive int arrays so that optimisers can
+ * work on them without boxing or allocating a model object per tower.
+ *
+ * Tower i of each kind is described by the i-th element of the matching arrays, in the order of the original lists.
+ * The arrays are exposed directly for speed and must be treated as read only.
+ */
+public class CompactScenario {
+    public final int[] transmitterId;
+    public final int[] transmitterX;
+    public final int[] transmitterY;
+    public final int[] transmitterPower;
+    public final int[] receiverId;
+    public final int[] receiverX;
+    public final int[] receiverY;
+
+    private final Scenario source;
+
+    public CompactScenario(int[] transmitterId, int[] transmitterX, int[] transmitterY, int[] transmitterPower,
+                           int[] receiverId, int[] receiverX, int[] receiverY) {
+        this(transmitterId, transmitterX, transmitterY, transmitterPower, receiverId, receiverX, receiverY, null);
+    }
+
+    private CompactScenario(int[] transmitterId, int[] transmitterX, int[] transmitterY, int[] transmitterPower,
+                            int[] receiverId, int[] receiverX, int[] receiverY, Scenario source) {
+        if (transmitterX.length != transmitterId.length || transmitterY.length != transmitterId.length
+                || transmitterPower.length != transmitterId.length) {
+            throw new IllegalArgumentException("Transmitter arrays differ in length");
+        }
+        if (receiverX.length != receiverId.length || receiverY.length != receiverId.length) {
+            throw new IllegalArgumentException("Receiver arrays differ in length");
+        }
+        this.transmitterId = transmitterId;
+        this.transmitterX = transmitterX;
+        this.transmitterY = transmitterY;
+        this.transmitterPower = transmitterPower;
+        this.receiverId = receiverId;
+        this.receiverX = receiverX;
+        this.receiverY = receiverY;
+        this.source = source;
+    }
+
+    /**
+     * Converts a scenario to its compact form. The scenario is remembered so that {@link #toResult(int[])} can reuse
+     * the transmitters whose power does not change.
+     *
+     * @param scenario the scenario
+     * @return the compact scenario
+     */
+    public static CompactScenario of(Scenario scenario) {
+        int transmitters = scenario.transmitters.size();
+        int[] tId = new int[transmitters], tX = new int[transmitters], tY = new int[transmitters],
+                tPower = new int[transmitters];
+        for (int i = 0; i < transmitters; i++) {
+            Transmitter t = scenario.transmitters.get(i);
+            tId[i] = t.id;
+            tX[i] = t.location.x;
+            tY[i] = t.location.y;
+            tPower[i] = t.power;
+        }
+        int receivers = scenario.receivers.size();
+        int[] rId = new int[receivers], rX = new int[receivers], rY = new int[receivers];
+        for (int i = 0; i < receivers; i++) {
+            Receiver r = scenario.receivers.get(i);
+            rId[i] = r.id;
+            rX[i] = r.location.x;
+            rY[i] = r.location.y;
+        }
+        return new CompactScenario(tId, tX, tY, tPower, rId, rX, rY, scenario);
+    }
+
+    /**
+     * Chebyshev distance between two points given as coordinates.
+     *
+     * @param x1 the x coordinate of the first point
+     * @param y1 the y coordinate of the first point
+     * @param x2 the x coordinate of the second point
+     * @param y2 the y coordinate of the second point
+     * @return the distance
+     */
+    public static int chebyshev(int x1, int y1, int x2, int y2) {
+        return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2));
+    }
+
+    public int transmitterCount() {
+        return transmitterId.length;
+    }
+
+    public int receiverCount() {
+        return receiverId.length;
+    }
+
+    /**
+     * Chebyshev distance between a transmitter and a receiver.
+     *
+     * @param transmitter the transmitter index
+     * @param receiver    the receiver index
+     * @return the distance
+     */
+    public int distance(int transmitter, int receiver) {
+        return chebyshev(transmitterX[transmitter], transmitterY[transmitter], receiverX[receiver], receiverY[receiver]);
+    }
+
+    /**
+     * Converts back to a scenario of model objects.
+     *
+     * @return the scenario
+     */
+    public Scenario toScenario() {
+        if (source != null) {
+            return source;
+        }
+        List<Transmitter> transmitters = new ArrayList<>(transmitterCount());
+        for (int i = 0; i < transmitterCount(); i++) {
+            transmitters.add(new Transmitter(transmitterId[i], new Point(transmitterX[i], transmitterY[i]),
+                    transmitterPower[i]));
+        }
+        List<Receiver> receivers = new ArrayList<>(receiverCount());
+        for (int i = 0; i < receiverCount(); i++) {
+            receivers.add(new Receiver(receiverId[i], new Point(receiverX[i], receiverY[i])));
+        }
+        return new Scenario(transmitters, receivers);
+    }
+
+    /**
+     * Builds a result giving each transmitter the matching power, in transmitter order.
+     *
+     * @param powers the new power of each transmitter
+     * @return the result
+     */
+    public Result toResult(int[] powers) {
+        if (powers.length != transmitterCount()) {
+            throw new IllegalArgumentException("Expected " + transmitterCount() + " powers but got " + powers.length);
+        }
+        List<Transmitter> transmitters = new ArrayList<>(powers.length);
+        for (int i = 0; i < powers.length; i++) {
+            Transmitter original = source != null ? source.transmitters.get(i) : null;
+            if (original != null && original.power == powers[i]) {
+                transmitters.add(original);
+            } else {
+                transmitters.add(new Transmitter(transmitterId[i], new Point(transmitterX[i], transmitterY[i]),
+                        powers[i]));
+            }
+        }
+        return new Result(transmitters);
+    }
+
+    /**
+     * Reads the power of each transmitter from a result. Results normally list the transmitters in scenario order;
+     * otherwise they are matched up by id, and transmitters missing from the result keep their original power.
+     *
+     * @param result a result for this scenario
+     * @return the powers, in transmitter order
+     */
+    public int[] powersOf(Result result) {
+        int[] powers = new int[transmitterCount()];
+        boolean sameOrder = result.transmitters.size() == powers.length;
+        for (int i = 0; i < powers.length && sameOrder; i++) {
+            sameOrder = result.transmitters.get(i).id == transmitterId[i];
+            powers[i] = result.transmitters.get(i).power;
+        }
+        if (!sameOrder) {
+            Map<Integer, Integer> byId = new HashMap<>();
+            for (Transmitter t : result.transmitters) {
+                byId.put(t.id, t.power);
+            }
+            for (int i = 0; i < powers.length; i++) {
+                powers[i] = byId.getOrDefault(transmitterId[i], transmitterPower[i]);
+            }
+        }
+        return powers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        CompactScenario that = (CompactScenario) o;
+
+        return Arrays.equals(transmitterId, that.transmitterId)
+                && Arrays.equals(transmitterX, that.transmitterX)
+                && Arrays.equals(transmitterY, that.transmitterY)
+                && Arrays.equals(transmitterPower, that.transmitterPower)
+                && Arrays.equals(receiverId, that.receiverId)
+                && Arrays.equals(receiverX, that.receiverX)
+                && Arrays.equals(receiverY, that.receiverY);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Arrays.hashCode(transmitterId);
+        result = 31 * result + Arrays.hashCode(transmitterX);
+        result = 31 * result + Arrays.hashCode(transmitterY);
+        result = 31 * result + Arrays.hashCode(transmitterPower);
+        result = 31 * result + Arrays.hashCode(receiverId);
+        result = 31 * result + Arrays.hashCode(receiverX);
+        result = 31 * result + Arrays.hashCode(receiverY);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactScenario{" +
+                "transmitters=" + transmitterCount() +
+                ", receivers=" + receiverCount() +
+                '}';
+    }
+}
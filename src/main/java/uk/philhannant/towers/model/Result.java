@@ -10,9 +10,17 @@ public class Result {
         this.transmitters = transmitters;
     }
 
+    /**
+     * Method used to get the total power of the result, summed on every call as the transmitter list may change.
+     *
+     * @return the total power of all transmitters
+     */
     public int getTotalPower() {
-
-        return transmitters.stream().map(t -> t.power).mapToInt(Integer::intValue).sum();
+        int total = 0;
+        for (Transmitter t : transmitters) {
+            total += t.power;
+        }
+        return total;
     }
 
     @Override
@@ -0,0 +1,88 @@
+package uk.philhannant.towers.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A change to a scenario: towers added or moved, and towers removed, each matched up by id.
+ *
+ * A put tower whose id is already in the scenario replaces that tower in place, which covers moving it or changing
+ * its power; any other put tower is added at the end. Removed ids that are not in the scenario are ignored.
+ */
+public class ScenarioDelta {
+    public final List<Transmitter> putTransmitters;
+    public final Set<Integer> removedTransmitters;
+    public final List<Receiver> putReceivers;
+    public final Set<Integer> removedReceivers;
+
+    public ScenarioDelta(List<Transmitter> putTransmitters, Set<Integer> removedTransmitters,
+                         List<Receiver> putReceivers, Set<Integer> removedReceivers) {
+        this.putTransmitters = putTransmitters;
+        this.removedTransmitters = removedTransmitters;
+        this.putReceivers = putReceivers;
+        this.removedReceivers = removedReceivers;
+    }
+
+    /**
+     * Creates a delta that only adds or moves receivers.
+     *
+     * @param receivers the receivers to put
+     * @return the delta
+     */
+    public static ScenarioDelta putReceivers(List<Receiver> receivers) {
+        return new ScenarioDelta(Collections.emptyList(), Collections.emptySet(), receivers, Collections.emptySet());
+    }
+
+    public boolean isEmpty() {
+        return putTransmitters.isEmpty() && removedTransmitters.isEmpty() && putReceivers.isEmpty()
+                && removedReceivers.isEmpty();
+    }
+
+    /**
+     * Applies the change to a scenario, which is left as it is.
+     *
+     * @param scenario the scenario before the change
+     * @return the scenario after the change, with unchanged towers in their original order
+     */
+    public Scenario applyTo(Scenario scenario) {
+        return new Scenario(apply(scenario.transmitters, putTransmitters, removedTransmitters),
+                apply(scenario.receivers, putReceivers, removedReceivers));
+    }
+
+    private static <T extends Tower> List<T> apply(List<T> towers, List<T> put, Set<Integer> removed) {
+        if (put.isEmpty() && removed.isEmpty()) {
+            return towers;
+        }
+        Map<Integer, T> byId = new LinkedHashMap<>();
+        for (T tower : put) {
+            byId.put(tower.id, tower);
+        }
+        List<T> result = new ArrayList<>(towers.size() + put.size());
+        for (T tower : towers) {
+            if (!removed.contains(tower.id)) {
+                T replacement = byId.remove(tower.id);
+                result.add(replacement != null ? replacement : tower);
+            }
+        }
+        for (T tower : byId.values()) {
+            if (!removed.contains(tower.id)) {
+                result.add(tower);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "ScenarioDelta{" +
+                "putTransmitters=" + putTransmitters +
+                ", removedTransmitters=" + removedTransmitters +
+                ", putReceivers=" + putReceivers +
+                ", removedReceivers=" + removedReceivers +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package uk.philhannant.towers.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random island scenarios of a given size, used for benchmarks and larger tests.
+ *
+ * Half of the towers are transmitters and half receivers. The island is sized so that the given density (towers per
+ * unit of area) is met, and transmitter powers are drawn up to twice the average spacing between towers so that a
+ * good share of the receivers start out of range. The same seed always gives the same scenario.
+ */
+public class ScenarioGenerator {
+
+    /**
+     * How the towers are spread over the island.
+     */
+    public enum Layout {
+        /** Towers spread evenly over a square island. */
+        UNIFORM,
+        /** Towers grouped around a number of village centres, roughly fifty towers to a village. */
+        CLUSTERED,
+        /** Towers spread over a long thin island a hundred times longer than it is wide. */
+        CORRIDOR
+    }
+
+    private final Layout layout;
+    private final double density;
+    private final long seed;
+
+    public ScenarioGenerator(Layout layout, double density, long seed) {
+        if (density <= 0) {
+            throw new IllegalArgumentException("Density must be positive but was " + density);
+        }
+        this.layout = layout;
+        this.density = density;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a scenario with the given total number of towers.
+     *
+     * @param towers the number of towers
+     * @return the scenario
+     */
+    public Scenario generate(int towers) {
+        Random random = new Random(seed);
+        double area = Math.max(towers, 1) / density;
+        double width = layout == Layout.CORRIDOR ? Math.sqrt(area * 100) : Math.sqrt(area);
+        double height = area / width;
+        int spacing = (int) Math.max(1, Math.round(Math.sqrt(1 / density)));
+
+        int villages = Math.max(1, towers / 50);
+        double[] villageX = new double[villages];
+        double[] villageY = new double[villages];
+        for (int i = 0; i < villages; i++) {
+            villageX[i] = random.nextDouble() * width;
+            villageY[i] = random.nextDouble() * height;
+        }
+        double spread = Math.sqrt(area / villages) / 4;
+
+        int transmitterCount = towers / 2;
+        List<Transmitter> transmitters = new ArrayList<>(transmitterCount);
+        List<Receiver> receivers = new ArrayList<>(towers - transmitterCount);
+        for (int i = 0; i < towers; i++) {
+            Point location;
+            if (layout == Layout.CLUSTERED) {
+                int village = random.nextInt(villages);
+                location = new Point((int) Math.round(villageX[village] + random.nextGaussian() * spread),
+                        (int) Math.round(villageY[village] + random.nextGaussian() * spread));
+            } else {
+                location = new Point((int) (random.nextDouble() * width), (int) (random.nextDouble() * height));
+            }
+            if (i < transmitterCount) {
+                transmitters.add(new Transmitter(i + 1, location, random.nextInt(2 * spacing + 1)));
+            } else {
+                receivers.add(new Receiver(i - transmitterCount + 1, location));
+            }
+        }
+        return new Scenario(transmitters, receivers);
+    }
+}
@@ -0,0 +1,228 @@
+package uk.philhannant.towers.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A result held as the changes to the scenario it was worked out for: the scenario itself, which is only referenced,
+ * and the position and new power of each transmitter whose power differs from it.
+ *
+ * On large scenarios an optimiser usually raises only a handful of transmitters, so this takes space in proportion
+ * to the change rather than to the scenario. The changes are kept sorted by position, and the total power is worked
+ * out on first use and then kept.
+ */
+public class SparseResult {
+    public final Scenario baseline;
+
+    private final int[] changedIndex;
+    private final int[] changedPower;
+
+    private int totalPower;
+
+    /**
+     * Constructor to instantiate a sparse result.
+     *
+     * @param baseline     the scenario the result is for
+     * @param changedIndex the positions in the scenario transmitter list of the changed transmitters, ascending
+     * @param changedPower the new power of each changed transmitter
+     */
+    public SparseResult(Scenario baseline, int[] changedIndex, int[] changedPower) {
+        if (changedIndex.length != changedPower.length) {
+            throw new IllegalArgumentException("Changed positions and powers differ in length");
+        }
+        for (int k = 0; k < changedIndex.length; k++) {
+            if (changedIndex[k] < 0 || changedIndex[k] >= baseline.transmitters.size()
+                    || (k > 0 && changedIndex[k] <= changedIndex[k - 1])) {
+                throw new IllegalArgumentException("Changed positions must be ascending transmitter positions");
+            }
+        }
+        this.baseline = baseline;
+        this.changedIndex = changedIndex;
+        this.changedPower = changedPower;
+    }
+
+    /**
+     * Method used to build the sparse form of a result. Results normally list the transmitters in scenario order;
+     * otherwise they are matched up by id, and transmitters missing from the result keep their original power.
+     *
+     * @param baseline the scenario the result is for
+     * @param result   the result
+     * @return the sparse result
+     */
+    public static SparseResult of(Scenario baseline, Result result) {
+        List<Transmitter> original = baseline.transmitters;
+        boolean sameOrder = result.transmitters.size() == original.size();
+        for (int i = 0; i < original.size() && sameOrder; i++) {
+            sameOrder = result.transmitters.get(i).id == original.get(i).id;
+        }
+        int[] powers = new int[original.size()];
+        if (sameOrder) {
+            for (int i = 0; i < powers.length; i++) {
+                powers[i] = result.transmitters.get(i).power;
+            }
+        } else {
+            Map<Integer, Integer> byId = new HashMap<>();
+            for (Transmitter t : result.transmitters) {
+                byId.put(t.id, t.power);
+            }
+            for (int i = 0; i < powers.length; i++) {
+                powers[i] = byId.getOrDefault(original.get(i).id, original.get(i).power);
+            }
+        }
+        return of(baseline, powers);
+    }
+
+    /**
+     * Method used to build a sparse result from the power of every transmitter.
+     *
+     * @param baseline the scenario the result is for
+     * @param powers   the new power of each transmitter, in scenario order
+     * @return the sparse result
+     */
+    public static SparseResult of(Scenario baseline, int[] powers) {
+        List<Transmitter> original = baseline.transmitters;
+        if (powers.length != original.size()) {
+            throw new IllegalArgumentException("Expected " + original.size() + " powers but got " + powers.length);
+        }
+        int changed = 0;
+        for (int i = 0; i < powers.length; i++) {
+            if (powers[i] != original.get(i).power) {
+                changed++;
+            }
+        }
+        int[] index = new int[changed];
+        int[] power = new int[changed];
+        changed = 0;
+        for (int i = 0; i < powers.length; i++) {
+            if (powers[i] != original.get(i).power) {
+                index[changed] = i;
+                power[changed++] = powers[i];
+            }
+        }
+        return new SparseResult(baseline, index, power);
+    }
+
+    /**
+     * Method used to build a sparse result for a compact scenario, whose original scenario becomes the baseline.
+     *
+     * @param scenario the compact scenario
+     * @param powers   the new power of each transmitter, in transmitter order
+     * @return the sparse result
+     */
+    public static SparseResult of(CompactScenario scenario, int[] powers) {
+        return of(scenario.toScenario(), powers);
+    }
+
+    public int changedCount() {
+        return changedIndex.length;
+    }
+
+    /**
+     * Method used to get the position in the scenario transmitter list of a changed transmitter.
+     *
+     * @param k the change, from 0 to {@link #changedCount()}
+     * @return the transmitter position
+     */
+    public int changedIndex(int k) {
+        return changedIndex[k];
+    }
+
+    /**
+     * Method used to get the id of a changed transmitter.
+     *
+     * @param k the change, from 0 to {@link #changedCount()}
+     * @return the transmitter id
+     */
+    public int changedId(int k) {
+        return baseline.transmitters.get(changedIndex[k]).id;
+    }
+
+    /**
+     * Method used to get the new power of a changed transmitter.
+     *
+     * @param k the change, from 0 to {@link #changedCount()}
+     * @return the new power
+     */
+    public int changedPower(int k) {
+        return changedPower[k];
+    }
+
+    /**
+     * Method used to get the power of any transmitter in the result.
+     *
+     * @param transmitter the position in the scenario transmitter list
+     * @return the new power if the transmitter changed, otherwise its original power
+     */
+    public int power(int transmitter) {
+        int k = Arrays.binarySearch(changedIndex, transmitter);
+        return k >= 0 ? changedPower[k] : baseline.transmitters.get(transmitter).power;
+    }
+
+    /**
+     * Method used to get the total power of the result, summing the baseline once and adding the changes. The total
+     * is kept in a single field, zero meaning not yet summed, so threads racing on the first call at worst each sum
+     * it.
+     *
+     * @return the total power of all transmitters
+     */
+    public int getTotalPower() {
+        int total = totalPower;
+        if (total == 0) {
+            for (Transmitter t : baseline.transmitters) {
+                total += t.power;
+            }
+            for (int k = 0; k < changedIndex.length; k++) {
+                total += changedPower[k] - baseline.transmitters.get(changedIndex[k]).power;
+            }
+            totalPower = total;
+        }
+        return total;
+    }
+
+    /**
+     * Method used to convert to a full result, sharing the unchanged transmitters with the baseline.
+     *
+     * @return the result, with the transmitters in scenario order
+     */
+    public Result toResult() {
+        if (changedIndex.length == 0) {
+            return new Result(baseline.transmitters);
+        }
+        List<Transmitter> transmitters = new ArrayList<>(baseline.transmitters);
+        for (int k = 0; k < changedIndex.length; k++) {
+            Transmitter original = transmitters.get(changedIndex[k]);
+            transmitters.set(changedIndex[k], new Transmitter(original.id, original.location, changedPower[k]));
+        }
+        return new Result(transmitters);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SparseResult that = (SparseResult) o;
+
+        return baseline.equals(that.baseline) && Arrays.equals(changedIndex, that.changedIndex)
+                && Arrays.equals(changedPower, that.changedPower);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = baseline.hashCode();
+        result = 31 * result + Arrays.hashCode(changedIndex);
+        result = 31 * result + Arrays.hashCode(changedPower);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SparseResult{" +
+                "transmitters=" + baseline.transmitters.size() +
+                ", changed=" + changedIndex.length +
+                '}';
+    }
+}
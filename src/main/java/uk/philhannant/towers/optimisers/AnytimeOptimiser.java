@@ -0,0 +1,38 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Scenario;
+
+/**
+ * A power optimiser that can be stopped early and still return the best result found so far.
+ *
+ * While it runs the result only ever improves, so a caller chooses between latency and quality through the token it
+ * passes in.
+ */
+public interface AnytimeOptimiser extends PowerOptimiser {
+    /**
+     * Optimises until the best result is proven or the token is cancelled, whichever comes first.
+     *
+     * @param scenario the scenario
+     * @param token    the token checked while optimising
+     * @return the best result found, with a lower bound on the optimum
+     */
+    AnytimeResult optimise(Scenario scenario, CancellationToken token);
+
+    /**
+     * Optimises alongside other optimisers, offering each improvement to an incumbent they share. An optimiser that
+     * cannot prune against the incumbent just offers its final result.
+     *
+     * If the incumbent is better than anything this optimiser finds, the result returned is its own best one, but
+     * the lower bound may still prove the incumbent optimal.
+     *
+     * @param scenario  the scenario
+     * @param token     the token checked while optimising
+     * @param incumbent the incumbent shared with the other optimisers
+     * @return the best result this optimiser found, with a lower bound on the optimum
+     */
+    default AnytimeResult optimise(Scenario scenario, CancellationToken token, SharedIncumbent incumbent){
+        AnytimeResult result = optimise(scenario, token);
+        incumbent.offer(result.result);
+        return result;
+    }
+}
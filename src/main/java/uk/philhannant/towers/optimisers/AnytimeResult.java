@@ -0,0 +1,38 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Result;
+
+/**
+ * The outcome of an anytime optimisation: the best feasible result found before it stopped, together with a proven
+ * lower bound on the total power of any feasible result.
+ */
+public class AnytimeResult {
+    public final Result result;
+    public final int lowerBound;
+    public final boolean optimal;
+
+    public AnytimeResult(Result result, int lowerBound, boolean optimal) {
+        this.result = result;
+        this.lowerBound = optimal ? result.getTotalPower() : lowerBound;
+        this.optimal = optimal;
+    }
+
+    /**
+     * The optimality gap, as the share of the result's total power that may be above the optimum.
+     *
+     * @return the gap, between zero for a proven optimal result and one
+     */
+    public double getGap() {
+        int totalPower = result.getTotalPower();
+        return totalPower <= 0 ? 0 : Math.max(0, (double) (totalPower - lowerBound) / totalPower);
+    }
+
+    @Override
+    public String toString() {
+        return "AnytimeResult{" +
+                "totalPower=" + result.getTotalPower() +
+                ", lowerBound=" + lowerBound +
+                ", optimal=" + optimal +
+                '}';
+    }
+}
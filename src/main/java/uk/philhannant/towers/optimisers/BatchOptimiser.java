@@ -0,0 +1,127 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Optimises many independent scenarios in parallel on a fork join pool.
+ *
+ * The batch is split in halves recursively down to single scenarios, so idle workers steal whole sub-ranges from
+ * busy ones and a few slow scenarios do not hold up the rest. A scenario that makes the optimiser fail gets a failed
+ * {@link BatchOutcome} and does not affect the others. The optimiser is shared between the workers, so it must be
+ * safe to call from several threads at once; the optimisers in this package keep all their state per call.
+ */
+public class BatchOptimiser implements AutoCloseable {
+    private final PowerOptimiser optimiser;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Constructor to instantiate a batch optimiser with its own pool, one worker per available processor.
+     *
+     * @param optimiser the optimiser run on each scenario
+     */
+    public BatchOptimiser(PowerOptimiser optimiser){
+        this(optimiser, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor to instantiate a batch optimiser with its own pool of the given size.
+     *
+     * @param optimiser   the optimiser run on each scenario
+     * @param parallelism the number of worker threads
+     */
+    public BatchOptimiser(PowerOptimiser optimiser, int parallelism){
+        this(optimiser, new ForkJoinPool(parallelism), true);
+    }
+
+    /**
+     * Constructor to instantiate a batch optimiser running on an existing pool, which is left open on close.
+     *
+     * @param optimiser the optimiser run on each scenario
+     * @param pool      the pool to run on
+     */
+    public BatchOptimiser(PowerOptimiser optimiser, ForkJoinPool pool){
+        this(optimiser, pool, false);
+    }
+
+    private BatchOptimiser(PowerOptimiser optimiser, ForkJoinPool pool, boolean ownsPool){
+        this.optimiser = optimiser;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * Optimises every scenario, returning the outcomes in the iteration order of the scenarios.
+     *
+     * @param scenarios the scenarios
+     * @return the outcome for each scenario
+     */
+    public List<BatchOutcome> optimiseAll(Collection<Scenario> scenarios){
+        Scenario[] batch = scenarios.toArray(new Scenario[0]);
+        BatchOutcome[] outcomes = new BatchOutcome[batch.length];
+        if(batch.length > 0){
+            pool.invoke(new Slice(batch, outcomes, 0, batch.length));
+        }
+        return new ArrayList<>(Arrays.asList(outcomes));
+    }
+
+    /**
+     * Method used to optimise a single scenario, turning a failure into a failed outcome.
+     *
+     * @param scenario the scenario
+     * @return the outcome
+     */
+    BatchOutcome optimiseOne(Scenario scenario){
+        try {
+            return BatchOutcome.success(scenario, optimiser.optimise(scenario));
+        } catch (RuntimeException | StackOverflowError e) {
+            return BatchOutcome.failure(scenario, e);
+        }
+    }
+
+    /**
+     * Shuts the pool down if it was created by this batch optimiser.
+     */
+    @Override
+    public void close(){
+        if(ownsPool){
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * A contiguous range of the batch, split in two until it holds a single scenario.
+     */
+    private final class Slice extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Scenario[] batch;
+        private final BatchOutcome[] outcomes;
+        private final int from;
+        private final int to;
+
+        Slice(Scenario[] batch, BatchOutcome[] outcomes, int from, int to){
+            this.batch = batch;
+            this.outcomes = outcomes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from == 1){
+                outcomes[from] = optimiseOne(batch[from]);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Slice(batch, outcomes, from, mid), new Slice(batch, outcomes, mid, to));
+            }
+        }
+    }
+}
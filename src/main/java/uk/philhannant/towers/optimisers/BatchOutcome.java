@@ -0,0 +1,38 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+/**
+ * The outcome of optimising one scenario in a batch: either the result, or the error the optimiser failed with.
+ */
+public class BatchOutcome {
+    public final Scenario scenario;
+    public final Result result;
+    public final Throwable error;
+
+    private BatchOutcome(Scenario scenario, Result result, Throwable error) {
+        this.scenario = scenario;
+        this.result = result;
+        this.error = error;
+    }
+
+    public static BatchOutcome success(Scenario scenario, Result result) {
+        return new BatchOutcome(scenario, result, null);
+    }
+
+    public static BatchOutcome failure(Scenario scenario, Throwable error) {
+        return new BatchOutcome(scenario, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOutcome{" +
+                (isSuccess() ? "result=" + result : "error=" + error) +
+                '}';
+    }
+}
@@ -0,0 +1,444 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.ReceiverDistanceIndex;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.Arrays;
+
+/**
+ * Exact power optimiser using a depth first branch and bound search over the power level of each transmitter.
+ *
+ * The only power levels worth trying for a transmitter are its original power and the Chebyshev distances to the
+ * receivers that are out of range. The search repeatedly picks an uncovered receiver and branches on which
+ * transmitter is raised to cover it, cheapest first. Once a transmitter has been tried for a receiver, the sibling
+ * branches are not allowed to raise it that far again, so no power assignment is visited twice. A branch is pruned
+ * as soon as the power spent so far plus a lower bound on the power still needed cannot beat the best result found
+ * so far (the incumbent).
+ *
+ * Two lower bounds are used. The cheap one sums the cheapest raise of receivers that no single transmitter can cover
+ * together. The stronger one is the {@link SetCoverBound} dual ascent on the set cover relaxation: each receiver is
+ * given a price, and the prices of the receivers a transmitter covers at any power level may never exceed the cost of
+ * that level.
+ *
+ * The search can also be run as an anytime optimiser. It then stops when its token is cancelled and returns the best
+ * incumbent so far, together with the bound worked out at the root of the search. Run alongside other optimisers it
+ * also prunes against the {@link SharedIncumbent} they share, and offers its own incumbents to it.
+ *
+ * Each search reports its phase timings and counters to an {@link OptimiserListener}: the branches tried, the
+ * distances worked out and the receivers whose coverage was checked or updated, counted as the search goes.
+ */
+public class BranchAndBoundOptimiser implements AnytimeOptimiser {
+
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a new branch and bound optimiser.
+     */
+    public BranchAndBoundOptimiser(){
+        this(OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a new branch and bound optimiser reporting the statistics of every search to a
+     * listener.
+     *
+     * @param listener the listener, called once per scenario
+     */
+    public BranchAndBoundOptimiser(OptimiserListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, searches for the power assignment with the minimal total power that brings every receiver
+     * into range. If all receivers are already in range the original transmitters are returned.
+     *
+     * @param scenario the scenario
+     * @return the result with the lowest possible total power
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        return optimise(scenario, new CancellationToken()).result;
+    }
+
+    /**
+     * Optimise method, searching until the best power assignment is proven or the token is cancelled. A feasible
+     * result is returned even if the token is already cancelled on entry.
+     *
+     * @param scenario the scenario
+     * @param token    the token checked at every node of the search
+     * @return the best result found, with a lower bound on the optimum
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+        return optimise(scenario, token, new SharedIncumbent());
+    }
+
+    /**
+     * Optimise method, searching until the best power assignment is proven or the token is cancelled, pruning
+     * against a shared incumbent as well as its own. A search that completes proves that nothing beats the better
+     * of the two, so its lower bound is then that total power even if the incumbent was found elsewhere.
+     *
+     * @param scenario  the scenario
+     * @param token     the token checked at every node of the search
+     * @param incumbent the incumbent shared with other optimisers, checked at every node
+     * @return the best result this search found, with a lower bound on the optimum
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token, SharedIncumbent incumbent) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        int originalPower = 0;
+        for(int power: compact.transmitterPower){
+            originalPower += power;
+        }
+        TransmitterIndex transmitterIndex = TransmitterIndex.of(compact, stats.isCounted());
+        int[] outOfRange = transmitterIndex.unreached(compact.receiverX, compact.receiverY);
+        stats.addCoverageChecks(compact.receiverCount());
+        stats.addChebyshevEvaluations(transmitterIndex.distanceEvaluations());
+        time = stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        if(outOfRange.length == 0) {
+            Result result = new Result(scenario.transmitters);
+            incumbent.offer(result);
+            listener.scenarioOptimised(scenario, stats);
+            return new AnytimeResult(result, result.getTotalPower(), true);
+        }
+        Search search = new Search(compact, outOfRange, token, incumbent, originalPower);
+        time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        int[] levels = search.solve();
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = compact.toResult(levels);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        search.report(stats);
+        listener.scenarioOptimised(scenario, stats);
+        int limit = search.limit();
+        if(search.stopped){
+            return new AnytimeResult(result, originalPower + search.rootBound, search.rootBound >= search.bestCost);
+        }
+        return new AnytimeResult(result, originalPower + limit, search.bestCost <= limit);
+    }
+
+    /**
+     * The state of a single branch and bound search, built from the compact form of the scenario. Only the receivers
+     * that are out of range at the original powers take part in the search, found with a {@link TransmitterIndex};
+     * their distances are held in a receiver by transmitter matrix, and in a {@link ReceiverDistanceIndex} so that
+     * changing the level of a transmitter only visits the receivers it gains or loses. Everything is allocated up
+     * front, so the search itself only allocates when it finds a new incumbent.
+     */
+    private static final class Search {
+        private final int transmitterCount;
+        private final int receiverCount;
+        private final int[][] distance;
+        private final ReceiverDistanceIndex index;
+        private final int[] level;
+        private final int[] cap;
+        private final int[] coverCount;
+        private int uncovered;
+
+        private int bestCost;
+        private int[] bestLevel;
+
+        private final int[] mark;
+        private int stamp;
+        private final long[] order;
+        private final long[] dualOrder;
+        private final long[][] options;
+
+        private final SetCoverBound dual;
+
+        private final CancellationToken token;
+        private final SharedIncumbent incumbent;
+        private final int originalPower;
+        private final CompactScenario scenario;
+        private boolean stopped;
+        private int rootBound;
+        private int branch;
+
+        private long branchesTried;
+        private long distanceEvaluations;
+        private long coverageChecks;
+        private int peakOptions;
+
+        Search(CompactScenario scenario, int[] outOfRange, CancellationToken token, SharedIncumbent incumbent,
+               int originalPower){
+            this.scenario = scenario;
+            this.token = token;
+            this.incumbent = incumbent;
+            this.originalPower = originalPower;
+            transmitterCount = scenario.transmitterCount();
+            level = scenario.transmitterPower.clone();
+            cap = new int[transmitterCount];
+            Arrays.fill(cap, Integer.MAX_VALUE);
+            receiverCount = outOfRange.length;
+            distance = new int[receiverCount][transmitterCount];
+            for(int r = 0; r < receiverCount; r++){
+                for(int t = 0; t < transmitterCount; t++){
+                    distance[r][t] = scenario.distance(t, outOfRange[r]);
+                }
+                distanceEvaluations += transmitterCount;
+            }
+            coverCount = new int[receiverCount];
+            uncovered = receiverCount;
+            mark = new int[transmitterCount];
+            order = new long[receiverCount];
+            dualOrder = new long[receiverCount];
+            options = new long[receiverCount][];
+
+            index = ReceiverDistanceIndex.of(scenario, outOfRange);
+            // the index fills a full distance matrix of its own through the kernel
+            distanceEvaluations += (long) receiverCount * transmitterCount;
+            dual = new SetCoverBound(index, transmitterCount);
+        }
+
+        /**
+         * Adds the counters of the search to the statistics of the scenario.
+         */
+        void report(OptimiserStats stats){
+            stats.addCandidatesTried(branchesTried);
+            stats.addChebyshevEvaluations(distanceEvaluations);
+            stats.addCoverageChecks(coverageChecks);
+            stats.candidateListSize(peakOptions);
+        }
+
+        /**
+         * Runs the search, seeded with a greedy incumbent, until it completes or the token is cancelled.
+         *
+         * @return the best power level of each transmitter found, optimal unless the search was stopped
+         */
+        int[] solve(){
+            if(transmitterCount == 0){
+                throw new IllegalArgumentException("Receivers cannot be brought into range without transmitters");
+            }
+            greedyIncumbent();
+            rootBound = rootBound();
+            if(rootBound < limit()){
+                search(0, 0);
+            }
+            return bestLevel;
+        }
+
+        /**
+         * Lower bound on the extra power needed by any solution, from both bounds at the root. The bounds only look
+         * at levels that could beat the greedy incumbent, so when no such level exists the incumbent is optimal.
+         */
+        private int rootBound(){
+            int budget = bestCost - 1;
+            int count = budget > 0 ? collect(budget) : -1;
+            if(count < 0){
+                return bestCost;
+            }
+            return Math.min(bestCost, Math.max(lowerBound(count, budget), dualBound(count, budget)));
+        }
+
+        /**
+         * Covers each receiver in turn with its cheapest transmitter, giving a feasible first incumbent.
+         */
+        private void greedyIncumbent(){
+            int cost = 0;
+            int[] original = level.clone();
+            for(int r = 0; r < receiverCount; r++){
+                if(coverCount[r] == 0){
+                    int bestT = 0;
+                    for(int t = 1; t < transmitterCount; t++){
+                        if(distance[r][t] - level[t] < distance[r][bestT] - level[bestT]){
+                            bestT = t;
+                        }
+                    }
+                    cost += distance[r][bestT] - level[bestT];
+                    setLevel(bestT, distance[r][bestT]);
+                }
+            }
+            bestCost = cost;
+            bestLevel = level.clone();
+            offer();
+            for(int t = 0; t < transmitterCount; t++){
+                setLevel(t, original[t]);
+            }
+        }
+
+        /**
+         * The extra power a solution must stay below to be of interest: below both the own incumbent and the shared
+         * one.
+         */
+        int limit(){
+            return Math.min(bestCost, incumbent.getTotalPower() - originalPower);
+        }
+
+        private void offer(){
+            if(originalPower + bestCost < incumbent.getTotalPower()){
+                incumbent.offer(scenario.toResult(bestLevel));
+            }
+        }
+
+        /**
+         * Changes the level of a transmitter, updating the coverage count of every receiver whose distance lies
+         * between the old and the new level, found as a run of the transmitter's sorted list.
+         */
+        private void setLevel(int t, int newLevel){
+            int oldLevel = level[t];
+            if(newLevel > oldLevel){
+                int start = index.countWithin(t, oldLevel);
+                int end = index.countWithin(t, newLevel);
+                for(int rank = start; rank < end; rank++){
+                    if(coverCount[index.receiver(t, rank)]++ == 0){
+                        uncovered--;
+                    }
+                }
+                coverageChecks += end - start;
+            } else {
+                int start = index.countWithin(t, newLevel);
+                int end = index.countWithin(t, oldLevel);
+                for(int rank = start; rank < end; rank++){
+                    if(--coverCount[index.receiver(t, rank)] == 0){
+                        uncovered++;
+                    }
+                }
+                coverageChecks += end - start;
+            }
+            level[t] = newLevel;
+        }
+
+        private void search(int cost, int depth){
+            if(stopped || (stopped = token.isCancelled())){
+                return;
+            }
+            if(uncovered == 0){
+                if(cost < bestCost){
+                    bestCost = cost;
+                    bestLevel = level.clone();
+                    offer();
+                }
+                return;
+            }
+            int limit = limit();
+            int budget = limit - cost - 1;
+            if(budget <= 0){
+                return;
+            }
+
+            // bound: every uncovered receiver needs at least one transmitter raise within the budget
+            int count = collect(budget);
+            if(count < 0 || lowerBound(count, budget) > budget || dualBound(count, budget) > budget){
+                return;
+            }
+            int branch = this.branch;
+
+            // branch: cover the chosen receiver with each allowed transmitter, cheapest first
+            long[] branchOrder = options[depth];
+            if(branchOrder == null){
+                branchOrder = options[depth] = new long[transmitterCount];
+            }
+            int optionCount = 0;
+            for(int t = 0; t < transmitterCount; t++){
+                int d = distance[branch][t];
+                if(d <= cap[t] && d - level[t] <= budget){
+                    branchOrder[optionCount++] = ((long) (d - level[t]) << 32) | t;
+                }
+            }
+            Arrays.sort(branchOrder, 0, optionCount);
+            peakOptions = Math.max(peakOptions, optionCount);
+            int tried = 0;
+            for(; tried < optionCount; tried++){
+                int t = (int) branchOrder[tried];
+                int increase = (int) (branchOrder[tried] >>> 32);
+                if(cost + increase >= limit){
+                    break;
+                }
+                branchesTried++;
+                int oldLevel = level[t];
+                setLevel(t, distance[branch][t]);
+                search(cost + increase, depth + 1);
+                setLevel(t, oldLevel);
+                // siblings must leave this receiver to the remaining transmitters
+                branchOrder[tried] = ((long) cap[t] << 32) | t;
+                cap[t] = distance[branch][t] - 1;
+            }
+            for(int i = tried - 1; i >= 0; i--){
+                cap[(int) branchOrder[i]] = (int) (branchOrder[i] >>> 32);
+            }
+        }
+
+        /**
+         * Lists the cheapest raise and the number of transmitter options within the budget of every uncovered
+         * receiver, for the bounds, and picks the receiver with the fewest options to branch on.
+         *
+         * @return the number of uncovered receivers, or -1 if one of them has no option left
+         */
+        private int collect(int budget){
+            int branchOptions = Integer.MAX_VALUE;
+            int branchMin = 0;
+            int count = 0;
+            for(int r = 0; r < receiverCount; r++){
+                if(coverCount[r] != 0){
+                    continue;
+                }
+                int minIncrease = Integer.MAX_VALUE;
+                int optionCount = 0;
+                for(int t = 0; t < transmitterCount; t++){
+                    int d = distance[r][t];
+                    if(d <= cap[t] && d - level[t] <= budget){
+                        optionCount++;
+                        minIncrease = Math.min(minIncrease, d - level[t]);
+                    }
+                }
+                if(optionCount == 0){
+                    coverageChecks += r + 1;
+                    return -1;
+                }
+                if(optionCount < branchOptions || (optionCount == branchOptions && minIncrease > branchMin)){
+                    branch = r;
+                    branchOptions = optionCount;
+                    branchMin = minIncrease;
+                }
+                order[count] = ((long) minIncrease << 32) | r;
+                dualOrder[count++] = ((long) optionCount << 32) | r;
+            }
+            coverageChecks += receiverCount;
+            return count;
+        }
+
+        /**
+         * Lower bound on the extra power needed, found by summing the cheapest raise of uncovered receivers that
+         * share no transmitter able to cover them within the budget. Such receivers must be covered by separate
+         * raises, so their costs add up.
+         */
+        private int lowerBound(int count, int budget){
+            Arrays.sort(order, 0, count);
+            stamp++;
+            int bound = 0;
+            for(int i = count - 1; i >= 0; i--){
+                int r = (int) order[i];
+                boolean disjoint = true;
+                for(int t = 0; t < transmitterCount && disjoint; t++){
+                    int d = distance[r][t];
+                    disjoint = !(d <= cap[t] && d - level[t] <= budget && mark[t] == stamp);
+                }
+                if(disjoint){
+                    for(int t = 0; t < transmitterCount; t++){
+                        int d = distance[r][t];
+                        if(d <= cap[t] && d - level[t] <= budget){
+                            mark[t] = stamp;
+                        }
+                    }
+                    bound += (int) (order[i] >>> 32);
+                    if(bound > budget){
+                        return bound;
+                    }
+                }
+            }
+            return bound;
+        }
+
+        /**
+         * Lower bound on the extra power needed, found by dual ascent on the set cover relaxation. Only power levels
+         * within the budget and below the caps are considered, as no better solution in this branch uses any other.
+         * Receivers with the fewest transmitter options are priced first.
+         */
+        private int dualBound(int count, int budget){
+            return dual.dualAscent(level, cap, budget, dualOrder, count);
+        }
+    }
+}
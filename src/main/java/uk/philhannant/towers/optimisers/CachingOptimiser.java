@@ -0,0 +1,121 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.CanonicalScenario;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Power optimiser decorator that remembers the results of recent scenarios.
+ *
+ * Scenarios are looked up by their {@link CanonicalScenario}, so a scenario that only differs from an earlier one by
+ * a translation, the order of its towers or its ids is answered from the cache. The cached powers are mapped back to
+ * the caller's transmitters, ids and locations. The cache holds a bounded number of scenarios and evicts the least
+ * recently used one when full. It is safe to share between threads; two threads missing on the same scenario at
+ * the same time both run the delegate.
+ *
+ * Each call reports to an {@link OptimiserListener} the time spent on the lookup, in the delegate on a miss and on
+ * mapping the powers back. The delegate reports its own statistics.
+ */
+public class CachingOptimiser implements PowerOptimiser {
+    private final PowerOptimiser delegate;
+    private final Map<CanonicalScenario, int[]> cache;
+    private final OptimiserListener listener;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor to instantiate a caching optimiser.
+     *
+     * @param delegate the optimiser run on a cache miss
+     * @param capacity the largest number of scenarios kept
+     */
+    public CachingOptimiser(PowerOptimiser delegate, int capacity){
+        this(delegate, capacity, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a caching optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param delegate the optimiser run on a cache miss
+     * @param capacity the largest number of scenarios kept
+     * @param listener the listener, called once per scenario
+     */
+    public CachingOptimiser(PowerOptimiser delegate, int capacity, OptimiserListener listener){
+        if(capacity < 1){
+            throw new IllegalArgumentException("Capacity must be at least one but was " + capacity);
+        }
+        this.delegate = delegate;
+        this.listener = listener;
+        this.cache = new LinkedHashMap<CanonicalScenario, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CanonicalScenario, int[]> eldest) {
+                if(size() > capacity){
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Optimise method, answering from the cache when an equivalent scenario has been seen before and running the
+     * delegate otherwise.
+     *
+     * @param scenario the scenario
+     * @return the result
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        CanonicalScenario canonical = CanonicalScenario.of(compact);
+        int[] powers;
+        synchronized (cache) {
+            powers = cache.get(canonical);
+        }
+        time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        Result result;
+        if(powers != null){
+            hits.incrementAndGet();
+            result = compact.toResult(canonical.toOriginalOrder(powers));
+        } else {
+            misses.incrementAndGet();
+            result = delegate.optimise(scenario);
+            time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+            int[] canonicalPowers = canonical.toCanonicalOrder(compact.powersOf(result));
+            synchronized (cache) {
+                cache.put(canonical, canonicalPowers);
+            }
+        }
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getMisses(){
+        return misses.get();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    public int size(){
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+}
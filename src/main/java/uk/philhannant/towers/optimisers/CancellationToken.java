@@ -0,0 +1,74 @@
+package uk.philhannant.towers.optimisers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells a long running optimisation when to stop: either when {@link #cancel()} is called, from any thread, once an
+ * optional deadline has passed, or once it has been checked an optional number of times.
+ *
+ * A search checks its token once per node, so a check budget is a node budget: unlike a deadline it stops the search
+ * at the same point on every run, whatever the load on the machine. A token with a check budget must only be checked
+ * by one thread.
+ */
+public class CancellationToken {
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final long budget;
+    private final boolean hasBudget;
+    private long checks;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructor to instantiate a token without a deadline, only cancelled by {@link #cancel()}.
+     */
+    public CancellationToken(){
+        this(0, false, 0, false);
+    }
+
+    private CancellationToken(long deadline, boolean hasDeadline, long budget, boolean hasBudget){
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.budget = budget;
+        this.hasBudget = hasBudget;
+    }
+
+    /**
+     * Creates a token that cancels itself once the given time has passed from now.
+     *
+     * @param timeout the time allowed
+     * @param unit    the unit of the timeout
+     * @return the token
+     */
+    public static CancellationToken withTimeout(long timeout, TimeUnit unit){
+        return new CancellationToken(System.nanoTime() + unit.toNanos(timeout), true, 0, false);
+    }
+
+    /**
+     * Creates a token that cancels itself once it has been checked the given number of times.
+     *
+     * @param checks the number of checks that find the token not cancelled
+     * @return the token
+     */
+    public static CancellationToken withCheckBudget(long checks){
+        return new CancellationToken(0, false, checks, true);
+    }
+
+    public void cancel(){
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the optimisation should stop.
+     *
+     * @return true once cancelled, past the deadline or out of checks
+     */
+    public boolean isCancelled(){
+        if(!cancelled && hasDeadline && System.nanoTime() - deadline >= 0){
+            cancelled = true;
+        }
+        if(!cancelled && hasBudget && checks++ >= budget){
+            cancelled = true;
+        }
+        return cancelled;
+    }
+}
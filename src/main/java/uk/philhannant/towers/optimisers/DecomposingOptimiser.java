@@ -0,0 +1,530 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.CheapestRaise;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Power optimiser decorator that splits a scenario into independent sub-scenarios, solves each with the delegate and
+ * merges the answers.
+ *
+ * Only the receivers out of range at the original powers take part. They are grouped into clusters, each with an
+ * upper bound on the power needed to cover it on its own, worked out greedily. A transmitter that would have to be
+ * raised by more than that bound to reach a cluster is never worth raising for it, since the cluster could be fixed
+ * more cheaply without it. Likewise a transmitter is only worth raising to serve several clusters at once if its
+ * raise is no more than the sum of their bounds. Clusters that some transmitter could serve together in that way are
+ * merged, and this is repeated until no transmitter can usefully serve more than one cluster. Each cluster then
+ * becomes a sub-scenario holding its receivers and the transmitters that can reach it within its bound.
+ *
+ * With an exact delegate the merged result is still optimal, because an optimal solution never raises a
+ * transmitter for two clusters and so splits into solutions of the sub-scenarios. Finding the clusters compares every
+ * transmitter with every out of range receiver on each round, which is cheap next to an exact search.
+ *
+ * Each call reports the timings and counters of its own work to an {@link OptimiserListener}: finding the out of
+ * range receivers, clustering them, waiting for the delegate and merging. The delegate reports its own.
+ */
+public class DecomposingOptimiser implements PowerOptimiser {
+    private final PowerOptimiser delegate;
+    private final boolean parallel;
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a decomposing optimiser solving the sub-scenarios one after another.
+     *
+     * @param delegate the optimiser used for each sub-scenario
+     */
+    public DecomposingOptimiser(PowerOptimiser delegate){
+        this(delegate, false);
+    }
+
+    /**
+     * Constructor to instantiate a decomposing optimiser.
+     *
+     * @param delegate the optimiser used for each sub-scenario, which must be safe to share between threads when
+     *                 solving in parallel
+     * @param parallel true to solve the sub-scenarios in parallel on the common fork join pool
+     */
+    public DecomposingOptimiser(PowerOptimiser delegate, boolean parallel){
+        this(delegate, parallel, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a decomposing optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param delegate the optimiser used for each sub-scenario, which must be safe to share between threads when
+     *                 solving in parallel
+     * @param parallel true to solve the sub-scenarios in parallel on the common fork join pool
+     * @param listener the listener, called once per scenario
+     */
+    public DecomposingOptimiser(PowerOptimiser delegate, boolean parallel, OptimiserListener listener){
+        this.delegate = delegate;
+        this.parallel = parallel;
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, solving each independent sub-scenario with the delegate. A scenario that does not split is
+     * passed to the delegate whole, and one with every receiver already in range gets the original transmitters.
+     *
+     * @param scenario the scenario
+     * @return the merged result, with the transmitters in scenario order
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        CompactScenario compact = CompactScenario.of(scenario);
+        List<Component> components = components(compact, stats);
+        long time = System.nanoTime();
+        Result result;
+        if(components.isEmpty()){
+            result = new Result(scenario.transmitters);
+        } else if(components.size() == 1){
+            result = delegate.optimise(scenario);
+            stats.lap(OptimiserStats.Phase.SEARCH, time);
+        } else {
+            Stream<Component> stream = parallel ? components.parallelStream() : components.stream();
+            List<int[]> solutions = stream.map(c -> solve(scenario, c)).collect(Collectors.toList());
+            time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+            result = merge(compact, components, solutions);
+            stats.lap(OptimiserStats.Phase.MERGE, time);
+        }
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    /**
+     * Splits a scenario into its independent sub-scenarios, each holding the original transmitter and receiver
+     * objects in scenario order. Receivers already in range and transmitters that no cluster can use are left out, so
+     * a scenario with every receiver in range gives an empty list.
+     *
+     * @param scenario the scenario
+     * @return the sub-scenarios
+     */
+    public List<Scenario> decompose(Scenario scenario){
+        List<Scenario> scenarios = new ArrayList<>();
+        for(Component component: components(CompactScenario.of(scenario))){
+            scenarios.add(component.toScenario(scenario));
+        }
+        return scenarios;
+    }
+
+    private int[] solve(Scenario scenario, Component component){
+        Scenario sub = component.toScenario(scenario);
+        return CompactScenario.of(sub).powersOf(delegate.optimise(sub));
+    }
+
+    /**
+     * Method used to merge the solutions of the components into one result. A transmitter shared by several
+     * components gets the highest of its powers.
+     *
+     * @param scenario   the compact scenario
+     * @param components the components
+     * @param solutions  the powers of the transmitters of each component, in component order
+     * @return the result, with the transmitters in scenario order
+     */
+    static Result merge(CompactScenario scenario, List<Component> components, List<int[]> solutions){
+        int[] powers = scenario.transmitterPower.clone();
+        for(int i = 0; i < components.size(); i++){
+            int[] transmitters = components.get(i).transmitters;
+            int[] solution = solutions.get(i);
+            for(int j = 0; j < transmitters.length; j++){
+                powers[transmitters[j]] = Math.max(powers[transmitters[j]], solution[j]);
+            }
+        }
+        return scenario.toResult(powers);
+    }
+
+    /**
+     * Method used to find the independent components of a scenario, ordered by their first receiver.
+     *
+     * @param scenario the compact scenario
+     * @return the components
+     */
+    static List<Component> components(CompactScenario scenario){
+        return components(scenario, new OptimiserStats(false));
+    }
+
+    /**
+     * Method used to find the independent components of a scenario, timing the search for the out of range receivers
+     * and the clustering and counting the work they do. The largest number of transmitters in a component is
+     * recorded as the candidate list size.
+     *
+     * @param scenario the compact scenario
+     * @param stats    the statistics of the scenario
+     * @return the components
+     */
+    static List<Component> components(CompactScenario scenario, OptimiserStats stats){
+        long time = System.nanoTime();
+        TransmitterIndex index = TransmitterIndex.of(scenario, stats.isCounted());
+        int[] outOfRange = index.unreached(scenario.receiverX, scenario.receiverY);
+        stats.addCoverageChecks(scenario.receiverCount());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
+        stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        return split(scenario, outOfRange, stats).components;
+    }
+
+    /**
+     * Method used to cluster some of the out of range receivers of a scenario into independent components, as if
+     * they were the only ones, timing the clustering and counting the work it does. Along with the components come
+     * the margins of every transmitter over them.
+     *
+     * @param scenario  the compact scenario
+     * @param receivers the out of range receivers to cluster
+     * @param stats     the statistics of the scenario
+     * @return the components and margins
+     */
+    static Split split(CompactScenario scenario, int[] receivers, OptimiserStats stats){
+        long time = System.nanoTime();
+        Split split;
+        if(receivers.length == 0){
+            split = new Split(Collections.emptyList(), new Margins(scenario.transmitterCount()));
+        } else if(scenario.transmitterCount() == 0){
+            split = new Split(Collections.singletonList(new Component(new int[0], receivers, 0)), new Margins(0));
+        } else {
+            Clustering clustering = new Clustering(scenario, receivers);
+            split = clustering.run();
+            stats.addChebyshevEvaluations(clustering.distanceEvaluations);
+            stats.addCoverageChecks(clustering.coverageChecks);
+        }
+        for(Component component: split.components){
+            stats.candidateListSize(component.transmitters.length);
+        }
+        stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        return split;
+    }
+
+    /**
+     * Method used to find the components one transmitter could usefully serve together: the longest run of them,
+     * ordered by the raise the transmitter needs to reach them, in which the raise to the last is no more than the
+     * sum of their bounds. The margins of the transmitter are filled in as well, and hold when there is no such run.
+     *
+     * @param raise       the raise needed to reach each component, indexed by component
+     * @param bound       the bound of each component, indexed by component
+     * @param order       the components within reach, sorted here by raise
+     * @param count       the number of components within reach
+     * @param outside     the smallest raise to a component out of reach, or {@link Margins#NONE}
+     * @param total       the sum of the bounds of all the components, the raise beyond which they are out of reach
+     * @param margins     the margins to fill in
+     * @param transmitter the transmitter
+     * @return the number of components at the start of the order to merge, or zero if none
+     */
+    static int together(long[] raise, long[] bound, Integer[] order, int count, long outside, long total,
+                        Margins margins, int transmitter){
+        Arrays.sort(order, 0, count, (a, b) -> Long.compare(raise[a], raise[b]));
+        long slack = outside == Margins.NONE ? Margins.NONE : outside - total;
+        long sum = 0;
+        int together = 0;
+        for(int i = 0; i < count; i++){
+            sum += bound[order[i]];
+            if(i > 0){
+                if(raise[order[i]] <= sum){
+                    together = i + 1;
+                }
+                slack = Math.min(slack, raise[order[i]] - sum);
+            }
+        }
+        margins.nearest[transmitter] = count > 0 ? raise[order[0]] : outside;
+        margins.nearestBound[transmitter] = count > 0 ? bound[order[0]] : 0;
+        margins.slack[transmitter] = slack;
+        return together;
+    }
+
+    /**
+     * A sub-scenario, as indexes into the transmitters and receivers of the full scenario, with an upper bound on the
+     * total raise needed to bring its receivers into range on its own.
+     */
+    static final class Component {
+        final int[] transmitters;
+        final int[] receivers;
+        final long bound;
+
+        Component(int[] transmitters, int[] receivers, long bound){
+            this.transmitters = transmitters;
+            this.receivers = receivers;
+            this.bound = bound;
+        }
+
+        Scenario toScenario(Scenario scenario){
+            List<Transmitter> transmitterList = new ArrayList<>(transmitters.length);
+            for(int t: transmitters){
+                transmitterList.add(scenario.transmitters.get(t));
+            }
+            List<Receiver> receiverList = new ArrayList<>(receivers.length);
+            for(int r: receivers){
+                receiverList.add(scenario.receivers.get(r));
+            }
+            return new Scenario(transmitterList, receiverList);
+        }
+    }
+
+    /**
+     * The components of a scenario along with the margins of its transmitters over them.
+     */
+    static final class Split {
+        final List<Component> components;
+        final Margins margins;
+
+        Split(List<Component> components, Margins margins){
+            this.components = components;
+            this.margins = margins;
+        }
+    }
+
+    /**
+     * How far each transmitter is from being worth raising for two components at once, which lets a change to a few
+     * components be checked without comparing every transmitter with every receiver again.
+     *
+     * Transmitter t reaches no component with a raise below nearest[t]. From there on the bounds of the components
+     * it reaches with a raise of at most d add up to no more than the larger of nearestBound[t] and d - slack[t],
+     * and the slack is positive, so with the components ordered by raise the raise to each after the first is more
+     * than the sum of the bounds up to it. Adding components with bounds summing to x, all at a raise of at least m,
+     * therefore leaves every run that mixes old and new components too costly to serve together as long as the
+     * slack is more than x and m is more than nearestBound[t] + x.
+     */
+    static final class Margins {
+        static final long NONE = Long.MAX_VALUE / 4;
+
+        final long[] nearest;
+        final long[] nearestBound;
+        final long[] slack;
+
+        /**
+         * Constructor to instantiate the margins of transmitters that reach no component.
+         *
+         * @param transmitters the number of transmitters
+         */
+        Margins(int transmitters){
+            nearest = new long[transmitters];
+            nearestBound = new long[transmitters];
+            slack = new long[transmitters];
+            Arrays.fill(nearest, NONE);
+            Arrays.fill(slack, NONE);
+        }
+    }
+
+    /**
+     * Clusters the out of range receivers with a union find, starting from one cluster per receiver. The bound of a
+     * freshly merged cluster is the sum of the bounds merged into it until the next round works out a greedy one.
+     */
+    private static final class Clustering {
+        private final CompactScenario scenario;
+        private final int[] receivers;
+        private final int[] parent;
+        private final long[] bound;
+        private final boolean[] stale;
+
+        private final long[] nearest;
+        private final int[] touched;
+        private final Margins margins;
+
+        private long distanceEvaluations;
+        private long coverageChecks;
+
+        Clustering(CompactScenario scenario, int[] receivers){
+            this.scenario = scenario;
+            this.receivers = receivers;
+            parent = new int[receivers.length];
+            bound = new long[receivers.length];
+            stale = new boolean[receivers.length];
+            nearest = new long[receivers.length];
+            touched = new int[receivers.length];
+            margins = new Margins(scenario.transmitterCount());
+            // a single receiver's greedy bound is its cheapest raise, found for all of them at once
+            CheapestRaise cheapest = CheapestRaise.of(scenario, receivers);
+            for(int i = 0; i < receivers.length; i++){
+                parent[i] = i;
+                bound[i] = cheapest.raise(i);
+            }
+            Arrays.fill(nearest, Long.MAX_VALUE);
+        }
+
+        Split run(){
+            List<List<Integer>> usable;
+            do {
+                usable = round();
+            } while(usable == null);
+
+            List<Component> components = new ArrayList<>();
+            for(Map.Entry<Integer, List<Integer>> cluster: clusters().entrySet()){
+                List<Integer> members = cluster.getValue();
+                int[] clusterReceivers = new int[members.size()];
+                for(int i = 0; i < clusterReceivers.length; i++){
+                    clusterReceivers[i] = receivers[members.get(i)];
+                }
+                components.add(new Component(toArray(usable.get(cluster.getKey())), clusterReceivers,
+                        bound[cluster.getKey()]));
+            }
+            return new Split(components, margins);
+        }
+
+        /**
+         * Method used to list the members of each cluster.
+         *
+         * @return the positions in the receiver array of the members of each cluster, keyed by root and ordered by
+         * first member
+         */
+        private Map<Integer, List<Integer>> clusters(){
+            Map<Integer, List<Integer>> clusters = new LinkedHashMap<>();
+            for(int i = 0; i < receivers.length; i++){
+                clusters.computeIfAbsent(find(i), root -> new ArrayList<>()).add(i);
+            }
+            return clusters;
+        }
+
+        /**
+         * Runs one round: brings the bounds of merged clusters up to date, then looks at every transmitter in turn
+         * and merges the clusters it could usefully serve together.
+         *
+         * @return null if anything was merged, otherwise the usable transmitters of each cluster, indexed by root,
+         * with the margins of the last round filled in
+         */
+        private List<List<Integer>> round(){
+            for(Map.Entry<Integer, List<Integer>> cluster: clusters().entrySet()){
+                if(stale[cluster.getKey()]){
+                    bound[cluster.getKey()] = greedyBound(cluster.getValue());
+                    stale[cluster.getKey()] = false;
+                }
+            }
+            long total = 0;
+            for(int i = 0; i < receivers.length; i++){
+                if(parent[i] == i){
+                    total += bound[i];
+                }
+            }
+
+            boolean merged = false;
+            List<List<Integer>> usable = new ArrayList<>(Collections.nCopies(receivers.length, null));
+            Integer[] order = new Integer[receivers.length];
+            for(int t = 0; t < scenario.transmitterCount(); t++){
+                int count = 0;
+                long outside = Margins.NONE;
+                distanceEvaluations += receivers.length;
+                for(int i = 0; i < receivers.length; i++){
+                    long raise = (long) scenario.distance(t, receivers[i]) - scenario.transmitterPower[t];
+                    if(raise <= total){
+                        int root = find(i);
+                        if(nearest[root] == Long.MAX_VALUE){
+                            touched[count++] = root;
+                        }
+                        nearest[root] = Math.min(nearest[root], raise);
+                    } else {
+                        outside = Math.min(outside, raise);
+                    }
+                }
+                for(int i = 0; i < count; i++){
+                    order[i] = touched[i];
+                }
+                int together = together(nearest, bound, order, count, outside, total, margins, t);
+                if(together > 0){
+                    merged = true;
+                    int root = order[0];
+                    for(int i = 1; i < together; i++){
+                        root = union(root, order[i]);
+                    }
+                } else if(!merged){
+                    for(int i = 0; i < count; i++){
+                        int root = order[i];
+                        if(nearest[root] <= bound[root]){
+                            if(usable.get(root) == null){
+                                usable.set(root, new ArrayList<>());
+                            }
+                            usable.get(root).add(t);
+                        }
+                    }
+                }
+                for(int i = 0; i < count; i++){
+                    nearest[touched[i]] = Long.MAX_VALUE;
+                }
+            }
+            return merged ? null : usable;
+        }
+
+        /**
+         * Method used to bound the power needed to cover a cluster on its own, by covering its receivers one at a
+         * time with whichever transmitter needs the smallest raise.
+         *
+         * @param members the positions in the receiver array of the members of the cluster
+         * @return the total raise of the greedy cover
+         */
+        private long greedyBound(List<Integer> members){
+            Map<Integer, Integer> raised = new HashMap<>();
+            long cost = 0;
+            for(int i: members){
+                int r = receivers[i];
+                boolean covered = false;
+                coverageChecks++;
+                for(Map.Entry<Integer, Integer> entry: raised.entrySet()){
+                    distanceEvaluations++;
+                    if(scenario.distance(entry.getKey(), r) <= entry.getValue()){
+                        covered = true;
+                        break;
+                    }
+                }
+                if(covered){
+                    continue;
+                }
+                int best = -1;
+                long bestRaise = Long.MAX_VALUE;
+                for(int t = 0; t < scenario.transmitterCount(); t++){
+                    long raise = (long) scenario.distance(t, r)
+                            - raised.getOrDefault(t, scenario.transmitterPower[t]);
+                    if(raise < bestRaise){
+                        best = t;
+                        bestRaise = raise;
+                    }
+                }
+                raised.put(best, scenario.distance(best, r));
+                distanceEvaluations += scenario.transmitterCount() + 1;
+                cost += bestRaise;
+            }
+            return cost;
+        }
+
+        private int find(int i){
+            while(parent[i] != i){
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        private int union(int a, int b){
+            a = find(a);
+            b = find(b);
+            if(a == b){
+                return a;
+            }
+            int root = Math.min(a, b);
+            int child = Math.max(a, b);
+            parent[child] = root;
+            bound[root] += bound[child];
+            stale[root] = true;
+            return root;
+        }
+
+        private static int[] toArray(List<Integer> list){
+            if(list == null){
+                return new int[0];
+            }
+            int[] array = new int[list.size()];
+            for(int i = 0; i < array.length; i++){
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+    }
+}
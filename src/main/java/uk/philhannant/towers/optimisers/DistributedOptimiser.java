@@ -0,0 +1,403 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.io.ResultReader;
+import uk.philhannant.towers.io.ScenarioWriter;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Power optimiser that coordinates worker processes on the same host, each a JVM of its own with its own heap,
+ * running one of the command line optimisers.
+ *
+ * A scenario is split into the independent components of {@link DecomposingOptimiser}, and each component is sent
+ * to whichever worker is free, largest first. Requests and answers travel over the standard input and output of the
+ * workers in the binary scenario and result formats, one record at a time. The answers are merged back as the
+ * decomposing optimiser does: a transmitter shared by several components gets the highest power any worker gave it,
+ * so with an exact worker optimiser the merged result is still optimal.
+ *
+ * The workers are started by the constructor and stay up until the optimiser is closed. A worker is only taken back
+ * once it has answered cleanly: one that cannot be written to, whose answer ends early or is malformed, or that gives
+ * no answer before the request deadline, is killed and a new worker started in its place, and the component is sent
+ * once more to the next free worker. It is safe to share between threads, as each worker only takes one request at a
+ * time. Each call reports the timings and counters of the splitting, the wait for the workers and the merge to an
+ * {@link OptimiserListener}.
+ */
+public class DistributedOptimiser implements PowerOptimiser, Closeable {
+    private static final String MAIN_CLASS = "uk.philhannant.towers.Main";
+    private static final long EXIT_TIMEOUT = 5;
+    private static final long POLL_INTERVAL = 100;
+    private static final int ATTEMPTS = 2;
+    private static final long REQUEST_TIMEOUT = 10;
+
+    private final List<String> command = new ArrayList<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idle;
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor watchdog;
+    private final long requestTimeout;
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a distributed optimiser whose workers run with the same class path as this JVM.
+     *
+     * @param optimiser the command line name of the optimiser each worker runs
+     * @param workers   the number of worker processes
+     * @throws IOException if a worker cannot be started
+     */
+    public DistributedOptimiser(String optimiser, int workers) throws IOException {
+        this(optimiser, workers, Collections.emptyList());
+    }
+
+    /**
+     * Constructor to instantiate a distributed optimiser.
+     *
+     * @param optimiser  the command line name of the optimiser each worker runs
+     * @param workers    the number of worker processes
+     * @param jvmOptions options passed to each worker JVM, such as its heap size
+     * @throws IOException if a worker cannot be started
+     */
+    public DistributedOptimiser(String optimiser, int workers, List<String> jvmOptions) throws IOException {
+        this(optimiser, workers, jvmOptions, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a distributed optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param optimiser  the command line name of the optimiser each worker runs
+     * @param workers    the number of worker processes
+     * @param jvmOptions options passed to each worker JVM, such as its heap size
+     * @param listener   the listener, called once per scenario
+     * @throws IOException if a worker cannot be started
+     */
+    public DistributedOptimiser(String optimiser, int workers, List<String> jvmOptions, OptimiserListener listener)
+            throws IOException {
+        this(optimiser, workers, jvmOptions, REQUEST_TIMEOUT, TimeUnit.MINUTES, listener);
+    }
+
+    /**
+     * Constructor to instantiate a distributed optimiser with a deadline for every request, reporting the statistics
+     * of every scenario to a listener. A worker that has not answered a request by its deadline is killed and
+     * replaced, and the request is sent once more to the next free worker. The default deadline is ten minutes.
+     *
+     * @param optimiser      the command line name of the optimiser each worker runs
+     * @param workers        the number of worker processes
+     * @param jvmOptions     options passed to each worker JVM, such as its heap size
+     * @param requestTimeout the longest a worker may take over a request, including its start up for the first one
+     * @param unit           the unit of the timeout
+     * @param listener       the listener, called once per scenario
+     * @throws IOException if a worker cannot be started
+     */
+    public DistributedOptimiser(String optimiser, int workers, List<String> jvmOptions, long requestTimeout,
+                                TimeUnit unit, OptimiserListener listener) throws IOException {
+        this.listener = listener;
+        this.requestTimeout = unit.toNanos(requestTimeout);
+        if(workers < 1){
+            throw new IllegalArgumentException("Need at least one worker but got " + workers);
+        }
+        if(requestTimeout <= 0){
+            throw new IllegalArgumentException("Request timeout must be positive but got " + requestTimeout);
+        }
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), MAIN_CLASS, "worker",
+                "--optimiser", optimiser));
+        idle = new ArrayBlockingQueue<>(workers);
+        executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "distributed-optimiser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "distributed-optimiser-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most requests beat their deadline, whose cancelled tasks would otherwise wait in the queue until it passes
+        watchdog.setRemoveOnCancelPolicy(true);
+        try {
+            for(int i = 0; i < workers; i++){
+                idle.add(start());
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Optimise method, solving the components of the scenario on the workers and merging the answers.
+     *
+     * @param scenario the scenario
+     * @return the merged result, with the transmitters in scenario order
+     * @throws UncheckedIOException if a worker cannot be reached
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        CompactScenario compact = CompactScenario.of(scenario);
+        List<DecomposingOptimiser.Component> components = DecomposingOptimiser.components(compact, stats);
+        if(components.isEmpty()){
+            listener.scenarioOptimised(scenario, stats);
+            return new Result(scenario.transmitters);
+        }
+        long time = System.nanoTime();
+        Integer[] order = new Integer[components.size()];
+        for(int i = 0; i < order.length; i++){
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(size(components.get(b)), size(components.get(a))));
+
+        List<Future<int[]>> futures = new ArrayList<>(Collections.nCopies(order.length, null));
+        for(int i: order){
+            Scenario sub = components.get(i).toScenario(scenario);
+            futures.set(i, executor.submit(() -> solve(sub)));
+        }
+        List<int[]> solutions = new ArrayList<>(futures.size());
+        try {
+            for(Future<int[]> future: futures){
+                solutions.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers", e);
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for(Future<int[]> future: futures){
+                future.cancel(false);
+            }
+        }
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = DecomposingOptimiser.merge(compact, components, solutions);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        stats.addCandidatesTried(components.size());
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    private static long size(DecomposingOptimiser.Component component){
+        return (long) component.transmitters.length * component.receivers.length;
+    }
+
+    /**
+     * Method used to solve a sub-scenario on the next free worker, trying again on another worker if the first one
+     * breaks or misses the deadline.
+     *
+     * @param sub the sub-scenario
+     * @return the power of each transmitter of the sub-scenario, in its order
+     */
+    private int[] solve(Scenario sub) throws InterruptedException {
+        for(int attempt = 1; ; attempt++){
+            Worker worker = take();
+            Result result;
+            try {
+                result = worker.solve(sub, requestTimeout, watchdog);
+            } catch (IOException | RuntimeException e) {
+                replace(worker);
+                if(attempt == ATTEMPTS){
+                    throw new UncheckedIOException(new IOException("Workers broke on a sub-scenario of "
+                            + sub.transmitters.size() + " transmitters and " + sub.receivers.size() + " receivers",
+                            e));
+                }
+                continue;
+            }
+            if(worker.expired()){
+                // the deadline passed just as the answer came in, so the worker has been killed after answering
+                replace(worker);
+            } else {
+                idle.put(worker);
+            }
+            if(result == null){
+                throw new IllegalArgumentException("A worker could not optimise a sub-scenario of "
+                        + sub.transmitters.size() + " transmitters and " + sub.receivers.size() + " receivers");
+            }
+            return CompactScenario.of(sub).powersOf(result);
+        }
+    }
+
+    /**
+     * Method used to wait for a free worker.
+     *
+     * @return the worker
+     * @throws IllegalStateException if every worker has broken and none could be started in its place
+     */
+    private Worker take() throws InterruptedException {
+        Worker worker;
+        while((worker = idle.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS)) == null){
+            synchronized(this){
+                if(workers.isEmpty()){
+                    throw new IllegalStateException("No workers left");
+                }
+            }
+        }
+        return worker;
+    }
+
+    /**
+     * Method used to start a worker process.
+     *
+     * @return the worker, not yet free
+     * @throws IOException if the process cannot be started
+     */
+    private synchronized Worker start() throws IOException {
+        Worker worker = new Worker(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+        workers.add(worker);
+        return worker;
+    }
+
+    /**
+     * Method used to kill a broken worker and free a new one in its place, unless the optimiser has been closed.
+     * If the new worker cannot be started there is one worker fewer.
+     */
+    private void replace(Worker broken) throws InterruptedException {
+        Worker worker;
+        synchronized(this){
+            workers.remove(broken);
+            broken.kill();
+            if(executor.isShutdown()){
+                return;
+            }
+            try {
+                worker = start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+        idle.put(worker);
+    }
+
+    /**
+     * Method used to get the worker processes running, for checking on them.
+     *
+     * @return the processes
+     */
+    synchronized List<Process> processes(){
+        List<Process> processes = new ArrayList<>(workers.size());
+        for(Worker worker: workers){
+            processes.add(worker.process);
+        }
+        return processes;
+    }
+
+    /**
+     * Stops the workers, closing their input so they finish and exit, and killing any that do not.
+     */
+    @Override
+    public synchronized void close(){
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+        for(Worker worker: workers){
+            worker.close();
+        }
+    }
+
+    /**
+     * A worker process and the two ends of its pipe.
+     */
+    private static final class Worker {
+        private final Process process;
+        private final ScenarioWriter requests;
+        private ResultReader answers;
+        private boolean waiting;
+        private boolean expired;
+
+        Worker(Process process) throws IOException {
+            this.process = process;
+            requests = ScenarioWriter.of(process.getOutputStream());
+            requests.flush();
+        }
+
+        /**
+         * Method used to send a request and wait for its answer. If the deadline passes first the watchdog kills the
+         * process, which ends the answer early, and the failure is reported as a missed deadline.
+         */
+        Result solve(Scenario scenario, long timeout, ScheduledExecutorService watchdog) throws IOException {
+            synchronized(this){
+                waiting = true;
+            }
+            ScheduledFuture<?> deadline = watchdog.schedule(this::expire, timeout, TimeUnit.NANOSECONDS);
+            try {
+                requests.write(scenario);
+                requests.flush();
+                // the worker writes its header once it has read ours, so the reader is only opened on first use
+                if(answers == null){
+                    answers = ResultReader.of(process.getInputStream());
+                }
+                return answers.next();
+            } catch (IOException | RuntimeException e) {
+                if(expired()){
+                    throw new IOException("Worker gave no answer within " + TimeUnit.NANOSECONDS.toMillis(timeout)
+                            + " ms", e);
+                }
+                throw e;
+            } finally {
+                deadline.cancel(false);
+                synchronized(this){
+                    waiting = false;
+                }
+            }
+        }
+
+        private synchronized void expire(){
+            if(waiting){
+                expired = true;
+                process.destroyForcibly();
+            }
+        }
+
+        synchronized boolean expired(){
+            return expired;
+        }
+
+        void kill(){
+            process.destroyForcibly();
+            close();
+        }
+
+        void close(){
+            try {
+                requests.close();
+            } catch (IOException e) {
+                // the worker has already gone
+            }
+            try {
+                if(!process.waitFor(EXIT_TIMEOUT, TimeUnit.SECONDS)){
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            try {
+                if(answers != null){
+                    answers.close();
+                }
+            } catch (IOException e) {
+                // nothing more to read
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Scenario;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+/**
+ * Optimiser listener that adds the statistics of every scenario to one histogram per metric, so the spread across a
+ * batch can be seen at a glance, including how far the slowest scenarios are from the typical ones.
+ *
+ * Values are counted in power of two buckets, which keeps recording lock free and cheap enough to leave on for whole
+ * batches, at the cost of only knowing each value to within a factor of two.
+ */
+public class HistogramListener implements OptimiserListener {
+
+    /**
+     * The metrics recorded for each scenario.
+     */
+    public enum Metric {
+        TOTAL_NANOS(OptimiserStats::getTotalNanos),
+        OUT_OF_RANGE_NANOS(s -> s.getPhaseNanos(OptimiserStats.Phase.OUT_OF_RANGE)),
+        CANDIDATES_NANOS(s -> s.getPhaseNanos(OptimiserStats.Phase.CANDIDATES)),
+        SEARCH_NANOS(s -> s.getPhaseNanos(OptimiserStats.Phase.SEARCH)),
+        MERGE_NANOS(s -> s.getPhaseNanos(OptimiserStats.Phase.MERGE)),
+        CANDIDATES_TRIED(OptimiserStats::getCandidatesTried),
+        CHEBYSHEV_EVALUATIONS(OptimiserStats::getChebyshevEvaluations),
+        COVERAGE_CHECKS(OptimiserStats::getCoverageChecks),
+        PEAK_CANDIDATES(OptimiserStats::getPeakCandidates);
+
+        private final ToLongFunction<OptimiserStats> value;
+
+        Metric(ToLongFunction<OptimiserStats> value){
+            this.value = value;
+        }
+    }
+
+    private final Map<Metric, Histogram> histograms = new EnumMap<>(Metric.class);
+
+    /**
+     * Constructor to instantiate a listener with empty histograms.
+     */
+    public HistogramListener(){
+        for(Metric metric: Metric.values()){
+            histograms.put(metric, new Histogram());
+        }
+    }
+
+    @Override
+    public void scenarioOptimised(Scenario scenario, OptimiserStats stats) {
+        for(Metric metric: Metric.values()){
+            histograms.get(metric).record(metric.value.applyAsLong(stats));
+        }
+    }
+
+    public Histogram getHistogram(Metric metric){
+        return histograms.get(metric);
+    }
+
+    /**
+     * Method used to write every histogram: a summary line per metric followed by the count in each non empty
+     * bucket.
+     *
+     * @param out where the histograms are written
+     */
+    public void write(PrintStream out){
+        for(Metric metric: Metric.values()){
+            Histogram histogram = histograms.get(metric);
+            out.printf("%s: count %d, mean %.1f, p50 <= %d, p99 <= %d, max %d%n", metric, histogram.count(),
+                    histogram.mean(), histogram.percentile(0.5), histogram.percentile(0.99), histogram.max());
+            long[] buckets = histogram.buckets();
+            for(int b = 0; b < buckets.length; b++){
+                if(buckets[b] > 0){
+                    out.printf("  <= %d: %d%n", Histogram.upperBound(b), buckets[b]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lock free histogram of non negative values. Bucket 0 holds zero and bucket b holds the values from
+     * 2<sup>b-1</sup> to 2<sup>b</sup> - 1.
+     */
+    public static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Method used to add a value to the histogram. Negative values are counted as zero.
+         *
+         * @param value the value
+         */
+        public void record(long value){
+            value = Math.max(0, value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        public long count(){
+            long count = 0;
+            for(int b = 0; b < buckets.length(); b++){
+                count += buckets.get(b);
+            }
+            return count;
+        }
+
+        public long max(){
+            return max.get();
+        }
+
+        public double mean(){
+            long count = count();
+            return count == 0 ? 0 : (double) sum.get() / count;
+        }
+
+        /**
+         * Method used to find an upper bound on a percentile, from the bucket it falls in.
+         *
+         * @param fraction the percentile as a fraction between zero and one
+         * @return the largest value of the bucket holding the percentile, or zero for an empty histogram
+         */
+        public long percentile(double fraction){
+            long[] counts = buckets();
+            long total = 0;
+            for(long count: counts){
+                total += count;
+            }
+            long rank = (long) Math.ceil(fraction * total);
+            long seen = 0;
+            for(int b = 0; b < counts.length; b++){
+                seen += counts[b];
+                if(seen >= rank && seen > 0){
+                    return Math.min(upperBound(b), max());
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Copies the bucket counts.
+         *
+         * @return the number of values in each bucket
+         */
+        public long[] buckets(){
+            long[] counts = new long[buckets.length()];
+            for(int b = 0; b < counts.length; b++){
+                counts[b] = buckets.get(b);
+            }
+            return counts;
+        }
+
+        /**
+         * The largest value that falls in a bucket.
+         *
+         * @param bucket the bucket
+         * @return the largest value of the bucket
+         */
+        public static long upperBound(int bucket){
+            return bucket == 0 ? 0 : bucket == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
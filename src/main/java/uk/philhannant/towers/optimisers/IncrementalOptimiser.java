@@ -0,0 +1,504 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioDelta;
+import uk.philhannant.towers.model.Tower;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Power optimiser for a scenario that changes a few towers at a time, re-solving only the parts a change touches.
+ *
+ * A scenario is split into independent components as in {@link DecomposingOptimiser}, and the components of the
+ * last scenario are remembered along with their solutions and the margins of every transmitter over them. Given a
+ * change, only the components holding a changed tower, or one that a changed transmitter could serve, are split
+ * again, together with the receivers the change leaves out of range, and passed to the delegate. The margins show
+ * which transmitters could make a new component worth merging with an untouched one; only those are compared with
+ * every receiver, and any untouched component they would merge is split again as well. Every other component keeps
+ * its earlier solution. Adding receivers that the previous result already covers needs no work at all, since the
+ * previous result stays feasible and extra receivers can only make the optimum more expensive, so an optimal result
+ * stays optimal.
+ *
+ * The remembered components are those of the last result returned. When {@link #reoptimise} is given some other
+ * scenario or result they are worked out afresh from them, taking the solution of each component from the given
+ * result where that brings its receivers into range, so even a new optimiser reuses the previous result. The
+ * remembered components make this optimiser stateful, so it should not be shared between unrelated scenarios. Its
+ * methods are synchronized.
+ *
+ * Each call reports the timings and counters of its own work to an {@link OptimiserListener}, the delegate reporting
+ * its own, with one candidate tried for every component passed to the delegate.
+ */
+public class IncrementalOptimiser implements PowerOptimiser {
+    private final PowerOptimiser delegate;
+    private final OptimiserListener listener;
+    private State last;
+
+    private long reusedComponents;
+    private long solvedComponents;
+
+    /**
+     * Constructor to instantiate an incremental optimiser.
+     *
+     * @param delegate the optimiser used for each changed component
+     */
+    public IncrementalOptimiser(PowerOptimiser delegate){
+        this(delegate, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate an incremental optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param delegate the optimiser used for each changed component
+     * @param listener the listener, called once per scenario
+     */
+    public IncrementalOptimiser(PowerOptimiser delegate, OptimiserListener listener){
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, solving every component of the scenario and remembering them for the next change.
+     *
+     * @param scenario the scenario
+     * @return the result, with the transmitters in scenario order
+     */
+    @Override
+    public synchronized Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        CompactScenario compact = CompactScenario.of(scenario);
+        DecomposingOptimiser.Split split = DecomposingOptimiser.split(compact, outOfRange(compact, stats), stats);
+        long time = System.nanoTime();
+        List<int[]> solutions = new ArrayList<>(split.components.size());
+        for(DecomposingOptimiser.Component component: split.components){
+            solutions.add(solve(scenario, component, stats));
+        }
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = merge(scenario, compact, split.components, solutions);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        last = new State(scenario, result, split.components, solutions, split.margins);
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    /**
+     * Method used to optimise a scenario after a change, given the scenario before the change and its result. Only
+     * the components the change touches are passed to the delegate.
+     *
+     * @param previous       the scenario before the change
+     * @param previousResult the result for the scenario before the change
+     * @param delta          the change
+     * @return the result for the changed scenario
+     */
+    public synchronized Result reoptimise(Scenario previous, Result previousResult, ScenarioDelta delta){
+        boolean covered = onlyAddsCoveredReceivers(previous, previousResult, delta);
+        boolean remembered = last != null && last.result == previousResult && last.scenario.equals(previous);
+        if(covered && !remembered){
+            return previousResult;
+        }
+        OptimiserStats stats = OptimiserStats.of(listener);
+        State state = remembered ? last : seed(previous, previousResult, stats);
+        Scenario scenario = delta.applyTo(previous);
+        last = update(state, scenario, delta, covered ? previousResult : null, stats);
+        listener.scenarioOptimised(scenario, stats);
+        return last.result;
+    }
+
+    /**
+     * Method used to work out the components of a scenario afresh, taking the solution of each from a result for
+     * the scenario. A component the result does not bring into range with its own transmitters is left without one.
+     */
+    private static State seed(Scenario scenario, Result result, OptimiserStats stats){
+        CompactScenario compact = CompactScenario.of(scenario);
+        DecomposingOptimiser.Split split = DecomposingOptimiser.split(compact, outOfRange(compact, stats), stats);
+        int[] powers = compact.powersOf(result);
+        List<int[]> solutions = new ArrayList<>(split.components.size());
+        for(DecomposingOptimiser.Component component: split.components){
+            solutions.add(restrict(compact, component, powers, stats));
+        }
+        return new State(scenario, result, split.components, solutions, split.margins);
+    }
+
+    /**
+     * Method used to bring the remembered components up to date with a change. The receivers of the components the
+     * change touches and those it leaves out of range are split again, and every transmitter whose margins do not
+     * rule out a merge with an untouched component is compared with every out of range receiver; untouched
+     * components it would merge, or that a changed transmitter could serve, are split again too, until none is.
+     *
+     * @param state    the remembered components of the scenario before the change
+     * @param scenario the scenario after the change
+     * @param delta    the change
+     * @param seed     the result to take the solutions of the new components from, or null to solve them
+     * @param stats    the statistics of the scenario
+     * @return the components of the scenario after the change, with its result
+     */
+    private State update(State state, Scenario scenario, ScenarioDelta delta, Result seed, OptimiserStats stats){
+        CompactScenario compact = CompactScenario.of(scenario);
+        boolean[] changedTransmitters = new boolean[compact.transmitterCount()];
+        int[] transmitterMap = indexMap(state.scenario.transmitters, delta.putTransmitters,
+                delta.removedTransmitters, changedTransmitters);
+        boolean[] changedReceivers = new boolean[compact.receiverCount()];
+        int[] receiverMap = indexMap(state.scenario.receivers, delta.putReceivers, delta.removedReceivers,
+                changedReceivers);
+        int[] previousTransmitter = new int[compact.transmitterCount()];
+        Arrays.fill(previousTransmitter, -1);
+        for(int t = 0; t < transmitterMap.length; t++){
+            if(transmitterMap[t] >= 0 && !changedTransmitters[transmitterMap[t]]){
+                previousTransmitter[transmitterMap[t]] = t;
+            }
+        }
+        int[] outOfRange = outOfRange(compact, stats);
+        boolean[] out = new boolean[compact.receiverCount()];
+        for(int r: outOfRange){
+            out[r] = true;
+        }
+
+        // a component stays as it is while its towers, and the transmitters that could serve it, are unchanged
+        long time = System.nanoTime();
+        List<DecomposingOptimiser.Component> kept = new ArrayList<>();
+        List<int[]> keptSolutions = new ArrayList<>();
+        for(int c = 0; c < state.components.size(); c++){
+            DecomposingOptimiser.Component component = state.components.get(c);
+            int[] transmitters = remap(component.transmitters, transmitterMap, changedTransmitters, null);
+            int[] receivers = remap(component.receivers, receiverMap, changedReceivers, out);
+            if(state.solutions.get(c) != null && transmitters != null && receivers != null){
+                kept.add(new DecomposingOptimiser.Component(transmitters, receivers, component.bound));
+                keptSolutions.add(state.solutions.get(c));
+            }
+        }
+        stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+
+        DecomposingOptimiser.Split split;
+        DecomposingOptimiser.Margins margins;
+        while(true){
+            int[] componentOf = new int[compact.receiverCount()];
+            Arrays.fill(componentOf, -1);
+            for(int c = 0; c < kept.size(); c++){
+                for(int r: kept.get(c).receivers){
+                    componentOf[r] = c;
+                }
+            }
+            int[] free = Arrays.stream(outOfRange).filter(r -> componentOf[r] < 0).toArray();
+            split = DecomposingOptimiser.split(compact, free, stats);
+            if(kept.isEmpty()){
+                margins = split.margins;
+                break;
+            }
+            time = System.nanoTime();
+            List<DecomposingOptimiser.Component> all = new ArrayList<>(kept);
+            all.addAll(split.components);
+            long added = 0;
+            for(int c = kept.size(); c < all.size(); c++){
+                added += all.get(c).bound;
+                for(int r: all.get(c).receivers){
+                    componentOf[r] = c;
+                }
+            }
+            Merges merges = new Merges(compact, outOfRange, componentOf, all, kept.size());
+            margins = new DecomposingOptimiser.Margins(compact.transmitterCount());
+            for(int t = 0; t < compact.transmitterCount(); t++){
+                int p = previousTransmitter[t];
+                if(p < 0 || !combine(state.margins, p, split.margins, t, added, margins)){
+                    merges.check(t, changedTransmitters[t], margins);
+                }
+            }
+            stats.addChebyshevEvaluations(merges.distanceEvaluations);
+            stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+            if(merges.touched.isEmpty()){
+                break;
+            }
+            for(int c = kept.size() - 1; c >= 0; c--){
+                if(merges.touched.contains(c)){
+                    kept.remove(c);
+                    keptSolutions.remove(c);
+                }
+            }
+        }
+
+        List<DecomposingOptimiser.Component> components = new ArrayList<>(kept);
+        components.addAll(split.components);
+        List<int[]> solutions = new ArrayList<>(keptSolutions);
+        time = System.nanoTime();
+        int[] powers = seed != null ? compact.powersOf(seed) : null;
+        for(DecomposingOptimiser.Component component: split.components){
+            solutions.add(powers != null ? restrict(compact, component, powers, stats)
+                    : solve(scenario, component, stats));
+        }
+        reusedComponents += kept.size();
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = seed != null ? seed : merge(scenario, compact, components, solutions);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        return new State(scenario, result, components, solutions, margins);
+    }
+
+    /**
+     * Method used to carry the margins of an unchanged transmitter over to the components after a change, from its
+     * margins over the untouched components and over the new ones, when they show it is not worth raising for an
+     * untouched and a new component at once.
+     *
+     * @param previous   the margins over the components before the change
+     * @param p          the index of the transmitter before the change
+     * @param added      the margins over the new components
+     * @param t          the index of the transmitter after the change
+     * @param addedBound the sum of the bounds of the new components
+     * @param margins    the margins to fill in
+     * @return false if the margins do not rule out a merge, leaving them unset
+     */
+    private static boolean combine(DecomposingOptimiser.Margins previous, int p, DecomposingOptimiser.Margins added,
+                                   int t, long addedBound, DecomposingOptimiser.Margins margins){
+        long nearest = previous.nearest[p];
+        long nearestBound = previous.nearestBound[p];
+        long slack = previous.slack[p];
+        long addedNearest = added.nearest[t];
+        if(slack <= addedBound || addedNearest <= nearestBound + addedBound){
+            return false;
+        }
+        margins.nearest[t] = Math.min(nearest, addedNearest);
+        margins.nearestBound[t] = Math.max(nearestBound, added.nearestBound[t]);
+        margins.slack[t] = Math.min(added.slack[t], Math.min(slack, addedNearest - nearestBound) - addedBound);
+        return true;
+    }
+
+    /**
+     * Method used to map the indexes of towers before a change to their indexes after it, as
+     * {@link ScenarioDelta#applyTo(Scenario)} arranges them, marking the towers the change puts.
+     *
+     * @param towers  the towers before the change
+     * @param put     the towers the change puts
+     * @param removed the ids of the towers the change removes
+     * @param changed set for each tower after the change that it puts
+     * @return the index of each tower after the change, or -1 if it was removed
+     */
+    private static int[] indexMap(List<? extends Tower> towers, List<? extends Tower> put, Set<Integer> removed,
+                                  boolean[] changed){
+        Set<Integer> putIds = new HashSet<>();
+        for(Tower tower: put){
+            putIds.add(tower.id);
+        }
+        int[] map = new int[towers.size()];
+        int next = 0;
+        for(int i = 0; i < map.length; i++){
+            int id = towers.get(i).id;
+            if(removed.contains(id)){
+                map[i] = -1;
+            } else {
+                changed[next] = putIds.contains(id);
+                map[i] = next++;
+            }
+        }
+        Arrays.fill(changed, next, changed.length, true);
+        return map;
+    }
+
+    /**
+     * Method used to map the towers of a component to their indexes after a change.
+     *
+     * @return the indexes, or null if one of the towers changed, was removed or, for receivers, is now in range
+     */
+    private static int[] remap(int[] towers, int[] map, boolean[] changed, boolean[] out){
+        int[] mapped = new int[towers.length];
+        for(int i = 0; i < towers.length; i++){
+            mapped[i] = map[towers[i]];
+            if(mapped[i] < 0 || changed[mapped[i]] || (out != null && !out[mapped[i]])){
+                return null;
+            }
+        }
+        return mapped;
+    }
+
+    private static int[] outOfRange(CompactScenario compact, OptimiserStats stats){
+        long time = System.nanoTime();
+        TransmitterIndex index = TransmitterIndex.of(compact, stats.isCounted());
+        int[] outOfRange = index.unreached(compact.receiverX, compact.receiverY);
+        stats.addCoverageChecks(compact.receiverCount());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
+        stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        return outOfRange;
+    }
+
+    private int[] solve(Scenario scenario, DecomposingOptimiser.Component component, OptimiserStats stats){
+        Scenario sub = component.toScenario(scenario);
+        solvedComponents++;
+        stats.addCandidatesTried(1);
+        return CompactScenario.of(sub).powersOf(delegate.optimise(sub));
+    }
+
+    /**
+     * Method used to take the solution of a component from the powers of a result for the whole scenario.
+     *
+     * @return the powers of the transmitters of the component, or null if they leave one of its receivers out of
+     * range
+     */
+    private static int[] restrict(CompactScenario scenario, DecomposingOptimiser.Component component, int[] powers,
+                                  OptimiserStats stats){
+        int[] solution = new int[component.transmitters.length];
+        List<Integer> raised = new ArrayList<>();
+        for(int i = 0; i < solution.length; i++){
+            int t = component.transmitters[i];
+            solution[i] = powers[t];
+            if(powers[t] > scenario.transmitterPower[t]){
+                raised.add(i);
+            }
+        }
+        for(int r: component.receivers){
+            boolean covered = false;
+            stats.addCoverageChecks(1);
+            for(int i = 0; i < raised.size() && !covered; i++){
+                stats.addChebyshevEvaluations(1);
+                covered = scenario.distance(component.transmitters[raised.get(i)], r) <= solution[raised.get(i)];
+            }
+            if(!covered){
+                return null;
+            }
+        }
+        return solution;
+    }
+
+    private static Result merge(Scenario scenario, CompactScenario compact,
+                                List<DecomposingOptimiser.Component> components, List<int[]> solutions){
+        return components.isEmpty() ? new Result(scenario.transmitters)
+                : DecomposingOptimiser.merge(compact, components, solutions);
+    }
+
+    private static boolean onlyAddsCoveredReceivers(Scenario previous, Result previousResult, ScenarioDelta delta){
+        if(!delta.putTransmitters.isEmpty() || !delta.removedTransmitters.isEmpty()
+                || !delta.removedReceivers.isEmpty()){
+            return false;
+        }
+        Set<Integer> existing = new HashSet<>();
+        for(Receiver r: previous.receivers){
+            existing.add(r.id);
+        }
+        for(Receiver r: delta.putReceivers){
+            if(existing.contains(r.id) || !covered(previousResult.transmitters, r)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean covered(List<Transmitter> transmitters, Receiver receiver){
+        for(Transmitter t: transmitters){
+            if(CompactScenario.chebyshev(t.location.x, t.location.y, receiver.location.x, receiver.location.y)
+                    <= t.power){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of components whose earlier solution was reused.
+     *
+     * @return the count over all calls
+     */
+    public synchronized long getReusedComponents(){
+        return reusedComponents;
+    }
+
+    /**
+     * The number of components passed to the delegate.
+     *
+     * @return the count over all calls
+     */
+    public synchronized long getSolvedComponents(){
+        return solvedComponents;
+    }
+
+    /**
+     * The components of the last scenario, each with its solution, or null for one still to be solved.
+     */
+    private static final class State {
+        final Scenario scenario;
+        final Result result;
+        final List<DecomposingOptimiser.Component> components;
+        final List<int[]> solutions;
+        final DecomposingOptimiser.Margins margins;
+
+        State(Scenario scenario, Result result, List<DecomposingOptimiser.Component> components,
+              List<int[]> solutions, DecomposingOptimiser.Margins margins){
+            this.scenario = scenario;
+            this.result = result;
+            this.components = components;
+            this.solutions = solutions;
+            this.margins = margins;
+        }
+    }
+
+    /**
+     * Compares single transmitters with every out of range receiver, finding the untouched components they would
+     * have to be merged with a new one, or that a changed transmitter could serve.
+     */
+    private static final class Merges {
+        private final CompactScenario scenario;
+        private final int[] outOfRange;
+        private final int[] componentOf;
+        private final int kept;
+        private final long[] bound;
+        private final long total;
+        private final long[] raise;
+        private final Integer[] order;
+
+        final Set<Integer> touched = new HashSet<>();
+        long distanceEvaluations;
+
+        Merges(CompactScenario scenario, int[] outOfRange, int[] componentOf,
+               List<DecomposingOptimiser.Component> components, int kept){
+            this.scenario = scenario;
+            this.outOfRange = outOfRange;
+            this.componentOf = componentOf;
+            this.kept = kept;
+            bound = new long[components.size()];
+            long sum = 0;
+            for(int c = 0; c < bound.length; c++){
+                bound[c] = components.get(c).bound;
+                sum += bound[c];
+            }
+            total = sum;
+            raise = new long[components.size()];
+            Arrays.fill(raise, Long.MAX_VALUE);
+            order = new Integer[components.size()];
+        }
+
+        /**
+         * Method used to check one transmitter, filling in its margins over all the components.
+         *
+         * @param t       the transmitter
+         * @param changed whether the change put the transmitter
+         * @param margins the margins to fill in
+         */
+        void check(int t, boolean changed, DecomposingOptimiser.Margins margins){
+            int count = 0;
+            long outside = DecomposingOptimiser.Margins.NONE;
+            distanceEvaluations += outOfRange.length;
+            for(int r: outOfRange){
+                long d = (long) scenario.distance(t, r) - scenario.transmitterPower[t];
+                int c = componentOf[r];
+                if(d <= total){
+                    if(raise[c] == Long.MAX_VALUE){
+                        order[count++] = c;
+                    }
+                    raise[c] = Math.min(raise[c], d);
+                } else {
+                    outside = Math.min(outside, d);
+                }
+            }
+            int together = DecomposingOptimiser.together(raise, bound, order, count, outside, total, margins, t);
+            for(int i = 0; i < count; i++){
+                int c = order[i];
+                if(c < kept && (i < together || (changed && raise[c] <= bound[c]))){
+                    touched.add(c);
+                }
+                raise[c] = Long.MAX_VALUE;
+            }
+        }
+    }
+}
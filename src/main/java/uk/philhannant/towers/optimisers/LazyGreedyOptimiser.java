@@ -0,0 +1,627 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.CellCounts;
+import uk.philhannant.towers.index.CheapestRaise;
+import uk.philhannant.towers.index.ChebyshevGrid;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Power optimiser running the greedy algorithm for weighted set cover, for islands far too large for an exact search.
+ *
+ * Every power level of every transmitter is a set, holding the out of range receivers within that distance and
+ * costing the raise to it from the transmitter's current power. The greedy repeatedly takes the level with the
+ * smallest cost per receiver it newly covers. At every step the levels of an optimal solution, priced from the
+ * current powers, cover what is left for no more than the optimum, so the level taken costs at most the optimum over
+ * the receivers left per receiver covered, and the total raise is within a factor H(n) &lt;= 1 + ln n of the optimal
+ * raise, n being the number of receivers out of range.
+ *
+ * Only levels an optimal solution might use are considered. A level raising a transmitter by more than the cheapest
+ * raises of all the receivers within it added together is skipped, since covering those receivers by their cheapest
+ * transmitters instead costs less. So is a level raising a transmitter by more than a bound on the whole optimal
+ * raise: the smaller of the cost of covering every receiver by its cheapest transmitter and the cost of the cheapest
+ * single transmitter reaching them all. Every level an optimal solution uses is therefore kept and the factor of H(n)
+ * holds against the optimum itself.
+ *
+ * The levels of each transmitter up to the first one skipped beyond its cheapest receivers and a couple of cells of
+ * the counts below are gathered into a list through a {@link ChebyshevGrid} over the out of range receivers. These
+ * lists stay short, so their cost grows with the number of receivers near each transmitter rather than with the size
+ * of the island. The levels beyond, which may reach across the whole island, are not gathered: a lower bound on their
+ * cost per receiver is worked out from {@link CellCounts} of the receivers left, in steps of the raise, and kept until
+ * the transmitter is raised, since covering receivers only makes it looser. Only once the steps are as fine as they
+ * get and the bound is still the best in the queue are the receivers beyond the list gathered and the levels priced
+ * exactly.
+ *
+ * Each transmitter is kept once in a priority queue by the best cost per receiver among its levels, or by the bound
+ * on its levels beyond the list when that is lower. Covering receivers only ever makes the levels of other
+ * transmitters worse, so a key in the queue is a lower bound and only the transmitter at the head is looked at again,
+ * CELF style: if it is still at the head after its key is brought up to date its best level is taken, or the steps of
+ * its bound made finer when the key is a bound, otherwise the next head is tried. Raising a transmitter makes its own
+ * levels cheaper, so its key is brought up to date straight away.
+ *
+ * It can also be run as an anytime optimiser, checking its token once per transmitter while gathering the lists and
+ * once per step of the greedy. Once cancelled it covers each receiver still out of range with its cheapest
+ * transmitter, so it always returns a feasible result, with the original total power as its lower bound.
+ *
+ * Each run reports its phase timings and counters to an {@link OptimiserListener}, counting every transmitter
+ * evaluated, every distance worked out while gathering receivers and every receiver whose coverage is checked.
+ */
+public class LazyGreedyOptimiser implements AnytimeOptimiser {
+
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a lazy greedy optimiser.
+     */
+    public LazyGreedyOptimiser(){
+        this(OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a lazy greedy optimiser reporting the statistics of every run to a listener.
+     *
+     * @param listener the listener, called once per scenario
+     */
+    public LazyGreedyOptimiser(OptimiserListener listener){
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, covering the out of range receivers greedily.
+     *
+     * @param scenario the scenario
+     * @return the result, with the transmitters in scenario order
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        return optimise(scenario, new CancellationToken()).result;
+    }
+
+    /**
+     * Optimise method, covering the out of range receivers greedily until done or the token is cancelled, and then
+     * covering any left by their cheapest transmitters.
+     *
+     * @param scenario the scenario
+     * @param token    the token checked per transmitter and per step
+     * @return the result, with the transmitters in scenario order, optimal only if no receiver was out of range
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        TransmitterIndex index = TransmitterIndex.of(compact, stats.isCounted());
+        int[] outOfRange = index.unreached(compact.receiverX, compact.receiverY);
+        stats.addCoverageChecks(compact.receiverCount());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
+        time = stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        int originalPower = 0;
+        for(int power: compact.transmitterPower){
+            originalPower += power;
+        }
+        if(outOfRange.length == 0){
+            listener.scenarioOptimised(scenario, stats);
+            return new AnytimeResult(new Result(scenario.transmitters), originalPower, true);
+        }
+        if(compact.transmitterCount() == 0){
+            throw new IllegalArgumentException("Receivers cannot be brought into range without transmitters");
+        }
+        Greedy greedy = new Greedy(compact, outOfRange, token, stats.isCounted());
+        time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        int[] powers = greedy.run();
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = compact.toResult(powers);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        greedy.report(stats);
+        listener.scenarioOptimised(scenario, stats);
+        return new AnytimeResult(result, originalPower, false);
+    }
+
+
+    /**
+     * The state of one greedy run. Receivers are numbered by their position in the out of range array.
+     */
+    private static final class Greedy {
+        /**
+         * How many tiers the bound on the levels beyond a list goes through, the raise at the end of a step at tier
+         * k being a 2^-k fraction more than at its start, so each tier is finer than the last.
+         */
+        private static final int TIERS = 7;
+        /**
+         * How many cells of the counts the list of a transmitter reaches beyond its power at least, the counts
+         * within squares any smaller than that being too coarse to bound anything.
+         */
+        private static final int LIST_CELLS = 2;
+
+        private final CompactScenario scenario;
+        private final CancellationToken token;
+        private CheapestRaise cheapest;
+        private final int[] power;
+        private final boolean[] covered;
+        private int uncovered;
+
+        private final int[] listStart;
+        private int[] listReceiver = new int[64];
+        private int[] listDistance = new int[64];
+        private boolean[] listAllowed = new boolean[64];
+        private int listSize;
+        private final int[] next;
+        private final int[] reach;
+        private final long[] reachSum;
+        private final int[] horizon;
+
+        private int[] receiverX;
+        private int[] receiverY;
+        private int minX;
+        private int maxX;
+        private int minY;
+        private int maxY;
+        private ChebyshevGrid grid;
+        private CellCounts counts;
+        private long[] ring = new long[16];
+        private int ringSize;
+        private int centreX;
+        private int centreY;
+
+        private final int[] bestLevel;
+        private final double[] beyond;
+        private final byte[] tier;
+        private final boolean[] bounded;
+        private final Queue queue;
+
+        private long evaluations;
+        private long distanceEvaluations;
+        private long coverageChecks;
+        private int longestList;
+
+        Greedy(CompactScenario scenario, int[] outOfRange, CancellationToken token, boolean counted){
+            this.scenario = scenario;
+            this.token = token;
+            int transmitterCount = scenario.transmitterCount();
+            power = scenario.transmitterPower.clone();
+            covered = new boolean[outOfRange.length];
+            uncovered = outOfRange.length;
+            listStart = new int[transmitterCount + 1];
+            next = new int[transmitterCount];
+            reach = new int[transmitterCount];
+            reachSum = new long[transmitterCount];
+            horizon = new int[transmitterCount];
+            bestLevel = new int[transmitterCount];
+            beyond = new double[transmitterCount];
+            tier = new byte[transmitterCount];
+            bounded = new boolean[transmitterCount];
+            buildLists(outOfRange, counted);
+
+            queue = new Queue(transmitterCount);
+            for(int t = 0; t < transmitterCount; t++){
+                next[t] = listStart[t];
+                beyond[t] = bound(t, reach[t], 0);
+                queue.set(t, evaluate(t));
+            }
+        }
+
+        /**
+         * Method used to work out the horizon of every transmitter, the highest level an optimal solution might raise
+         * it to, and to gather the receivers within its list, sorted by distance, widening the square searched
+         * around each transmitter until the first level skipped beyond its cheapest receivers and a couple of cells
+         * of the counts, or its horizon, is found. Once the token is cancelled the remaining transmitters get empty
+         * lists.
+         */
+        private void buildLists(int[] outOfRange, boolean counted){
+            int receiverCount = outOfRange.length;
+            receiverX = new int[receiverCount];
+            receiverY = new int[receiverCount];
+            minX = Integer.MAX_VALUE;
+            maxX = Integer.MIN_VALUE;
+            minY = Integer.MAX_VALUE;
+            maxY = Integer.MIN_VALUE;
+            for(int k = 0; k < receiverCount; k++){
+                receiverX[k] = scenario.receiverX[outOfRange[k]];
+                receiverY[k] = scenario.receiverY[outOfRange[k]];
+                minX = Math.min(minX, receiverX[k]);
+                maxX = Math.max(maxX, receiverX[k]);
+                minY = Math.min(minY, receiverY[k]);
+                maxY = Math.max(maxY, receiverY[k]);
+            }
+            grid = ChebyshevGrid.of(receiverX, receiverY, 1, counted);
+            counts = CellCounts.of(receiverX, receiverY);
+            cheapest = CheapestRaise.of(scenario, outOfRange);
+            int transmitterCount = scenario.transmitterCount();
+            int[] ownReach = new int[transmitterCount];
+            Arrays.fill(ownReach, -1);
+            for(int k = 0; k < receiverCount; k++){
+                int t = cheapest.transmitter(k);
+                ownReach[t] = Math.max(ownReach[t], scenario.distance(t, outOfRange[k]));
+            }
+            distanceEvaluations += receiverCount;
+            long cheapestCover = 0;
+            long singleCover = Long.MAX_VALUE;
+            for(int t = 0; t < transmitterCount; t++){
+                if(ownReach[t] >= 0){
+                    cheapestCover += ownReach[t] - power[t];
+                }
+                singleCover = Math.min(singleCover, farthest(t) - power[t]);
+            }
+            long bound = Math.min(cheapestCover, singleCover);
+            long listRaise = (long) LIST_CELLS * counts.cellSize();
+
+            IntConsumer collect = this::collect;
+            for(int t = 0; t < transmitterCount; t++){
+                listStart[t] = listSize;
+                int p = power[t];
+                horizon[t] = (int) Math.min(Integer.MAX_VALUE, Math.min(farthest(t), p + bound));
+                reach[t] = p;
+                if(token.isCancelled()){
+                    continue;
+                }
+                centreX = scenario.transmitterX[t];
+                centreY = scenario.transmitterY[t];
+                long sum = 0;
+                int inner = p;
+                long outer = Math.max(ownReach[t], (long) p + 1);
+                int built = horizon[t];
+                boolean done = built <= p;
+                while(!done){
+                    int radius = (int) Math.min(outer, horizon[t]);
+                    ringSize = 0;
+                    grid.forEachBetween(centreX, centreY, inner, radius, collect);
+                    Arrays.sort(ring, 0, ringSize);
+                    for(int i = 0; i < ringSize && !done; ){
+                        int d = (int) (ring[i] >>> 32);
+                        int groupEnd = i;
+                        long groupSum = 0;
+                        while(groupEnd < ringSize && (int) (ring[groupEnd] >>> 32) == d){
+                            groupSum += cheapest.raise((int) ring[groupEnd]);
+                            groupEnd++;
+                        }
+                        if(d > ownReach[t] && d - p > listRaise && d - p > sum + groupSum){
+                            built = d - 1;
+                            done = true;
+                        } else {
+                            sum += groupSum;
+                            for(; i < groupEnd; i++){
+                                append((int) ring[i], d, d - p <= sum);
+                            }
+                        }
+                    }
+                    done |= radius >= horizon[t];
+                    inner = radius;
+                    outer = p + 2 * (outer - p);
+                }
+                reach[t] = built;
+                reachSum[t] = sum;
+                longestList = Math.max(longestList, listSize - listStart[t]);
+            }
+            listStart[transmitterCount] = listSize;
+        }
+
+        /**
+         * Chebyshev distance from a transmitter to the farthest out of range receiver, found from their bounding box.
+         */
+        private long farthest(int t){
+            long x = scenario.transmitterX[t];
+            long y = scenario.transmitterY[t];
+            return Math.max(Math.max(Math.abs(x - minX), Math.abs(x - maxX)),
+                    Math.max(Math.abs(y - minY), Math.abs(y - maxY)));
+        }
+
+        /**
+         * Adds the counters of the run to the statistics of the scenario.
+         */
+        void report(OptimiserStats stats){
+            stats.addCandidatesTried(evaluations);
+            stats.addChebyshevEvaluations(distanceEvaluations + grid.distanceEvaluations());
+            stats.addCoverageChecks(coverageChecks);
+            stats.candidateListSize(longestList);
+        }
+
+        private void collect(int receiver){
+            if(ringSize == ring.length){
+                ring = Arrays.copyOf(ring, 2 * ringSize);
+            }
+            int d = CompactScenario.chebyshev(centreX, centreY, receiverX[receiver], receiverY[receiver]);
+            distanceEvaluations++;
+            ring[ringSize++] = ((long) d << 32) | receiver;
+        }
+
+        private void append(int receiver, int distance, boolean allowed){
+            if(listSize == listReceiver.length){
+                listReceiver = Arrays.copyOf(listReceiver, 2 * listSize);
+                listDistance = Arrays.copyOf(listDistance, 2 * listSize);
+                listAllowed = Arrays.copyOf(listAllowed, 2 * listSize);
+            }
+            listReceiver[listSize] = receiver;
+            listDistance[listSize] = distance;
+            listAllowed[listSize++] = allowed;
+        }
+
+        /**
+         * Method used to run the greedy until every receiver is covered or the token is cancelled, then to cover the
+         * receivers left by their cheapest transmitters. A transmitter whose key is the bound on its levels beyond
+         * the list when it reaches the head has the bound worked out again in finer steps, and once the steps are
+         * as fine as they get those levels are priced exactly. The cell counts are brought up to date whenever a
+         * sixteenth of the receivers they count have been covered since.
+         *
+         * @return the power of each transmitter
+         */
+        int[] run(){
+            while(uncovered > 0){
+                if(token.isCancelled()){
+                    coverCheapest();
+                    break;
+                }
+                if(16L * uncovered <= 15L * counts.total()){
+                    counts.recount(k -> !covered[k]);
+                    coverageChecks += covered.length;
+                }
+                int t = queue.head();
+                double key = evaluate(t);
+                queue.set(t, key);
+                if(queue.head() != t){
+                    continue;
+                }
+                if(key == Double.POSITIVE_INFINITY){
+                    throw new IllegalStateException("No transmitter can reach the " + uncovered + " receivers left");
+                }
+                if(bounded[t]){
+                    if(++tier[t] < TIERS){
+                        beyond[t] = Math.max(beyond[t], bound(t, reach[t], tier[t]));
+                    }
+                    continue;
+                }
+                raise(t, bestLevel[t]);
+                beyond[t] = bound(t, reach[t], 0);
+                queue.set(t, evaluate(t));
+            }
+            return power;
+        }
+
+        /**
+         * Raises the cheapest transmitter of each receiver not covered yet to reach it.
+         */
+        private void coverCheapest(){
+            coverageChecks += covered.length;
+            for(int k = 0; k < covered.length; k++){
+                if(!covered[k]){
+                    int t = cheapest.transmitter(k);
+                    power[t] = Math.max(power[t], scenario.transmitterPower[t] + cheapest.raise(k));
+                    covered[k] = true;
+                }
+            }
+            uncovered = 0;
+        }
+
+        /**
+         * Method used to find the level of a transmitter with the smallest cost per receiver newly covered, which is
+         * always the distance of one of the receivers it does not reach yet. The levels in the list are priced
+         * exactly, and those beyond it, up to the horizon, only once the tier of the transmitter is past the finest
+         * steps. Until then they are kept to the bound last worked out for them, which stays a lower bound however
+         * many receivers are covered since.
+         *
+         * @param t the transmitter
+         * @return the cost per receiver at that level, left in the best level array, the bound on the levels beyond
+         * the list if that is lower, in which case the transmitter is marked bounded, or infinity if no level of the
+         * transmitter covers anything new
+         */
+        private double evaluate(int t){
+            double best = Double.POSITIVE_INFINITY;
+            int gain = 0;
+            evaluations++;
+            coverageChecks += listStart[t + 1] - next[t];
+            for(int i = next[t], end = listStart[t + 1]; i < end; i++){
+                if(!covered[listReceiver[i]]){
+                    gain++;
+                }
+                if(gain > 0 && listAllowed[i] && (i + 1 == end || listDistance[i + 1] != listDistance[i])){
+                    double ratio = (double) (listDistance[i] - power[t]) / gain;
+                    if(ratio < best){
+                        best = ratio;
+                        bestLevel[t] = listDistance[i];
+                    }
+                }
+            }
+            bounded[t] = false;
+            if(reach[t] < horizon[t]){
+                if(tier[t] == TIERS){
+                    best = priceBeyond(t, gain, best);
+                    tier[t]--;
+                } else if(beyond[t] < best){
+                    best = beyond[t];
+                    bounded[t] = true;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Method used to bound from below the cost per receiver of the levels of a transmitter beyond a radius. The
+         * levels are split into steps, the raise at the end of each a fixed fraction more than at its start, and a
+         * level within a step costs at least the raise at its start and covers at most the receivers the cell counts
+         * put within the end. The steps are worked out in whole numbers, the work of a step being little more than
+         * the lookup of the counts.
+         *
+         * @param t     the transmitter
+         * @param from  the radius, at least the power of the transmitter
+         * @param shift the shift of the raise at the start of a step giving how much more it is at the end
+         * @return the bound, or infinity if nothing is left beyond the radius
+         */
+        private double bound(int t, long from, int shift){
+            int x = scenario.transmitterX[t];
+            int y = scenario.transmitterY[t];
+            long inner = from;
+            double best = Double.POSITIVE_INFINITY;
+            int total = counts.total();
+            while(inner < horizon[t]){
+                double cost = inner + 1 - power[t];
+                if(cost >= best * total){
+                    break;
+                }
+                long raise = inner - power[t];
+                long outer = Math.min(horizon[t], inner + Math.max(raise >> shift, 1));
+                int within = counts.atMostWithin(x, y, outer);
+                if(cost < best * within){
+                    best = cost / within;
+                }
+                inner = outer;
+            }
+            return best;
+        }
+
+        /**
+         * Method used to price exactly the levels of a transmitter beyond its list. The receivers beyond the list
+         * are gathered into the ring, sorted by distance, in squares doubling the raise each time, until the levels
+         * beyond the square are bounded by no less than the best level found or the horizon is reached. They are
+         * left in the ring for the raise, and the best of those levels, or the bound beyond them if lower, becomes
+         * the bound of the transmitter.
+         *
+         * @param t    the transmitter
+         * @param gain the receivers in the list not covered yet
+         * @param best the cost per receiver of the best level in the list
+         * @return the cost per receiver of the best level, left in the best level array if beyond the list
+         */
+        private double priceBeyond(int t, int gain, double best){
+            centreX = scenario.transmitterX[t];
+            centreY = scenario.transmitterY[t];
+            ringSize = 0;
+            IntConsumer collect = this::collect;
+            int p = scenario.transmitterPower[t];
+            long sum = reachSum[t];
+            double found = Double.POSITIVE_INFINITY;
+            double rest = Double.POSITIVE_INFINITY;
+            int inner = reach[t];
+            while(inner < horizon[t]){
+                int radius = (int) Math.min(horizon[t], power[t] + Math.max(2L * (inner - power[t]), 1L));
+                int from = ringSize;
+                grid.forEachBetween(centreX, centreY, inner, radius, collect);
+                Arrays.sort(ring, from, ringSize);
+                coverageChecks += ringSize - from;
+                for(int i = from; i < ringSize; i++){
+                    int receiver = (int) ring[i];
+                    int d = (int) (ring[i] >>> 32);
+                    sum += cheapest.raise(receiver);
+                    if(!covered[receiver]){
+                        gain++;
+                    }
+                    if(gain > 0 && (i + 1 == ringSize || (int) (ring[i + 1] >>> 32) != d) && d - p <= sum){
+                        double ratio = (double) (d - power[t]) / gain;
+                        if(ratio < found){
+                            found = ratio;
+                            if(ratio < best){
+                                bestLevel[t] = d;
+                            }
+                        }
+                    }
+                }
+                inner = radius;
+                rest = bound(t, inner, TIERS - 1);
+                if(rest >= Math.min(best, found)){
+                    break;
+                }
+            }
+            beyond[t] = Math.min(found, rest);
+            return Math.min(best, found);
+        }
+
+        /**
+         * Raises a transmitter to a level, either in its list or, straight after the levels beyond the list were
+         * priced, beyond it, in which case the level becomes the end of the list.
+         */
+        private void raise(int t, int level){
+            int i = next[t];
+            for(int end = listStart[t + 1]; i < end && listDistance[i] <= level; i++){
+                if(!covered[listReceiver[i]]){
+                    covered[listReceiver[i]] = true;
+                    uncovered--;
+                }
+            }
+            coverageChecks += i - next[t];
+            next[t] = i;
+            if(level > reach[t]){
+                long sum = reachSum[t];
+                int j = 0;
+                for(; j < ringSize && (int) (ring[j] >>> 32) <= level; j++){
+                    int receiver = (int) ring[j];
+                    sum += cheapest.raise(receiver);
+                    if(!covered[receiver]){
+                        covered[receiver] = true;
+                        uncovered--;
+                    }
+                }
+                coverageChecks += j;
+                reach[t] = level;
+                reachSum[t] = sum;
+            }
+            power[t] = level;
+            tier[t] = 0;
+        }
+    }
+    /**
+     * Binary heap of the transmitters ordered by key, which can change the key of any transmitter in place. The keys
+     * are kept in heap order alongside the transmitters, so that sifting compares neighbouring entries.
+     */
+    private static final class Queue {
+        private final double[] key;
+        private final int[] heap;
+        private final int[] position;
+
+        Queue(int size){
+            key = new double[size];
+            heap = new int[size];
+            position = new int[size];
+            for(int i = 0; i < size; i++){
+                heap[i] = i;
+                position[i] = i;
+                key[i] = Double.POSITIVE_INFINITY;
+            }
+        }
+
+        int head(){
+            return heap[0];
+        }
+
+        void set(int item, double value){
+            int i = position[item];
+            double old = key[i];
+            if(value < old){
+                up(i, item, value);
+            } else {
+                down(i, item, value);
+            }
+        }
+
+        private void up(int i, int item, double value){
+            while(i > 0 && key[(i - 1) / 2] > value){
+                move(heap[(i - 1) / 2], key[(i - 1) / 2], i);
+                i = (i - 1) / 2;
+            }
+            move(item, value, i);
+        }
+
+        private void down(int i, int item, double value){
+            int size = heap.length;
+            while(2 * i + 1 < size){
+                int child = 2 * i + 1;
+                if(child + 1 < size && key[child + 1] < key[child]){
+                    child++;
+                }
+                if(key[child] >= value){
+                    break;
+                }
+                move(heap[child], key[child], i);
+                i = child;
+            }
+            move(item, value, i);
+        }
+
+        private void move(int item, double value, int i){
+            heap[i] = item;
+            key[i] = value;
+            position[item] = i;
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.ChebyshevGrid;
+import uk.philhannant.towers.index.CoverageTracker;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Power optimiser using simulated annealing with a large neighbourhood move, for islands far too large for an exact
+ * search.
+ *
+ * It starts from a feasible assignment, either given or built greedily by raising the cheapest transmitter for each
+ * receiver out of range, and keeps every receiver covered from then on. Three kinds of move are tried, all starting
+ * from a random raised transmitter A:
+ * <ul>
+ *     <li>hand over: lower A, either fully, to a random power or just below its farthest receiver, and hand the
+ *     receivers only it covered in the range given up to whichever transmitter B near A can take them all on for the
+ *     smallest raise;</li>
+ *     <li>insert: raise a transmitter B near one of the receivers only A covers to reach it, then lower the raised
+ *     transmitters around B as far as they can go;</li>
+ *     <li>re-solve: drop every transmitter within a random radius of A back to its original power and cover the
+ *     receivers this leaves out of range with a small {@link BranchAndBoundOptimiser} search.</li>
+ * </ul>
+ * Moves that save power are always kept and the others with a probability that falls as the temperature cools. A
+ * move only looks at the towers near A, found through {@link ChebyshevGrid}s and a {@link CoverageTracker}, so its
+ * cost does not grow with the size of the island.
+ *
+ * The best assignment seen is kept as a journal of the power changes made since, which is rolled back at the end.
+ * The search stops after a fixed number of moves or, if given, a time limit. A re-solve search is stopped after a
+ * fixed number of nodes rather than a time, so the same seed always gives the same result for the same number of
+ * moves.
+ *
+ * It can also be run as an anytime optimiser, checking its token every 256 moves, when it checks the time limit, and
+ * returning the best assignment seen once cancelled, with the original total power as its lower bound. Run alongside
+ * other optimisers it starts from the {@link SharedIncumbent} if one has been found by then, and offers its result.
+ *
+ * Each run reports its phase timings and counters to an {@link OptimiserListener}: the moves tried, and the distances
+ * worked out and coverage checks made by the moves, the coverage tracker and the re-solve searches.
+ */
+public class LocalSearchOptimiser implements AnytimeOptimiser {
+    private static final int MAX_LOST = 64;
+    private static final int RESOLVE_ODDS = 16;
+    private static final int MAX_FREE = 80;
+    private static final int MAX_LOST_EXACT = 30;
+    private static final long RESOLVE_NODES = 20_000;
+
+    private final long seed;
+    private final int iterations;
+    private final long timeLimit;
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a local search optimiser with a move budget.
+     *
+     * @param seed       the seed of the random moves
+     * @param iterations the number of moves tried
+     */
+    public LocalSearchOptimiser(long seed, int iterations){
+        this(seed, iterations, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor to instantiate a local search optimiser with a move budget and a time limit, whichever runs out
+     * first. The temperature follows whichever budget is further used up.
+     *
+     * @param seed       the seed of the random moves
+     * @param iterations the number of moves tried
+     * @param timeLimit  the time limit, or zero for none
+     * @param unit       the unit of the time limit
+     */
+    public LocalSearchOptimiser(long seed, int iterations, long timeLimit, TimeUnit unit){
+        this(seed, iterations, timeLimit, unit, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a local search optimiser with a move budget and a time limit, reporting the
+     * statistics of every run to a listener.
+     *
+     * @param seed       the seed of the random moves
+     * @param iterations the number of moves tried
+     * @param timeLimit  the time limit, or zero for none
+     * @param unit       the unit of the time limit
+     * @param listener   the listener, called once per scenario
+     */
+    public LocalSearchOptimiser(long seed, int iterations, long timeLimit, TimeUnit unit, OptimiserListener listener){
+        this.seed = seed;
+        this.iterations = iterations;
+        this.timeLimit = unit.toNanos(timeLimit);
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, annealing from a greedy start.
+     *
+     * @param scenario the scenario
+     * @return the best result found
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        return improve(scenario, null);
+    }
+
+    /**
+     * Optimise method, annealing from a greedy start until the budgets run out or the token is cancelled.
+     *
+     * @param scenario the scenario
+     * @param token    the token checked every 256 moves
+     * @return the best result found, optimal only if no transmitter had to be raised
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+        return anytimeResult(scenario, improve(scenario, null, token));
+    }
+
+    /**
+     * Optimise method, annealing from the incumbent if there is one yet and from a greedy start otherwise, and
+     * offering the best result found to the incumbent.
+     *
+     * @param scenario  the scenario
+     * @param token     the token checked every 256 moves
+     * @param incumbent the incumbent shared with the other optimisers
+     * @return the best result found, optimal only if no transmitter had to be raised
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token, SharedIncumbent incumbent) {
+        AnytimeResult result = anytimeResult(scenario, improve(scenario, incumbent.getResult(), token));
+        incumbent.offer(result.result);
+        return result;
+    }
+
+    private static AnytimeResult anytimeResult(Scenario scenario, Result result){
+        int originalPower = 0;
+        for(Transmitter transmitter: scenario.transmitters){
+            originalPower += transmitter.power;
+        }
+        return new AnytimeResult(result, originalPower, result.getTotalPower() == originalPower);
+    }
+
+    /**
+     * Method used to improve an existing result. Transmitters the result lowers below their original power are
+     * left at the original power, and any receiver the result leaves out of range is covered greedily first.
+     *
+     * @param scenario the scenario
+     * @param start    the result to start from, or null for a greedy start
+     * @return the best result found, never worse than a feasible start
+     */
+    public Result improve(Scenario scenario, Result start){
+        return improve(scenario, start, new CancellationToken());
+    }
+
+    private Result improve(Scenario scenario, Result start, CancellationToken token){
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        Annealing annealing = new Annealing(compact, new Random(seed), stats);
+        time = stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        if(start != null){
+            int[] powers = compact.powersOf(start);
+            for(int t = 0; t < powers.length; t++){
+                if(powers[t] > compact.transmitterPower[t]){
+                    annealing.apply(t, powers[t]);
+                }
+            }
+        }
+        annealing.coverGreedily();
+        annealing.tighten();
+        time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        annealing.run(iterations, timeLimit, token);
+        annealing.tighten();
+        time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        Result result = compact.toResult(annealing.tracker.powers());
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        annealing.report();
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    /**
+     * The state of one annealing run.
+     */
+    private static final class Annealing {
+        private final CompactScenario scenario;
+        private final CoverageTracker tracker;
+        private final ChebyshevGrid transmitters;
+        private final Random random;
+        private int maxPower = Integer.MIN_VALUE;
+
+        private final int[] raised;
+        private final int[] raisedPosition;
+        private int raisedCount;
+
+        private int[] journalTransmitter = new int[64];
+        private int[] journalPower = new int[64];
+        private int journalSize;
+        private long bestTotal;
+
+        private final int[] lost = new int[MAX_LOST];
+        private int lostCount;
+        private final IntConsumer collectLost;
+
+        private int candidate;
+        private long candidateCost;
+        private int candidateLevel;
+        private int candidateReceiver;
+        private int excluded;
+        private final IntConsumer considerCheapest;
+        private final IntConsumer considerRepair;
+        private final IntConsumer pickCheaper;
+
+        private int[] neighbours = new int[16];
+        private int neighbourCount;
+        private final IntConsumer collectRaised;
+        private final IntConsumer collectAll;
+        private int tightest;
+        private int tightestTransmitter;
+        private final IntConsumer raiseTightest;
+
+        private final BranchAndBoundOptimiser exact;
+        private final int[] uncoveredBuffer = new int[MAX_LOST_EXACT];
+
+        private final OptimiserStats stats;
+        private long moves;
+        private long distanceEvaluations;
+        private long coverageChecks;
+
+        Annealing(CompactScenario scenario, Random random, OptimiserStats stats){
+            this.scenario = scenario;
+            this.random = random;
+            this.stats = stats;
+            exact = new BranchAndBoundOptimiser(stats.isCounted()
+                    ? (resolved, resolveStats) -> stats.addOperations(resolveStats) : OptimiserListener.NOOP);
+            tracker = new CoverageTracker(scenario, stats.isCounted());
+            transmitters = ChebyshevGrid.of(scenario.transmitterX, scenario.transmitterY, 1, stats.isCounted());
+            raised = new int[scenario.transmitterCount()];
+            raisedPosition = new int[scenario.transmitterCount()];
+            Arrays.fill(raisedPosition, -1);
+            for(int power: scenario.transmitterPower){
+                maxPower = Math.max(maxPower, power);
+            }
+            collectLost = r -> {
+                if(lostCount < MAX_LOST){
+                    lost[lostCount] = r;
+                }
+                lostCount++;
+            };
+            considerCheapest = t -> {
+                distanceEvaluations++;
+                long cost = (long) scenario.distance(t, candidateReceiver) - tracker.power(t);
+                if(cost < candidateCost){
+                    candidate = t;
+                    candidateCost = cost;
+                }
+            };
+            considerRepair = t -> {
+                if(t == excluded){
+                    return;
+                }
+                int level = 0;
+                for(int i = 0; i < lostCount; i++){
+                    level = Math.max(level, scenario.distance(t, lost[i]));
+                }
+                distanceEvaluations += lostCount;
+                long cost = Math.max(0, (long) level - tracker.power(t));
+                if(cost < candidateCost){
+                    candidate = t;
+                    candidateCost = cost;
+                    candidateLevel = level;
+                }
+            };
+            // reservoir sampling over the transmitters that could reach the receiver for no more than candidateLevel,
+            // with candidateCost counting them
+            pickCheaper = t -> {
+                distanceEvaluations++;
+                if((long) scenario.distance(t, candidateReceiver) - tracker.power(t) <= candidateLevel
+                        && random.nextInt((int) ++candidateCost) == 0){
+                    candidate = t;
+                }
+            };
+            collectAll = t -> {
+                if(neighbourCount == neighbours.length){
+                    neighbours = Arrays.copyOf(neighbours, 2 * neighbourCount);
+                }
+                neighbours[neighbourCount++] = t;
+            };
+            collectRaised = t -> {
+                if(raisedPosition[t] >= 0){
+                    if(neighbourCount == neighbours.length){
+                        neighbours = Arrays.copyOf(neighbours, 2 * neighbourCount);
+                    }
+                    neighbours[neighbourCount++] = t;
+                }
+            };
+            raiseTightest = r -> {
+                distanceEvaluations++;
+                tightest = Math.max(tightest, scenario.distance(tightestTransmitter, r));
+            };
+        }
+
+        /**
+         * Adds the counters of the run to the statistics of the scenario.
+         */
+        void report(){
+            stats.addCandidatesTried(moves);
+            stats.addChebyshevEvaluations(distanceEvaluations + tracker.distanceEvaluations()
+                    + transmitters.distanceEvaluations());
+            stats.addCoverageChecks(coverageChecks + tracker.coverageChecks());
+        }
+
+        /**
+         * Raises the cheapest transmitter for each receiver out of range, one receiver at a time.
+         */
+        void coverGreedily(){
+            if(tracker.allCovered()){
+                return;
+            }
+            if(scenario.transmitterCount() == 0){
+                throw new IllegalArgumentException("Receivers cannot be brought into range without transmitters");
+            }
+            int[] uncovered = new int[tracker.uncoveredCount()];
+            int[] count = new int[1];
+            tracker.forEachUncovered(r -> uncovered[count[0]++] = r);
+            coverageChecks += uncovered.length;
+            for(int r: uncovered){
+                if(tracker.coverCount(r) == 0){
+                    int t = cheapest(r);
+                    distanceEvaluations++;
+                    apply(t, scenario.distance(t, r));
+                }
+            }
+        }
+
+        /**
+         * Finds the transmitter needing the smallest raise to reach a receiver, searching squares of growing radius
+         * until no transmitter outside the square could beat the best one inside.
+         */
+        private int cheapest(int receiver){
+            int x = scenario.receiverX[receiver];
+            int y = scenario.receiverY[receiver];
+            candidateReceiver = receiver;
+            long radius = 16;
+            while(true){
+                candidate = -1;
+                candidateCost = Long.MAX_VALUE;
+                transmitters.forEachWithin(x, y, (int) radius, considerCheapest);
+                if(candidate >= 0 && (candidateCost <= radius - maxPower || radius == Integer.MAX_VALUE)){
+                    return candidate;
+                }
+                long next = candidate >= 0 ? Math.max(2 * radius, candidateCost + maxPower) : 2 * radius;
+                radius = Math.min(next, Integer.MAX_VALUE);
+            }
+        }
+
+        /**
+         * Lowers every raised transmitter as far as it can go without leaving a receiver out of range.
+         */
+        void tighten(){
+            int[] candidates = Arrays.copyOf(raised, raisedCount);
+            for(int t: candidates){
+                int level = tightestLevel(t);
+                if(level < tracker.power(t)){
+                    apply(t, level);
+                }
+            }
+        }
+
+        void run(int iterations, long timeLimit, CancellationToken token){
+            if(raisedCount == 0){
+                return;
+            }
+            long raise = tracker.totalPower();
+            for(int power: scenario.transmitterPower){
+                raise -= power;
+            }
+            double initialTemperature = Math.max(1, 0.5 * raise / raisedCount);
+            bestTotal = tracker.totalPower();
+            journalSize = 0;
+            long start = System.nanoTime();
+            double progress = 0;
+            for(int i = 0; i < iterations && raisedCount > 0; i++){
+                if((i & 255) == 0){
+                    if(token.isCancelled()){
+                        break;
+                    }
+                    progress = (double) i / iterations;
+                    if(timeLimit > 0){
+                        long elapsed = System.nanoTime() - start;
+                        if(elapsed >= timeLimit){
+                            break;
+                        }
+                        progress = Math.max(progress, (double) elapsed / timeLimit);
+                    }
+                }
+                move(initialTemperature * Math.pow(0.001, progress));
+            }
+            rollback(0);
+        }
+
+        /**
+         * Tries one move and keeps it if the annealing rule accepts the change in total power, otherwise rolls it
+         * back through the journal.
+         */
+        private void move(double temperature){
+            int mark = journalSize;
+            long before = tracker.totalPower();
+            moves++;
+            int choice = random.nextInt(RESOLVE_ODDS);
+            boolean made = choice == 0 ? resolve() : (choice & 1) == 0 ? handOver() : insert();
+            if(!made){
+                return;
+            }
+            long delta = tracker.totalPower() - before;
+            if(delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)){
+                if(tracker.totalPower() < bestTotal){
+                    bestTotal = tracker.totalPower();
+                    journalSize = 0;
+                }
+            } else {
+                rollback(mark);
+            }
+        }
+
+        /**
+         * Lowers a raised transmitter A and hands the receivers only it covered in the range given up to the
+         * transmitter near A that can take them all on for the smallest raise.
+         */
+        private boolean handOver(){
+            int a = raised[random.nextInt(raisedCount)];
+            int power = tracker.power(a);
+            int original = scenario.transmitterPower[a];
+            int lowered;
+            switch(random.nextInt(3)){
+                case 0:
+                    lowered = original;
+                    break;
+                case 1:
+                    lowered = original + random.nextInt(power - original);
+                    break;
+                default:
+                    // give up only the farthest receivers A is needed for
+                    lowered = Math.max(original, tightestLevel(a) - 1);
+            }
+            if(!collectLost(a, lowered)){
+                return false;
+            }
+            if(lostCount == 0){
+                change(a, lowered);
+                return true;
+            }
+            candidate = -1;
+            candidateCost = Long.MAX_VALUE;
+            excluded = a;
+            transmitters.forEachWithin(scenario.transmitterX[a], scenario.transmitterY[a], power, considerRepair);
+            if(candidate < 0){
+                return false;
+            }
+            int b = candidate;
+            int level = candidateLevel;
+            change(a, lowered);
+            if(level > tracker.power(b)){
+                change(b, level);
+                tightenAround(b);
+            }
+            return true;
+        }
+
+        /**
+         * Picks a receiver that only a raised transmitter A covers, raises a random transmitter near it to reach it
+         * and then lowers the raised transmitters around as far as they can go, A included.
+         */
+        private boolean insert(){
+            int a = raised[random.nextInt(raisedCount)];
+            if(!collectLost(a, scenario.transmitterPower[a]) || lostCount == 0){
+                return false;
+            }
+            int r = lost[random.nextInt(lostCount)];
+            candidateReceiver = r;
+            candidateLevel = scenario.distance(a, r) - scenario.transmitterPower[a];
+            distanceEvaluations++;
+            candidate = -1;
+            candidateCost = 0;
+            transmitters.forEachWithin(scenario.receiverX[r], scenario.receiverY[r],
+                    (int) Math.min(Integer.MAX_VALUE, (long) candidateLevel + maxPower), pickCheaper);
+            if(candidate < 0 || candidate == a){
+                return false;
+            }
+            int b = candidate;
+            int level = scenario.distance(b, r);
+            distanceEvaluations++;
+            if(level <= tracker.power(b)){
+                return false;
+            }
+            change(b, level);
+            tightenAround(b);
+            return true;
+        }
+
+        /**
+         * Frees every transmitter near a raised transmitter A, dropping them to their original power, and covers the
+         * receivers this leaves out of range again with an exact search over the freed transmitters.
+         */
+        private boolean resolve(){
+            int a = raised[random.nextInt(raisedCount)];
+            int radius = (int) Math.min(Integer.MAX_VALUE, tracker.power(a) * (0.5 + 3.5 * random.nextDouble()));
+            neighbourCount = 0;
+            transmitters.forEachWithin(scenario.transmitterX[a], scenario.transmitterY[a], radius, collectAll);
+            stats.candidateListSize(neighbourCount);
+            if(neighbourCount > MAX_FREE){
+                return false;
+            }
+            int mark = journalSize;
+            for(int i = 0; i < neighbourCount; i++){
+                int t = neighbours[i];
+                if(tracker.power(t) > scenario.transmitterPower[t]){
+                    change(t, scenario.transmitterPower[t]);
+                }
+            }
+            int lostReceivers = tracker.uncoveredCount();
+            if(lostReceivers > MAX_LOST_EXACT){
+                rollback(mark);
+                return false;
+            }
+            if(lostReceivers == 0){
+                return true;
+            }
+            int[] count = new int[1];
+            tracker.forEachUncovered(r -> uncoveredBuffer[count[0]++] = r);
+            List<Transmitter> free = new ArrayList<>(neighbourCount);
+            for(int i = 0; i < neighbourCount; i++){
+                int t = neighbours[i];
+                free.add(new Transmitter(i, new Point(scenario.transmitterX[t], scenario.transmitterY[t]),
+                        scenario.transmitterPower[t]));
+            }
+            List<Receiver> lostList = new ArrayList<>(lostReceivers);
+            for(int i = 0; i < lostReceivers; i++){
+                int r = uncoveredBuffer[i];
+                lostList.add(new Receiver(i, new Point(scenario.receiverX[r], scenario.receiverY[r])));
+            }
+            Result result = exact.optimise(new Scenario(free, lostList),
+                    CancellationToken.withCheckBudget(RESOLVE_NODES)).result;
+            for(int i = 0; i < neighbourCount; i++){
+                int power = result.transmitters.get(i).power;
+                if(power > tracker.power(neighbours[i])){
+                    change(neighbours[i], power);
+                }
+            }
+            return true;
+        }
+
+        private boolean collectLost(int transmitter, int lowered){
+            lostCount = 0;
+            tracker.forEachSolelyCovered(transmitter, lowered, collectLost);
+            return lostCount <= MAX_LOST;
+        }
+
+        /**
+         * Lowers every raised transmitter whose range could overlap that of the given one as far as it can go.
+         */
+        private void tightenAround(int b){
+            neighbourCount = 0;
+            transmitters.forEachWithin(scenario.transmitterX[b], scenario.transmitterY[b],
+                    (int) Math.min(Integer.MAX_VALUE, (long) tracker.power(b) + maxPower), collectRaised);
+            for(int i = 0; i < neighbourCount; i++){
+                int t = neighbours[i];
+                int level = tightestLevel(t);
+                if(level < tracker.power(t)){
+                    change(t, level);
+                }
+            }
+        }
+
+        private int tightestLevel(int t){
+            int original = scenario.transmitterPower[t];
+            tightest = original;
+            tightestTransmitter = t;
+            tracker.forEachSolelyCovered(t, original, raiseTightest);
+            return tightest;
+        }
+
+        /**
+         * Changes a power during the search, journalling the old power.
+         */
+        private void change(int t, int power){
+            if(journalSize == journalTransmitter.length){
+                journalTransmitter = Arrays.copyOf(journalTransmitter, 2 * journalSize);
+                journalPower = Arrays.copyOf(journalPower, 2 * journalSize);
+            }
+            journalTransmitter[journalSize] = t;
+            journalPower[journalSize++] = tracker.power(t);
+            apply(t, power);
+        }
+
+        private void rollback(int mark){
+            while(journalSize > mark){
+                journalSize--;
+                apply(journalTransmitter[journalSize], journalPower[journalSize]);
+            }
+        }
+
+        void apply(int t, int power){
+            tracker.setPower(t, power);
+            maxPower = Math.max(maxPower, power);
+            boolean isRaised = power > scenario.transmitterPower[t];
+            if(isRaised && raisedPosition[t] < 0){
+                raisedPosition[t] = raisedCount;
+                raised[raisedCount++] = t;
+            } else if(!isRaised && raisedPosition[t] >= 0){
+                int last = raised[--raisedCount];
+                raised[raisedPosition[t]] = last;
+                raisedPosition[last] = raisedPosition[t];
+                raisedPosition[t] = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Scenario;
+
+/**
+ * Receives the statistics of every scenario an optimiser solves.
+ *
+ * An optimiser may solve scenarios on several threads at once, so implementations must be safe to call
+ * concurrently. The statistics are handed over once per scenario, after the optimiser has finished with them.
+ */
+@FunctionalInterface
+public interface OptimiserListener {
+
+    /**
+     * Listener that ignores everything, used when no listener is given.
+     */
+    OptimiserListener NOOP = (scenario, stats) -> { };
+
+    /**
+     * Called when a scenario has been optimised.
+     *
+     * @param scenario the scenario
+     * @param stats    the statistics collected while optimising it
+     */
+    void scenarioOptimised(Scenario scenario, OptimiserStats stats);
+}
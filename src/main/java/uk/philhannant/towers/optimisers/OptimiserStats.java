@@ -0,0 +1,156 @@
+package uk.philhannant.towers.optimisers;
+
+/**
+ * Counters and phase timings collected while optimising one scenario.
+ *
+ * An optimiser fills in a fresh instance for every scenario from the thread that runs it, then hands it to its
+ * {@link OptimiserListener}. The counters hold the operations actually carried out: every Chebyshev distance worked
+ * out, whether one at a time, by a grid query or by a bulk kernel filling a matrix, and every check or update of
+ * whether a receiver is covered. Work done inside parallel sections is counted by the index structures doing it,
+ * which may be queried from several threads, and includes the candidates a parallel search looks at beyond the one
+ * it keeps, so it can exceed the counts of sequential mode. A decorator counts only its own work; the optimiser it
+ * wraps reports its own statistics to its own listener.
+ *
+ * Statistics nobody listens to are created uncounted, and the index structures an optimiser builds for them keep no
+ * tally at all, so the hot loops of an optimiser without a listener touch no shared counters. The phase timings and
+ * the counts an optimiser keeps in its own locals are still filled in.
+ */
+public class OptimiserStats {
+
+    /**
+     * The phases of an optimisation.
+     */
+    public enum Phase {
+        OUT_OF_RANGE, CANDIDATES, SEARCH, MERGE
+    }
+
+    private final boolean counted;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long candidatesTried;
+    private long chebyshevEvaluations;
+    private long coverageChecks;
+    private int peakCandidates;
+
+    /**
+     * Constructor to instantiate counted statistics.
+     */
+    public OptimiserStats(){
+        this(true);
+    }
+
+    /**
+     * Constructor to instantiate the statistics.
+     *
+     * @param counted whether the index structures built for the scenario should count the operations they carry out
+     */
+    public OptimiserStats(boolean counted){
+        this.counted = counted;
+    }
+
+    /**
+     * Method used to create the statistics of one scenario for the given listener, counted unless the listener is
+     * {@link OptimiserListener#NOOP}.
+     *
+     * @param listener the listener the statistics will be handed to
+     * @return the statistics
+     */
+    public static OptimiserStats of(OptimiserListener listener){
+        return new OptimiserStats(listener != OptimiserListener.NOOP);
+    }
+
+    public boolean isCounted(){
+        return counted;
+    }
+
+    /**
+     * Method used to time a phase that has just ended, so that consecutive phases can be timed with one clock read
+     * each.
+     *
+     * @param phase the phase
+     * @param start the {@link System#nanoTime()} at which the phase started
+     * @return the {@link System#nanoTime()} at which the phase ended
+     */
+    public long lap(Phase phase, long start){
+        long end = System.nanoTime();
+        phaseNanos[phase.ordinal()] += end - start;
+        return end;
+    }
+
+    public void addCandidatesTried(long count){
+        candidatesTried += count;
+    }
+
+    public void addChebyshevEvaluations(long count){
+        chebyshevEvaluations += count;
+    }
+
+    public void addCoverageChecks(long count){
+        coverageChecks += count;
+    }
+
+    /**
+     * Method used to add the distance evaluations and coverage checks of an optimisation nested inside this one,
+     * such as a small exact search run as one move of a local search.
+     *
+     * @param nested the statistics of the nested optimisation
+     */
+    public void addOperations(OptimiserStats nested){
+        chebyshevEvaluations += nested.chebyshevEvaluations;
+        coverageChecks += nested.coverageChecks;
+    }
+
+    /**
+     * Method used to record the size of a candidate list, keeping the largest.
+     *
+     * @param size the number of candidates in the list
+     */
+    public void candidateListSize(int size){
+        peakCandidates = Math.max(peakCandidates, size);
+    }
+
+    public long getPhaseNanos(Phase phase){
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * The time spent in all phases together.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos(){
+        long total = 0;
+        for(long nanos: phaseNanos){
+            total += nanos;
+        }
+        return total;
+    }
+
+    public long getCandidatesTried(){
+        return candidatesTried;
+    }
+
+    public long getChebyshevEvaluations(){
+        return chebyshevEvaluations;
+    }
+
+    public long getCoverageChecks(){
+        return coverageChecks;
+    }
+
+    public int getPeakCandidates(){
+        return peakCandidates;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("OptimiserStats{");
+        for(Phase phase: Phase.values()){
+            builder.append(phase).append("=").append(phaseNanos[phase.ordinal()] / 1_000).append("us, ");
+        }
+        return builder.append("candidatesTried=").append(candidatesTried)
+                .append(", chebyshevEvaluations=").append(chebyshevEvaluations)
+                .append(", coverageChecks=").append(coverageChecks)
+                .append(", peakCandidates=").append(peakCandidates)
+                .append('}').toString();
+    }
+}
@@ -0,0 +1,253 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Power optimiser that races several optimisers on the same scenario, each on a thread of its own, since which one
+ * does best depends on the scenario in ways that are hard to predict.
+ *
+ * The optimisers share a {@link SharedIncumbent}: whatever one of them finds, an exact search such as
+ * {@link BranchAndBoundOptimiser} prunes against straight away. The race ends as soon as a result is proven optimal,
+ * that is once some optimiser finishes with a lower bound no less than the incumbent, or when every optimiser has
+ * finished, or at the deadline. Only anytime optimisers can be raced, so the ones still running are then cancelled
+ * through their token, and the race waits for them to stop, which each does at its next check of the token, before
+ * the incumbent is returned. No optimiser is left running after a race. Results leaving a receiver out of range are
+ * left out of the race, both those that come back and those offered to the incumbent while an optimiser runs, since
+ * each optimiser is handed the incumbent behind a check of every improvement it offers.
+ *
+ * If no optimiser has offered a result by the deadline the race goes on until the first one does, so a result is
+ * always returned. It is safe to share between threads; each race has its own incumbent and tasks.
+ *
+ * Each race reports to an {@link OptimiserListener} how long it ran, with one candidate tried for every result that
+ * came back and the work of checking those results. The optimisers raced report their own statistics.
+ */
+public class PortfolioOptimiser implements AnytimeOptimiser {
+    private static final long POLL_INTERVAL = 10;
+
+    private static final ExecutorService RUNNERS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "portfolio-optimiser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<AnytimeOptimiser> optimisers;
+    private final long timeLimit;
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a portfolio optimiser racing until every optimiser finishes or one is proven
+     * optimal.
+     *
+     * @param optimisers the optimisers raced, which must be safe to share between threads
+     */
+    public PortfolioOptimiser(List<AnytimeOptimiser> optimisers){
+        this(optimisers, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Constructor to instantiate a portfolio optimiser with a deadline for each race.
+     *
+     * @param optimisers the optimisers raced, which must be safe to share between threads
+     * @param timeLimit  the time limit of each race, or zero for none
+     * @param unit       the unit of the time limit
+     */
+    public PortfolioOptimiser(List<AnytimeOptimiser> optimisers, long timeLimit, TimeUnit unit){
+        this(optimisers, timeLimit, unit, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a portfolio optimiser with a deadline for each race, reporting the statistics of
+     * every race to a listener.
+     *
+     * @param optimisers the optimisers raced, which must be safe to share between threads
+     * @param timeLimit  the time limit of each race, or zero for none
+     * @param unit       the unit of the time limit
+     * @param listener   the listener, called once per scenario
+     */
+    public PortfolioOptimiser(List<AnytimeOptimiser> optimisers, long timeLimit, TimeUnit unit,
+                              OptimiserListener listener){
+        if(optimisers.isEmpty()){
+            throw new IllegalArgumentException("Need at least one optimiser to race");
+        }
+        this.optimisers = new ArrayList<>(optimisers);
+        this.timeLimit = unit.toNanos(timeLimit);
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, racing the optimisers until one is proven optimal, all finish or the time limit passes.
+     *
+     * @param scenario the scenario
+     * @return the best result found
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        return optimise(scenario, timeLimit > 0 ? CancellationToken.withTimeout(timeLimit, TimeUnit.NANOSECONDS)
+                : new CancellationToken()).result;
+    }
+
+    /**
+     * Optimise method, racing the optimisers until one is proven optimal, all finish or the token is cancelled.
+     * The time limit given to the constructor does not apply.
+     *
+     * @param scenario the scenario
+     * @param token    the token ending the race
+     * @return the best result found, with the best lower bound of any anytime optimiser that finished
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+        return optimise(scenario, token, new SharedIncumbent());
+    }
+
+    /**
+     * Optimise method, racing the optimisers with an incumbent shared beyond this portfolio as well.
+     *
+     * @param scenario  the scenario
+     * @param token     the token ending the race
+     * @param incumbent the incumbent shared by the optimisers
+     * @return the best result found, with the best lower bound of any anytime optimiser that finished
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token, SharedIncumbent incumbent) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        int lowerBound = 0;
+        for(int power: compact.transmitterPower){
+            lowerBound += power;
+        }
+        CancellationToken race = new CancellationToken();
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        for(AnytimeOptimiser optimiser: optimisers){
+            CheckedIncumbent checked = new CheckedIncumbent(incumbent, compact, new OptimiserStats(stats.isCounted()));
+            RUNNERS.execute(() -> outcomes.add(run(optimiser, scenario, race, checked)));
+        }
+
+        RuntimeException failure = null;
+        boolean proven = false;
+        try {
+            int finished = 0;
+            while(finished < optimisers.size()){
+                // once the race is over the optimisers still running are cancelled, and their outcomes waited for
+                boolean over = proven || (incumbent.getResult() != null && token.isCancelled());
+                if(over){
+                    race.cancel();
+                }
+                Outcome outcome = over ? outcomes.take() : outcomes.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if(outcome != null){
+                    finished++;
+                    stats.addCandidatesTried(1);
+                    stats.addOperations(outcome.checks);
+                    if(outcome.error != null){
+                        failure = failure == null ? outcome.error : failure;
+                    } else if(feasible(outcome.result, compact, stats)){
+                        incumbent.offer(outcome.result);
+                        lowerBound = Math.max(lowerBound, outcome.lowerBound);
+                    }
+                }
+                proven = lowerBound >= incumbent.getTotalPower();
+            }
+        } catch (InterruptedException e) {
+            race.cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while racing the optimisers", e);
+        }
+        stats.lap(OptimiserStats.Phase.SEARCH, time);
+        listener.scenarioOptimised(scenario, stats);
+        Result result = incumbent.getResult();
+        if(result == null){
+            throw failure != null ? failure
+                    : new IllegalStateException("No optimiser brought every receiver into range");
+        }
+        return new AnytimeResult(result, lowerBound, proven);
+    }
+
+    /**
+     * Method used to check that a result brings every receiver of the scenario into range.
+     */
+    private static boolean feasible(Result result, CompactScenario scenario, OptimiserStats stats){
+        TransmitterIndex index = TransmitterIndex.of(result.transmitters, stats.isCounted());
+        int[] outOfRange = index.unreached(scenario.receiverX, scenario.receiverY);
+        stats.addCoverageChecks(scenario.receiverCount());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
+        return outOfRange.length == 0;
+    }
+
+    /**
+     * Method used to run one optimiser of the race, catching its failure.
+     */
+    private static Outcome run(AnytimeOptimiser optimiser, Scenario scenario, CancellationToken race,
+                               CheckedIncumbent incumbent){
+        try {
+            AnytimeResult result = optimiser.optimise(scenario, race, incumbent);
+            return new Outcome(result.result, result.lowerBound, null, incumbent.stats);
+        } catch (RuntimeException e) {
+            return new Outcome(null, 0, e, incumbent.stats);
+        } catch (Error e) {
+            // the race waits for an outcome from every optimiser, so even an error must come back as one
+            return new Outcome(null, 0, new IllegalStateException("Optimiser failed", e), incumbent.stats);
+        }
+    }
+
+    /**
+     * What one optimiser of the race came back with, and the work of checking what it offered the incumbent.
+     */
+    private static final class Outcome {
+        final Result result;
+        final int lowerBound;
+        final RuntimeException error;
+        final OptimiserStats checks;
+
+        Outcome(Result result, int lowerBound, RuntimeException error, OptimiserStats checks){
+            this.result = result;
+            this.lowerBound = lowerBound;
+            this.error = error;
+            this.checks = checks;
+        }
+    }
+
+    /**
+     * The incumbent as one optimiser of the race sees it, passing on only the improvements that bring every receiver
+     * into range. The work of checking them is counted in statistics of its own, since the optimiser offers them from
+     * its own thread, and added to those of the race along with its outcome.
+     */
+    private static final class CheckedIncumbent extends SharedIncumbent {
+        private final SharedIncumbent shared;
+        private final CompactScenario scenario;
+        private final OptimiserStats stats;
+
+        CheckedIncumbent(SharedIncumbent shared, CompactScenario scenario, OptimiserStats stats){
+            this.shared = shared;
+            this.scenario = scenario;
+            this.stats = stats;
+        }
+
+        @Override
+        public boolean offer(Result result){
+            // only an improvement is worth checking
+            return result.getTotalPower() < shared.getTotalPower() && feasible(result, scenario, stats)
+                    && shared.offer(result);
+        }
+
+        @Override
+        public int getTotalPower(){
+            return shared.getTotalPower();
+        }
+
+        @Override
+        public Result getResult(){
+            return shared.getResult();
+        }
+    }
+}
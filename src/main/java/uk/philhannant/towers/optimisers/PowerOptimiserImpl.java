@@ -1,22 +1,67 @@
 package uk.philhannant.towers.optimisers;
 
+import uk.philhannant.towers.index.CheapestRaise;
+import uk.philhannant.towers.index.CoverageTracker;
+import uk.philhannant.towers.index.DistanceKernel;
+import uk.philhannant.towers.index.TransmitterIndex;
 import uk.philhannant.towers.model.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
  * The type Power optimiser.
+ *
+ * In parallel mode the candidate power increases and the per receiver calculations are spread over the common fork
+ * join pool. The results are always the same as in sequential mode: candidates are still taken lowest power first,
+ * then lowest transmitter index, and all lists keep their order. The candidate power increases are worked out by the
+ * {@link DistanceKernel} a block of receivers at a time, so the transmitter by receiver matrix is never held whole,
+ * and the closest transmitters come from {@link CheapestRaise} and a query of the {@link TransmitterIndex} at the
+ * cheapest raise, which finds the transmitters tying with it.
+ *
+ * It can also be run as an anytime optimiser, checking its token before each power increase it tries on every
+ * transmitter. Once cancelled it stops looking for a single transmitter to raise and returns the closest transmitters
+ * raised instead, which always bring every receiver into range, with the original total power as its lower bound.
+ *
+ * Each call to optimise reports its phase timings and counters to an {@link OptimiserListener}. The distance
+ * evaluations and coverage checks are counted by the index structures that carry them out, and in parallel mode
+ * include the candidates checked concurrently beyond the one kept.
  */
-public class PowerOptimiserImpl implements PowerOptimiser {
+public class PowerOptimiserImpl implements AnytimeOptimiser {
 
+    private static final int BLOCK_ENTRIES = 1 << 20;
+
+    private final boolean parallel;
+    private final OptimiserListener listener;
 
     /**
      * Constructor to instantiate a new Power optimiser.
      */
     public PowerOptimiserImpl(){
+        this(false);
+    }
 
+    /**
+     * Constructor to instantiate a new Power optimiser, optionally running in parallel.
+     *
+     * @param parallel whether candidate evaluation is split across threads
+     */
+    public PowerOptimiserImpl(boolean parallel){
+        this(parallel, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a new Power optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param parallel whether candidate evaluation is split across threads
+     * @param listener the listener, called once per scenario
+     */
+    public PowerOptimiserImpl(boolean parallel, OptimiserListener listener){
+        this.parallel = parallel;
+        this.listener = listener;
     }
 
     /**
@@ -29,14 +74,42 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      */
     @Override
     public Result optimise(Scenario scenario) {
-        if(getOutofRangeReceivers(scenario).isEmpty()) {
-            return new Result(scenario.transmitters);
+        return optimise(scenario, new CancellationToken()).result;
+    }
+
+    /**
+     * Optimise method, as {@link #optimise(Scenario)}, but only looking for a single transmitter power increase until
+     * the token is cancelled. Whenever no single increase was found, because the token was cancelled first or none
+     * brings every receiver into range, the multiple increase is returned, so the result is always feasible.
+     *
+     * @param scenario the scenario
+     * @param token    the token checked before each power increase is tried
+     * @return the result with the lowest power value, optimal only if no receiver was out of range
+     */
+    @Override
+    public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        List<Receiver> outOfRange = outOfRangeReceivers(scenario, stats);
+        time = stats.lap(OptimiserStats.Phase.OUT_OF_RANGE, time);
+        Result original = new Result(scenario.transmitters);
+        Result result;
+        if(outOfRange.isEmpty()) {
+            result = original;
         } else {
-            Result singleIncrease =  new Result(increaseTransmitters(scenario.transmitters,
-                    getPossiblePowerIncrease(scenario), scenario));
-            Result multipleIncrease = new Result((optimiseMultiple(scenario)));
-            return singleIncrease.getTotalPower() <= multipleIncrease.getTotalPower() ? singleIncrease : multipleIncrease;
+            List<Integer> powers = possiblePowerIncrease(scenario, outOfRange, stats);
+            List<Transmitter> closest = closestTransmitters(scenario, outOfRange, stats);
+            time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+            List<Transmitter> single = increaseTransmitters(scenario.transmitters, powers, scenario, stats, token);
+            Result singleIncrease = single != null ? new Result(single) : null;
+            time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+            Result multipleIncrease = new Result(optimiseMultiple(scenario, closest));
+            result = singleIncrease != null && singleIncrease.getTotalPower() <= multipleIncrease.getTotalPower()
+                    ? singleIncrease : multipleIncrease;
+            stats.lap(OptimiserStats.Phase.MERGE, time);
         }
+        listener.scenarioOptimised(scenario, stats);
+        return new AnytimeResult(result, original.getTotalPower(), outOfRange.isEmpty());
     }
 
     /**
@@ -48,15 +121,22 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the list containing the updated transmitters
      */
     public List<Transmitter> optimiseMultiple(Scenario scenario){
+        return optimiseMultiple(scenario, getClosestTransmitters(scenario));
+    }
+
+    private List<Transmitter> optimiseMultiple(Scenario scenario, List<Transmitter> closest){
         List<Transmitter> allTransmitters = Stream.concat(scenario.transmitters.stream(),
-                getClosestTransmitters(scenario).stream()).collect(Collectors.toList());
+                closest.stream()).collect(Collectors.toList());
         return removeDuplicateTransmitters(allTransmitters);
     }
 
     /**
      * Method uses brute force to update each transmitter one by one with the possible power values.
-     * If the getOutofRangeReceivers method returns any empty list then correct power increase has been applied and
-     * the new list of transmitters is returned.
+     * If the updated transmitter brings every receiver into range then correct power increase has been applied and
+     * the new list of transmitters is returned. Candidates are tried against a coverage tracker, which only looks at
+     * the receivers between the old and new range of the transmitter, so only the winning candidate allocates a new
+     * list. In parallel mode the candidates are checked concurrently and the first feasible one in sequential order
+     * is kept.
      *
      * @param transmitters the transmitters
      * @param powers       the powers
@@ -64,17 +144,67 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the list containing the updated transmitters
      */
     public List<Transmitter> increaseTransmitters(List<Transmitter> transmitters, List<Integer> powers, Scenario scenario){
-        for(Integer p: powers){
-            for(Transmitter t: transmitters){
-                List<Transmitter> updatedTransmitters = new ArrayList<>(transmitters);
-                updatedTransmitters.set(transmitters.indexOf(t),
-                new Transmitter(t.id, t.location, t.power + p));
-                if(getOutofRangeReceivers(new Scenario(updatedTransmitters, scenario.receivers)).isEmpty()){
-                    return updatedTransmitters;
+        List<Transmitter> updatedTransmitters = increaseTransmitters(transmitters, powers, scenario,
+                new OptimiserStats(false), new CancellationToken());
+        return updatedTransmitters != null ? updatedTransmitters : transmitters;
+    }
+
+    /**
+     * Method used to find the single transmitter power increase, counting the candidates checked, which in parallel
+     * mode may go beyond the winning one. The token is checked before each power increase is tried on the
+     * transmitters, in parallel mode all at once.
+     *
+     * @return the updated transmitters, or null if no single increase was found, whether or not the token was
+     * cancelled first
+     */
+    private List<Transmitter> increaseTransmitters(List<Transmitter> transmitters, List<Integer> powers,
+                                                   Scenario scenario, OptimiserStats stats, CancellationToken token){
+        CompactScenario compact = CompactScenario.of(new Scenario(transmitters, scenario.receivers));
+        CoverageTracker coverage = new CoverageTracker(compact, stats.isCounted());
+        long transmitterCount = compact.transmitterCount();
+        long found = -1;
+        if(parallel && powers.stream().allMatch(p -> p >= 0)){
+            // raises only ever cover receivers, so each candidate is a read only check of the uncovered receivers
+            LongAdder tried = new LongAdder();
+            boolean counted = stats.isCounted();
+            for(int p = 0; p < powers.size() && found < 0 && !token.isCancelled(); p++){
+                int increase = powers.get(p);
+                int t = IntStream.range(0, (int) transmitterCount).parallel()
+                        .filter(c -> {
+                            if(counted){
+                                tried.increment();
+                            }
+                            return coverage.reachesAllUncovered(c, compact.transmitterPower[c] + increase);
+                        })
+                        .findFirst()
+                        .orElse(-1);
+                if(t >= 0){
+                    found = p * transmitterCount + t;
                 }
             }
+            stats.addCandidatesTried(tried.sum());
+        } else {
+            long tried = 0;
+            for(int p = 0; p < powers.size() && found < 0 && !token.isCancelled(); p++){
+                for(int t = 0; t < transmitterCount && found < 0; t++){
+                    tried++;
+                    if(coverage.uncoveredAfter(t, compact.transmitterPower[t] + powers.get(p)) == 0){
+                        found = p * transmitterCount + t;
+                    }
+                }
+            }
+            stats.addCandidatesTried(tried);
+        }
+        stats.addCoverageChecks(coverage.coverageChecks());
+        stats.addChebyshevEvaluations(coverage.distanceEvaluations());
+        if(found < 0){
+            return null;
         }
-        return transmitters;
+        Transmitter transmitter = transmitters.get((int) (found % transmitterCount));
+        List<Transmitter> updatedTransmitters = new ArrayList<>(transmitters);
+        updatedTransmitters.set((int) (found % transmitterCount), new Transmitter(transmitter.id, transmitter.location,
+                transmitter.power + powers.get((int) (found / transmitterCount))));
+        return updatedTransmitters;
     }
 
 
@@ -87,7 +217,8 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      */
     public int increasePower(Transmitter transmitter, Receiver receiver){
         if(outOfRange(transmitter, receiver)){
-            return calculateChebyshev(transmitter.location, receiver.location) - transmitter.power;
+            return CompactScenario.chebyshev(transmitter.location.x, transmitter.location.y,
+                    receiver.location.x, receiver.location.y) - transmitter.power;
         } else {
             return 0;
         }
@@ -102,7 +233,8 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the boolean
      */
     public boolean outOfRange(Transmitter transmitter, Receiver receiver){
-        return transmitter.power < calculateChebyshev(transmitter.location, receiver.location);
+        return transmitter.power < CompactScenario.chebyshev(transmitter.location.x, transmitter.location.y,
+                receiver.location.x, receiver.location.y);
     }
 
 
@@ -118,15 +250,28 @@ public class PowerOptimiserImpl implements PowerOptimiser {
     }
 
     /**
-     * Method to return a filtered list containing only the receivers that are out of range
+     * Method to return a filtered list containing only the receivers that are out of range. The transmitters are put
+     * in a spatial index first, so each receiver is only checked against the transmitters near it.
      *
      * @param scenario the scenario
      * @return list containing out of range receivers
      */
     public List<Receiver> getOutofRangeReceivers(Scenario scenario){
-        return scenario.receivers.stream()
-                .filter(receiver -> outOfRange(scenario.transmitters, receiver))
+        return outOfRangeReceivers(scenario, new OptimiserStats(false));
+    }
+
+    /**
+     * Method used to find the out of range receivers, counting one coverage check per receiver and the distances
+     * the index works out.
+     */
+    private List<Receiver> outOfRangeReceivers(Scenario scenario, OptimiserStats stats){
+        TransmitterIndex index = TransmitterIndex.of(scenario.transmitters, stats.isCounted());
+        List<Receiver> outOfRange = stream(scenario.receivers)
+                .filter(receiver -> !index.reaches(receiver.location.x, receiver.location.y))
                 .collect(Collectors.toList());
+        stats.addCoverageChecks(scenario.receivers.size());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
+        return outOfRange;
     }
 
     /**
@@ -137,7 +282,7 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the integer
      */
     public Integer calculateChebyshev(Point p1, Point p2) {
-        return Math.max(Math.abs(p1.x - p2.x), Math.abs(p1.y - p2.y));
+        return CompactScenario.chebyshev(p1.x, p1.y, p2.x, p2.y);
     }
 
 
@@ -149,7 +294,8 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return distance to range as an int
      */
     public int distanceToRange(Transmitter transmitter, Receiver receiver){
-        return Math.abs(calculateChebyshev(transmitter.location, receiver.location) - transmitter.power);
+        return Math.abs(CompactScenario.chebyshev(transmitter.location.x, transmitter.location.y,
+                receiver.location.x, receiver.location.y) - transmitter.power);
     }
 
 
@@ -174,14 +320,76 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the list containing sorted and unique power increases
      */
     public List<Integer> getPossiblePowerIncrease(Scenario scenario){
-        List<Receiver> outOfRange = getOutofRangeReceivers(scenario);
-        List<List<Integer>> powers = outOfRange.stream()
-                .map(r -> distancetoRange(scenario.transmitters, r))
-                .collect(Collectors.toList());
-        return powers.stream().flatMap(List::stream)
-                .sorted()
-                .distinct()
-                .collect(Collectors.toList());
+        return possiblePowerIncrease(scenario, getOutofRangeReceivers(scenario), new OptimiserStats(false));
+    }
+
+    /**
+     * Method used to work out, through the distance kernel, the distinct power increases the transmitters need to
+     * reach the out of range receivers. As every transmitter is out of range of these receivers the increases are the
+     * same as their distances to range. The kernel is run on blocks of receivers of about {@link #BLOCK_ENTRIES}
+     * entries, each block is cut down to its sorted distinct increases and the blocks are merged, so that memory
+     * grows with the number of distinct increases rather than with the number of transmitter and receiver pairs.
+     *
+     * @param scenario   the scenario
+     * @param outOfRange the out of range receivers
+     * @param stats      the statistics, counting the distance the kernel works out for every pair
+     * @return the distinct increases in increasing order
+     */
+    private List<Integer> possiblePowerIncrease(Scenario scenario, List<Receiver> outOfRange, OptimiserStats stats){
+        CompactScenario compact = CompactScenario.of(new Scenario(scenario.transmitters, outOfRange));
+        int transmitters = compact.transmitterCount();
+        int receivers = compact.receiverCount();
+        int rows = Math.max(1, BLOCK_ENTRIES / Math.max(transmitters, 1));
+        IntStream blocks = IntStream.range(0, (receivers + rows - 1) / rows);
+        int[] increases = (parallel ? blocks.parallel() : blocks)
+                .mapToObj(b -> {
+                    int from = b * rows;
+                    int to = Math.min(receivers, from + rows);
+                    return distinct(DistanceKernel.increases(compact.transmitterX, compact.transmitterY,
+                            compact.transmitterPower, Arrays.copyOfRange(compact.receiverX, from, to),
+                            Arrays.copyOfRange(compact.receiverY, from, to), false));
+                })
+                .reduce(new int[0], PowerOptimiserImpl::union);
+        stats.addChebyshevEvaluations((long) transmitters * receivers);
+        List<Integer> candidates = new ArrayList<>(increases.length);
+        for(int increase: increases){
+            candidates.add(increase);
+        }
+        stats.candidateListSize(candidates.size());
+        return candidates;
+    }
+
+    /**
+     * Method used to sort values and drop the repeats, in place.
+     */
+    private static int[] distinct(int[] values){
+        Arrays.sort(values);
+        int count = 0;
+        for(int i = 0; i < values.length; i++){
+            if(count == 0 || values[i] != values[count - 1]){
+                values[count++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    /**
+     * Method used to merge two sorted arrays of distinct values into one.
+     */
+    private static int[] union(int[] a, int[] b){
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while(i < a.length || j < b.length){
+            int value = j == b.length || (i < a.length && a[i] <= b[j]) ? a[i] : b[j];
+            merged[count++] = value;
+            while(i < a.length && a[i] == value){
+                i++;
+            }
+            while(j < b.length && b[j] == value){
+                j++;
+            }
+        }
+        return Arrays.copyOf(merged, count);
     }
 
 
@@ -212,14 +420,23 @@ public class PowerOptimiserImpl implements PowerOptimiser {
      * @return the list containing updated transmitters.
      */
     public List<Transmitter> getClosestTransmitters(Scenario scenario){
-        List<Receiver> outOfRange = getOutofRangeReceivers(scenario);
-        List<List<Transmitter>> closestTransmitters = outOfRange
-                .stream()
-                .map(r -> getClosestTransmitter(scenario.transmitters, r))
+        return closestTransmitters(scenario, getOutofRangeReceivers(scenario), new OptimiserStats(false));
+    }
+
+    private List<Transmitter> closestTransmitters(Scenario scenario, List<Receiver> outOfRange, OptimiserStats stats){
+        CompactScenario compact = CompactScenario.of(new Scenario(scenario.transmitters, outOfRange));
+        CheapestRaise cheapest = CheapestRaise.of(compact.transmitterX, compact.transmitterY, compact.transmitterPower,
+                compact.receiverX, compact.receiverY);
+        TransmitterIndex index = TransmitterIndex.of(compact, stats.isCounted());
+        IntStream receivers = IntStream.range(0, outOfRange.size());
+        List<List<Transmitter>> closestTransmitters = (parallel ? receivers.parallel() : receivers)
+                .mapToObj(r -> closestTransmitter(scenario.transmitters, compact, cheapest, index, r))
                 .collect(Collectors.toList());
+        stats.addChebyshevEvaluations(index.distanceEvaluations());
         List<Transmitter> finalUpdatedTransmitters = closestTransmitters.stream().flatMap(List::stream)
                 .distinct()
                 .collect(Collectors.toList());
+        stats.candidateListSize(finalUpdatedTransmitters.size());
         finalUpdatedTransmitters = removeDuplicateTransmitters(finalUpdatedTransmitters);
         return finalUpdatedTransmitters;
     }
@@ -248,6 +465,26 @@ public class PowerOptimiserImpl implements PowerOptimiser {
         return updatedTransmitter;
     }
 
+    /**
+     * Method used to find the closest transmitters to an out of range receiver, as getClosestTransmitter does from
+     * the distances. The cheapest raise gives the smallest increase, and as no transmitter reaches the receiver with
+     * less, the transmitters the index finds reaching it with that increase are exactly the ones tying for it.
+     */
+    private List<Transmitter> closestTransmitter(List<Transmitter> transmitters, CompactScenario compact,
+                                                 CheapestRaise cheapest, TransmitterIndex index, int receiver){
+        List<Integer> closest = new ArrayList<>();
+        int increase = cheapest.raise(receiver);
+        if(cheapest.transmitter(receiver) >= 0){
+            index.forEachReaching(compact.receiverX[receiver], compact.receiverY[receiver], increase, closest::add);
+            closest.sort(null);
+        }
+        return closest.stream()
+                .map(transmitters::get)
+                .distinct()
+                .map(t -> new Transmitter(t.id, t.location, t.power + increase))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Method used to find the greatest power increase for a certain transmitter, before returning a list containing
      * the relevant transmitter.
@@ -266,4 +503,16 @@ public class PowerOptimiserImpl implements PowerOptimiser {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Method used to stream a list, in parallel when this optimiser runs in parallel mode. The streams are ordered,
+     * so collecting them gives the same list either way.
+     *
+     * @param list the list
+     * @param <T>  the element type
+     * @return the stream
+     */
+    private <T> Stream<T> stream(List<T> list){
+        return parallel ? list.parallelStream() : list.stream();
+    }
+
 }
@@ -0,0 +1,68 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+/**
+ * Power optimiser decorator that reduces each scenario with a {@link ScenarioReduction} before handing the much
+ * smaller residual scenario to the delegate, then expands the delegate's result back to the full scenario.
+ *
+ * With an exact delegate the result is still optimal. A scenario that reduces to nothing, because every receiver is
+ * in range or covered by forced raises, never reaches the delegate.
+ *
+ * Each call reports to an {@link OptimiserListener} the time spent reducing, in the delegate and expanding, the work
+ * done by the reduction, and the number of transmitters left in the residual as the candidate list size. The
+ * delegate reports its own statistics.
+ */
+public class ReducingOptimiser implements PowerOptimiser {
+    private final PowerOptimiser delegate;
+    private final OptimiserListener listener;
+
+    /**
+     * Constructor to instantiate a reducing optimiser.
+     *
+     * @param delegate the optimiser used for the residual scenario
+     */
+    public ReducingOptimiser(PowerOptimiser delegate){
+        this(delegate, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a reducing optimiser reporting the statistics of every scenario to a listener.
+     *
+     * @param delegate the optimiser used for the residual scenario
+     * @param listener the listener, called once per scenario
+     */
+    public ReducingOptimiser(PowerOptimiser delegate, OptimiserListener listener){
+        this.delegate = delegate;
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, solving the residual of the scenario with the delegate.
+     *
+     * @param scenario the scenario
+     * @return the result, with the transmitters in scenario order
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        ScenarioReduction reduction = ScenarioReduction.of(scenario);
+        stats.addChebyshevEvaluations(reduction.distanceEvaluations);
+        stats.addCoverageChecks(reduction.coverageChecks);
+        stats.candidateListSize(reduction.residual.transmitters.size());
+        time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+        Result residual;
+        if(reduction.residual.receivers.isEmpty()){
+            residual = new Result(reduction.residual.transmitters);
+        } else {
+            residual = delegate.optimise(reduction.residual);
+            time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+        }
+        Result result = reduction.expand(residual);
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+}
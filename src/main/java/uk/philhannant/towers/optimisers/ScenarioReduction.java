@@ -0,0 +1,401 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.CoverageBitsets;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A scenario reduced to its hard core: a smaller residual scenario that any optimiser can solve, and the way back
+ * from a result of the residual to a result of the full scenario.
+ *
+ * Receivers in range at the original powers are dropped, as are all but one of the receivers sharing a location.
+ * Then, against an upper bound on the power still needed from a greedy cover, a transmitter is an option for a
+ * receiver if it can reach it within the bound, since no solution within the bound raises a transmitter any further.
+ * The following rules are applied until none of them changes anything:
+ * <ul>
+ *     <li>a receiver with a single option forces that transmitter up to its distance, and the receivers this brings
+ *     into range are dropped;</li>
+ *     <li>a receiver B is dropped if another receiver A dominates it: every option of A that reaches A also reaches
+ *     B, so covering A covers B;</li>
+ *     <li>a transmitter T is dropped if another transmitter S dominates it: for every receiver T is an option for,
+ *     S needs no larger raise, so raising S instead of T is never worse.</li>
+ * </ul>
+ * The residual holds the remaining receivers and the transmitters that are an option for one of them, at their
+ * forced powers. An optimal result of the residual expands to an optimal result of the full scenario. Results of
+ * heuristic optimisers may raise transmitters further than the bound, so after expanding any receiver left out of
+ * range is covered by its cheapest transmitter.
+ *
+ * Working out the options compares every transmitter with every remaining receiver on each round, so the reduction
+ * suits scenarios of the size the exact optimisers handle. Which receivers the forced raises bring into range is
+ * worked out on each round from the {@link CoverageBitsets} of the scenario, with one word wide OR per raised
+ * transmitter, rather than by comparing each receiver with every transmitter. The bitsets are only built once a raise
+ * has been forced, since until then every receiver left is out of range.
+ */
+public class ScenarioReduction {
+    public final Scenario residual;
+    public final int duplicateReceivers;
+    public final int dominatedReceivers;
+    public final int dominatedTransmitters;
+    public final int forcedRaises;
+    public final long distanceEvaluations;
+    public final long coverageChecks;
+
+    private final CompactScenario scenario;
+    private final int[] outOfRange;
+    private final int[] forcedPower;
+    private final int[] residualTransmitters;
+
+    private ScenarioReduction(Reducer reducer){
+        this.scenario = reducer.scenario;
+        this.outOfRange = reducer.outOfRange;
+        this.forcedPower = reducer.power;
+        this.duplicateReceivers = reducer.duplicateReceivers;
+        this.dominatedReceivers = reducer.dominatedReceivers;
+        this.dominatedTransmitters = reducer.dominatedTransmitters;
+        this.forcedRaises = reducer.forcedRaises;
+        this.distanceEvaluations = reducer.distanceEvaluations;
+        this.coverageChecks = reducer.coverageChecks;
+        this.residualTransmitters = reducer.residualTransmitters();
+        this.residual = reducer.residualScenario(residualTransmitters);
+    }
+
+    /**
+     * Reduces a scenario.
+     *
+     * @param scenario the scenario
+     * @return the reduction, with the residual scenario
+     */
+    public static ScenarioReduction of(Scenario scenario){
+        Reducer reducer = new Reducer(scenario);
+        reducer.run();
+        return new ScenarioReduction(reducer);
+    }
+
+    /**
+     * Method used to map a result of the residual scenario back to the full scenario. Forced raises are added, and
+     * any receiver the residual result leaves out of range is covered by its cheapest transmitter.
+     *
+     * @param residualResult the result of the residual scenario
+     * @return the result of the full scenario, with the transmitters in scenario order
+     */
+    public Result expand(Result residualResult){
+        int[] powers = forcedPower.clone();
+        int[] residualPowers = CompactScenario.of(residual).powersOf(residualResult);
+        for(int i = 0; i < residualTransmitters.length; i++){
+            powers[residualTransmitters[i]] = Math.max(powers[residualTransmitters[i]], residualPowers[i]);
+        }
+        for(int r: outOfRange){
+            int best = -1;
+            long bestRaise = Long.MAX_VALUE;
+            for(int t = 0; t < powers.length && bestRaise > 0; t++){
+                long raise = (long) scenario.distance(t, r) - powers[t];
+                if(raise < bestRaise){
+                    best = t;
+                    bestRaise = raise;
+                }
+            }
+            if(bestRaise > 0){
+                powers[best] = scenario.distance(best, r);
+            }
+        }
+        return scenario.toResult(powers);
+    }
+
+    @Override
+    public String toString() {
+        return "ScenarioReduction{" +
+                "residualTransmitters=" + residual.transmitters.size() +
+                ", residualReceivers=" + residual.receivers.size() +
+                ", duplicateReceivers=" + duplicateReceivers +
+                ", dominatedReceivers=" + dominatedReceivers +
+                ", dominatedTransmitters=" + dominatedTransmitters +
+                ", forcedRaises=" + forcedRaises +
+                '}';
+    }
+
+    /**
+     * The state of one reduction, over the compact form of the scenario.
+     */
+    private static final class Reducer {
+        private final Scenario original;
+        private final CompactScenario scenario;
+        private final int[] outOfRange;
+        private CoverageBitsets bitsets;
+        private int[] bitOf;
+        private final int[] power;
+        private final boolean[] dropped;
+        private List<Integer> receivers = new ArrayList<>();
+        private int[][] options;
+
+        private int duplicateReceivers;
+        private int dominatedReceivers;
+        private int dominatedTransmitters;
+        private int forcedRaises;
+        private long distanceEvaluations;
+        private long coverageChecks;
+
+        Reducer(Scenario original){
+            this.original = original;
+            scenario = CompactScenario.of(original);
+            TransmitterIndex index = TransmitterIndex.of(scenario);
+            outOfRange = index.unreached(scenario.receiverX, scenario.receiverY);
+            distanceEvaluations = index.distanceEvaluations();
+            coverageChecks = scenario.receiverCount();
+            power = scenario.transmitterPower.clone();
+            dropped = new boolean[scenario.transmitterCount()];
+            options = new int[0][];
+        }
+
+        void run(){
+            dropDuplicates();
+            if(scenario.transmitterCount() == 0){
+                return;
+            }
+            boolean changed = true;
+            while(changed){
+                if(forcedRaises > 0){
+                    dropCovered();
+                }
+                if(receivers.isEmpty()){
+                    options = new int[0][];
+                    return;
+                }
+                findOptions(greedyBound());
+                changed = force() || dropDominatedReceivers() || dropDominatedTransmitters();
+            }
+        }
+
+        /**
+         * Keeps the first receiver, in scenario order, of each location out of range.
+         */
+        private void dropDuplicates(){
+            Integer[] order = new Integer[outOfRange.length];
+            for(int i = 0; i < order.length; i++){
+                order[i] = outOfRange[i];
+            }
+            Arrays.sort(order, (a, b) -> scenario.receiverX[a] != scenario.receiverX[b]
+                    ? Integer.compare(scenario.receiverX[a], scenario.receiverX[b])
+                    : scenario.receiverY[a] != scenario.receiverY[b]
+                    ? Integer.compare(scenario.receiverY[a], scenario.receiverY[b]) : Integer.compare(a, b));
+            for(int i = 0; i < order.length; i++){
+                if(i > 0 && scenario.receiverX[order[i]] == scenario.receiverX[order[i - 1]]
+                        && scenario.receiverY[order[i]] == scenario.receiverY[order[i - 1]]){
+                    duplicateReceivers++;
+                } else {
+                    receivers.add(order[i]);
+                }
+            }
+            receivers.sort(null);
+        }
+
+        /**
+         * Drops the receivers the forced raises bring into range, building the bitsets the first time.
+         */
+        private void dropCovered(){
+            if(bitsets == null){
+                bitsets = CoverageBitsets.of(scenario);
+                distanceEvaluations += bitsets.distanceEvaluations();
+                bitOf = new int[scenario.receiverCount()];
+                for(int bit = 0; bit < bitsets.receiverCount(); bit++){
+                    bitOf[bitsets.receiver(bit)] = bit;
+                }
+            }
+            long[] covered = bitsets.covered(power);
+            coverageChecks += receivers.size();
+            receivers.removeIf(r -> CoverageBitsets.isSet(covered, bitOf[r]));
+        }
+
+        private int distance(int t, int r){
+            distanceEvaluations++;
+            return scenario.distance(t, r);
+        }
+
+        private long raise(int t, int r){
+            return (long) distance(t, r) - power[t];
+        }
+
+        /**
+         * Method used to bound the power still needed, by covering the receivers one at a time with whichever
+         * remaining transmitter needs the smallest raise.
+         *
+         * @return the total raise of the greedy cover
+         */
+        private long greedyBound(){
+            int[] greedy = power.clone();
+            long cost = 0;
+            for(int r: receivers){
+                int best = -1;
+                long bestRaise = Long.MAX_VALUE;
+                for(int t = 0; t < greedy.length; t++){
+                    long raise = (long) distance(t, r) - greedy[t];
+                    if(!dropped[t] && raise < bestRaise){
+                        best = t;
+                        bestRaise = raise;
+                    }
+                }
+                if(bestRaise > 0){
+                    greedy[best] += bestRaise;
+                    cost += bestRaise;
+                }
+            }
+            return cost;
+        }
+
+        private void findOptions(long bound){
+            options = new int[receivers.size()][];
+            int[] found = new int[power.length];
+            for(int i = 0; i < options.length; i++){
+                int count = 0;
+                for(int t = 0; t < power.length; t++){
+                    if(!dropped[t] && raise(t, receivers.get(i)) <= bound){
+                        found[count++] = t;
+                    }
+                }
+                options[i] = Arrays.copyOf(found, count);
+            }
+        }
+
+        private boolean force(){
+            boolean forced = false;
+            for(int i = 0; i < options.length; i++){
+                if(options[i].length == 1){
+                    int t = options[i][0];
+                    int distance = distance(t, receivers.get(i));
+                    if(distance > power[t]){
+                        power[t] = distance;
+                        forcedRaises++;
+                        forced = true;
+                    }
+                }
+            }
+            return forced;
+        }
+
+        private boolean dropDominatedReceivers(){
+            boolean[] dominated = new boolean[receivers.size()];
+            int count = 0;
+            for(int a = 0; a < dominated.length; a++){
+                if(dominated[a]){
+                    continue;
+                }
+                int ra = receivers.get(a);
+                // a dominated receiver is reached by every option of a, so the first option narrows the search
+                int first = options[a][0];
+                int reach = distance(first, ra);
+                for(int b = 0; b < dominated.length; b++){
+                    int rb = receivers.get(b);
+                    if(b != a && !dominated[b] && distance(first, rb) <= reach && dominates(a, rb)){
+                        dominated[b] = true;
+                        count++;
+                    }
+                }
+            }
+            if(count == 0){
+                return false;
+            }
+            List<Integer> kept = new ArrayList<>();
+            for(int i = 0; i < dominated.length; i++){
+                if(!dominated[i]){
+                    kept.add(receivers.get(i));
+                }
+            }
+            receivers = kept;
+            dominatedReceivers += count;
+            return true;
+        }
+
+        private boolean dominates(int a, int rb){
+            int ra = receivers.get(a);
+            for(int t: options[a]){
+                if(distance(t, rb) > distance(t, ra)){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean dropDominatedTransmitters(){
+            List<List<Integer>> served = new ArrayList<>();
+            for(int t = 0; t < power.length; t++){
+                served.add(new ArrayList<>());
+            }
+            for(int i = 0; i < options.length; i++){
+                for(int t: options[i]){
+                    served.get(t).add(i);
+                }
+            }
+            boolean changed = false;
+            for(int t = 0; t < power.length; t++){
+                List<Integer> list = served.get(t);
+                if(dropped[t] || list.isEmpty()){
+                    continue;
+                }
+                // a dominating transmitter is an option wherever t is, so the receiver with fewest options narrows
+                // the search
+                int narrowest = list.get(0);
+                for(int i: list){
+                    if(options[i].length < options[narrowest].length){
+                        narrowest = i;
+                    }
+                }
+                for(int s: options[narrowest]){
+                    if(s != t && !dropped[s] && dominatesTransmitter(s, t, list)){
+                        dropped[t] = true;
+                        dominatedTransmitters++;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+            return changed;
+        }
+
+        private boolean dominatesTransmitter(int s, int t, List<Integer> served){
+            for(int i: served){
+                if(raise(s, receivers.get(i)) > raise(t, receivers.get(i))){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int[] residualTransmitters(){
+            boolean[] used = new boolean[power.length];
+            for(int[] receiverOptions: options){
+                for(int t: receiverOptions){
+                    used[t] = true;
+                }
+            }
+            int count = 0;
+            int[] transmitters = new int[power.length];
+            for(int t = 0; t < power.length; t++){
+                if(used[t]){
+                    transmitters[count++] = t;
+                }
+            }
+            return Arrays.copyOf(transmitters, count);
+        }
+
+        Scenario residualScenario(int[] transmitters){
+            List<Transmitter> transmitterList = new ArrayList<>(transmitters.length);
+            for(int t: transmitters){
+                Transmitter transmitter = original.transmitters.get(t);
+                transmitterList.add(power[t] == transmitter.power ? transmitter
+                        : new Transmitter(transmitter.id, transmitter.location, power[t]));
+            }
+            List<Receiver> receiverList = new ArrayList<>(receivers.size());
+            for(int r: receivers){
+                receiverList.add(original.receivers.get(r));
+            }
+            return new Scenario(transmitterList, receiverList);
+        }
+    }
+}
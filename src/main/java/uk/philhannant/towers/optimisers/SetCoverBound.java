@@ -0,0 +1,277 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.index.ReceiverDistanceIndex;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Certified lower bound on the total power needed to bring every receiver into range, from the linear programming
+ * relaxation of the problem as a set cover.
+ *
+ * Every power level of every transmitter is a set, holding the out of range receivers within that distance and
+ * costing the raise to it. Any price per receiver such that the prices of the receivers in each set add up to no
+ * more than its cost is a feasible solution of the dual of the relaxation, so by weak duality the prices add up to
+ * no more than the optimum. The prices are found by dual ascent: receivers with the fewest transmitter options are
+ * priced first, each at the smallest slack left among the sets holding it. The slack of the levels of a transmitter
+ * is kept in a segment tree, so pricing a receiver takes logarithmic time per transmitter.
+ *
+ * A set costing at least a known upper bound on the optimum can be left out: a solution using it is no better than
+ * that bound, so the bound capped at the upper bound still holds. The branch and bound search uses this with the
+ * caps of its branches to prune nodes, while {@link #lowerBound(Scenario)} splits the scenario into the independent
+ * components of {@link DecomposingOptimiser} and adds up their bounds, so large islands are bounded one cluster at
+ * a time.
+ */
+public final class SetCoverBound {
+    private final int transmitterCount;
+    private final int[][] slotDistance;
+    private final int[][] slotOf;
+    private final MinTree[] trees;
+    private final int[] lastSlot;
+
+    /**
+     * Constructor to instantiate the bound over the receivers of a distance index, which are numbered as in the
+     * index.
+     *
+     * @param index            the index of the receivers by distance from each transmitter
+     * @param transmitterCount the number of transmitters in the index
+     */
+    SetCoverBound(ReceiverDistanceIndex index, int transmitterCount){
+        this.transmitterCount = transmitterCount;
+        int receiverCount = index.receiverCount();
+        slotDistance = new int[transmitterCount][];
+        slotOf = new int[transmitterCount][receiverCount];
+        trees = new MinTree[transmitterCount];
+        lastSlot = new int[transmitterCount];
+        for(int t = 0; t < transmitterCount; t++){
+            slotDistance[t] = index.levels(t);
+            for(int rank = 0, slot = 0; rank < receiverCount; rank++){
+                if(index.distance(t, rank) != slotDistance[t][slot]){
+                    slot++;
+                }
+                slotOf[t][index.receiver(t, rank)] = slot;
+            }
+            trees[t] = new MinTree(slotDistance[t].length);
+        }
+    }
+
+    /**
+     * Method used to work out a lower bound on the total power needed to bring every receiver of a scenario into
+     * range.
+     *
+     * @param scenario the scenario
+     * @return the bound, at least the original total power
+     */
+    public static int lowerBound(Scenario scenario){
+        CompactScenario compact = CompactScenario.of(scenario);
+        int bound = 0;
+        for(int power: compact.transmitterPower){
+            bound += power;
+        }
+        List<DecomposingOptimiser.Component> components = DecomposingOptimiser.components(compact);
+        if(components.size() == 1){
+            return bound + extraPower(compact);
+        }
+        for(DecomposingOptimiser.Component component: components){
+            bound += extraPower(CompactScenario.of(component.toScenario(scenario)));
+        }
+        return bound;
+    }
+
+    /**
+     * Method used to certify how far a feasible result of a scenario can be from the optimum.
+     *
+     * @param scenario the scenario
+     * @param result   a result bringing every receiver into range
+     * @return the result with the lower bound, marked optimal if it meets the bound
+     */
+    public static AnytimeResult certify(Scenario scenario, Result result){
+        int bound = lowerBound(scenario);
+        return new AnytimeResult(result, bound, bound >= result.getTotalPower());
+    }
+
+    /**
+     * Method used to bound the extra power needed by one scenario, without splitting it. A greedy cover gives the
+     * upper bound that limits the levels taking part.
+     *
+     * @param scenario the compact scenario
+     * @return the bound on the power needed above the original powers
+     */
+    static int extraPower(CompactScenario scenario){
+        int[] outOfRange = TransmitterIndex.outOfRange(scenario);
+        int receiverCount = outOfRange.length;
+        if(receiverCount == 0){
+            return 0;
+        }
+        int transmitterCount = scenario.transmitterCount();
+        if(transmitterCount == 0){
+            throw new IllegalArgumentException("Receivers cannot be brought into range without transmitters");
+        }
+        int[][] distance = new int[receiverCount][transmitterCount];
+        for(int r = 0; r < receiverCount; r++){
+            for(int t = 0; t < transmitterCount; t++){
+                distance[r][t] = scenario.distance(t, outOfRange[r]);
+            }
+        }
+
+        // greedy cover: raise the cheapest transmitter for each receiver still out of range
+        int[] level = scenario.transmitterPower.clone();
+        int upper = 0;
+        for(int r = 0; r < receiverCount; r++){
+            int best = 0;
+            boolean covered = false;
+            for(int t = 0; t < transmitterCount && !covered; t++){
+                covered = distance[r][t] <= level[t];
+                if(distance[r][t] - level[t] < distance[r][best] - level[best]){
+                    best = t;
+                }
+            }
+            if(!covered){
+                upper += distance[r][best] - level[best];
+                level[best] = distance[r][best];
+            }
+        }
+
+        int budget = upper - 1;
+        long[] order = new long[receiverCount];
+        for(int r = 0; r < receiverCount; r++){
+            int options = 0;
+            for(int t = 0; t < transmitterCount; t++){
+                if(distance[r][t] - scenario.transmitterPower[t] <= budget){
+                    options++;
+                }
+            }
+            order[r] = ((long) options << 32) | r;
+        }
+        int[] cap = new int[transmitterCount];
+        Arrays.fill(cap, Integer.MAX_VALUE);
+        SetCoverBound bound = new SetCoverBound(ReceiverDistanceIndex.of(scenario, outOfRange), transmitterCount);
+        return Math.min(upper, bound.dualAscent(scenario.transmitterPower, cap, budget, order, receiverCount));
+    }
+
+    /**
+     * Method used to price receivers by dual ascent, giving a lower bound on the extra power needed to cover them.
+     * Only the levels of each transmitter above its current level, no higher than its cap and costing no more than
+     * the budget take part, so the bound holds for every solution within those limits.
+     *
+     * @param level  the current level of each transmitter, which the costs are measured from
+     * @param cap    the highest level each transmitter may be raised to
+     * @param budget the most extra power any solution of interest spends
+     * @param order  the receivers to price, each in the low half of its entry and ordered by the high half; sorted in
+     *               place
+     * @param count  the number of receivers in the order
+     * @return the bound, or more than the budget as soon as it exceeds it or a receiver cannot be covered within it
+     */
+    int dualAscent(int[] level, int[] cap, int budget, long[] order, int count){
+        for(int t = 0; t < transmitterCount; t++){
+            long limit = Math.min(cap[t], (long) level[t] + budget);
+            int last = Arrays.binarySearch(slotDistance[t], (int) Math.min(limit, Integer.MAX_VALUE));
+            lastSlot[t] = last >= 0 ? last : -last - 2;
+            trees[t].reset(slotDistance[t], level[t]);
+        }
+        int bound = 0;
+        Arrays.sort(order, 0, count);
+        for(int i = 0; i < count; i++){
+            int r = (int) order[i];
+            int price = Integer.MAX_VALUE;
+            for(int t = 0; t < transmitterCount && price > 0; t++){
+                int slot = slotOf[t][r];
+                if(slot <= lastSlot[t]){
+                    price = Math.min(price, trees[t].min(slot, lastSlot[t]));
+                }
+            }
+            if(price == Integer.MAX_VALUE){
+                return budget + 1;
+            }
+            if(price <= 0){
+                continue;
+            }
+            for(int t = 0; t < transmitterCount; t++){
+                int slot = slotOf[t][r];
+                if(slot <= lastSlot[t]){
+                    trees[t].add(slot, lastSlot[t], -price);
+                }
+            }
+            bound += price;
+            if(bound > budget){
+                return bound;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Segment tree holding the remaining slack of each power level of one transmitter, supporting a range add and a
+     * range minimum.
+     */
+    private static final class MinTree {
+        private final int size;
+        private final int[] min;
+        private final int[] pending;
+
+        MinTree(int size){
+            this.size = Math.max(size, 1);
+            min = new int[4 * this.size];
+            pending = new int[4 * this.size];
+        }
+
+        void reset(int[] slotDistance, int level){
+            build(1, 0, size - 1, slotDistance, level);
+        }
+
+        int min(int from, int to){
+            return min(1, 0, size - 1, from, to);
+        }
+
+        void add(int from, int to, int value){
+            add(1, 0, size - 1, from, to, value);
+        }
+
+        private void build(int node, int lo, int hi, int[] slotDistance, int level){
+            pending[node] = 0;
+            if(lo == hi){
+                min[node] = lo < slotDistance.length ? slotDistance[lo] - level : Integer.MAX_VALUE;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            build(2 * node, lo, mid, slotDistance, level);
+            build(2 * node + 1, mid + 1, hi, slotDistance, level);
+            min[node] = Math.min(min[2 * node], min[2 * node + 1]);
+        }
+
+        private int min(int node, int lo, int hi, int from, int to){
+            if(from <= lo && hi <= to){
+                return min[node];
+            }
+            int mid = (lo + hi) >>> 1;
+            int result = Integer.MAX_VALUE;
+            if(from <= mid){
+                result = Math.min(result, min(2 * node, lo, mid, from, to));
+            }
+            if(to > mid){
+                result = Math.min(result, min(2 * node + 1, mid + 1, hi, from, to));
+            }
+            return result == Integer.MAX_VALUE ? result : result + pending[node];
+        }
+
+        private void add(int node, int lo, int hi, int from, int to, int value){
+            if(from <= lo && hi <= to){
+                min[node] += value;
+                pending[node] += value;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            if(from <= mid){
+                add(2 * node, lo, mid, from, to, value);
+            }
+            if(to > mid){
+                add(2 * node + 1, mid + 1, hi, from, to, value);
+            }
+            min[node] = Math.min(min[2 * node], min[2 * node + 1]) + pending[node];
+        }
+    }
+}
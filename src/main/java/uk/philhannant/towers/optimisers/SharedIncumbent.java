@@ -0,0 +1,49 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.model.Result;
+
+/**
+ * The best result found so far for one scenario by any of several optimisers working on it at once.
+ *
+ * Optimisers offer every improvement they find, and a search may prune any branch that cannot beat the total power
+ * of the incumbent, whichever optimiser found it. Reading the total power is a single volatile read, so a search can
+ * afford to check it at every node. It is safe to share between threads.
+ */
+public class SharedIncumbent {
+    private volatile int totalPower = Integer.MAX_VALUE;
+    private Result result;
+
+    /**
+     * Method used to offer a result, which replaces the incumbent if it has a lower total power.
+     *
+     * @param result a result bringing every receiver into range
+     * @return true if the result became the incumbent
+     */
+    public synchronized boolean offer(Result result){
+        int offered = result.getTotalPower();
+        if(offered >= totalPower){
+            return false;
+        }
+        this.result = result;
+        totalPower = offered;
+        return true;
+    }
+
+    /**
+     * Method used to get the total power of the incumbent.
+     *
+     * @return the total power, or Integer.MAX_VALUE if nothing has been offered yet
+     */
+    public int getTotalPower(){
+        return totalPower;
+    }
+
+    /**
+     * Method used to get the incumbent.
+     *
+     * @return the result, or null if nothing has been offered yet
+     */
+    public synchronized Result getResult(){
+        return result;
+    }
+}
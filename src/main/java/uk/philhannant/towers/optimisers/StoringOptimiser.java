@@ -0,0 +1,99 @@
+package uk.philhannant.towers.optimisers;
+
+import uk.philhannant.towers.io.SolutionStore;
+import uk.philhannant.towers.model.CanonicalScenario;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Power optimiser decorator that looks scenarios up in a {@link SolutionStore} before solving them, and stores what
+ * it solves, so that solutions outlive the process.
+ *
+ * Like {@link CachingOptimiser} it works on the {@link CanonicalScenario}, so a scenario that only differs from a
+ * stored one by a translation, the order of its towers or its ids is answered from the store. The store is keyed by
+ * the scenario alone, so it must only ever hold solutions of this delegate. It is safe to share between threads; two
+ * threads missing on the same scenario at the same time both run the delegate.
+ *
+ * Each call reports to an {@link OptimiserListener} the time spent on the lookup, in the delegate on a miss and on
+ * mapping the powers back and storing them. The delegate reports its own statistics.
+ */
+public class StoringOptimiser implements PowerOptimiser {
+    private final PowerOptimiser delegate;
+    private final SolutionStore store;
+    private final OptimiserListener listener;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor to instantiate a storing optimiser. The store is left open, to be closed by the caller.
+     *
+     * @param delegate the optimiser run when the store does not hold a scenario
+     * @param store    the store
+     */
+    public StoringOptimiser(PowerOptimiser delegate, SolutionStore store){
+        this(delegate, store, OptimiserListener.NOOP);
+    }
+
+    /**
+     * Constructor to instantiate a storing optimiser reporting the statistics of every scenario to a listener. The
+     * store is left open, to be closed by the caller.
+     *
+     * @param delegate the optimiser run when the store does not hold a scenario
+     * @param store    the store
+     * @param listener the listener, called once per scenario
+     */
+    public StoringOptimiser(PowerOptimiser delegate, SolutionStore store, OptimiserListener listener){
+        this.delegate = delegate;
+        this.store = store;
+        this.listener = listener;
+    }
+
+    /**
+     * Optimise method, answering from the store when an equivalent scenario has been solved before and running the
+     * delegate otherwise.
+     *
+     * @param scenario the scenario
+     * @return the result
+     * @throws UncheckedIOException if the store cannot be read or written
+     */
+    @Override
+    public Result optimise(Scenario scenario) {
+        OptimiserStats stats = OptimiserStats.of(listener);
+        long time = System.nanoTime();
+        CompactScenario compact = CompactScenario.of(scenario);
+        CanonicalScenario canonical = CanonicalScenario.of(compact);
+        Result result;
+        try {
+            int[] powers = store.get(canonical);
+            time = stats.lap(OptimiserStats.Phase.CANDIDATES, time);
+            if(powers != null){
+                hits.incrementAndGet();
+                result = compact.toResult(canonical.toOriginalOrder(powers));
+            } else {
+                misses.incrementAndGet();
+                result = delegate.optimise(scenario);
+                time = stats.lap(OptimiserStats.Phase.SEARCH, time);
+                store.put(canonical, canonical.toCanonicalOrder(compact.powersOf(result)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stats.lap(OptimiserStats.Phase.MERGE, time);
+        listener.scenarioOptimised(scenario, stats);
+        return result;
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getMisses(){
+        return misses.get();
+    }
+}
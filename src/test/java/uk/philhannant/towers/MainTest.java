@@ -0,0 +1,152 @@
+package uk.philhannant.towers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.philhannant.towers.io.ResultReader;
+import uk.philhannant.towers.io.ScenarioReader;
+import uk.philhannant.towers.io.ScenarioWriter;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.optimisers.AddTenOptimiser;
+import uk.philhannant.towers.optimisers.BranchAndBoundOptimiser;
+import uk.philhannant.towers.optimisers.LazyGreedyOptimiser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the command line entry point.
+ */
+public class MainTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PrintStream out = new PrintStream(new ByteArrayOutputStream());
+
+    /**
+     * Test generating scenarios and optimising them from file to file.
+     */
+    @Test
+    public void generateAndOptimiseTest() throws Exception {
+        Path scenarios = folder.getRoot().toPath().resolve("scenarios.bin");
+        Path results = folder.getRoot().toPath().resolve("results.bin");
+        assertEquals(0, Main.run(new String[]{"generate", "--towers", "60", "--count", "3", "--layout", "CLUSTERED",
+                scenarios.toString()}, out, out));
+        assertEquals(0, Main.run(new String[]{"optimise", "--optimiser", "branch-and-bound", "--threads", "2",
+                "--bound", "true", scenarios.toString(), results.toString()}, out, out));
+        try(ScenarioReader scenarioReader = ScenarioReader.open(scenarios);
+            ResultReader resultReader = ResultReader.open(results)){
+            int count = 0;
+            while(scenarioReader.hasNext()){
+                Scenario scenario = scenarioReader.next();
+                Result result = resultReader.next();
+                assertEquals(new BranchAndBoundOptimiser().optimise(scenario), result);
+                count++;
+            }
+            assertEquals(3, count);
+            assertFalse(resultReader.hasNext());
+        }
+    }
+
+    /**
+     * Test that scenarios optimised by worker processes match the exact optimum.
+     */
+    @Test
+    public void workersTest() throws Exception {
+        Path scenarios = folder.getRoot().toPath().resolve("scenarios.bin");
+        Path results = folder.getRoot().toPath().resolve("results.bin");
+        assertEquals(0, Main.run(new String[]{"generate", "--towers", "200", "--count", "3", "--layout", "CORRIDOR",
+                scenarios.toString()}, out, out));
+        assertEquals(0, Main.run(new String[]{"optimise", "--workers", "2", "--threads", "2",
+                scenarios.toString(), results.toString()}, out, out));
+        try(ScenarioReader scenarioReader = ScenarioReader.open(scenarios);
+            ResultReader resultReader = ResultReader.open(results)){
+            while(scenarioReader.hasNext()){
+                Scenario scenario = scenarioReader.next();
+                assertEquals(new BranchAndBoundOptimiser().optimise(scenario).getTotalPower(),
+                        resultReader.next().getTotalPower());
+            }
+        }
+    }
+
+    /**
+     * Test that a second run with the same solution store writes the same results.
+     */
+    @Test
+    public void storeTest() throws Exception {
+        Path scenarios = folder.getRoot().toPath().resolve("scenarios.bin");
+        Path store = folder.getRoot().toPath().resolve("store");
+        assertEquals(0, Main.run(new String[]{"generate", "--towers", "60", "--count", "3", scenarios.toString()},
+                out, out));
+        for(String results: new String[]{"first.bin", "second.bin"}){
+            assertEquals(0, Main.run(new String[]{"optimise", "--store", store.toString(), scenarios.toString(),
+                    folder.getRoot().toPath().resolve(results).toString()}, out, out));
+        }
+        try(ResultReader first = ResultReader.open(folder.getRoot().toPath().resolve("first.bin"));
+            ResultReader second = ResultReader.open(folder.getRoot().toPath().resolve("second.bin"))){
+            while(first.hasNext()){
+                assertEquals(first.next(), second.next());
+            }
+            assertFalse(second.hasNext());
+        }
+
+        // another optimiser gets a store of its own rather than the answers of the first
+        Path other = folder.getRoot().toPath().resolve("other.bin");
+        assertEquals(0, Main.run(new String[]{"optimise", "--optimiser", "add-ten", "--store", store.toString(),
+                scenarios.toString(), other.toString()}, out, out));
+        assertTrue(Files.isDirectory(store.resolve("branch-and-bound")));
+        assertTrue(Files.isDirectory(store.resolve("add-ten")));
+        try(ScenarioReader scenarioReader = ScenarioReader.open(scenarios);
+            ResultReader resultReader = ResultReader.open(other)){
+            while(scenarioReader.hasNext()){
+                assertEquals(new AddTenOptimiser().optimise(scenarioReader.next()), resultReader.next());
+            }
+        }
+    }
+
+    /**
+     * Test that the worker command answers each scenario it reads, with a failure marker for one it cannot solve.
+     */
+    @Test
+    public void workerTest() throws Exception {
+        Scenario solvable = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.05, 1).generate(20);
+        Scenario impossible = new Scenario(Collections.emptyList(), solvable.receivers);
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        try(ScenarioWriter writer = ScenarioWriter.of(requests)){
+            writer.write(solvable);
+            writer.write(impossible);
+        }
+        ByteArrayOutputStream answers = new ByteArrayOutputStream();
+        assertEquals(0, Main.worker(Collections.singletonMap("optimiser", "branch-and-bound"),
+                new ByteArrayInputStream(requests.toByteArray()), answers, out));
+        try(ResultReader reader = ResultReader.of(new ByteArrayInputStream(answers.toByteArray()))){
+            assertEquals(new BranchAndBoundOptimiser().optimise(solvable), reader.next());
+            assertNull(reader.next());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    /**
+     * Test that bad usage gives exit code 2.
+     */
+    @Test
+    public void usageTest(){
+        assertEquals(2, Main.run(new String[0], out, out));
+        assertEquals(2, Main.run(new String[]{"optimise", "only-one-file"}, out, out));
+        assertEquals(2, Main.run(new String[]{"generate", "--towers", "many", "file"}, out, out));
+        assertEquals(2, Main.run(new String[]{"optimise", "--optimiser", "nope", "a", "b"}, out, out));
+        assertEquals(2, Main.run(new String[]{"worker", "file"}, out, out));
+    }
+}
@@ -0,0 +1,91 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the cell counts, checked against a scan of every point.
+ */
+public class CellCountsTest {
+
+    /**
+     * Test that square queries count at least the points within the square, and no more than those within a cell of
+     * it.
+     */
+    @Test
+    public void atMostWithinTest(){
+        Random random = new Random(1);
+        int[] xs = new int[500];
+        int[] ys = new int[500];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(1000) - 500;
+            ys[i] = random.nextInt(300);
+        }
+        CellCounts counts = CellCounts.of(xs, ys);
+        assertEquals(xs.length, counts.total());
+        for(int q = 0; q < 200; q++){
+            int x = random.nextInt(1200) - 600;
+            int y = random.nextInt(400) - 50;
+            int radius = random.nextInt(300);
+            int counted = counts.atMostWithin(x, y, radius);
+            assertTrue(counted >= scan(xs, ys, x, y, radius, i -> true));
+            assertTrue(counted <= scan(xs, ys, x, y, radius + counts.cellSize(), i -> true));
+        }
+    }
+
+    /**
+     * Test that after a recount only the points passing the filter are counted.
+     */
+    @Test
+    public void recountTest(){
+        Random random = new Random(2);
+        int[] xs = new int[400];
+        int[] ys = new int[400];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(200);
+            ys[i] = random.nextInt(200);
+        }
+        CellCounts counts = CellCounts.of(xs, ys);
+        IntPredicate even = i -> i % 2 == 0;
+        counts.recount(even);
+        assertEquals(xs.length / 2, counts.total());
+        for(int q = 0; q < 200; q++){
+            int x = random.nextInt(200);
+            int y = random.nextInt(200);
+            int radius = random.nextInt(100);
+            int counted = counts.atMostWithin(x, y, radius);
+            assertTrue(counted >= scan(xs, ys, x, y, radius, even));
+            assertTrue(counted <= scan(xs, ys, x, y, radius + counts.cellSize(), even));
+        }
+        assertEquals(xs.length / 2, counts.atMostWithin(100, 100, 1000));
+    }
+
+    /**
+     * Test that a long thin spread of points, and squares missing them altogether, are counted correctly.
+     */
+    @Test
+    public void sparsePointsTest(){
+        int[] xs = {Integer.MIN_VALUE / 2, 0, Integer.MAX_VALUE / 2};
+        int[] ys = {0, 1, 2};
+        CellCounts counts = CellCounts.of(xs, ys);
+        assertEquals(3, counts.atMostWithin(0, 0, Integer.MAX_VALUE));
+        assertEquals(0, counts.atMostWithin(0, 1000, 5));
+        assertEquals(0, counts.atMostWithin(0, 0, -1));
+        assertEquals(0, CellCounts.of(new int[0], new int[0]).atMostWithin(0, 0, 10));
+    }
+
+    private int scan(int[] xs, int[] ys, int x, int y, long radius, IntPredicate filter){
+        int count = 0;
+        for(int i = 0; i < xs.length; i++){
+            if(filter.test(i) && Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y)) <= radius){
+                count++;
+            }
+        }
+        return count;
+    }
+}
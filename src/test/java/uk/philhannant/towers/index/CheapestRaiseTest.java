@@ -0,0 +1,79 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the cheapest raise sweep, checked against comparing every transmitter with every receiver.
+ */
+public class CheapestRaiseTest {
+
+    /**
+     * Test random towers, on a small grid so that ties and shared coordinates are common.
+     */
+    @Test
+    public void randomTest(){
+        Random random = new Random(3);
+        for(int i = 0; i < 200; i++){
+            int transmitters = random.nextInt(30);
+            int receivers = random.nextInt(30);
+            int range = 1 + random.nextInt(i < 100 ? 10 : 2000);
+            int[] tx = randomArray(random, transmitters, range);
+            int[] ty = randomArray(random, transmitters, range);
+            int[] tp = randomArray(random, transmitters, range / 2 + 1);
+            int[] rx = randomArray(random, receivers, range);
+            int[] ry = randomArray(random, receivers, range);
+            CheapestRaise cheapest = CheapestRaise.of(tx, ty, tp, rx, ry);
+            assertEquals(receivers, cheapest.receiverCount());
+            for(int r = 0; r < receivers; r++){
+                int bestT = -1;
+                int best = Integer.MAX_VALUE;
+                for(int t = 0; t < transmitters; t++){
+                    int raise = CompactScenario.chebyshev(tx[t], ty[t], rx[r], ry[r]) - tp[t];
+                    if(raise < best){
+                        best = raise;
+                        bestT = t;
+                    }
+                }
+                assertEquals(best, cheapest.raise(r));
+                assertEquals(bestT, cheapest.transmitter(r));
+            }
+        }
+    }
+
+    /**
+     * Test that the receivers of a generated scenario out of range are exactly those with a positive raise.
+     */
+    @Test
+    public void scenarioTest(){
+        CompactScenario scenario = CompactScenario.of(
+                new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 8).generate(5000));
+        int[] all = new int[scenario.receiverCount()];
+        for(int r = 0; r < all.length; r++){
+            all[r] = r;
+        }
+        CheapestRaise cheapest = CheapestRaise.of(scenario, all);
+        int outOfRange = 0;
+        for(int r = 0; r < all.length; r++){
+            if(cheapest.raise(r) > 0){
+                outOfRange++;
+            }
+            assertEquals(cheapest.raise(r), scenario.distance(cheapest.transmitter(r), r)
+                    - scenario.transmitterPower[cheapest.transmitter(r)]);
+        }
+        assertEquals(TransmitterIndex.outOfRange(scenario).length, outOfRange);
+    }
+
+    private static int[] randomArray(Random random, int length, int bound){
+        int[] array = new int[length];
+        for(int i = 0; i < length; i++){
+            array[i] = random.nextInt(bound) - bound / 3;
+        }
+        return array;
+    }
+}
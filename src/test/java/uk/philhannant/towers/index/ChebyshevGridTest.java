@@ -0,0 +1,157 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the Chebyshev grid, checked against a scan of every point.
+ */
+public class ChebyshevGridTest {
+
+    /**
+     * Test that square queries find exactly the points a full scan finds.
+     */
+    @Test
+    public void forEachWithinTest(){
+        Random random = new Random(1);
+        int[] xs = new int[500];
+        int[] ys = new int[500];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(1000) - 500;
+            ys[i] = random.nextInt(300);
+        }
+        ChebyshevGrid grid = ChebyshevGrid.of(xs, ys, 1);
+        for(int q = 0; q < 200; q++){
+            int x = random.nextInt(1200) - 600;
+            int y = random.nextInt(400) - 50;
+            int radius = random.nextInt(150);
+            List<Integer> found = new ArrayList<>();
+            grid.forEachWithin(x, y, radius, found::add);
+            found.sort(null);
+            assertEquals(scan(xs, ys, x, y, -1, radius), found);
+        }
+    }
+
+    /**
+     * Test that annulus queries find exactly the points between the two radii.
+     */
+    @Test
+    public void forEachBetweenTest(){
+        Random random = new Random(2);
+        int[] xs = new int[400];
+        int[] ys = new int[400];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(200);
+            ys[i] = random.nextInt(200);
+        }
+        ChebyshevGrid grid = ChebyshevGrid.of(xs, ys, 1);
+        for(int q = 0; q < 200; q++){
+            int x = random.nextInt(200);
+            int y = random.nextInt(200);
+            int inner = random.nextInt(60);
+            int outer = inner + random.nextInt(60);
+            List<Integer> found = new ArrayList<>();
+            grid.forEachBetween(x, y, inner, outer, found::add);
+            found.sort(null);
+            assertEquals(scan(xs, ys, x, y, inner, outer), found);
+        }
+    }
+
+    /**
+     * Test that reach queries find exactly the points whose own reach covers the query point, and that an uncounted
+     * grid answers the same without counting anything.
+     */
+    @Test
+    public void reachingTest(){
+        Random random = new Random(4);
+        int[] xs = new int[400];
+        int[] ys = new int[400];
+        int[] reach = new int[400];
+        int radius = 0;
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(300);
+            ys[i] = random.nextInt(300);
+            reach[i] = random.nextInt(40);
+            radius = Math.max(radius, reach[i]);
+        }
+        ChebyshevGrid counted = ChebyshevGrid.of(xs, ys, radius);
+        ChebyshevGrid uncounted = ChebyshevGrid.of(xs, ys, radius, false);
+        for(int q = 0; q < 200; q++){
+            int x = random.nextInt(300);
+            int y = random.nextInt(300);
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < xs.length; i++){
+                if(Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y)) <= reach[i]){
+                    expected.add(i);
+                }
+            }
+            for(ChebyshevGrid grid: new ChebyshevGrid[]{counted, uncounted}){
+                List<Integer> found = new ArrayList<>();
+                assertEquals(expected.size(), grid.forEachReaching(x, y, radius, reach, 0, found::add));
+                found.sort(null);
+                assertEquals(expected, found);
+                assertEquals(!expected.isEmpty(), grid.anyReaching(x, y, radius, reach));
+            }
+        }
+        assertTrue(counted.distanceEvaluations() > 0);
+        assertEquals(0, uncounted.distanceEvaluations());
+    }
+
+    /**
+     * Test that a single point with a long thin spread of coordinates still indexes correctly.
+     */
+    @Test
+    public void sparsePointsTest(){
+        int[] xs = {Integer.MIN_VALUE / 2, 0, Integer.MAX_VALUE / 2};
+        int[] ys = {0, 1, 2};
+        ChebyshevGrid grid = ChebyshevGrid.of(xs, ys, 1);
+        List<Integer> found = new ArrayList<>();
+        grid.forEachWithin(0, 0, 5, found::add);
+        assertEquals(1, found.size());
+        assertEquals(Integer.valueOf(1), found.get(0));
+    }
+
+    /**
+     * Test that queries return the number of points they found and count every distance they work out.
+     */
+    @Test
+    public void distanceEvaluationsTest(){
+        Random random = new Random(3);
+        int[] xs = new int[300];
+        int[] ys = new int[300];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(100);
+            ys[i] = random.nextInt(100);
+        }
+        // a single cell holds every point, so each query looks at all of them
+        ChebyshevGrid grid = ChebyshevGrid.of(xs, ys, 1000);
+        for(int q = 0; q < 20; q++){
+            int x = random.nextInt(100);
+            int y = random.nextInt(100);
+            int radius = random.nextInt(50);
+            assertEquals(scan(xs, ys, x, y, -1, radius).size(), grid.forEachWithin(x, y, radius, i -> { }));
+            assertEquals((q + 1L) * xs.length, grid.distanceEvaluations());
+        }
+        assertEquals(false, grid.anyWithin(0, 0, 1000, i -> false));
+        assertEquals(21L * xs.length, grid.distanceEvaluations());
+        assertEquals(true, grid.anyWithin(0, 0, 1000, i -> true));
+        assertEquals(21L * xs.length + 1, grid.distanceEvaluations());
+    }
+
+    private List<Integer> scan(int[] xs, int[] ys, int x, int y, int inner, int outer){
+        List<Integer> expected = new ArrayList<>();
+        for(int i = 0; i < xs.length; i++){
+            int d = Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y));
+            if(d > inner && d <= outer){
+                expected.add(i);
+            }
+        }
+        return expected;
+    }
+}
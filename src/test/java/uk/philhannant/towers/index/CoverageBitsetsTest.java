@@ -0,0 +1,114 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.optimisers.BranchAndBoundOptimiser;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the coverage bitsets, checked against working out coverage from the distances.
+ */
+public class CoverageBitsetsTest {
+
+    /**
+     * Test that every level is a distance to a modelled receiver and covers exactly the receivers within it.
+     */
+    @Test
+    public void levelsTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            CompactScenario scenario = CompactScenario.of(new ScenarioGenerator(layout, 0.02, 3).generate(400));
+            CoverageBitsets bitsets = CoverageBitsets.of(scenario);
+            assertArrayEquals(TransmitterIndex.outOfRange(scenario), sortedReceivers(bitsets));
+            for(int t = 0; t < scenario.transmitterCount(); t++){
+                for(int k = 0; k < bitsets.levelCount(t); k++){
+                    int power = bitsets.level(t, k);
+                    assertTrue(k == 0 || power > bitsets.level(t, k - 1));
+                    assertEquals(k, bitsets.levelIndex(t, power));
+                    long[] bitset = new long[bitsets.wordCount()];
+                    bitsets.orLevelInto(t, k, bitset);
+                    assertArrayEquals(expected(scenario, bitsets, t, power), bitset);
+                }
+                assertEquals(-1, bitsets.levelIndex(t, scenario.transmitterPower[t]));
+            }
+        }
+    }
+
+    /**
+     * Test that random raises, including ones between and above the useful levels, give the same coverage as the
+     * distances.
+     */
+    @Test
+    public void coveredTest(){
+        CompactScenario scenario = CompactScenario.of(
+                new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.02, 7).generate(300));
+        CoverageBitsets bitsets = CoverageBitsets.of(scenario);
+        Random random = new Random(7);
+        for(int i = 0; i < 200; i++){
+            int[] powers = scenario.transmitterPower.clone();
+            long[] expected = new long[bitsets.wordCount()];
+            for(int j = 0; j < 3; j++){
+                int t = random.nextInt(powers.length);
+                powers[t] += random.nextInt(60);
+                long[] single = expected(scenario, bitsets, t, powers[t]);
+                for(int w = 0; w < expected.length; w++){
+                    expected[w] |= single[w];
+                }
+            }
+            long[] covered = bitsets.covered(powers);
+            assertArrayEquals(expected, covered);
+            assertEquals(bitsets.uncoveredCount(covered) == 0, bitsets.coversAll(powers));
+        }
+        assertFalse(bitsets.coversAll(scenario.transmitterPower));
+    }
+
+    /**
+     * Test that an optimal result covers everything and only raises transmitters to one of their levels.
+     */
+    @Test
+    public void optimalLevelsTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            for(int seed = 0; seed < 5; seed++){
+                Scenario scenario = new ScenarioGenerator(layout, 0.01, seed).generate(300);
+                CompactScenario compact = CompactScenario.of(scenario);
+                CoverageBitsets bitsets = CoverageBitsets.of(compact);
+                int[] powers = compact.powersOf(new BranchAndBoundOptimiser().optimise(scenario));
+                assertTrue(bitsets.coversAll(powers));
+                for(int t = 0; t < powers.length; t++){
+                    if(powers[t] > compact.transmitterPower[t]){
+                        int k = bitsets.levelIndex(t, powers[t]);
+                        assertTrue(k >= 0);
+                        assertEquals(powers[t], bitsets.level(t, k));
+                    }
+                }
+            }
+        }
+    }
+
+    private static int[] sortedReceivers(CoverageBitsets bitsets){
+        int[] receivers = new int[bitsets.receiverCount()];
+        for(int i = 0; i < receivers.length; i++){
+            receivers[i] = bitsets.receiver(i);
+        }
+        Arrays.sort(receivers);
+        return receivers;
+    }
+
+    private static long[] expected(CompactScenario scenario, CoverageBitsets bitsets, int transmitter, int power){
+        long[] bitset = new long[bitsets.wordCount()];
+        for(int i = 0; i < bitsets.receiverCount(); i++){
+            if(scenario.distance(transmitter, bitsets.receiver(i)) <= power){
+                bitset[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return bitset;
+    }
+}
@@ -0,0 +1,84 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the coverage tracker, checked against recounting coverage from scratch.
+ */
+public class CoverageTrackerTest {
+
+    /**
+     * Test that random raises and cuts keep the counts in step with a full recount.
+     */
+    @Test
+    public void setPowerTest(){
+        CompactScenario scenario = CompactScenario.of(
+                new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.02, 5).generate(400));
+        CoverageTracker tracker = new CoverageTracker(scenario);
+        int[] powers = scenario.transmitterPower.clone();
+        Random random = new Random(5);
+        for(int i = 0; i < 500; i++){
+            int t = random.nextInt(powers.length);
+            int newPower = random.nextInt(40);
+            assertEquals(uncovered(scenario, powers, t, newPower), tracker.uncoveredAfter(t, newPower));
+            tracker.setPower(t, newPower);
+            powers[t] = newPower;
+            assertEquals(uncovered(scenario, powers, t, newPower), tracker.uncoveredCount());
+            assertEquals(tracker.uncoveredCount() == 0, tracker.allCovered());
+        }
+        long total = 0;
+        for(int power: powers){
+            total += power;
+        }
+        assertEquals(total, tracker.totalPower());
+    }
+
+    /**
+     * Test that a power change counts one coverage check for every receiver in the annulus between the old and new
+     * range.
+     */
+    @Test
+    public void coverageChecksTest(){
+        CompactScenario scenario = CompactScenario.of(
+                new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.02, 6).generate(400));
+        CoverageTracker tracker = new CoverageTracker(scenario);
+        Random random = new Random(6);
+        for(int i = 0; i < 100; i++){
+            int t = random.nextInt(scenario.transmitterCount());
+            int oldPower = tracker.power(t);
+            int newPower = random.nextInt(40);
+            int annulus = 0;
+            for(int r = 0; r < scenario.receiverCount(); r++){
+                int d = scenario.distance(t, r);
+                if(d > Math.min(oldPower, newPower) && d <= Math.max(oldPower, newPower)){
+                    annulus++;
+                }
+            }
+            long before = tracker.coverageChecks();
+            tracker.setPower(t, newPower);
+            assertEquals(annulus, tracker.coverageChecks() - before);
+            assertTrue(tracker.distanceEvaluations() >= tracker.coverageChecks());
+        }
+    }
+
+    private int uncovered(CompactScenario scenario, int[] powers, int transmitter, int newPower){
+        int uncovered = 0;
+        for(int r = 0; r < scenario.receiverCount(); r++){
+            boolean covered = false;
+            for(int t = 0; t < powers.length && !covered; t++){
+                covered = scenario.distance(t, r) <= (t == transmitter ? newPower : powers[t]);
+            }
+            if(!covered){
+                uncovered++;
+            }
+        }
+        return uncovered;
+    }
+}
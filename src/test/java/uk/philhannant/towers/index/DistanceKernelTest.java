@@ -0,0 +1,53 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.CompactScenario;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the distance kernel, checked against the distances worked out one pair at a time.
+ */
+public class DistanceKernelTest {
+
+    /**
+     * Test that both matrices match the pairwise values, for sizes that do and do not fill whole tiles, and that the
+     * parallel variant gives the same matrices.
+     */
+    @Test
+    public void matrixTest(){
+        Random random = new Random(1);
+        int[][] sizes = {{0, 5}, {5, 0}, {1, 1}, {3, 70}, {DistanceKernel.TRANSMITTER_TILE + 7,
+                DistanceKernel.RECEIVER_TILE * 2 + 1}};
+        for(int[] size: sizes){
+            int[] tx = randomArray(random, size[0], 2000);
+            int[] ty = randomArray(random, size[0], 2000);
+            int[] tp = randomArray(random, size[0], 50);
+            int[] rx = randomArray(random, size[1], 2000);
+            int[] ry = randomArray(random, size[1], 2000);
+            int[] distances = DistanceKernel.distances(tx, ty, rx, ry, false);
+            int[] increases = DistanceKernel.increases(tx, ty, tp, rx, ry, false);
+            assertEquals(size[0] * size[1], distances.length);
+            for(int r = 0; r < size[1]; r++){
+                for(int t = 0; t < size[0]; t++){
+                    int distance = CompactScenario.chebyshev(tx[t], ty[t], rx[r], ry[r]);
+                    assertEquals(distance, distances[r * size[0] + t]);
+                    assertEquals(Math.max(0, distance - tp[t]), increases[r * size[0] + t]);
+                }
+            }
+            assertArrayEquals(distances, DistanceKernel.distances(tx, ty, rx, ry, true));
+            assertArrayEquals(increases, DistanceKernel.increases(tx, ty, tp, rx, ry, true));
+        }
+    }
+
+    private static int[] randomArray(Random random, int length, int bound){
+        int[] array = new int[length];
+        for(int i = 0; i < length; i++){
+            array[i] = random.nextInt(bound) - bound / 2;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,83 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the receiver distance index, checked against scanning every receiver.
+ */
+public class ReceiverDistanceIndexTest {
+
+    private final CompactScenario scenario = CompactScenario.of(
+            new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.02, 4).generate(300));
+
+    /**
+     * Test that every list holds each receiver once, nearest first, with the right distances and levels.
+     */
+    @Test
+    public void sortedTest(){
+        ReceiverDistanceIndex index = ReceiverDistanceIndex.of(scenario);
+        assertEquals(scenario.receiverCount(), index.receiverCount());
+        for(int t = 0; t < scenario.transmitterCount(); t++){
+            boolean[] seen = new boolean[scenario.receiverCount()];
+            List<Integer> levels = new ArrayList<>();
+            for(int rank = 0; rank < index.receiverCount(); rank++){
+                int r = index.receiver(t, rank);
+                assertTrue(!seen[r]);
+                seen[r] = true;
+                assertEquals(scenario.distance(t, r), index.distance(t, rank));
+                assertTrue(rank == 0 || index.distance(t, rank - 1) <= index.distance(t, rank));
+                if(levels.isEmpty() || levels.get(levels.size() - 1) != index.distance(t, rank)){
+                    levels.add(index.distance(t, rank));
+                }
+            }
+            assertArrayEquals(levels.stream().mapToInt(Integer::intValue).toArray(), index.levels(t));
+        }
+    }
+
+    /**
+     * Test that power range queries over a subset of the receivers find exactly the receivers a scan finds.
+     */
+    @Test
+    public void betweenTest(){
+        int[] receivers = TransmitterIndex.outOfRange(scenario);
+        ReceiverDistanceIndex index = ReceiverDistanceIndex.of(scenario, receivers);
+        Random random = new Random(4);
+        for(int i = 0; i < 500; i++){
+            int t = random.nextInt(scenario.transmitterCount());
+            int inner = random.nextInt(80) - 5;
+            int outer = inner + random.nextInt(40);
+            List<Integer> expected = new ArrayList<>();
+            int within = 0;
+            int next = Integer.MAX_VALUE;
+            for(int r = 0; r < receivers.length; r++){
+                int d = scenario.distance(t, receivers[r]);
+                if(d > inner && d <= outer){
+                    expected.add(r);
+                }
+                if(d <= inner){
+                    within++;
+                } else {
+                    next = Math.min(next, d);
+                }
+            }
+            List<Integer> found = new ArrayList<>();
+            index.forEachBetween(t, inner, outer, found::add);
+            Collections.sort(expected);
+            Collections.sort(found);
+            assertEquals(expected, found);
+            assertEquals(within, index.countWithin(t, inner));
+            assertEquals(next == Integer.MAX_VALUE ? -1 : next, index.nextLevel(t, inner));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package uk.philhannant.towers.index;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for the transmitter index, checked against a scan of every transmitter.
+ */
+public class TransmitterIndexTest {
+
+    /**
+     * Test that reach queries, with and without a raise, agree with a full scan for transmitters of widely varying
+     * power.
+     */
+    @Test
+    public void reachesTest(){
+        Random random = new Random(3);
+        int[] xs = new int[300];
+        int[] ys = new int[300];
+        int[] powers = new int[300];
+        for(int i = 0; i < xs.length; i++){
+            xs[i] = random.nextInt(1000);
+            ys[i] = random.nextInt(1000);
+            powers[i] = random.nextInt(10) == 0 ? random.nextInt(400) : random.nextInt(20);
+        }
+        TransmitterIndex index = TransmitterIndex.of(xs, ys, powers);
+        for(int q = 0; q < 500; q++){
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            List<Integer> expected = new ArrayList<>();
+            for(int i = 0; i < xs.length; i++){
+                if(Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y)) <= powers[i]){
+                    expected.add(i);
+                }
+            }
+            List<Integer> found = new ArrayList<>();
+            index.forEachReaching(x, y, found::add);
+            found.sort(null);
+            assertEquals(expected, found);
+            assertEquals(!expected.isEmpty(), index.reaches(x, y));
+
+            int raise = random.nextInt(50);
+            expected.clear();
+            for(int i = 0; i < xs.length; i++){
+                if(Math.max(Math.abs(xs[i] - x), Math.abs(ys[i] - y)) <= powers[i] + raise){
+                    expected.add(i);
+                }
+            }
+            found.clear();
+            index.forEachReaching(x, y, raise, found::add);
+            found.sort(null);
+            assertEquals(expected, found);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package uk.philhannant.towers.io;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.SparseResult;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for the binary scenario and result files.
+ */
+public class ScenarioFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that scenarios, including extreme coordinates and negative powers, are read back as written.
+     */
+    @Test
+    public void scenarioRoundTripTest() throws IOException {
+        List<Scenario> scenarios = Arrays.asList(
+                new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 1).generate(1000),
+                new Scenario(ImmutableList.of(), ImmutableList.of()),
+                new Scenario(
+                        ImmutableList.of(
+                                new Transmitter(Integer.MAX_VALUE, new Point(Integer.MIN_VALUE, Integer.MAX_VALUE), -3),
+                                new Transmitter(-7, new Point(Integer.MAX_VALUE, Integer.MIN_VALUE), Integer.MAX_VALUE)
+                        ),
+                        ImmutableList.of(
+                                new Receiver(0, new Point(0, 0)),
+                                new Receiver(Integer.MIN_VALUE, new Point(-1, 1))
+                        )
+                )
+        );
+        Path file = folder.newFile().toPath();
+        try(ScenarioWriter writer = ScenarioWriter.open(file)){
+            for(Scenario scenario: scenarios){
+                writer.write(scenario);
+            }
+        }
+        List<Scenario> read = new ArrayList<>();
+        try(ScenarioReader reader = ScenarioReader.open(file)){
+            while(reader.hasNext()){
+                read.add(reader.next());
+            }
+        }
+        assertEquals(scenarios, read);
+    }
+
+    /**
+     * Test that results and failure markers are read back as written.
+     */
+    @Test
+    public void resultRoundTripTest() throws IOException {
+        Result result = new Result(ImmutableList.of(
+                new Transmitter(1, new Point(0, 0), 2),
+                new Transmitter(2, new Point(-5, 9), 0)));
+        Path file = folder.newFile().toPath();
+        try(ResultWriter writer = ResultWriter.open(file)){
+            writer.write(result);
+            writer.write(null);
+            writer.write(result);
+        }
+        try(ResultReader reader = ResultReader.open(file)){
+            assertEquals(result, reader.next());
+            assertNull(reader.next());
+            assertEquals(result, reader.next());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    /**
+     * Test that a sparse result is written as the same record as its full result.
+     */
+    @Test
+    public void sparseResultTest() throws IOException {
+        Scenario scenario = new Scenario(ImmutableList.of(
+                new Transmitter(1, new Point(0, 0), 2),
+                new Transmitter(2, new Point(-5, 9), 0)),
+                ImmutableList.of(new Receiver(1, new Point(3, 3))));
+        SparseResult sparse = SparseResult.of(scenario, new int[]{3, 0});
+        Path file = folder.newFile().toPath();
+        try(ResultWriter writer = ResultWriter.open(file)){
+            writer.writeSparse(sparse);
+        }
+        try(ResultReader reader = ResultReader.open(file)){
+            assertEquals(sparse.toResult(), reader.next());
+        }
+    }
+
+    /**
+     * Test that scenarios and results written to streams are read back from them.
+     */
+    @Test
+    public void streamRoundTripTest() throws IOException {
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.05, 2).generate(50);
+        Result result = new Result(scenario.transmitters);
+        ByteArrayOutputStream scenarioBytes = new ByteArrayOutputStream();
+        ByteArrayOutputStream resultBytes = new ByteArrayOutputStream();
+        try(ScenarioWriter scenarioWriter = ScenarioWriter.of(scenarioBytes);
+            ResultWriter resultWriter = ResultWriter.of(resultBytes)){
+            scenarioWriter.write(scenario);
+            resultWriter.write(result);
+            resultWriter.write(null);
+        }
+        try(ScenarioReader scenarioReader = ScenarioReader.of(new ByteArrayInputStream(scenarioBytes.toByteArray()));
+            ResultReader resultReader = ResultReader.of(new ByteArrayInputStream(resultBytes.toByteArray()))){
+            assertEquals(scenario, scenarioReader.next());
+            assertFalse(scenarioReader.hasNext());
+            assertEquals(result, resultReader.next());
+            assertNull(resultReader.next());
+            assertFalse(resultReader.hasNext());
+        }
+    }
+
+    /**
+     * Test that a result file is not accepted as a scenario file.
+     */
+    @Test(expected = IOException.class)
+    public void wrongMagicTest() throws IOException {
+        Path file = folder.newFile().toPath();
+        ResultWriter.open(file).close();
+        ScenarioReader.open(file);
+    }
+}
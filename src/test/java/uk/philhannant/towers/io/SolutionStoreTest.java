@@ -0,0 +1,163 @@
+package uk.philhannant.towers.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.philhannant.towers.model.CanonicalScenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the on-disk solution store.
+ */
+public class SolutionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CanonicalScenario scenario(long seed){
+        return CanonicalScenario.of(new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.05, seed).generate(20));
+    }
+
+    private static int[] powers(CanonicalScenario scenario, int extra){
+        int[] powers = scenario.transmitterPower.clone();
+        for(int t = 0; t < powers.length; t++){
+            powers[t] += extra + t;
+        }
+        return powers;
+    }
+
+    /**
+     * Test that stored solutions are found, replaced and survive reopening the store.
+     */
+    @Test
+    public void reopenTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        CanonicalScenario first = scenario(1), second = scenario(2);
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            assertNull(store.get(first));
+            store.put(first, powers(first, 1));
+            store.put(second, powers(second, 2));
+            store.put(first, powers(first, 3));
+            assertArrayEquals(powers(first, 3), store.get(first));
+            assertEquals(2, store.size());
+        }
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            assertEquals(2, store.size());
+            assertArrayEquals(powers(first, 3), store.get(first));
+            assertArrayEquals(powers(second, 2), store.get(second));
+            assertNull(store.get(scenario(3)));
+        }
+    }
+
+    /**
+     * Test that records written after the index, including none at all, are recovered from the data file, and that
+     * a record cut short is dropped.
+     */
+    @Test
+    public void recoveryTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        CanonicalScenario first = scenario(1), second = scenario(2);
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            store.put(first, powers(first, 1));
+        }
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            store.put(second, powers(second, 2));
+        }
+        Files.delete(directory.resolve(SolutionStore.INDEX_FILE));
+        try(FileChannel data = FileChannel.open(directory.resolve(SolutionStore.DATA_FILE), StandardOpenOption.WRITE)){
+            data.truncate(data.size() - 4);
+        }
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            assertEquals(1, store.size());
+            assertArrayEquals(powers(first, 1), store.get(first));
+            assertNull(store.get(second));
+            store.put(second, powers(second, 2));
+            assertArrayEquals(powers(second, 2), store.get(second));
+        }
+    }
+
+    /**
+     * Test that a damaged record is dropped both by a lookup and by recovery.
+     */
+    @Test
+    public void checksumTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        CanonicalScenario first = scenario(1), second = scenario(2);
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            store.put(first, powers(first, 1));
+            store.put(second, powers(second, 2));
+        }
+        // the last byte of the data file is the last power of the second record
+        flipLastByte(directory);
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            assertEquals(2, store.size());
+            assertNull(store.get(second));
+            assertEquals(1, store.size());
+            assertArrayEquals(powers(first, 1), store.get(first));
+        }
+
+        Files.delete(directory.resolve(SolutionStore.INDEX_FILE));
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            store.put(second, powers(second, 2));
+        }
+        Files.delete(directory.resolve(SolutionStore.INDEX_FILE));
+        flipLastByte(directory);
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            assertEquals(1, store.size());
+            assertArrayEquals(powers(first, 1), store.get(first));
+            assertNull(store.get(second));
+        }
+    }
+
+    private static void flipLastByte(Path directory) throws IOException {
+        try(FileChannel data = FileChannel.open(directory.resolve(SolutionStore.DATA_FILE), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)){
+            ByteBuffer last = ByteBuffer.allocate(1);
+            data.read(last, data.size() - 1);
+            data.write(ByteBuffer.wrap(new byte[]{(byte) (last.get(0) ^ 1)}), data.size() - 1);
+        }
+    }
+
+    /**
+     * Test that the least recently used solutions are evicted to keep within the bound, and that the data file is
+     * compacted before it grows past twice the bound.
+     */
+    @Test
+    public void evictionTest() throws IOException {
+        List<CanonicalScenario> scenarios = new ArrayList<>();
+        for(int seed = 0; seed < 60; seed++){
+            scenarios.add(scenario(seed));
+        }
+        long bound = 5_000;
+        try(SolutionStore store = SolutionStore.open(folder.getRoot().toPath(), bound)){
+            for(CanonicalScenario scenario: scenarios){
+                store.put(scenario, powers(scenario, 0));
+                // keep the first scenario in use so it is never the least recently used
+                assertArrayEquals(powers(scenarios.get(0), 0), store.get(scenarios.get(0)));
+                assertTrue(store.getLiveBytes() <= bound);
+                assertTrue(store.getFileBytes() <= 2 * bound);
+            }
+            assertTrue(store.size() < scenarios.size());
+            assertArrayEquals(powers(scenarios.get(59), 0), store.get(scenarios.get(59)));
+            assertNull(store.get(scenarios.get(1)));
+
+            store.compact();
+            assertEquals(16 + store.getLiveBytes(), store.getFileBytes());
+            assertArrayEquals(powers(scenarios.get(0), 0), store.get(scenarios.get(0)));
+        }
+    }
+}
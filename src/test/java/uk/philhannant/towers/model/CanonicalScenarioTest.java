@@ -0,0 +1,73 @@
+package uk.philhannant.towers.model;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test class for the canonical scenario form.
+ */
+public class CanonicalScenarioTest {
+
+    private final Scenario scenario = new Scenario(
+            ImmutableList.of(
+                    new Transmitter(1, new Point(0, 0), 1),
+                    new Transmitter(2, new Point(0, 6), 2)
+            ),
+            ImmutableList.of(
+                    new Receiver(1, new Point(0, 3)),
+                    new Receiver(2, new Point(-4, 5))
+            )
+    );
+
+    /**
+     * Test that a translated scenario with reordered towers and new ids has the same canonical form.
+     */
+    @Test
+    public void invarianceTest(){
+        Scenario moved = new Scenario(
+                ImmutableList.of(
+                        new Transmitter(7, new Point(10, -14), 2),
+                        new Transmitter(8, new Point(10, -20), 1)
+                ),
+                ImmutableList.of(
+                        new Receiver(5, new Point(6, -15)),
+                        new Receiver(6, new Point(10, -17))
+                )
+        );
+        CanonicalScenario canonical = CanonicalScenario.of(scenario);
+        assertEquals(canonical, CanonicalScenario.of(moved));
+        assertEquals(canonical.hash, CanonicalScenario.of(moved).hash);
+        assertArrayEquals(new int[]{0, 0}, new int[]{canonical.receiverX[0], canonical.transmitterY[0]});
+    }
+
+    /**
+     * Test that a change of power gives a different canonical form.
+     */
+    @Test
+    public void powerChangeTest(){
+        Scenario changed = new Scenario(
+                ImmutableList.of(
+                        new Transmitter(1, new Point(0, 0), 1),
+                        new Transmitter(2, new Point(0, 6), 3)
+                ),
+                scenario.receivers
+        );
+        assertNotEquals(CanonicalScenario.of(scenario), CanonicalScenario.of(changed));
+    }
+
+    /**
+     * Test that values survive a round trip through canonical order.
+     */
+    @Test
+    public void orderTest(){
+        Scenario reversed = new Scenario(ImmutableList.copyOf(scenario.transmitters).reverse(), scenario.receivers);
+        CanonicalScenario canonical = CanonicalScenario.of(reversed);
+        int[] canonicalOrder = canonical.toCanonicalOrder(new int[]{20, 10});
+        assertArrayEquals(new int[]{10, 20}, canonicalOrder);
+        assertArrayEquals(new int[]{20, 10}, canonical.toOriginalOrder(canonicalOrder));
+    }
+}
@@ -0,0 +1,56 @@
+package uk.philhannant.towers.model;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for the compact scenario conversions.
+ */
+public class CompactScenarioTest {
+
+    private final Scenario scenario = new Scenario(
+            ImmutableList.of(
+                    new Transmitter(1, new Point(0, 0), 1),
+                    new Transmitter(2, new Point(0, 6), 2)
+            ),
+            ImmutableList.of(
+                    new Receiver(1, new Point(0, 3)),
+                    new Receiver(2, new Point(-4, 5))
+            )
+    );
+
+    /**
+     * Test that converting to the compact form and back gives an equal scenario.
+     */
+    @Test
+    public void roundTripTest(){
+        CompactScenario compact = CompactScenario.of(scenario);
+        CompactScenario copy = new CompactScenario(compact.transmitterId, compact.transmitterX, compact.transmitterY,
+                compact.transmitterPower, compact.receiverId, compact.receiverX, compact.receiverY);
+        assertEquals(scenario, copy.toScenario());
+        assertEquals(compact, copy);
+    }
+
+    /**
+     * Test distances between transmitters and receivers.
+     */
+    @Test
+    public void distanceTest(){
+        CompactScenario compact = CompactScenario.of(scenario);
+        assertEquals(3, compact.distance(0, 0));
+        assertEquals(4, compact.distance(1, 1));
+    }
+
+    /**
+     * Test that a result reuses the unchanged transmitters and updates the rest.
+     */
+    @Test
+    public void toResultTest(){
+        Result result = CompactScenario.of(scenario).toResult(new int[]{1, 3});
+        assertSame(scenario.transmitters.get(0), result.transmitters.get(0));
+        assertEquals(new Transmitter(2, new Point(0, 6), 3), result.transmitters.get(1));
+    }
+}
@@ -0,0 +1,40 @@
+package uk.philhannant.towers.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test class for applying scenario changes.
+ */
+public class ScenarioDeltaTest {
+
+    /**
+     * Test that put towers replace towers with the same id in place or are added at the end, and removed ids are
+     * dropped.
+     */
+    @Test
+    public void applyToTest(){
+        Scenario scenario = new Scenario(
+                ImmutableList.of(
+                        new Transmitter(1, new Point(0, 0), 1),
+                        new Transmitter(2, new Point(0, 6), 2)
+                ),
+                ImmutableList.of(
+                        new Receiver(1, new Point(0, 3)),
+                        new Receiver(2, new Point(-4, 5))
+                )
+        );
+        ScenarioDelta delta = new ScenarioDelta(
+                ImmutableList.of(new Transmitter(1, new Point(1, 1), 4), new Transmitter(3, new Point(9, 9), 0)),
+                ImmutableSet.of(2),
+                ImmutableList.of(new Receiver(3, new Point(7, 7))),
+                ImmutableSet.of(1));
+        assertEquals(new Scenario(
+                ImmutableList.of(new Transmitter(1, new Point(1, 1), 4), new Transmitter(3, new Point(9, 9), 0)),
+                ImmutableList.of(new Receiver(2, new Point(-4, 5)), new Receiver(3, new Point(7, 7)))
+        ), delta.applyTo(scenario));
+    }
+}
@@ -0,0 +1,37 @@
+package uk.philhannant.towers.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the random scenario generator.
+ */
+public class ScenarioGeneratorTest {
+
+    /**
+     * Test that every layout gives the requested number of towers, split between transmitters and receivers.
+     */
+    @Test
+    public void sizeTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            Scenario scenario = new ScenarioGenerator(layout, 0.01, 1).generate(101);
+            assertEquals(50, scenario.transmitters.size());
+            assertEquals(51, scenario.receivers.size());
+            assertTrue(scenario.transmitters.stream().allMatch(t -> t.power >= 0));
+        }
+    }
+
+    /**
+     * Test that the same seed gives the same scenario and a different seed a different one.
+     */
+    @Test
+    public void seedTest(){
+        ScenarioGenerator generator = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.05, 7);
+        assertEquals(generator.generate(200), generator.generate(200));
+        assertNotEquals(generator.generate(200),
+                new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.05, 8).generate(200));
+    }
+}
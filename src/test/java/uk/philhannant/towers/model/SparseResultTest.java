@@ -0,0 +1,78 @@
+package uk.philhannant.towers.model;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test class for results held as changes to their scenario.
+ */
+public class SparseResultTest {
+
+    private final Scenario scenario = new Scenario(
+            ImmutableList.of(
+                    new Transmitter(1, new Point(0, 0), 1),
+                    new Transmitter(2, new Point(5, 5), 2),
+                    new Transmitter(3, new Point(9, 0), 3)
+            ),
+            ImmutableList.of(new Receiver(1, new Point(0, 4)))
+    );
+
+    /**
+     * Test that only the changed transmitters are kept and the total and full result match the powers.
+     */
+    @Test
+    public void fromPowersTest(){
+        SparseResult sparse = SparseResult.of(scenario, new int[]{4, 2, 3});
+        assertEquals(1, sparse.changedCount());
+        assertEquals(0, sparse.changedIndex(0));
+        assertEquals(1, sparse.changedId(0));
+        assertEquals(4, sparse.changedPower(0));
+        assertEquals(4, sparse.power(0));
+        assertEquals(2, sparse.power(1));
+        assertEquals(9, sparse.getTotalPower());
+
+        Result result = sparse.toResult();
+        assertEquals(new Result(ImmutableList.of(
+                new Transmitter(1, new Point(0, 0), 4),
+                new Transmitter(2, new Point(5, 5), 2),
+                new Transmitter(3, new Point(9, 0), 3))), result);
+        assertSame(scenario.transmitters.get(1), result.transmitters.get(1));
+        assertEquals(result.getTotalPower(), sparse.getTotalPower());
+    }
+
+    /**
+     * Test that a result is turned into changes whether or not it lists the transmitters in scenario order.
+     */
+    @Test
+    public void fromResultTest(){
+        Result result = new Result(ImmutableList.of(
+                new Transmitter(3, new Point(9, 0), 5),
+                new Transmitter(1, new Point(0, 0), 1)));
+        SparseResult sparse = SparseResult.of(scenario, result);
+        assertEquals(SparseResult.of(scenario, new int[]{1, 2, 5}), sparse);
+        assertEquals(8, sparse.getTotalPower());
+        assertEquals(SparseResult.of(scenario, sparse.toResult()), sparse);
+    }
+
+    /**
+     * Test that an unchanged scenario gives an empty change list sharing the original transmitters.
+     */
+    @Test
+    public void unchangedTest(){
+        SparseResult sparse = SparseResult.of(CompactScenario.of(scenario), new int[]{1, 2, 3});
+        assertEquals(0, sparse.changedCount());
+        assertEquals(6, sparse.getTotalPower());
+        assertSame(scenario.transmitters, sparse.toResult().transmitters);
+    }
+
+    /**
+     * Test that changes out of order are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedTest(){
+        new SparseResult(scenario, new int[]{2, 0}, new int[]{1, 1});
+    }
+}
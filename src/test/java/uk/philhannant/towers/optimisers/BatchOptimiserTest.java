@@ -0,0 +1,64 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the batch optimiser.
+ */
+public class BatchOptimiserTest {
+
+    /**
+     * Test that every test scenario is optimised and the outcomes come back in order.
+     */
+    @Test
+    public void optimiseAllTest(){
+        List<Scenario> scenarios = new ArrayList<>();
+        for(int i = 0; i < 20; i++){
+            for(TestScenario testScenario: testScenarios){
+                scenarios.add(testScenario.scenario);
+            }
+        }
+        try(BatchOptimiser batch = new BatchOptimiser(new BranchAndBoundOptimiser(), 4)){
+            List<BatchOutcome> outcomes = batch.optimiseAll(scenarios);
+            assertEquals(scenarios.size(), outcomes.size());
+            for(int i = 0; i < outcomes.size(); i++){
+                assertTrue(outcomes.get(i).isSuccess());
+                assertEquals(testScenarios.get(i % testScenarios.size()).expectedResult, outcomes.get(i).result);
+            }
+        }
+    }
+
+    /**
+     * Test that a failing scenario does not stop the rest of the batch.
+     */
+    @Test
+    public void errorIsolationTest(){
+        Scenario failing = testScenarios.get(3).scenario;
+        PowerOptimiser optimiser = scenario -> {
+            if(scenario == failing){
+                throw new IllegalStateException("failed");
+            }
+            return new Result(scenario.transmitters);
+        };
+        try(BatchOptimiser batch = new BatchOptimiser(optimiser, 2)){
+            List<BatchOutcome> outcomes = batch.optimiseAll(testScenarios.stream()
+                    .map(t -> t.scenario).collect(Collectors.toList()));
+            for(int i = 0; i < outcomes.size(); i++){
+                assertEquals(i != 3, outcomes.get(i).isSuccess());
+            }
+            assertFalse(outcomes.get(3).isSuccess());
+            assertEquals("failed", outcomes.get(3).error.getMessage());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the branch and bound optimiser.
+ */
+public class BranchAndBoundOptimiserTest {
+
+    private final PowerOptimiser subject = new BranchAndBoundOptimiser();
+
+    private final PowerOptimiserImpl utility = new PowerOptimiserImpl();
+
+    /**
+     * Optimise test for every test scenario.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult, subject.optimise(testScenario.scenario));
+        }
+    }
+
+    /**
+     * Compares the total power against an exhaustive search on small random scenarios.
+     */
+    @Test
+    public void matchesExhaustiveSearchTest(){
+        Random random = new Random(42);
+        for(int i = 0; i < 200; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(4), 1 + random.nextInt(6), 12);
+            Result result = subject.optimise(scenario);
+            assertTrue(utility.getOutofRangeReceivers(new Scenario(result.transmitters, scenario.receivers)).isEmpty());
+            assertEquals(exhaustiveMinimum(scenario), result.getTotalPower());
+        }
+    }
+
+    /**
+     * Checks that a larger scenario is solved to a feasible result no worse than the existing optimiser.
+     */
+    @Test
+    public void largerScenarioTest(){
+        Scenario scenario = randomScenario(new Random(7), 60, 120, 200);
+        Result result = subject.optimise(scenario);
+        assertTrue(utility.getOutofRangeReceivers(new Scenario(result.transmitters, scenario.receivers)).isEmpty());
+        assertTrue(result.getTotalPower() <= utility.optimise(scenario).getTotalPower());
+    }
+
+    /**
+     * Test that an anytime search left to finish proves its result optimal.
+     */
+    @Test
+    public void anytimeCompletesTest(){
+        Scenario scenario = randomScenario(new Random(3), 20, 40, 100);
+        AnytimeResult result = new BranchAndBoundOptimiser().optimise(scenario, new CancellationToken());
+        assertTrue(result.optimal);
+        assertEquals(subject.optimise(scenario), result.result);
+        assertEquals(result.result.getTotalPower(), result.lowerBound);
+        assertEquals(0, result.getGap(), 0);
+    }
+
+    /**
+     * Test that a search stopped by its node budget still returns a feasible result and a valid lower bound.
+     */
+    @Test
+    public void anytimeBudgetTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, 1).generate(1000);
+        AnytimeResult result = new BranchAndBoundOptimiser().optimise(scenario,
+                CancellationToken.withCheckBudget(200));
+        assertFalse(result.optimal);
+        assertTrue(utility.getOutofRangeReceivers(new Scenario(result.result.transmitters, scenario.receivers)).isEmpty());
+        assertTrue(result.lowerBound <= new DecomposingOptimiser(subject).optimise(scenario).getTotalPower());
+        assertTrue(result.getGap() > 0 && result.getGap() < 1);
+    }
+
+    /**
+     * Test that a search cancelled before it starts returns the greedy result.
+     */
+    @Test
+    public void anytimeCancelledTest(){
+        Scenario scenario = randomScenario(new Random(5), 30, 60, 150);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AnytimeResult result = new BranchAndBoundOptimiser().optimise(scenario, token);
+        assertTrue(utility.getOutofRangeReceivers(new Scenario(result.result.transmitters, scenario.receivers)).isEmpty());
+        assertTrue(result.lowerBound <= subject.optimise(scenario).getTotalPower());
+        assertTrue(result.result.getTotalPower() >= subject.optimise(scenario).getTotalPower());
+    }
+
+    static Scenario randomScenario(Random random, int transmitters, int receivers, int size){
+        List<Transmitter> transmitterList = new ArrayList<>();
+        for(int i = 0; i < transmitters; i++){
+            transmitterList.add(new Transmitter(i + 1, new Point(random.nextInt(size), random.nextInt(size)),
+                    random.nextInt(size / 4)));
+        }
+        List<Receiver> receiverList = new ArrayList<>();
+        for(int i = 0; i < receivers; i++){
+            receiverList.add(new Receiver(i + 1, new Point(random.nextInt(size), random.nextInt(size))));
+        }
+        return new Scenario(transmitterList, receiverList);
+    }
+
+    private int exhaustiveMinimum(Scenario scenario){
+        int[] levels = new int[scenario.transmitters.size()];
+        for(int i = 0; i < levels.length; i++){
+            levels[i] = scenario.transmitters.get(i).power;
+        }
+        return exhaustiveMinimum(scenario, levels, 0);
+    }
+
+    private int exhaustiveMinimum(Scenario scenario, int[] levels, int index){
+        if(index == levels.length){
+            for(Receiver r: scenario.receivers){
+                boolean covered = false;
+                for(int t = 0; t < levels.length; t++){
+                    covered |= utility.calculateChebyshev(scenario.transmitters.get(t).location, r.location) <= levels[t];
+                }
+                if(!covered){
+                    return Integer.MAX_VALUE;
+                }
+            }
+            int total = 0;
+            for(int level: levels){
+                total += level;
+            }
+            return total;
+        }
+        int best = exhaustiveMinimum(scenario, levels, index + 1);
+        int original = levels[index];
+        for(Receiver r: scenario.receivers){
+            int d = utility.calculateChebyshev(scenario.transmitters.get(index).location, r.location);
+            if(d > original){
+                levels[index] = d;
+                best = Math.min(best, exhaustiveMinimum(scenario, levels, index + 1));
+            }
+        }
+        levels[index] = original;
+        return best;
+    }
+}
@@ -0,0 +1,82 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the caching optimiser.
+ */
+public class CachingOptimiserTest {
+
+    /**
+     * Test that a repeated scenario is answered from the cache with the same result.
+     */
+    @Test
+    public void repeatedScenarioTest(){
+        CachingOptimiser subject = new CachingOptimiser(new BranchAndBoundOptimiser(), 10);
+        for(int i = 0; i < 2; i++){
+            for(TestScenario testScenario: testScenarios){
+                assertEquals(testScenario.expectedResult, subject.optimise(testScenario.scenario));
+            }
+        }
+        assertEquals(testScenarios.size(), subject.getMisses());
+        assertEquals(testScenarios.size(), subject.getHits());
+        assertEquals(0, subject.getEvictions());
+    }
+
+    /**
+     * Test that a translated and reordered scenario with new ids hits the cache, and the result uses the caller's
+     * transmitters.
+     */
+    @Test
+    public void translatedScenarioTest(){
+        CachingOptimiser subject = new CachingOptimiser(new BranchAndBoundOptimiser(), 10);
+        Scenario original = testScenarios.get(4).scenario;
+        subject.optimise(original);
+
+        List<Transmitter> transmitters = original.transmitters.stream()
+                .map(t -> new Transmitter(t.id + 100, new Point(t.location.x - 50, t.location.y + 7), t.power))
+                .collect(Collectors.toList());
+        Collections.reverse(transmitters);
+        List<Receiver> receivers = original.receivers.stream()
+                .map(r -> new Receiver(r.id + 100, new Point(r.location.x - 50, r.location.y + 7)))
+                .collect(Collectors.toList());
+        Scenario moved = new Scenario(transmitters, receivers);
+
+        Result result = subject.optimise(moved);
+        assertEquals(1, subject.getHits());
+        assertEquals(new BranchAndBoundOptimiser().optimise(moved), result);
+    }
+
+    /**
+     * Test that the least recently used scenario is evicted once the cache is full.
+     */
+    @Test
+    public void evictionTest(){
+        CachingOptimiser subject = new CachingOptimiser(new PowerOptimiserImpl(), 2);
+        subject.optimise(testScenarios.get(0).scenario);
+        subject.optimise(testScenarios.get(2).scenario);
+        subject.optimise(testScenarios.get(0).scenario);
+        subject.optimise(testScenarios.get(3).scenario);
+        assertEquals(1, subject.getEvictions());
+        assertEquals(2, subject.size());
+        subject.optimise(testScenarios.get(0).scenario);
+        assertEquals(2, subject.getHits());
+        subject.optimise(testScenarios.get(2).scenario);
+        assertEquals(2, subject.getHits());
+        assertEquals(new ArrayList<>(testScenarios.get(2).expectedResult.transmitters),
+                subject.optimise(testScenarios.get(2).scenario).transmitters);
+    }
+}
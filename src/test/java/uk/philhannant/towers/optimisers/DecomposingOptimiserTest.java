@@ -0,0 +1,87 @@
+package uk.philhannant.towers.optimisers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the decomposing optimiser.
+ */
+public class DecomposingOptimiserTest {
+
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    private final PowerOptimiserImpl utility = new PowerOptimiserImpl();
+
+    /**
+     * Optimise test for every test scenario.
+     */
+    @Test
+    public void testScenarios(){
+        PowerOptimiser subject = new DecomposingOptimiser(exact);
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult.getTotalPower(),
+                    subject.optimise(testScenario.scenario).getTotalPower());
+        }
+    }
+
+    /**
+     * Test that two groups of towers far apart are split and solved separately.
+     */
+    @Test
+    public void decomposeTest(){
+        Scenario scenario = new Scenario(
+                ImmutableList.of(
+                        new Transmitter(1, new Point(0, 0), 1),
+                        new Transmitter(2, new Point(1000, 1000), 1),
+                        new Transmitter(3, new Point(500, 500), 0)
+                ),
+                ImmutableList.of(
+                        new Receiver(1, new Point(0, 3)),
+                        new Receiver(2, new Point(1000, 1004)),
+                        new Receiver(3, new Point(1, 0))
+                )
+        );
+        List<Scenario> parts = new DecomposingOptimiser(exact).decompose(scenario);
+        assertEquals(2, parts.size());
+        assertEquals(ImmutableList.of(scenario.transmitters.get(0)), parts.get(0).transmitters);
+        assertEquals(ImmutableList.of(scenario.receivers.get(0)), parts.get(0).receivers);
+        assertEquals(ImmutableList.of(scenario.transmitters.get(1)), parts.get(1).transmitters);
+
+        Result result = new DecomposingOptimiser(exact, true).optimise(scenario);
+        assertEquals(ImmutableList.of(new Transmitter(1, new Point(0, 0), 3),
+                new Transmitter(2, new Point(1000, 1000), 4), scenario.transmitters.get(2)), result.transmitters);
+    }
+
+    /**
+     * Compares the total power against the undecomposed exact search on random scenarios.
+     */
+    @Test
+    public void matchesExactSearchTest(){
+        PowerOptimiser subject = new DecomposingOptimiser(exact, true);
+        Random random = new Random(11);
+        for(int i = 0; i < 200; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(8), 1 + random.nextInt(12), 60);
+            Result result = subject.optimise(scenario);
+            assertTrue(utility.getOutofRangeReceivers(new Scenario(result.transmitters, scenario.receivers)).isEmpty());
+            assertEquals(exact.optimise(scenario).getTotalPower(), result.getTotalPower());
+        }
+        for(long seed = 0; seed < 5; seed++){
+            Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, seed).generate(200);
+            assertEquals(exact.optimise(scenario).getTotalPower(), subject.optimise(scenario).getTotalPower());
+        }
+    }
+}
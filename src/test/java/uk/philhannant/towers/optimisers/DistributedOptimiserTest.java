@@ -0,0 +1,136 @@
+package uk.philhannant.towers.optimisers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the distributed optimiser, running two worker processes for the whole class.
+ */
+public class DistributedOptimiserTest {
+    private static DistributedOptimiser subject;
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    @BeforeClass
+    public static void startWorkers() throws IOException {
+        subject = new DistributedOptimiser("branch-and-bound", 2);
+    }
+
+    @AfterClass
+    public static void stopWorkers(){
+        subject.close();
+    }
+
+    /**
+     * Runs each test scenario through the workers.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult.getTotalPower(),
+                    subject.optimise(testScenario.scenario).getTotalPower());
+        }
+    }
+
+    /**
+     * Test that spread out islands, which split into many components, get the optimum in scenario order, also when
+     * several threads share the workers.
+     */
+    @Test
+    public void generatedScenariosTest(){
+        List<Scenario> scenarios = new ArrayList<>();
+        for(int seed = 0; seed < 4; seed++){
+            scenarios.add(new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, seed).generate(400));
+        }
+        List<Result> expected = new ArrayList<>();
+        for(Scenario scenario: scenarios){
+            expected.add(exact.optimise(scenario));
+        }
+        Result[] results = new Result[scenarios.size()];
+        IntStream.range(0, results.length).parallel().forEach(i -> results[i] = subject.optimise(scenarios.get(i)));
+        for(int i = 0; i < results.length; i++){
+            assertEquals(expected.get(i).getTotalPower(), results[i].getTotalPower());
+            assertEquals(scenarios.get(i).transmitters.size(), results[i].transmitters.size());
+            assertTrue(new PowerOptimiserImpl().getOutofRangeReceivers(
+                    new Scenario(results[i].transmitters, scenarios.get(i).receivers)).isEmpty());
+        }
+    }
+
+    /**
+     * Test that a scenario the worker cannot optimise fails without taking the worker down.
+     */
+    @Test
+    public void failureTest(){
+        Scenario impossible = new Scenario(Collections.emptyList(),
+                ImmutableList.of(new Receiver(1, new Point(0, 0))));
+        try {
+            subject.optimise(impossible);
+            throw new AssertionError("Expected the worker to fail");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("could not optimise"));
+        }
+        assertEquals(testScenarios.get(0).expectedResult, subject.optimise(testScenarios.get(0).scenario));
+    }
+
+    /**
+     * Test that a worker whose process is killed is replaced, and the scenario it was given is answered by the new
+     * worker.
+     */
+    @Test
+    public void killedWorkerTest() throws IOException, InterruptedException {
+        try(DistributedOptimiser optimiser = new DistributedOptimiser("branch-and-bound", 1)){
+            TestScenario testScenario = testScenarios.get(0);
+            assertEquals(testScenario.expectedResult, optimiser.optimise(testScenario.scenario));
+            Process killed = optimiser.processes().get(0);
+            killed.destroyForcibly().waitFor();
+            for(TestScenario next: testScenarios){
+                assertEquals(next.expectedResult.getTotalPower(), optimiser.optimise(next.scenario).getTotalPower());
+            }
+            List<Process> processes = optimiser.processes();
+            assertEquals(1, processes.size());
+            assertFalse(processes.contains(killed));
+            assertTrue(processes.get(0).isAlive());
+        }
+    }
+
+    /**
+     * Test that workers missing the request deadline are killed and replaced, and the scenario fails once every
+     * attempt has missed it.
+     */
+    @Test
+    public void deadlineTest() throws IOException {
+        try(DistributedOptimiser optimiser = new DistributedOptimiser("branch-and-bound", 1, Collections.emptyList(),
+                1, TimeUnit.MILLISECONDS, OptimiserListener.NOOP)){
+            List<Process> before = optimiser.processes();
+            try {
+                optimiser.optimise(testScenarios.get(0).scenario);
+                throw new AssertionError("Expected the workers to miss the deadline");
+            } catch (UncheckedIOException e) {
+                assertTrue(e.getCause().getCause().getMessage().contains("no answer within"));
+            }
+            List<Process> after = optimiser.processes();
+            assertEquals(1, after.size());
+            assertFalse(before.contains(after.get(0)));
+            assertFalse(before.get(0).isAlive());
+        }
+    }
+}
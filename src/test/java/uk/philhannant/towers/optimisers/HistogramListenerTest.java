@@ -0,0 +1,140 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the HistogramListener class and the statistics the optimisers report.
+ */
+public class HistogramListenerTest {
+
+    /**
+     * Test that values land in power of two buckets and the summaries follow from them.
+     */
+    @Test
+    public void histogramTest(){
+        HistogramListener.Histogram histogram = new HistogramListener.Histogram();
+        for(long value: new long[]{0, 1, 2, 3, 4, 1000}){
+            histogram.record(value);
+        }
+        long[] buckets = histogram.buckets();
+        assertArrayEquals(new long[]{1, 1, 2, 1}, new long[]{buckets[0], buckets[1], buckets[2], buckets[3]});
+        assertEquals(1, buckets[10]);
+        assertEquals(6, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(1010.0 / 6, histogram.mean(), 1e-9);
+        assertEquals(3, histogram.percentile(0.5));
+        assertEquals(1000, histogram.percentile(1));
+        assertEquals(0, new HistogramListener.Histogram().percentile(0.5));
+    }
+
+    /**
+     * Test that the optimiser reports once per scenario without changing its results, with counters covering at
+     * least the work every run has to do.
+     */
+    @Test
+    public void reportedStatsTest(){
+        List<OptimiserStats> reported = new ArrayList<>();
+        PowerOptimiserImpl listened = new PowerOptimiserImpl(false, (scenario, stats) -> reported.add(stats));
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult, listened.optimise(testScenario.scenario));
+        }
+        assertEquals(testScenarios.size(), reported.size());
+
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 0).generate(200);
+        int outOfRange = new PowerOptimiserImpl().getOutofRangeReceivers(scenario).size();
+        reported.clear();
+        listened.optimise(scenario);
+        OptimiserStats stats = reported.get(0);
+        assertTrue(stats.getCandidatesTried() > 0);
+        assertTrue(stats.getCoverageChecks() > scenario.receivers.size());
+        assertTrue(stats.getChebyshevEvaluations() > (long) outOfRange * scenario.transmitters.size());
+        assertTrue(stats.getPeakCandidates() > 0);
+        assertTrue(stats.getTotalNanos() >= stats.getPhaseNanos(OptimiserStats.Phase.SEARCH));
+    }
+
+    /**
+     * Test that the parallel mode tries at least the candidates the sequential mode tries, as it has to rule out
+     * every candidate before the one it keeps, and builds the same candidate lists.
+     */
+    @Test
+    public void parallelStatsTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 1).generate(300);
+        List<OptimiserStats> reported = new ArrayList<>();
+        new PowerOptimiserImpl(false, (s, stats) -> reported.add(stats)).optimise(scenario);
+        new PowerOptimiserImpl(true, (s, stats) -> reported.add(stats)).optimise(scenario);
+        assertTrue(reported.get(1).getCandidatesTried() >= reported.get(0).getCandidatesTried());
+        assertTrue(reported.get(1).getChebyshevEvaluations() > 0);
+        assertTrue(reported.get(1).getCoverageChecks() > 0);
+        assertEquals(reported.get(0).getPeakCandidates(), reported.get(1).getPeakCandidates());
+    }
+
+    /**
+     * Test that every optimiser and decorator reports once per scenario, and that the optimisers count the work of
+     * their search.
+     */
+    @Test
+    public void everyOptimiserReportsTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 2).generate(200);
+        List<OptimiserStats> reported = new ArrayList<>();
+        OptimiserListener listener = (s, stats) -> reported.add(stats);
+        BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+        List<PowerOptimiser> optimisers = Arrays.asList(new BranchAndBoundOptimiser(listener),
+                new LazyGreedyOptimiser(listener),
+                new LocalSearchOptimiser(1, 2000, 0, TimeUnit.NANOSECONDS, listener));
+        for(PowerOptimiser optimiser: optimisers){
+            reported.clear();
+            optimiser.optimise(scenario);
+            assertEquals(1, reported.size());
+            OptimiserStats stats = reported.get(0);
+            assertTrue(stats.getCandidatesTried() > 0);
+            assertTrue(stats.getChebyshevEvaluations() > 0);
+            assertTrue(stats.getCoverageChecks() >= scenario.receivers.size());
+            assertTrue(stats.getPeakCandidates() > 0);
+            assertTrue(stats.getPhaseNanos(OptimiserStats.Phase.SEARCH) > 0);
+        }
+
+        List<PowerOptimiser> decorators = Arrays.asList(new DecomposingOptimiser(exact, false, listener),
+                new CachingOptimiser(exact, 4, listener), new ReducingOptimiser(exact, listener),
+                new IncrementalOptimiser(exact, listener),
+                new PortfolioOptimiser(Collections.singletonList(exact), 0, TimeUnit.NANOSECONDS, listener));
+        for(PowerOptimiser decorator: decorators){
+            reported.clear();
+            decorator.optimise(scenario);
+            assertEquals(1, reported.size());
+            assertTrue(reported.get(0).getTotalNanos() > 0);
+        }
+    }
+
+    /**
+     * Test that a batch of scenarios ends up in the histograms, one value per scenario and metric.
+     */
+    @Test
+    public void batchTest(){
+        HistogramListener listener = new HistogramListener();
+        PowerOptimiserImpl optimiser = new PowerOptimiserImpl(true, listener);
+        for(int seed = 0; seed < 10; seed++){
+            optimiser.optimise(new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, seed).generate(100));
+        }
+        for(HistogramListener.Metric metric: HistogramListener.Metric.values()){
+            assertEquals(10, listener.getHistogram(metric).count());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        listener.write(new PrintStream(bytes, true));
+        assertTrue(bytes.toString().startsWith("TOTAL_NANOS: count 10"));
+    }
+}
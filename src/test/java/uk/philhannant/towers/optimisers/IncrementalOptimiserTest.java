@@ -0,0 +1,167 @@
+package uk.philhannant.towers.optimisers;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioDelta;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+
+/**
+ * Test class for the incremental optimiser.
+ */
+public class IncrementalOptimiserTest {
+
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    /**
+     * Test that moving one receiver only re-solves the components it touches.
+     */
+    @Test
+    public void moveReceiverTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, 1).generate(1000);
+        IncrementalOptimiser subject = new IncrementalOptimiser(exact);
+        Result result = subject.optimise(scenario);
+        long solved = subject.getSolvedComponents();
+
+        Receiver moved = scenario.receivers.get(0);
+        ScenarioDelta delta = ScenarioDelta.putReceivers(ImmutableList.of(
+                new Receiver(moved.id, new Point(moved.location.x + 40, moved.location.y))));
+        Result changed = subject.reoptimise(scenario, result, delta);
+
+        Scenario expected = delta.applyTo(scenario);
+        assertEquals(new DecomposingOptimiser(exact).optimise(expected).getTotalPower(), changed.getTotalPower());
+        assertTrue(subject.getSolvedComponents() - solved <= 3);
+        assertTrue(subject.getReusedComponents() >= solved - 3);
+    }
+
+    /**
+     * Test that a new optimiser given the previous scenario and result reuses the components the change leaves alone.
+     */
+    @Test
+    public void newOptimiserTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, 1).generate(1000);
+        Result result = new DecomposingOptimiser(exact).optimise(scenario);
+        int components = new DecomposingOptimiser(exact).decompose(scenario).size();
+        IncrementalOptimiser subject = new IncrementalOptimiser(exact);
+
+        Receiver moved = scenario.receivers.get(0);
+        ScenarioDelta delta = ScenarioDelta.putReceivers(ImmutableList.of(
+                new Receiver(moved.id, new Point(moved.location.x + 40, moved.location.y))));
+        Result changed = subject.reoptimise(scenario, result, delta);
+
+        Scenario expected = delta.applyTo(scenario);
+        assertEquals(new DecomposingOptimiser(exact).optimise(expected).getTotalPower(), changed.getTotalPower());
+        assertTrue(subject.getSolvedComponents() <= 3);
+        assertTrue(subject.getReusedComponents() >= components - 3);
+    }
+
+    /**
+     * Test that adding a receiver the previous result already covers returns the previous result.
+     */
+    @Test
+    public void addCoveredReceiverTest(){
+        Scenario scenario = randomScenario(new Random(1), 10, 20, 100);
+        IncrementalOptimiser subject = new IncrementalOptimiser(exact);
+        Result result = subject.optimise(scenario);
+        Transmitter t = result.transmitters.get(0);
+        ScenarioDelta delta = ScenarioDelta.putReceivers(ImmutableList.of(new Receiver(1000, t.location)));
+        assertSame(result, subject.reoptimise(scenario, result, delta));
+    }
+
+    /**
+     * Compares random changes against solving the changed scenario from scratch.
+     */
+    @Test
+    public void randomChangesTest(){
+        Random random = new Random(21);
+        IncrementalOptimiser subject = new IncrementalOptimiser(exact);
+        Scenario scenario = randomScenario(random, 12, 20, 120);
+        Result result = subject.optimise(scenario);
+        for(int i = 0; i < 50; i++){
+            Transmitter t = scenario.transmitters.get(random.nextInt(scenario.transmitters.size()));
+            Receiver r = scenario.receivers.get(random.nextInt(scenario.receivers.size()));
+            ScenarioDelta delta;
+            switch(random.nextInt(3)){
+                case 0:
+                    delta = new ScenarioDelta(ImmutableList.of(new Transmitter(t.id,
+                            new Point(random.nextInt(120), random.nextInt(120)), random.nextInt(30))),
+                            Collections.emptySet(), ImmutableList.of(), Collections.emptySet());
+                    break;
+                case 1:
+                    delta = new ScenarioDelta(ImmutableList.of(), Collections.emptySet(),
+                            ImmutableList.of(new Receiver(100 + i, new Point(random.nextInt(120), random.nextInt(120)))),
+                            ImmutableSet.of(r.id));
+                    break;
+                default:
+                    delta = ScenarioDelta.putReceivers(ImmutableList.of(
+                            new Receiver(r.id, new Point(random.nextInt(120), random.nextInt(120)))));
+            }
+            Scenario changed = delta.applyTo(scenario);
+            result = subject.reoptimise(scenario, result, delta);
+            assertEquals(exact.optimise(changed).getTotalPower(), result.getTotalPower());
+            scenario = changed;
+        }
+    }
+
+    /**
+     * Compares every kind of change on an island of many components against splitting the changed island afresh,
+     * feeding each result back in as the next previous result.
+     */
+    @Test
+    public void corridorChangesTest(){
+        Random random = new Random(5);
+        DecomposingOptimiser reference = new DecomposingOptimiser(exact);
+        IncrementalOptimiser subject = new IncrementalOptimiser(exact);
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, 5).generate(600);
+        Result result = subject.optimise(scenario);
+        for(int i = 0; i < 100; i++){
+            Transmitter t = scenario.transmitters.get(random.nextInt(scenario.transmitters.size()));
+            Receiver r = scenario.receivers.get(random.nextInt(scenario.receivers.size()));
+            Point near = new Point(r.location.x + random.nextInt(21) - 10, r.location.y + random.nextInt(21) - 10);
+            ScenarioDelta delta;
+            switch(random.nextInt(6)){
+                case 0:
+                    delta = ScenarioDelta.putReceivers(ImmutableList.of(new Receiver(r.id, near)));
+                    break;
+                case 1:
+                    delta = new ScenarioDelta(ImmutableList.of(), Collections.emptySet(),
+                            ImmutableList.of(new Receiver(10_000 + i, near)), ImmutableSet.of(r.id));
+                    break;
+                case 2:
+                    delta = new ScenarioDelta(ImmutableList.of(new Transmitter(t.id, t.location,
+                            Math.max(0, t.power + random.nextInt(7) - 3))), Collections.emptySet(),
+                            ImmutableList.of(), Collections.emptySet());
+                    break;
+                case 3:
+                    delta = new ScenarioDelta(ImmutableList.of(new Transmitter(t.id, near, t.power)),
+                            Collections.emptySet(), ImmutableList.of(), Collections.emptySet());
+                    break;
+                case 4:
+                    delta = new ScenarioDelta(ImmutableList.of(new Transmitter(10_000 + i, near,
+                            random.nextInt(5))), Collections.emptySet(), ImmutableList.of(), Collections.emptySet());
+                    break;
+                default:
+                    delta = new ScenarioDelta(ImmutableList.of(), ImmutableSet.of(t.id), ImmutableList.of(),
+                            Collections.emptySet());
+            }
+            Scenario changed = delta.applyTo(scenario);
+            result = subject.reoptimise(scenario, result, delta);
+            assertEquals(reference.optimise(changed).getTotalPower(), result.getTotalPower());
+            scenario = changed;
+        }
+        assertTrue(subject.getReusedComponents() > 10 * subject.getSolvedComponents());
+    }
+}
@@ -0,0 +1,129 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.index.TransmitterIndex;
+import uk.philhannant.towers.model.CompactScenario;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.assertFeasible;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the lazy greedy optimiser.
+ */
+public class LazyGreedyOptimiserTest {
+
+    private final PowerOptimiser subject = new LazyGreedyOptimiser();
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    /**
+     * Optimise test for every test scenario, checking the results are feasible and within the guarantee.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            Scenario scenario = testScenario.scenario;
+            Result result = subject.optimise(scenario);
+            assertFeasible(scenario, result);
+            assertWithinGuarantee(scenario, result, testScenario.expectedResult.getTotalPower());
+        }
+    }
+
+    /**
+     * Test on random scenarios that results are feasible, never better than the optimum and within a factor of H(n)
+     * of it.
+     */
+    @Test
+    public void randomScenarioTest(){
+        Random random = new Random(11);
+        for(int i = 0; i < 200; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(20), 1 + random.nextInt(40), 150);
+            Result result = subject.optimise(scenario);
+            assertFeasible(scenario, result);
+            int optimum = exact.optimise(scenario).getTotalPower();
+            assertTrue(result.getTotalPower() >= optimum);
+            assertWithinGuarantee(scenario, result, optimum);
+        }
+    }
+
+    /**
+     * Test on random scenarios with few transmitters and many receivers, so that most levels lie beyond the lists and
+     * are bounded and priced lazily, that results are still within a factor of H(n) of the optimum.
+     */
+    @Test
+    public void farLevelsTest(){
+        Random random = new Random(12);
+        for(int i = 0; i < 100; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(4), 50 + random.nextInt(250), 400);
+            Result result = subject.optimise(scenario);
+            assertFeasible(scenario, result);
+            int optimum = exact.optimise(scenario).getTotalPower();
+            assertTrue(result.getTotalPower() >= optimum);
+            assertWithinGuarantee(scenario, result, optimum);
+        }
+    }
+
+    /**
+     * Test that a scenario with every receiver in range is left as it is.
+     */
+    @Test
+    public void nothingToDoTest(){
+        Scenario scenario = randomScenario(new Random(1), 5, 0, 50);
+        assertEquals(scenario.transmitters, subject.optimise(scenario).transmitters);
+    }
+
+    /**
+     * Test that a search cancelled before it starts still brings every receiver into range.
+     */
+    @Test
+    public void anytimeCancelledTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 3).generate(500);
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AnytimeResult result = new LazyGreedyOptimiser().optimise(scenario, token);
+        assertFeasible(scenario, result.result);
+        assertTrue(result.result.getTotalPower() >= subject.optimise(scenario).getTotalPower());
+    }
+
+    /**
+     * Test that generated islands of every layout come close to the set cover lower bound.
+     */
+    @Test
+    public void generatedScenarioTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            Scenario scenario = new ScenarioGenerator(layout, 0.01, 3).generate(2000);
+            Result result = subject.optimise(scenario);
+            assertFeasible(scenario, result);
+            assertTrue(result.getTotalPower() <= 1.02 * SetCoverBound.lowerBound(scenario));
+        }
+    }
+
+    /**
+     * Test that a million tower island is covered. How long it takes is measured by the optimiser benchmark.
+     */
+    @Test
+    public void millionTowersTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 1).generate(1_000_000);
+        assertFeasible(scenario, subject.optimise(scenario));
+    }
+
+    private static void assertWithinGuarantee(Scenario scenario, Result result, int optimum){
+        int original = 0;
+        for(int power: CompactScenario.of(scenario).transmitterPower){
+            original += power;
+        }
+        int outOfRange = TransmitterIndex.outOfRange(CompactScenario.of(scenario)).length;
+        double harmonic = 0;
+        for(int n = 1; n <= outOfRange; n++){
+            harmonic += 1.0 / n;
+        }
+        assertTrue(result.getTotalPower() - original <= harmonic * (optimum - original) + 1e-9);
+    }
+}
@@ -0,0 +1,101 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.assertFeasible;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the local search optimiser.
+ */
+public class LocalSearchOptimiserTest {
+
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    /**
+     * Optimise test for every test scenario, which are small enough for the search to find the optimum.
+     */
+    @Test
+    public void testScenarios(){
+        PowerOptimiser subject = new LocalSearchOptimiser(1, 10_000);
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult.getTotalPower(),
+                    subject.optimise(testScenario.scenario).getTotalPower());
+        }
+    }
+
+    /**
+     * Test that results are feasible, never better than the optimum and the same for the same seed.
+     */
+    @Test
+    public void randomScenarioTest(){
+        Random random = new Random(9);
+        for(int i = 0; i < 50; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(20), 1 + random.nextInt(40), 150);
+            Result result = new LocalSearchOptimiser(i, 2_000).optimise(scenario);
+            assertFeasible(scenario, result);
+            assertTrue(result.getTotalPower() >= exact.optimise(scenario).getTotalPower());
+            assertEquals(result, new LocalSearchOptimiser(i, 2_000).optimise(scenario));
+        }
+    }
+
+    /**
+     * Test that improving the result of the existing optimiser never makes it worse.
+     */
+    @Test
+    public void improveTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 2).generate(1000);
+        Result start = new PowerOptimiserImpl().optimise(scenario);
+        Result result = new LocalSearchOptimiser(1, 20_000).improve(scenario, start);
+        assertFeasible(scenario, result);
+        assertTrue(result.getTotalPower() < start.getTotalPower());
+    }
+
+    /**
+     * Test that the same seed gives the same result on an island large enough for re-solve searches to be cut short.
+     */
+    @Test
+    public void reproducibleTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 4).generate(2000);
+        assertEquals(new LocalSearchOptimiser(3, 20_000).optimise(scenario),
+                new LocalSearchOptimiser(3, 20_000).optimise(scenario));
+    }
+
+    /**
+     * Test that a 100,000 tower island is handled within a time limit.
+     */
+    @Test
+    public void timeLimitTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 1).generate(100_000);
+        long start = System.nanoTime();
+        Result greedy = new LocalSearchOptimiser(1, 0).optimise(scenario);
+        Result result = new LocalSearchOptimiser(1, Integer.MAX_VALUE, 1, TimeUnit.SECONDS).optimise(scenario);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        assertFeasible(scenario, result);
+        assertTrue(result.getTotalPower() < greedy.getTotalPower());
+    }
+
+    /**
+     * Test that a search cancelled before it starts returns its starting point, the incumbent, and offers it back.
+     */
+    @Test
+    public void anytimeCancelledTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CLUSTERED, 0.01, 2).generate(1000);
+        SharedIncumbent incumbent = new SharedIncumbent();
+        incumbent.offer(new PowerOptimiserImpl().optimise(scenario));
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        AnytimeResult result = new LocalSearchOptimiser(1, Integer.MAX_VALUE).optimise(scenario, token, incumbent);
+        assertFeasible(scenario, result.result);
+        assertEquals(incumbent.getTotalPower(), result.result.getTotalPower());
+    }
+}
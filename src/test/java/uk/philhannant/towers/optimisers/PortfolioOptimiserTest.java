@@ -0,0 +1,207 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.assertFeasible;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the portfolio optimiser.
+ */
+public class PortfolioOptimiserTest {
+
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+    private final PortfolioOptimiser subject = new PortfolioOptimiser(Arrays.asList(exact, new PowerOptimiserImpl(),
+            new LazyGreedyOptimiser(), new LocalSearchOptimiser(1, 10_000)));
+
+    /**
+     * Optimise test for every test scenario, each of which the race proves optimal.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            AnytimeResult result = subject.optimise(testScenario.scenario, new CancellationToken());
+            assertTrue(result.optimal);
+            assertEquals(testScenario.expectedResult.getTotalPower(), result.result.getTotalPower());
+        }
+    }
+
+    /**
+     * Test on random scenarios that the race finds the optimum.
+     */
+    @Test
+    public void randomScenarioTest(){
+        Random random = new Random(13);
+        for(int i = 0; i < 30; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(20), 1 + random.nextInt(40), 150);
+            Result result = subject.optimise(scenario);
+            assertFeasible(scenario, result);
+            assertEquals(exact.optimise(scenario).getTotalPower(), result.getTotalPower());
+        }
+    }
+
+    /**
+     * Test that a branch and bound search given the optimum as a shared incumbent proves it optimal, without
+     * finding it itself.
+     */
+    @Test
+    public void sharedIncumbentTest(){
+        Scenario scenario = randomScenario(new Random(3), 20, 40, 100);
+        Result optimum = exact.optimise(scenario);
+        SharedIncumbent incumbent = new SharedIncumbent();
+        assertTrue(incumbent.offer(optimum));
+        AnytimeResult result = exact.optimise(scenario, new CancellationToken(), incumbent);
+        assertEquals(optimum.getTotalPower(), result.lowerBound);
+        assertTrue(result.result.getTotalPower() >= optimum.getTotalPower());
+        assertEquals(optimum, incumbent.getResult());
+    }
+
+    /**
+     * Test that the race stops at the deadline with the best result found, cancelling an optimiser that only stops
+     * when cancelled and the exact search.
+     */
+    @Test
+    public void deadlineTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.CORRIDOR, 0.01, 1).generate(1000);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        AnytimeOptimiser stuck = anytime(s -> {
+            throw new UnsupportedOperationException();
+        }, (s, token) -> {
+            while(!token.isCancelled()){
+                Thread.yield();
+            }
+            cancelled.set(true);
+            throw new IllegalStateException("Stuck");
+        });
+        PortfolioOptimiser portfolio = new PortfolioOptimiser(Arrays.asList(stuck, exact, new LazyGreedyOptimiser()),
+                200, TimeUnit.MILLISECONDS);
+        long start = System.nanoTime();
+        AnytimeResult result = portfolio.optimise(scenario,
+                CancellationToken.withTimeout(200, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(cancelled.get());
+        assertFeasible(scenario, result.result);
+        assertFalse(result.optimal);
+        assertTrue(result.result.getTotalPower() <= new LazyGreedyOptimiser().optimise(scenario).getTotalPower());
+    }
+
+    /**
+     * Test that every optimiser of the race, including heuristics that would otherwise run on for minutes, has
+     * stopped by the time the race returns.
+     */
+    @Test
+    public void noRunnerLeftTest(){
+        Scenario scenario = new ScenarioGenerator(ScenarioGenerator.Layout.UNIFORM, 0.01, 2).generate(4_000);
+        AtomicInteger running = new AtomicInteger();
+        List<AnytimeOptimiser> optimisers = new ArrayList<>();
+        for(AnytimeOptimiser optimiser: Arrays.asList(new PowerOptimiserImpl(), new LazyGreedyOptimiser(),
+                new LocalSearchOptimiser(1, Integer.MAX_VALUE), exact)){
+            optimisers.add(anytime(optimiser, (s, token) -> {
+                running.incrementAndGet();
+                try {
+                    return optimiser.optimise(s, token);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }));
+        }
+        AnytimeResult result = new PortfolioOptimiser(optimisers).optimise(scenario,
+                CancellationToken.withTimeout(300, TimeUnit.MILLISECONDS));
+        assertEquals(0, running.get());
+        assertFeasible(scenario, result.result);
+    }
+
+    /**
+     * Test that failing optimisers and results leaving receivers out of range drop out of the race.
+     */
+    @Test
+    public void failureTest(){
+        Scenario scenario = randomScenario(new Random(4), 10, 20, 100);
+        AnytimeOptimiser failing = anytime(s -> {
+            throw new IllegalStateException("Failed");
+        });
+        AnytimeOptimiser infeasible = anytime(s -> new Result(s.transmitters));
+        Result result = new PortfolioOptimiser(Arrays.asList(failing, infeasible, new LazyGreedyOptimiser()))
+                .optimise(scenario);
+        assertEquals(new LazyGreedyOptimiser().optimise(scenario), result);
+    }
+
+    /**
+     * Test that a result leaving receivers out of range, offered to the incumbent by an optimiser while it runs and
+     * claimed optimal, never becomes the incumbent.
+     */
+    @Test
+    public void infeasibleOfferTest(){
+        Scenario scenario = randomScenario(new Random(5), 10, 20, 100);
+        AnytimeOptimiser infeasible = new AnytimeOptimiser() {
+            @Override
+            public Result optimise(Scenario s) {
+                return new Result(s.transmitters);
+            }
+
+            @Override
+            public AnytimeResult optimise(Scenario s, CancellationToken token) {
+                Result result = optimise(s);
+                return new AnytimeResult(result, result.getTotalPower(), true);
+            }
+        };
+        Result result = new PortfolioOptimiser(Arrays.asList(infeasible, new LazyGreedyOptimiser())).optimise(scenario);
+        assertFeasible(scenario, result);
+        assertEquals(new LazyGreedyOptimiser().optimise(scenario), result);
+    }
+
+    /**
+     * Test that the failure of the only optimiser is passed on.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void allFailTest(){
+        AnytimeOptimiser failing = anytime(s -> {
+            throw new IllegalStateException("Failed");
+        });
+        new PortfolioOptimiser(Arrays.asList(failing)).optimise(randomScenario(new Random(4), 10, 20, 100));
+    }
+
+    /**
+     * Method used to turn an optimiser into an anytime one that ignores its token, proves nothing and only returns
+     * its result rather than offering it.
+     */
+    private static AnytimeOptimiser anytime(PowerOptimiser optimiser){
+        return anytime(optimiser, (s, token) -> new AnytimeResult(optimiser.optimise(s), 0, false));
+    }
+
+    private static AnytimeOptimiser anytime(PowerOptimiser optimiser,
+                                            BiFunction<Scenario, CancellationToken, AnytimeResult> anytime){
+        return new AnytimeOptimiser() {
+            @Override
+            public Result optimise(Scenario scenario) {
+                return optimiser.optimise(scenario);
+            }
+
+            @Override
+            public AnytimeResult optimise(Scenario scenario, CancellationToken token) {
+                return anytime.apply(scenario, token);
+            }
+
+            @Override
+            public AnytimeResult optimise(Scenario scenario, CancellationToken token, SharedIncumbent incumbent) {
+                return anytime.apply(scenario, token);
+            }
+        };
+    }
+}
@@ -1,8 +1,11 @@
 package uk.philhannant.towers.optimisers;
 
 import org.junit.Test;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
 
 import static org.junit.Assert.assertEquals;
+import static uk.philhannant.towers.optimisers.TestScenarios.assertFeasible;
 import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
 
 /**
@@ -81,4 +84,23 @@ public class PowerOptimiserImplOptimiseTest {
     public void testScenario6() throws Exception {
         assertEquals(testScenarios.get(6).expectedResult, subject.optimise(testScenarios.get(6).scenario));
     }
+
+    /**
+     * Optimise test for every scenario when no single power increase is found, the search being cancelled before it
+     * tries any: the multiple increase is returned, which brings every receiver into range.
+     */
+    @Test
+    public void noSingleIncreaseTest(){
+        PowerOptimiserImpl optimiser = new PowerOptimiserImpl();
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        for(TestScenario testScenario: testScenarios){
+            Scenario scenario = testScenario.scenario;
+            Result result = optimiser.optimise(scenario, token).result;
+            assertFeasible(scenario, result);
+            if(!optimiser.getOutofRangeReceivers(scenario).isEmpty()){
+                assertEquals(new Result(optimiser.optimiseMultiple(scenario)), result);
+            }
+        }
+    }
 }
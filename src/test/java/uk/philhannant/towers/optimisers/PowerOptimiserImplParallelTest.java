@@ -0,0 +1,43 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Test;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class checking the parallel mode of the PowerOptimiserImpl class against the sequential mode.
+ */
+public class PowerOptimiserImplParallelTest {
+
+    private final PowerOptimiserImpl sequential = new PowerOptimiserImpl();
+
+    private final PowerOptimiserImpl parallel = new PowerOptimiserImpl(true);
+
+    /**
+     * Optimise test for every test scenario in parallel mode.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult, parallel.optimise(testScenario.scenario));
+        }
+    }
+
+    /**
+     * Test that both modes give identical results on generated scenarios, for every layout.
+     */
+    @Test
+    public void sameAsSequentialTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            for(int seed = 0; seed < 5; seed++){
+                Scenario scenario = new ScenarioGenerator(layout, 0.01, seed).generate(300);
+                assertEquals(sequential.getPossiblePowerIncrease(scenario), parallel.getPossiblePowerIncrease(scenario));
+                assertEquals(sequential.getClosestTransmitters(scenario), parallel.getClosestTransmitters(scenario));
+                assertEquals(sequential.optimise(scenario), parallel.optimise(scenario));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package uk.philhannant.towers.optimisers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the reducing optimiser and the scenario reduction behind it.
+ */
+public class ReducingOptimiserTest {
+
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    private final PowerOptimiserImpl utility = new PowerOptimiserImpl();
+
+    /**
+     * Optimise test for every test scenario.
+     */
+    @Test
+    public void testScenarios(){
+        PowerOptimiser subject = new ReducingOptimiser(exact);
+        for(TestScenario testScenario: testScenarios){
+            assertEquals(testScenario.expectedResult.getTotalPower(),
+                    subject.optimise(testScenario.scenario).getTotalPower());
+        }
+    }
+
+    /**
+     * Test each rule on a small scenario: a duplicate receiver, transmitters dominated by nearer ones, and the
+     * receivers left with a single option once they are dropped.
+     */
+    @Test
+    public void rulesTest(){
+        Scenario scenario = new Scenario(
+                ImmutableList.of(
+                        new Transmitter(1, new Point(0, 0), 1),
+                        new Transmitter(2, new Point(100, 100), 1),
+                        new Transmitter(3, new Point(104, 100), 0),
+                        new Transmitter(4, new Point(0, 1), 1),
+                        new Transmitter(5, new Point(500, 500), 0),
+                        new Transmitter(6, new Point(500, 497), 0)
+                ),
+                ImmutableList.of(
+                        new Receiver(1, new Point(0, 3)),
+                        new Receiver(2, new Point(100, 103)),
+                        new Receiver(3, new Point(100, 103)),
+                        new Receiver(4, new Point(101, 101)),
+                        new Receiver(5, new Point(500, 510))
+                )
+        );
+        ScenarioReduction reduction = ScenarioReduction.of(scenario);
+        assertEquals(1, reduction.duplicateReceivers);
+        assertEquals(3, reduction.dominatedTransmitters);
+        assertEquals(3, reduction.forcedRaises);
+        assertEquals(0, reduction.residual.receivers.size());
+        Result result = new ReducingOptimiser(exact).optimise(scenario);
+        assertEquals(exact.optimise(scenario), result);
+        assertEquals(ImmutableList.of(1, 3, 0, 2, 10, 0),
+                result.transmitters.stream().map(t -> t.power).collect(Collectors.toList()));
+    }
+
+    /**
+     * Compares the total power against the unreduced exact search on random scenarios.
+     */
+    @Test
+    public void matchesExactSearchTest(){
+        PowerOptimiser subject = new ReducingOptimiser(exact);
+        Random random = new Random(19);
+        for(int i = 0; i < 300; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(10), 1 + random.nextInt(14), 40);
+            Result result = subject.optimise(scenario);
+            assertTrue(utility.getOutofRangeReceivers(new Scenario(result.transmitters, scenario.receivers)).isEmpty());
+            assertEquals(exact.optimise(scenario).getTotalPower(), result.getTotalPower());
+        }
+    }
+
+    /**
+     * Test that generated scenarios shrink, that the exact optimum is kept, and that the results of a heuristic
+     * delegate still cover every receiver once expanded.
+     */
+    @Test
+    public void generatedScenariosTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            Scenario scenario = new ScenarioGenerator(layout, 0.01, 5).generate(300);
+            ScenarioReduction reduction = ScenarioReduction.of(scenario);
+            assertTrue(reduction.residual.transmitters.size() < scenario.transmitters.size() / 2);
+            assertTrue(reduction.residual.receivers.size() <= utility.getOutofRangeReceivers(scenario).size());
+            assertEquals(exact.optimise(scenario).getTotalPower(),
+                    new ReducingOptimiser(exact).optimise(scenario).getTotalPower());
+            for(PowerOptimiser heuristic: new PowerOptimiser[]{new AddTenOptimiser(), utility}){
+                Result result = reduction.expand(heuristic.optimise(reduction.residual));
+                assertTrue(utility.getOutofRangeReceivers(
+                        new Scenario(result.transmitters, scenario.receivers)).isEmpty());
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package uk.philhannant.towers.optimisers;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.ScenarioGenerator;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.philhannant.towers.optimisers.BranchAndBoundOptimiserTest.randomScenario;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the set cover lower bound.
+ */
+public class SetCoverBoundTest {
+    private final BranchAndBoundOptimiser exact = new BranchAndBoundOptimiser();
+
+    /**
+     * Test that the bound never exceeds the optimum of the test scenarios, and meets it on the smallest ones.
+     */
+    @Test
+    public void testScenarios(){
+        for(TestScenario testScenario: testScenarios){
+            int optimum = testScenario.expectedResult.getTotalPower();
+            int bound = SetCoverBound.lowerBound(testScenario.scenario);
+            assertTrue(bound <= optimum);
+            if(testScenario.scenario.transmitters.size() <= 2){
+                assertEquals(optimum, bound);
+            }
+        }
+    }
+
+    /**
+     * Test that the bound never exceeds the optimum, and that the original total power is a floor, on random
+     * scenarios.
+     */
+    @Test
+    public void randomScenariosTest(){
+        Random random = new Random(21);
+        int tight = 0;
+        for(int i = 0; i < 300; i++){
+            Scenario scenario = randomScenario(random, 1 + random.nextInt(10), 1 + random.nextInt(14), 40);
+            int optimum = exact.optimise(scenario).getTotalPower();
+            int bound = SetCoverBound.lowerBound(scenario);
+            assertTrue(bound <= optimum);
+            assertTrue(bound >= new Result(scenario.transmitters).getTotalPower());
+            if(bound == optimum){
+                tight++;
+            }
+        }
+        assertTrue(tight > 150);
+    }
+
+    /**
+     * Test that a heuristic result on a generated island gets a small but honest gap, and the exact one a proof.
+     */
+    @Test
+    public void certifyTest(){
+        for(ScenarioGenerator.Layout layout: ScenarioGenerator.Layout.values()){
+            Scenario scenario = new ScenarioGenerator(layout, 0.01, 3).generate(300);
+            AnytimeResult heuristic = SetCoverBound.certify(scenario, new PowerOptimiserImpl().optimise(scenario));
+            AnytimeResult optimal = SetCoverBound.certify(scenario, exact.optimise(scenario));
+            assertTrue(heuristic.lowerBound <= optimal.result.getTotalPower());
+            assertTrue(heuristic.getGap() < 0.5);
+            assertEquals(heuristic.lowerBound, optimal.lowerBound);
+        }
+    }
+
+    /**
+     * Test that a result meeting the bound is reported as proven and a wasteful one is not.
+     */
+    @Test
+    public void optimalFlagTest(){
+        Scenario scenario = new Scenario(
+                ImmutableList.of(new Transmitter(1, new Point(0, 0), 1), new Transmitter(2, new Point(10, 0), 1)),
+                ImmutableList.of(new Receiver(1, new Point(0, 3)), new Receiver(2, new Point(10, 4))));
+        assertEquals(7, SetCoverBound.lowerBound(scenario));
+        assertTrue(SetCoverBound.certify(scenario, exact.optimise(scenario)).optimal);
+        AnytimeResult wasteful = SetCoverBound.certify(scenario, new Result(ImmutableList.of(
+                new Transmitter(1, new Point(0, 0), 10), new Transmitter(2, new Point(10, 0), 1))));
+        assertFalse(wasteful.optimal);
+        assertEquals(7, wasteful.lowerBound);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.philhannant.towers.optimisers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.philhannant.towers.io.SolutionStore;
+import uk.philhannant.towers.model.Point;
+import uk.philhannant.towers.model.Receiver;
+import uk.philhannant.towers.model.Result;
+import uk.philhannant.towers.model.Scenario;
+import uk.philhannant.towers.model.Transmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static uk.philhannant.towers.optimisers.TestScenarios.testScenarios;
+
+/**
+ * Test class for the storing optimiser.
+ */
+public class StoringOptimiserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Test that scenarios solved before a restart, including moved and reordered copies, are answered from the
+     * store without running the delegate.
+     */
+    @Test
+    public void restartTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            StoringOptimiser subject = new StoringOptimiser(new BranchAndBoundOptimiser(), store);
+            for(TestScenario testScenario: testScenarios){
+                assertEquals(testScenario.expectedResult, subject.optimise(testScenario.scenario));
+            }
+            assertEquals(testScenarios.size(), subject.getMisses());
+        }
+        try(SolutionStore store = SolutionStore.open(directory, 1 << 20)){
+            StoringOptimiser subject = new StoringOptimiser(scenario -> {
+                throw new AssertionError("Expected the store to answer");
+            }, store);
+            for(TestScenario testScenario: testScenarios){
+                assertEquals(testScenario.expectedResult.getTotalPower(),
+                        subject.optimise(moved(testScenario.scenario)).getTotalPower());
+            }
+            assertEquals(testScenarios.size(), subject.getHits());
+            assertEquals(0, subject.getMisses());
+        }
+    }
+
+    private static Scenario moved(Scenario scenario){
+        List<Transmitter> transmitters = new ArrayList<>();
+        for(Transmitter t: scenario.transmitters){
+            transmitters.add(new Transmitter(t.id + 100, new Point(t.location.x + 7, t.location.y - 3), t.power));
+        }
+        Collections.reverse(transmitters);
+        List<Receiver> receivers = new ArrayList<>();
+        for(Receiver r: scenario.receivers){
+            receivers.add(new Receiver(r.id, new Point(r.location.x + 7, r.location.y - 3)));
+        }
+        return new Scenario(transmitters, receivers);
+    }
+}
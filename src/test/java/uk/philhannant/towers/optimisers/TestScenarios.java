@@ -1,10 +1,13 @@
 package uk.philhannant.towers.optimisers;
 
 import com.google.common.collect.ImmutableList;
+import uk.philhannant.towers.index.TransmitterIndex;
 import uk.philhannant.towers.model.*;
 
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+
 public abstract class TestScenarios {
     public static List<TestScenario> testScenarios = ImmutableList.of(
             new TestScenario(
@@ -166,4 +169,15 @@ public abstract class TestScenarios {
                     )
             )
     );
+
+    /**
+     * Asserts that a result brings every receiver of the scenario into range.
+     *
+     * @param scenario the scenario optimised
+     * @param result   the result
+     */
+    public static void assertFeasible(Scenario scenario, Result result){
+        assertEquals(0, TransmitterIndex.outOfRange(
+                CompactScenario.of(new Scenario(result.transmitters, scenario.receivers))).length);
+    }
 }